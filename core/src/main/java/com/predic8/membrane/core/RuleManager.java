@@ -33,6 +33,7 @@ import com.predic8.membrane.core.exchangestore.ExchangeStore;
 import com.predic8.membrane.core.model.IExchangesStoreListener;
 import com.predic8.membrane.core.model.IRuleChangeListener;
 import com.predic8.membrane.core.rules.Rule;
+import com.predic8.membrane.core.rules.RuleIndex;
 import com.predic8.membrane.core.rules.RuleKey;
 import com.predic8.membrane.core.transport.http.IpPort;
 import com.predic8.membrane.core.transport.ssl.SSLContext;
@@ -46,6 +47,8 @@ public class RuleManager {
 	private Router router;
 
 	private List<Rule> rules = new Vector<>();
+	private volatile long ruleVersion; // incremented whenever rules are added, removed or reordered
+	private volatile RuleIndex index;
 	private List<RuleDefinitionSource> ruleSources = new ArrayList<>();
 	private Set<IRuleChangeListener> listeners = new HashSet<>();
 
@@ -118,6 +121,7 @@ public class RuleManager {
 
 		rules.add(rule);
 		ruleSources.add(source);
+		ruleVersion++;
 
 		for (IRuleChangeListener listener : listeners) {
 			listener.ruleAdded(rule);
@@ -130,6 +134,7 @@ public class RuleManager {
 
 		rules.add(rule);
 		ruleSources.add(source);
+		ruleVersion++;
 
 		for (IRuleChangeListener listener : listeners) {
 			listener.ruleAdded(rule);
@@ -196,6 +201,7 @@ public class RuleManager {
 			return;
 		Collections.swap(rules, index, index - 1);
 		Collections.swap(ruleSources, index, index - 1);
+		ruleVersion++;
 		for (IRuleChangeListener listener : listeners) {
 			listener.rulePositionsChanged();
 		}
@@ -207,12 +213,14 @@ public class RuleManager {
 			return;
 		Collections.swap(rules, index, index + 1);
 		Collections.swap(ruleSources, index, index + 1);
+		ruleVersion++;
 		for (IRuleChangeListener listener : listeners) {
 			listener.rulePositionsChanged();
 		}
 	}
 
 	public void ruleChanged(Rule rule) {
+		ruleVersion++;
 		for (IRuleChangeListener listener : listeners) {
 			listener.ruleUpdated(rule);
 		}
@@ -220,31 +228,21 @@ public class RuleManager {
 	}
 
 	public Rule getMatchingRule(String hostHeader, String method, String uri, String version, int port, String localIP) {
-		for (Rule rule : rules) {
-			RuleKey key = rule.getKey();
-
-			log.debug("Host from rule: " + key.getHost() + ";   Host from parameter rule key: " + hostHeader);
-
-			if (!rule.isActive())
-				continue;
-			if (!key.matchesVersion(version))
-				continue;
-			if (key.getIp() != null && !key.getIp().equals(localIP))
-				continue;
-			if (!key.matchesHostHeader(hostHeader))
-				continue;
-			if (key.getPort() != -1 && port != -1 && key.getPort() != port)
-				continue;
-			if (!key.getMethod().equals(method) && !key.isMethodWildcard())
-				continue;
-			if (key.isUsePathPattern() && !key.matchesPath(uri))
-				continue;
-			if (!key.complexMatch(hostHeader, method, uri, version, port, localIP))
-				continue;
-
-			return rule;
+		return getIndex().getMatchingRule(hostHeader, method, uri, version, port, localIP);
+	}
+
+	/**
+	 * Returns the index over the current rules, building a new one if rules or their keys have changed.
+	 * Concurrent callers might build the index more than once, but never use an outdated one.
+	 */
+	private RuleIndex getIndex() {
+		RuleIndex i = index;
+		long version = ruleVersion;
+		if (i == null || i.isStale(version)) {
+			i = new RuleIndex(new ArrayList<>(rules), version);
+			index = i;
 		}
-		return null;
+		return i;
 	}
 
 	public void addRuleChangeListener(IRuleChangeListener viewer) {
@@ -272,6 +270,7 @@ public class RuleManager {
 		int i = rules.indexOf(rule);
 		rules.remove(i);
 		ruleSources.remove(i);
+		ruleVersion++;
 
 		for (IRuleChangeListener listener : listeners) {
 			listener.ruleRemoved(rule, rules.size());
@@ -284,6 +283,7 @@ public class RuleManager {
 
 		int i = rules.indexOf(rule);
 		rules.set(i, newRule);
+		ruleVersion++;
 
 		for (IRuleChangeListener listener : listeners) {
 			listener.ruleRemoved(rule, rules.size());
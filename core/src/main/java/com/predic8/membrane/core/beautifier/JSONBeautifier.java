@@ -15,6 +15,7 @@ limitations under the License. */
 package com.predic8.membrane.core.beautifier;
 
 import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.async.*;
 import com.fasterxml.jackson.databind.*;
 
 import java.io.*;
@@ -38,6 +39,59 @@ public class JSONBeautifier {
 		return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(content));
 	}
 
+	/**
+	 * Pretty prints token by token, so the document is never held in memory.
+	 *
+	 * @return a stream accepting a UTF-8 encoded JSON document, writing it formatted to <code>out</code>. Closing
+	 * the stream closes <code>out</code>.
+	 */
+	public OutputStream beautify(OutputStream out) throws IOException {
+		return new BeautifyingOutputStream(objectMapper.getFactory(), out);
+	}
+
+	private static class BeautifyingOutputStream extends OutputStream {
+
+		private final JsonParser parser;
+		private final ByteArrayFeeder feeder;
+		private final JsonGenerator generator;
+
+		private BeautifyingOutputStream(JsonFactory factory, OutputStream out) throws IOException {
+			parser = factory.createNonBlockingByteArrayParser();
+			feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+			generator = factory.createGenerator(out).useDefaultPrettyPrinter();
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return;
+			// The parser copies what it needs of an incomplete token, so the input can be released after draining.
+			feeder.feedInput(b, off, off + len);
+			copyAvailableTokens();
+		}
+
+		private void copyAvailableTokens() throws IOException {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+				generator.copyCurrentEvent(parser);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (generator.isClosed())
+				return;
+			feeder.endOfInput();
+			copyAvailableTokens();
+			parser.close();
+			generator.close();
+		}
+	}
+
 	public void configure() {
 		objectMapper.configure(INDENT_OUTPUT, indentOutput);
 		objectMapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, allowedUnquotedFieldNames);
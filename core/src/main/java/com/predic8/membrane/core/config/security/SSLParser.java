@@ -43,6 +43,8 @@ public class SSLParser {
 	private boolean showSSLExceptions = true;
 	private boolean useAsDefault = true;
 	private boolean useExperimentalHttp2;
+	private int sessionCacheSize = -1;
+	private int sessionTimeout = -1;
 
 	@Override
 	public boolean equals(Object obj) {
@@ -65,14 +67,16 @@ public class SSLParser {
 				&& Objects.equal(serverName, other.serverName)
 				&& Objects.equal(showSSLExceptions, other.showSSLExceptions)
 				&& Objects.equal(useAsDefault, other.useAsDefault)
-				&& Objects.equal(useExperimentalHttp2, other.useExperimentalHttp2);
+				&& Objects.equal(useExperimentalHttp2, other.useExperimentalHttp2)
+				&& Objects.equal(sessionCacheSize, other.sessionCacheSize)
+				&& Objects.equal(sessionTimeout, other.sessionTimeout);
 	}
 
 	@Override
 	public int hashCode() {
 		return java.util.Objects.hash(acme, keyStore, key, keyGenerator, trustStore, trust, algorithm, protocol,
 				protocols, ciphers, clientAuth, ignoreTimestampCheckFailure, endpointIdentificationAlgorithm,
-				serverName, showSSLExceptions, useAsDefault, useExperimentalHttp2);
+				serverName, showSSLExceptions, useAsDefault, useExperimentalHttp2, sessionCacheSize, sessionTimeout);
 	}
 
 	public KeyStore getKeyStore() {
@@ -272,6 +276,35 @@ public class SSLParser {
 		this.useExperimentalHttp2 = useHttp2;
 	}
 
+	public int getSessionCacheSize() {
+		return sessionCacheSize;
+	}
+
+	/**
+	 * @description The maximum number of TLS sessions cached for resumption by the server, 0 for no limit.
+	 * Clients supporting session tickets resume their sessions without using the cache.
+	 * @default (Java default: 20480)
+	 */
+	@MCAttribute
+	public void setSessionCacheSize(int sessionCacheSize) {
+		this.sessionCacheSize = sessionCacheSize;
+	}
+
+	public int getSessionTimeout() {
+		return sessionTimeout;
+	}
+
+	/**
+	 * @description The time in seconds after which a TLS session can no longer be resumed, 0 for no limit. This
+	 * applies to both the server's session cache and session tickets. (The keys protecting session tickets are rotated
+	 * by Java, see the system property jdk.tls.server.statelessKeyTimeout.)
+	 * @default (Java default: 86400)
+	 */
+	@MCAttribute
+	public void setSessionTimeout(int sessionTimeout) {
+		this.sessionTimeout = sessionTimeout;
+	}
+
 	public Acme getAcme() {
 		return acme;
 	}
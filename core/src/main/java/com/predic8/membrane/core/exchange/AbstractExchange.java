@@ -66,6 +66,11 @@ public abstract class AbstractExchange {
 
 	private long tResReceived;
 
+	/**
+	 * The points in time above as {@link System#nanoTime()} values, used to measure durations below one millisecond.
+	 */
+	private long nReqSent, nReqReceived, nResSent, nResReceived;
+
 	private List<String> destinations = new ArrayList<>();
 
 
@@ -258,6 +263,11 @@ public abstract class AbstractExchange {
 
 	public void setTimeReqSent(long tReqSent) {
 		this.tReqSent = tReqSent;
+		nReqSent = toNanoTime(tReqSent);
+	}
+
+	public long getNanoTimeReqSent() {
+		return nReqSent;
 	}
 
 	public long getTimeReqReceived() {
@@ -266,6 +276,11 @@ public abstract class AbstractExchange {
 
 	public void setTimeReqReceived(long tReqReceived) {
 		this.tReqReceived = tReqReceived;
+		nReqReceived = toNanoTime(tReqReceived);
+	}
+
+	public long getNanoTimeReqReceived() {
+		return nReqReceived;
 	}
 
 	public void received() {
@@ -278,6 +293,11 @@ public abstract class AbstractExchange {
 
 	public void setTimeResSent(long tResSent) {
 		this.tResSent = tResSent;
+		nResSent = toNanoTime(tResSent);
+	}
+
+	public long getNanoTimeResSent() {
+		return nResSent;
 	}
 
 	public long getTimeResReceived() {
@@ -286,6 +306,21 @@ public abstract class AbstractExchange {
 
 	public void setTimeResReceived(long tResReceived) {
 		this.tResReceived = tResReceived;
+		nResReceived = toNanoTime(tResReceived);
+	}
+
+	public long getNanoTimeResReceived() {
+		return nResReceived;
+	}
+
+	/**
+	 * Callers usually pass the current time; older timestamps (e.g. of copies) are translated with millisecond
+	 * precision.
+	 */
+	private static long toNanoTime(long millis) {
+		long nanos = System.nanoTime();
+		long age = System.currentTimeMillis() - millis;
+		return Math.abs(age) <= 1 ? nanos : nanos - age * 1_000_000;
 	}
 
 	public String getOriginalRequestUri() {
@@ -425,6 +460,13 @@ public abstract class AbstractExchange {
 				(response != null ? response.estimateHeapSize() : 0);
 	}
 
+	private static void copyNanoTimes(AbstractExchange source, AbstractExchange copy) {
+		copy.nReqSent = source.nReqSent;
+		copy.nReqReceived = source.nReqReceived;
+		copy.nResSent = source.nResSent;
+		copy.nResReceived = source.nResReceived;
+	}
+
 	public static <T extends AbstractExchange> T updateCopy(T source, T copy, Runnable bodyUpdatedCallback, BodyCollectingMessageObserver.Strategy strategy, long limit) throws Exception {
 		if (bodyUpdatedCallback != null) {
 			if (source.getRequest() != null)
@@ -444,6 +486,7 @@ public abstract class AbstractExchange {
 		copy.setTimeReqReceived(source.getTimeReqReceived());
 		copy.setTimeResSent(source.getTimeResSent());
 		copy.setTimeResReceived(source.getTimeResReceived());
+		copyNanoTimes(source, copy);
 		copy.setDestinations(new ArrayList<>(source.getDestinations()));
 		copy.setRemoteAddr(source.getRemoteAddr());
 		copy.setRemoteAddrIp(source.getRemoteAddrIp());
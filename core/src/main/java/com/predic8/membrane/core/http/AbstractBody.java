@@ -46,6 +46,7 @@ public abstract class AbstractBody {
 	protected List<Chunk> chunks = new ArrayList<>();
 	protected List<MessageObserver> observers = new ArrayList<>(1);
 	private boolean wasStreamed = false;
+	protected long streamedLength;
 
 	public void read() throws IOException {
 		if (wasStreamed)
@@ -97,7 +98,7 @@ public abstract class AbstractBody {
 	 */
 	public byte[] getContent() throws IOException {
 		read();
-		byte[] content = new byte[getLength()];
+		byte[] content = new byte[toArrayLength(getLength())];
 		int destPos = 0;
 		for (Chunk chunk : chunks) {
 			destPos = chunk.copyChunk(content, destPos);
@@ -139,10 +140,10 @@ public abstract class AbstractBody {
 	 *
 	 * @return the length of the return value of {@link #getContent()}
 	 */
-	public int getLength() throws IOException {
+	public long getLength() throws IOException {
 		read();
 
-		int length = 0;
+		long length = 0;
 		for (Chunk chunk : chunks) {
 			length += chunk.getLength();
 		}
@@ -175,6 +176,15 @@ public abstract class AbstractBody {
 
 	protected abstract byte[] getRawLocal() throws IOException;
 
+	/**
+	 * Bodies larger than 2 GB can only be accessed using {@link #getContentAsStream()}.
+	 */
+	protected static int toArrayLength(long length) throws IOException {
+		if (length > Integer.MAX_VALUE - 8)
+			throw new IOException("Body of " + length + " bytes is too large to be held in a byte array.");
+		return (int) length;
+	}
+
 	protected boolean hasRelevantObservers() {
 		return observers.stream().filter(messageObserver -> !(messageObserver instanceof NonRelevantBodyObserver)).toList().size() > 0;
 	}
@@ -218,6 +228,13 @@ public abstract class AbstractBody {
 		return wasStreamed;
 	}
 
+	/**
+	 * @return the number of body bytes forwarded, if the body was streamed (see {@link #wasStreamed()})
+	 */
+	public long getStreamedLength() {
+		return streamedLength;
+	}
+
 	public Header getTrailer() {
 		return null;
 	}
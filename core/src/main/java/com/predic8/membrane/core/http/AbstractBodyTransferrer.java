@@ -13,8 +13,10 @@
    limitations under the License. */
 package com.predic8.membrane.core.http;
 
+import com.predic8.membrane.core.util.*;
+
 import javax.annotation.Nullable;
-import java.io.IOException;
+import java.io.*;
 
 /**
  * Used to send a message body.
@@ -26,6 +28,14 @@ public abstract class AbstractBodyTransferrer {
 	public abstract void write(byte[] content, int i, int length) throws IOException;
 	public abstract void write(Chunk chunk) throws IOException;
 
+	/**
+	 * Copies the next <code>length</code> bytes from <code>in</code> as one chunk. Implementations should use
+	 * <code>buffer</code> instead of materializing the chunk.
+	 */
+	public void write(InputStream in, int length, byte[] buffer) throws IOException {
+		write(new Chunk(ByteUtil.readByteArray(in, length)));
+	}
+
 	public abstract void finish(@Nullable Header header) throws IOException;
 
 }
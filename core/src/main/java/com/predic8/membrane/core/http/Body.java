@@ -18,6 +18,8 @@ import com.predic8.membrane.core.util.*;
 import org.slf4j.*;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.*;
 
 /**
  * A message body (streaming, if possible). Use a subclass of {@link ChunkedBody} instead, if
@@ -32,19 +34,27 @@ import java.io.*;
 public class Body extends AbstractBody {
 
 	private final static int BUFFER_SIZE;
-	private final static int MAX_CHUNK_LENGTH;
+	final static int MAX_CHUNK_LENGTH;
+	final static long SPILL_THRESHOLD;
+	final static Path SPILL_DIRECTORY;
 
 	static {
 		String bufferSize = System.getProperty("membrane.core.http.body.buffersize");
 		BUFFER_SIZE = bufferSize == null ? 8192 : Integer.parseInt(bufferSize);
 		String maxChunkLength = System.getProperty("membrane.core.http.body.maxchunklength");
 		MAX_CHUNK_LENGTH = maxChunkLength == null ? 1_000_000_000 : Integer.parseInt(maxChunkLength);
+		// bytes of a body kept in memory when it is read, the rest goes to a temporary file (-1: no limit)
+		String spillThreshold = System.getProperty("membrane.core.http.body.spillthreshold");
+		SPILL_THRESHOLD = spillThreshold == null ? 64 * 1024 * 1024 : Long.parseLong(spillThreshold);
+		String spillDirectory = System.getProperty("membrane.core.http.body.spilldirectory");
+		SPILL_DIRECTORY = Paths.get(spillDirectory == null ? System.getProperty("java.io.tmpdir") : spillDirectory);
 	}
 
+	static final BufferPool BUFFERS = new BufferPool(BUFFER_SIZE);
+
 	private static final Logger log = LoggerFactory.getLogger(Body.class.getName());
 	private final InputStream inputStream;
 	private final long length;
-	private long streamedLength;
 
 
 	public Body(InputStream in) throws IOException {
@@ -66,15 +76,11 @@ public class Body extends AbstractBody {
 
 	@Override
 	protected void readLocal() throws IOException {
-		long l = length;
-		while (l > 0 || l == -1) {
-			int chunkLength = l > MAX_CHUNK_LENGTH ? MAX_CHUNK_LENGTH : (int)l;
-			Chunk chunk = new Chunk(ByteUtil.readByteArray(inputStream, chunkLength));
+		new BodyStorage().read(inputStream, length, chunk -> {
 			chunks.add(chunk);
 			for (MessageObserver observer : observers)
 				observer.bodyChunk(chunk);
-			l -= chunkLength;
-		}
+		});
 	}
 
 	public void discard() throws IOException {
@@ -89,78 +95,105 @@ public class Body extends AbstractBody {
 		byte[] buffer = null;
 		boolean hasRelevantObserver = hasRelevantObservers();
 		if (hasRelevantObserver)
-			buffer = new byte[BUFFER_SIZE];
-
-		chunks.clear();
-		long toSkip = length;
-		while (toSkip > 0) {
-			long skipped;
-			if (hasRelevantObserver) {
-				skipped = inputStream.read(buffer);
-				if (skipped > 0)
-					for (MessageObserver observer : observers)
-						observer.bodyChunk(buffer, 0, (int)skipped);
-			} else {
-				skipped = inputStream.skip(toSkip);
+			buffer = BUFFERS.acquire();
+
+		try {
+			chunks.clear();
+			long toSkip = length;
+			while (toSkip > 0) {
+				long skipped;
+				if (hasRelevantObserver) {
+					skipped = inputStream.read(buffer);
+					if (skipped > 0)
+						for (MessageObserver observer : observers)
+							observer.bodyChunk(buffer, 0, (int)skipped);
+				} else {
+					skipped = inputStream.skip(toSkip);
+				}
+				if (skipped <= 0)
+					break; // EOF
+				toSkip -= skipped;
 			}
-			if (skipped <= 0)
-				break; // EOF
-			toSkip -= skipped;
+		} finally {
+			if (buffer != null)
+				BUFFERS.release(buffer);
 		}
 		markAsRead();
 	}
 
 	@Override
 	protected void writeAlreadyRead(AbstractBodyTransferrer out) throws IOException {
-		if (getLength() > 0)
-			out.write(getContent(), 0, getLength());
+		read();
+		for (Chunk chunk : chunks)
+			if (chunk.getLength() > 0)
+				out.write(chunk.getContent(), 0, chunk.getLength());
 		out.finish(null);
 	}
 
 	@Override
 	protected void writeNotRead(AbstractBodyTransferrer out) throws IOException {
-		byte[] buffer = new byte[BUFFER_SIZE];
-
-		long totalLength = 0;
-		int length;
-		chunks.clear();
-		while ((this.length > totalLength || this.length == -1) && (length = inputStream.read(buffer)) > 0) {
-			totalLength += length;
-			out.write(buffer, 0, length);
-			byte[] chunk = new byte[length];
-			System.arraycopy(buffer, 0, chunk, 0, length);
-			Chunk chunk1 = new Chunk(chunk);
-			chunks.add(chunk1);
-			for (MessageObserver observer : observers)
-				observer.bodyChunk(chunk1);
+		byte[] buffer = BUFFERS.acquire();
+		try {
+			long totalLength = 0;
+			int length;
+			chunks.clear();
+			while ((length = readNext(buffer, totalLength)) > 0) {
+				totalLength += length;
+				out.write(buffer, 0, length);
+				Chunk chunk = new Chunk(Arrays.copyOf(buffer, length));
+				chunks.add(chunk);
+				for (MessageObserver observer : observers)
+					observer.bodyChunk(chunk);
+			}
+		} finally {
+			BUFFERS.release(buffer);
 		}
 
 		out.finish(null);
 		markAsRead();
 	}
 
+	/**
+	 * Forwards the body using a pooled buffer. Nothing is retained, observers only see the buffer while
+	 * {@link MessageObserver#bodyChunk(byte[], int, int)} is running.
+	 */
 	@Override
 	protected void writeStreamed(AbstractBodyTransferrer out) throws IOException {
-		byte[] buffer = new byte[BUFFER_SIZE];
-
-		long totalLength = 0;
-		int length;
-		chunks.clear();
-		while ((this.length > totalLength || this.length == -1) && (length = inputStream.read(buffer)) > 0) {
-			totalLength += length;
-			streamedLength += length;
-			out.write(buffer, 0, length);
-			for (MessageObserver observer : observers)
-				observer.bodyChunk(buffer, 0, length);
+		byte[] buffer = BUFFERS.acquire();
+		try {
+			long totalLength = 0;
+			int length;
+			chunks.clear();
+			while ((length = readNext(buffer, totalLength)) > 0) {
+				totalLength += length;
+				streamedLength += length;
+				out.write(buffer, 0, length);
+				for (MessageObserver observer : observers)
+					observer.bodyChunk(buffer, 0, length);
+			}
+		} finally {
+			BUFFERS.release(buffer);
 		}
 		out.finish(null);
 		markAsRead();
 	}
 
+	/**
+	 * Reads into the buffer, but not beyond the end of the body (which might be followed by the next message
+	 * on the same connection).
+	 */
+	private int readNext(byte[] buffer, long totalLength) throws IOException {
+		if (length == -1)
+			return inputStream.read(buffer);
+		if (totalLength >= length)
+			return -1;
+		return inputStream.read(buffer, 0, (int) Math.min(buffer.length, length - totalLength));
+	}
+
 	@Override
-	public int getLength() throws IOException {
+	public long getLength() throws IOException {
 		if (wasStreamed())
-			return (int)streamedLength; // TODO: refactor length to long
+			return streamedLength;
 		return super.getLength();
 	}
 
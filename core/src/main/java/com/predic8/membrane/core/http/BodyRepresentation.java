@@ -0,0 +1,81 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.http;
+
+import com.fasterxml.jackson.databind.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+
+import javax.xml.parsers.*;
+
+/**
+ * A representation parsed from the body of a message, see {@link Message#getParsedBody(BodyRepresentation)}.
+ * <p>
+ * Representations are identified by instance, so each one has to be created once and kept in a constant. The parsed
+ * objects are shared by all interceptors handling the message and must not be modified.
+ */
+public final class BodyRepresentation<T> {
+
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(() -> {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		try {
+			return dbf.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+	});
+
+	/**
+	 * The decoded body parsed as JSON tree.
+	 */
+	public static final BodyRepresentation<JsonNode> JSON = new BodyRepresentation<>("JSON",
+			msg -> om.readTree(msg.getBodyAsStreamDecoded()));
+
+	/**
+	 * The decoded body parsed as namespace aware DOM, read in the charset of the message.
+	 */
+	public static final BodyRepresentation<Document> DOM = new BodyRepresentation<>("DOM", msg -> {
+		InputSource is = new InputSource(msg.getBodyAsStreamDecoded());
+		is.setEncoding(msg.getCharset());
+		DocumentBuilder db = documentBuilders.get();
+		db.reset();
+		return db.parse(is);
+	});
+
+	public interface Parser<T> {
+		T parse(Message msg) throws Exception;
+	}
+
+	private final String name;
+	private final Parser<T> parser;
+
+	public BodyRepresentation(String name, Parser<T> parser) {
+		this.name = name;
+		this.parser = parser;
+	}
+
+	T parse(Message msg) throws Exception {
+		return parser.parse(msg);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,126 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import com.predic8.membrane.core.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.function.*;
+
+/**
+ * Turns the content of a body into {@link Chunk}s while it is read.
+ * <p>
+ * Up to a threshold (per body), the content is kept in memory. Everything beyond is written to a
+ * {@link SpillFile} and represented by {@link FileChunk}s of at most {@link #SEGMENT_SIZE} bytes, so reading a
+ * large body only needs a fixed amount of heap.
+ */
+class BodyStorage {
+
+	static final int SEGMENT_SIZE = 1 << 20;
+
+	private final long threshold;
+	private final Path directory;
+	private long inMemory;
+
+	private SpillFile file;
+	private long emitted;
+
+	BodyStorage() {
+		this(Body.SPILL_THRESHOLD, Body.SPILL_DIRECTORY);
+	}
+
+	/**
+	 * @param threshold the number of bytes kept in memory, or -1 to never use a file
+	 */
+	BodyStorage(long threshold, Path directory) {
+		this.threshold = threshold;
+		this.directory = directory;
+	}
+
+	/**
+	 * Reads <code>length</code> bytes (or until the end of the stream, if -1) and passes them on as chunks.
+	 */
+	void read(InputStream in, long length, Consumer<Chunk> consumer) throws IOException {
+		if (length != -1 && (threshold == -1 || inMemory + length <= threshold)) {
+			while (length > 0) {
+				int chunkLength = (int) Math.min(length, Body.MAX_CHUNK_LENGTH);
+				consumer.accept(new Chunk(ByteUtil.readByteArray(in, chunkLength)));
+				inMemory += chunkLength;
+				length -= chunkLength;
+			}
+			return;
+		}
+		if (length == -1 && threshold == -1) {
+			byte[] content = ByteUtil.getByteArrayData(in);
+			inMemory += content.length;
+			consumer.accept(new Chunk(content));
+			return;
+		}
+		readBounded(in, length, consumer);
+	}
+
+	private void readBounded(InputStream in, long length, Consumer<Chunk> consumer) throws IOException {
+		ByteArrayOutputStream memory = new ByteArrayOutputStream();
+		byte[] buffer = Body.BUFFERS.acquire();
+		try {
+			while (length != 0) {
+				int count = in.read(buffer, 0, length == -1 ? buffer.length : (int) Math.min(buffer.length, length));
+				if (count < 0)
+					break;
+				if (length != -1)
+					length -= count;
+				int toMemory = (int) Math.min(count, threshold - inMemory);
+				if (toMemory > 0) {
+					memory.write(buffer, 0, toMemory);
+					inMemory += toMemory;
+				}
+				if (count > toMemory) {
+					if (memory.size() > 0) {
+						consumer.accept(new Chunk(memory.toByteArray()));
+						memory.reset();
+					}
+					spill(buffer, Math.max(toMemory, 0), count - Math.max(toMemory, 0), consumer);
+				}
+			}
+		} finally {
+			Body.BUFFERS.release(buffer);
+		}
+		if (memory.size() > 0)
+			consumer.accept(new Chunk(memory.toByteArray()));
+		emitSpilled(consumer, 1);
+	}
+
+	private void spill(byte[] buffer, int offset, int length, Consumer<Chunk> consumer) throws IOException {
+		if (file == null)
+			file = new SpillFile(directory);
+		file.append(buffer, offset, length);
+		emitSpilled(consumer, SEGMENT_SIZE);
+	}
+
+	private void emitSpilled(Consumer<Chunk> consumer, int minimumLength) {
+		if (file == null)
+			return;
+		while (file.size() - emitted >= minimumLength) {
+			int length = (int) Math.min(file.size() - emitted, SEGMENT_SIZE);
+			consumer.accept(new FileChunk(file, emitted, length));
+			emitted += length;
+		}
+	}
+
+	boolean isSpilled() {
+		return file != null;
+	}
+}
@@ -0,0 +1,79 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A small pool of equally sized byte arrays, used to copy message bodies from the input to the output stream
+ * without allocating a new buffer for every message.
+ * <p>
+ * The pool is striped by thread: a thread looks for a free buffer near its own slot first, so threads rarely
+ * compete for the same slot. No thread locals are used, as the pool also has to work for (short-lived) virtual
+ * threads. If no buffer is available, a new one is allocated; if all slots are taken, a returned buffer is left
+ * to the garbage collector.
+ */
+public class BufferPool {
+
+	private static final int PROBES = 4;
+
+	private final int bufferSize;
+	private final AtomicReferenceArray<byte[]> slots;
+	private final int mask;
+
+	public BufferPool(int bufferSize) {
+		this(bufferSize, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	public BufferPool(int bufferSize, int slots) {
+		this.bufferSize = bufferSize;
+		int size = Integer.highestOneBit(Math.max(slots, PROBES) - 1) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	public byte[] acquire() {
+		int start = stripe();
+		for (int i = 0; i < PROBES; i++) {
+			int index = (start + i) & mask;
+			byte[] buffer = slots.get(index);
+			if (buffer != null && slots.compareAndSet(index, buffer, null))
+				return buffer;
+		}
+		return new byte[bufferSize];
+	}
+
+	/**
+	 * Returns a buffer obtained by {@link #acquire()}. The caller must not use the buffer afterwards.
+	 */
+	public void release(byte[] buffer) {
+		if (buffer.length != bufferSize)
+			return;
+		int start = stripe();
+		for (int i = 0; i < PROBES; i++) {
+			int index = (start + i) & mask;
+			if (slots.get(index) == null && slots.compareAndSet(index, null, buffer))
+				return;
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	private int stripe() {
+		return (int) Thread.currentThread().getId() * PROBES;
+	}
+}
@@ -49,7 +49,7 @@ public class Chunk {
 	}
 
 	public void write(OutputStream out) throws IOException {
-		if (content == null || out == null)
+		if (getLength() == 0 || out == null)
 			return;
 
 		out.write(getLengthBytes());
@@ -65,13 +65,13 @@ public class Chunk {
 	 */
 	@Override
 	public String toString() {
-		if (content == null)
+		if (getLength() == 0)
 			return "";
-		return new String(content, UTF_8);
+		return new String(getContent(), UTF_8);
 	}
 
 	public int copyChunk(byte[] raw, int destPos) {
-		System.arraycopy(content, 0, raw, destPos, getLength());
+		System.arraycopy(getContent(), 0, raw, destPos, getLength());
 		return destPos + getLength();
 	}
 
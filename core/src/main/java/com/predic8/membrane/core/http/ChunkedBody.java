@@ -34,7 +34,6 @@ public class ChunkedBody extends AbstractBody {
 
 	private static final Logger log = LoggerFactory.getLogger(ChunkedBody.class.getName());
 	private final InputStream inputStream;
-	private long lengthStreamed;
 	private Header trailer;
 
 	public ChunkedBody(InputStream in) {
@@ -42,11 +41,13 @@ public class ChunkedBody extends AbstractBody {
 		inputStream = in;
 	}
 
-	private static List<Chunk> readChunks(InputStream in) throws IOException {
+	private final BodyStorage storage = new BodyStorage();
+
+	private List<Chunk> readChunks(InputStream in) throws IOException {
 		List<Chunk> chunks = new ArrayList<>();
 		int chunkSize;
 		while ((chunkSize = readChunkSize(in)) > 0) {
-			chunks.add(new Chunk(ByteUtil.readByteArray(in, chunkSize)));
+			storage.read(in, chunkSize, chunks::add);
 			in.read(); // CR
 			in.read(); // LF
 		}
@@ -163,18 +164,24 @@ public class ChunkedBody extends AbstractBody {
 		}
 
 		return new BodyInputStream(chunks) {
+			// a large chunk on the wire might be stored as several chunks
+			private final Deque<Chunk> pending = new ArrayDeque<>();
+
 			@Override
 			protected Chunk readNextChunk() throws IOException {
+				if (!pending.isEmpty())
+					return pending.poll();
 				if (bodyComplete)
 					return null;
 				int chunkSize = readChunkSize(inputStream);
 				if (chunkSize > 0) {
-					Chunk c = new Chunk(ByteUtil.readByteArray(inputStream, chunkSize));
+					storage.read(inputStream, chunkSize, pending::add);
 					inputStream.read(); // CR
 					inputStream.read(); // LF
 					for (MessageObserver observer : observers)
-						observer.bodyChunk(c);
-					return c;
+						for (Chunk c : pending)
+							observer.bodyChunk(c);
+					return pending.poll();
 				} else {
 					trailer = readTrailer(inputStream);
 
@@ -211,6 +218,16 @@ public class ChunkedBody extends AbstractBody {
 	@Override
 	protected void writeStreamed(AbstractBodyTransferrer out) throws IOException {
 		log.debug("writeStreamed");
+		if (hasRelevantObservers())
+			writeStreamedChunks(out);
+		else
+			writeStreamedPooled(out);
+		trailer = readTrailer(inputStream);
+		out.finish(trailer);
+		markAsRead();
+	}
+
+	private void writeStreamedChunks(AbstractBodyTransferrer out) throws IOException {
 		int chunkSize;
 		while ((chunkSize = readChunkSize(inputStream)) > 0) {
 			Chunk chunk = new Chunk(ByteUtil.readByteArray(inputStream, chunkSize));
@@ -219,17 +236,32 @@ public class ChunkedBody extends AbstractBody {
 				observer.bodyChunk(chunk);
 			inputStream.read(); // CR
 			inputStream.read(); // LF
-			lengthStreamed += chunkSize;
+			streamedLength += chunkSize;
+		}
+	}
+
+	/**
+	 * Copies the chunks through a pooled buffer, as no observer needs to see them.
+	 */
+	private void writeStreamedPooled(AbstractBodyTransferrer out) throws IOException {
+		byte[] buffer = Body.BUFFERS.acquire();
+		try {
+			int chunkSize;
+			while ((chunkSize = readChunkSize(inputStream)) > 0) {
+				out.write(inputStream, chunkSize, buffer);
+				inputStream.read(); // CR
+				inputStream.read(); // LF
+				streamedLength += chunkSize;
+			}
+		} finally {
+			Body.BUFFERS.release(buffer);
 		}
-		trailer = readTrailer(inputStream);
-		out.finish(trailer);
-		markAsRead();
 	}
 
-	protected int getRawLength() throws IOException {
+	protected long getRawLength() throws IOException {
 		if (chunks.isEmpty())
 			return 0;
-		int length = getLength();
+		long length = getLength();
 		for (Chunk chunk : chunks) {
 			length += toHexString(chunk.getLength()).getBytes(UTF_8).length;
 			length += 2 * CRLF_BYTES.length;
@@ -241,7 +273,7 @@ public class ChunkedBody extends AbstractBody {
 
 	@Override
 	protected byte[] getRawLocal() throws IOException {
-		byte[] raw = new byte[getRawLength()];
+		byte[] raw = new byte[toArrayLength(getRawLength())];
 		int destPos = 0;
 		for (Chunk chunk : chunks) {
 			destPos = chunk.copyChunkLength(raw, destPos, this);
@@ -276,9 +308,9 @@ public class ChunkedBody extends AbstractBody {
 	}
 
 	@Override
-	public int getLength() throws IOException {
+	public long getLength() throws IOException {
 		if (wasStreamed())
-			return (int)lengthStreamed; // TODO: refactor into long
+			return streamedLength;
 		return super.getLength();
 	}
 
@@ -39,6 +39,14 @@ public class ChunkedBodyTransferrer extends AbstractBodyTransferrer {
 		chunk.write(out);
 	}
 
+	@Override
+	public void write(InputStream in, int length, byte[] buffer) throws IOException {
+		writeChunkSize(out, length);
+		PlainBodyTransferrer.copy(in, out, length, buffer);
+		out.write(Constants.CRLF_BYTES);
+		out.flush();
+	}
+
 	@Override
 	public void finish(Header header) throws IOException {
 		out.write(ZERO);
@@ -0,0 +1,49 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import java.io.*;
+
+/**
+ * A {@link Chunk} whose content is stored in a {@link SpillFile}. The content is read from the file every
+ * time {@link #getContent()} is called, so a chunk should not be larger than a few buffers.
+ */
+class FileChunk extends Chunk {
+
+	private final SpillFile file;
+	private final long position;
+	private final int length;
+
+	FileChunk(SpillFile file, long position, int length) {
+		super(null);
+		this.file = file;
+		this.position = position;
+		this.length = length;
+	}
+
+	@Override
+	public byte[] getContent() {
+		try {
+			return file.read(position, length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+}
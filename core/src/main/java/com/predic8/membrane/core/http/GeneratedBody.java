@@ -0,0 +1,164 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.http;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A body whose content is produced while it is sent, e.g. by rendering a template. The producer writes through a
+ * small buffer directly to the connection, so the content is never held in memory as a whole.
+ * <p>
+ * If the body is read before it is sent (by an interceptor, an observer or for a retry), the producer writes into
+ * memory instead and the body behaves like a {@link Body}. The producer runs once, unless it fails.
+ * <p>
+ * The length is not known in advance, the caller has to set "Transfer-Encoding: chunked". An error in the producer
+ * after the first bytes were sent can only be reported by aborting the connection.
+ */
+public class GeneratedBody extends AbstractBody {
+
+	@FunctionalInterface
+	public interface Producer {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	private final Producer producer;
+	private boolean producing;
+
+	public GeneratedBody(Producer producer) {
+		this.producer = producer;
+	}
+
+	@Override
+	protected void readLocal() throws IOException {
+		produce(null, true);
+	}
+
+	@Override
+	protected void writeAlreadyRead(AbstractBodyTransferrer out) throws IOException {
+		read();
+		for (Chunk chunk : chunks)
+			if (chunk.getLength() > 0)
+				out.write(chunk.getContent(), 0, chunk.getLength());
+		out.finish(null);
+	}
+
+	@Override
+	protected void writeNotRead(AbstractBodyTransferrer out) throws IOException {
+		produce(out, true);
+		out.finish(null);
+		markAsRead();
+	}
+
+	@Override
+	protected void writeStreamed(AbstractBodyTransferrer out) throws IOException {
+		produce(out, false);
+		out.finish(null);
+		markAsRead();
+	}
+
+	private void produce(AbstractBodyTransferrer out, boolean retain) throws IOException {
+		if (producing)
+			throw new IllegalStateException("The body was accessed while it was generated.");
+		producing = true;
+		chunks.clear();
+		try (ProducerOutputStream os = new ProducerOutputStream(out, retain)) {
+			producer.writeTo(os);
+		} catch (RuntimeException e) {
+			throw new IOException("Could not generate body.", e);
+		} finally {
+			producing = false;
+		}
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		if (wasStreamed())
+			return streamedLength;
+		return super.getLength();
+	}
+
+	@Override
+	protected byte[] getRawLocal() throws IOException {
+		return getContent();
+	}
+
+	/**
+	 * Passes the output of the producer on in pieces of the pooled buffer's size.
+	 */
+	private class ProducerOutputStream extends OutputStream {
+
+		private final AbstractBodyTransferrer out;
+		private final boolean retain;
+		private byte[] buffer = Body.BUFFERS.acquire();
+		private int count;
+
+		private ProducerOutputStream(AbstractBodyTransferrer out, boolean retain) {
+			this.out = out;
+			this.retain = retain;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buffer.length)
+				flushBuffer();
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == buffer.length)
+					flushBuffer();
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void flushBuffer() throws IOException {
+			if (count == 0)
+				return;
+			if (out != null)
+				out.write(buffer, 0, count);
+			if (retain) {
+				Chunk chunk = new Chunk(Arrays.copyOf(buffer, count));
+				chunks.add(chunk);
+				for (MessageObserver observer : observers)
+					observer.bodyChunk(chunk);
+			} else {
+				streamedLength += count;
+				for (MessageObserver observer : observers)
+					observer.bodyChunk(buffer, 0, count);
+			}
+			count = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (buffer == null)
+				return;
+			try {
+				flushBuffer();
+			} finally {
+				Body.BUFFERS.release(buffer);
+				buffer = null;
+			}
+		}
+	}
+}
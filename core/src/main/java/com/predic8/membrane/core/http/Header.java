@@ -162,12 +162,8 @@ public class Header {
 	}
 
 	public void removeFields(String name) {
-		List<HeaderField> deleteValues = new ArrayList<>();
-		for (HeaderField field : fields) {
-			if (field.getHeaderName().equals(name))
-				deleteValues.add(field);
-		}
-		fields.removeAll(deleteValues);
+		HeaderName headerName = new HeaderName(name);
+		fields.removeIf(field -> field.getHeaderName().equals(headerName));
 	}
 
 	public List<HeaderField> getValues(HeaderName headerName) {
@@ -180,8 +176,9 @@ public class Header {
 	}
 
 	public String getFirstValue(String name) {
+		HeaderName headerName = new HeaderName(name);
 		for (HeaderField field : fields) {
-			if (field.getHeaderName().equals(name))
+			if (field.getHeaderName().equals(headerName))
 				return field.getValue();
 		}
 		return null;
@@ -207,9 +204,10 @@ public class Header {
 	}
 
 	public void setValue(String name, String value) {
+		HeaderName headerName = new HeaderName(name);
 		boolean found = false;
 		for (int i = 0; i < fields.size(); i++) {
-			if (fields.get(i).getHeaderName().equals(name)) {
+			if (fields.get(i).getHeaderName().equals(headerName)) {
 				if (found) {
 					fields.set(i, fields.get(fields.size()-1));
 					fields.remove(fields.size()-1);
@@ -222,7 +220,7 @@ public class Header {
 		}
 		if (found)
 			return;
-		fields.add(new HeaderField(name, value));
+		fields.add(new HeaderField(headerName, value));
 	}
 
 	public void setHost(String value) {
@@ -398,7 +396,8 @@ public class Header {
 		return size;
 	}
 
-	public int getNumberOf(String headerName) {
+	public int getNumberOf(String name) {
+		HeaderName headerName = new HeaderName(name);
 		int res = 0;
 		for (HeaderField headerField : fields)
 			if (headerField.getHeaderName().equals(headerName))
@@ -445,7 +444,8 @@ public class Header {
 		return getFirstValue(WWW_AUTHENTICATE);
 	}
 
-	public String getNormalizedValue(String headerName) {
+	public String getNormalizedValue(String name) {
+		HeaderName headerName = new HeaderName(name);
 		StringBuilder sb = new StringBuilder();
 		for (HeaderField headerField : fields) {
 			if (headerField.getHeaderName().equals(headerName)) {
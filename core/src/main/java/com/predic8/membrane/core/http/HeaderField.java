@@ -28,16 +28,22 @@ public class HeaderField {
 	}
 
 	public HeaderField(String line) {
-		headerName = new HeaderName(getName(line));
-		value = getValue(line);
+		int colon = line.indexOf(':');
+		headerName = HeaderName.parse(line, colon);
+		value = getValue(line, colon);
 	}
 
-	private String getValue(String line) {
-		return (line.substring(line.indexOf(":")+1)).trim();
-	}
-
-	private String getName(String line) {
-		return line.substring(0, line.indexOf(":"));
+	/**
+	 * Same as <code>line.substring(colon + 1).trim()</code>, but only creates one String.
+	 */
+	private static String getValue(String line, int colon) {
+		int begin = colon + 1;
+		int end = line.length();
+		while (begin < end && line.charAt(begin) <= ' ')
+			begin++;
+		while (end > begin && line.charAt(end - 1) <= ' ')
+			end--;
+		return line.substring(begin, end);
 	}
 
 	public HeaderField(String headerName,String value) {
@@ -18,29 +18,90 @@ package com.predic8.membrane.core.http;
  * This class is used by {@link Header} a key for header fields.
  * The {@link #hashCode()} method is overridden so the keys are
  * not case sensitive (as per the HTTP spec).
+ * <p>
+ * The case-insensitive hash code is computed once, so that comparing two names with different hash codes is
+ * cheap. Names of well-known header fields are shared when a header is parsed.
  */
 public class HeaderName {
 
+	private static final String[] WELL_KNOWN = {Header.TRANSFER_ENCODING, Header.CONTENT_ENCODING,
+			Header.CONTENT_LENGTH, Header.CONTENT_TYPE, Header.CONNECTION, Header.PROXY_CONNECTION, Header.HOST,
+			Header.EXPECT, Header.X_FORWARDED_FOR, Header.X_FORWARDED_PROTO, Header.X_FORWARDED_HOST,
+			Header.PROXY_AUTHORIZATION, Header.SOAP_ACTION, Header.ACCEPT, Header.DATE, Header.LOCATION,
+			Header.AUTHORIZATION, Header.SET_COOKIE, Header.COOKIE, Header.USER_AGENT, Header.X_REQUESTED_WITH,
+			Header.EXPIRES, Header.KEEP_ALIVE, Header.SERVER, Header.PRAGMA, Header.CACHE_CONTROL, Header.UPGRADE,
+			Header.LAST_MODIFIED, Header.IF_MODIFIED_SINCE, Header.WWW_AUTHENTICATE, Header.ORIGIN,
+			Header.ACCESS_CONTROL_ALLOW_ORIGIN, "Accept-Encoding", "Accept-Language", "Accept-Ranges", "Age",
+			"Referer", "ETag", "If-None-Match", "Vary", "Via", "traceparent", "X-Request-Id",
+			"host", "content-type", "content-length", "accept", "user-agent", "connection", "accept-encoding",
+			"date", "server", "transfer-encoding", "authorization", "cache-control", "cookie", "set-cookie"};
+
+	// open addressing, indexed by the case-sensitive hash code of the name
+	private static final String[] table = new String[256];
+
+	static {
+		for (String name : WELL_KNOWN) {
+			int i = name.hashCode() & (table.length - 1);
+			while (table[i] != null)
+				i = (i + 1) & (table.length - 1);
+			table[i] = name;
+		}
+	}
+
 	private final String name;
+	private final int hash;
 
 	public HeaderName(String name) {
 		this.name = name;
+		this.hash = caseInsensitiveHash(name);
 	}
 
 	public HeaderName(HeaderName headerName) {
 		name = headerName.name;
+		hash = headerName.hash;
+	}
+
+	/**
+	 * @return the name of the header field in <code>line</code> ending at <code>end</code>
+	 */
+	static HeaderName parse(String line, int end) {
+		int h = 0;
+		for (int i = 0; i < end; i++)
+			h = 31 * h + line.charAt(i);
+		for (int i = h & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1))
+			if (table[i].length() == end && line.startsWith(table[i]))
+				return new HeaderName(table[i]);
+		return new HeaderName(line.substring(0, end));
+	}
+
+	/**
+	 * Consistent with {@link String#equalsIgnoreCase(String)}.
+	 */
+	private static int caseInsensitiveHash(String s) {
+		int h = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 128) {
+				if (c >= 'A' && c <= 'Z')
+					c += 'a' - 'A';
+			} else {
+				c = Character.toLowerCase(Character.toUpperCase(c));
+			}
+			h = 31 * h + c;
+		}
+		return h;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
-		if(!(obj instanceof HeaderName))
+		if (!(obj instanceof HeaderName other))
 			return false;
 
-		return name.equalsIgnoreCase(obj.toString());
+		return equals(other);
 	}
 
 	public boolean equals(HeaderName other) {
-		return name.equalsIgnoreCase(other.name);
+		return hash == other.hash && name.equalsIgnoreCase(other.name);
 	}
 
 	public boolean equals(String s) {
@@ -49,7 +110,7 @@ public class HeaderName {
 
 	@Override
 	public int hashCode() {
-		return name.toLowerCase().hashCode();
+		return hash;
 	}
 
 	@Override
@@ -20,6 +20,7 @@ import org.slf4j.*;
 
 import java.io.*;
 import java.nio.charset.*;
+import java.util.*;
 
 import static com.predic8.membrane.core.Constants.*;
 import static com.predic8.membrane.core.http.Header.*;
@@ -43,6 +44,12 @@ public abstract class Message {
 
 	private String errorMessage = "";
 
+	/**
+	 * Representations parsed from {@link #parsedBodyOf}. Replacing the body makes them stale.
+	 */
+	private Map<BodyRepresentation<?>, Object> parsedBody;
+	private AbstractBody parsedBodyOf;
+
 	public Message() {
 		header = new Header();
 		body = new EmptyBody();
@@ -141,6 +148,7 @@ public abstract class Message {
 	 */
 	public void setBody(AbstractBody b) {
 		body = b;
+		parsedBody = null;
 	}
 
 	/**
@@ -148,11 +156,30 @@ public abstract class Message {
 	 */
 	public void setBodyContent(byte[] content) {
 		body = new Body(content);
+		parsedBody = null;
 		header.removeFields(CONTENT_ENCODING);
 		header.removeFields(TRANSFER_ENCODING);
 		header.setContentLength(content.length);
 	}
 
+	/**
+	 * Parses the body at most once per representation: later calls return the same object until the body is
+	 * replaced, so interceptors down the chain can share the result. The returned object must not be modified.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getParsedBody(BodyRepresentation<T> representation) throws Exception {
+		if (parsedBody == null || parsedBodyOf != body) {
+			parsedBody = new HashMap<>(4);
+			parsedBodyOf = body;
+		}
+		Object parsed = parsedBody.get(representation);
+		if (parsed == null) {
+			parsed = representation.parse(this);
+			parsedBody.put(representation, parsed);
+		}
+		return (T) parsed;
+	}
+
 	protected void createBody(InputStream in) throws IOException {
 		log.debug("createBody");
 
@@ -231,6 +258,25 @@ public abstract class Message {
 		out.flush();
 	}
 
+	private static final String[] KNOWN_VERSIONS = {"1.1", "1.0", "2"};
+
+	/**
+	 * @return the substring of the start line, reusing one of the well-known versions if possible
+	 */
+	protected static String parseVersion(String line, int begin, int end) {
+		return intern(line, begin, end, KNOWN_VERSIONS);
+	}
+
+	/**
+	 * @return one of the candidates equal to the substring, or a new substring
+	 */
+	static String intern(String s, int begin, int end, String[] candidates) {
+		for (String candidate : candidates)
+			if (candidate.length() == end - begin && s.startsWith(candidate, begin))
+				return candidate;
+		return s.substring(begin, end);
+	}
+
 	/**
 	 * The start line supposedly only contains ASCII characters. But since
 	 * {@link HttpUtil#readLine(InputStream)} converts the input byte-by-byte
@@ -358,7 +404,7 @@ public abstract class Message {
 		try {
 			return 100 +
 					(header != null ? header.estimateHeapSize() : 0) +
-					(body != null ? body.isRead() ? body.getLength() : 0 : 0) +
+					(body != null ? body.isRead() ? (int) Math.min(body.getLength(), Integer.MAX_VALUE) : 0 : 0) +
 					(errorMessage != null ? 2*errorMessage.length() : 0);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
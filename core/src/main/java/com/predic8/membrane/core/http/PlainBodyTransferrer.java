@@ -13,8 +13,7 @@
    limitations under the License. */
 package com.predic8.membrane.core.http;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
 
 public class PlainBodyTransferrer extends AbstractBodyTransferrer {
 	OutputStream out;
@@ -33,6 +32,21 @@ public class PlainBodyTransferrer extends AbstractBodyTransferrer {
 		out.write(chunk.getContent());
 	}
 
+	@Override
+	public void write(InputStream in, int length, byte[] buffer) throws IOException {
+		copy(in, out, length, buffer);
+	}
+
+	static void copy(InputStream in, OutputStream out, int length, byte[] buffer) throws IOException {
+		while (length > 0) {
+			int count = in.read(buffer, 0, Math.min(length, buffer.length));
+			if (count < 0)
+				throw new EOFException("Body ended before the announced chunk length was reached.");
+			out.write(buffer, 0, count);
+			length -= count;
+		}
+	}
+
 	@Override
 	public void finish(Header header) throws IOException {
 	}
@@ -45,6 +45,9 @@ public class Request extends Message {
 	public static final String METHOD_CONNECT = "CONNECT";
 	public static final String METHOD_OPTIONS = "OPTIONS";
 
+	private static final String[] KNOWN_METHODS = {METHOD_GET, METHOD_POST, METHOD_PUT, METHOD_DELETE, "PATCH",
+			METHOD_HEAD, METHOD_OPTIONS, METHOD_CONNECT, METHOD_TRACE};
+
 	private static final HashSet<String> methodsWithoutBody = Sets.newHashSet("GET", "HEAD", "CONNECT");
 	private static final HashSet<String> methodsWithOptionalBody = Sets.newHashSet(
 			"DELETE",
@@ -64,6 +67,8 @@ public class Request extends Message {
 	public void parseStartLine(InputStream in) throws IOException, EndOfStreamException {
 		try {
 			String firstLine = HttpUtil.readLine(in);
+			if (parseStartLineFast(firstLine))
+				return;
 			Matcher matcher = pattern.matcher(firstLine);
 			if (matcher.find()) {
 				method = matcher.group(1);
@@ -83,6 +88,25 @@ public class Request extends Message {
 		}
 	}
 
+	/**
+	 * Handles the start lines matched by {@link #pattern} without using the regular expression, yielding the
+	 * same result.
+	 *
+	 * @return false, if the regular expression has to be used
+	 */
+	private boolean parseStartLineFast(String line) {
+		int space = line.indexOf(' ', 1);
+		if (space == -1)
+			return false;
+		int http = line.indexOf(" HTTP/", space + 2);
+		if (http == -1 || http + 6 == line.length() || line.indexOf('\u0085') != -1)
+			return false;
+		method = intern(line, 0, space, KNOWN_METHODS);
+		uri = line.substring(space + 1, http);
+		version = parseVersion(line, http + 6, line.length());
+		return true;
+	}
+
 	public String getMethod() {
 		return method;
 	}
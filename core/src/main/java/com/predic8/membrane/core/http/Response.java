@@ -341,6 +341,9 @@ public class Response extends Message {
 			throw new EOFWhileReadingFirstLineException(e.getLineSoFar());
 		}
 
+		if (parseStartLineFast(line))
+			return;
+
 		Matcher matcher = pattern.matcher(line);
 
 		if (!matcher.find()) {
@@ -351,6 +354,30 @@ public class Response extends Message {
 		statusMessage = matcher.group(4);
 	}
 
+	/**
+	 * Handles the usual start lines matched by {@link #pattern} without using the regular expression, yielding
+	 * the same result.
+	 *
+	 * @return false, if the regular expression has to be used
+	 */
+	private boolean parseStartLineFast(String line) {
+		if (line.length() < 12 || !line.startsWith("HTTP/") || !isDigit(line, 5) || line.charAt(6) != '.'
+				|| !isDigit(line, 7) || line.charAt(8) != ' ' || !isDigit(line, 9) || !isDigit(line, 10)
+				|| !isDigit(line, 11))
+			return false;
+		if (line.length() > 12 && (line.charAt(12) != ' ' || line.indexOf('\u0085') != -1))
+			return false;
+		version = parseVersion(line, 5, 8);
+		statusCode = (line.charAt(9) - '0') * 100 + (line.charAt(10) - '0') * 10 + line.charAt(11) - '0';
+		statusMessage = line.length() > 12 ? line.substring(13) : null;
+		return true;
+	}
+
+	private static boolean isDigit(String s, int index) {
+		char c = s.charAt(index);
+		return c >= '0' && c <= '9';
+	}
+
 	@Override
 	public void read(InputStream in, boolean createBody) throws IOException,
 	EndOfStreamException {
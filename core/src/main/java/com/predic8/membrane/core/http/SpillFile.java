@@ -0,0 +1,86 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import org.slf4j.*;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A temporary file holding the part of a body which did not fit into memory (see {@link BodyStorage}).
+ * <p>
+ * The file is deleted as soon as neither the body nor any of its {@link FileChunk}s are reachable anymore.
+ */
+class SpillFile {
+
+	private static final Logger log = LoggerFactory.getLogger(SpillFile.class.getName());
+	private static final Cleaner cleaner = Cleaner.create();
+
+	private final FileChannel channel;
+	private volatile long size;
+
+	SpillFile(Path directory) throws IOException {
+		Path path = Files.createTempFile(directory, "membrane-body-", ".tmp");
+		try {
+			channel = FileChannel.open(path, READ, WRITE, DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		cleaner.register(this, new Closer(channel));
+	}
+
+	synchronized void append(byte[] buffer, int offset, int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+		long position = size;
+		while (bb.hasRemaining())
+			position += channel.write(bb, position);
+		size = position;
+	}
+
+	byte[] read(long position, int length) throws IOException {
+		byte[] result = new byte[length];
+		ByteBuffer bb = ByteBuffer.wrap(result);
+		while (bb.hasRemaining()) {
+			if (channel.read(bb, position + bb.position()) < 0)
+				throw new EOFException("Spill file ended unexpectedly.");
+		}
+		return result;
+	}
+
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Must not reference the {@link SpillFile}, otherwise it would never become phantom reachable.
+	 */
+	private record Closer(FileChannel channel) implements Runnable {
+		@Override
+		public void run() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				log.warn("Could not delete temporary body file.", e);
+			}
+		}
+	}
+}
@@ -461,7 +461,7 @@ public class AdminPageBuilder extends Html {
 		end();
 		end();
 		tbody();
-		for (StreamPump p : router.getStatistics().getStreamPumpStats().getStreamPumps()) {
+		for (Pump p : router.getStatistics().getStreamPumpStats().getStreamPumps()) {
 			tr().style("text-align: right;");
 			td().style("text-align:left;").text(p.getName()).end();
 			createTds(
@@ -0,0 +1,74 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.balancer;
+
+import com.predic8.membrane.annot.*;
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.config.*;
+import com.predic8.membrane.core.exchange.*;
+
+import javax.xml.stream.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @description Sends each request to the node with the fewest requests in flight. Nodes with the same number of
+ * requests in flight are used in turn.
+ */
+@MCElement(name="leastRequestsStrategy")
+public class LeastRequestsStrategy extends AbstractXmlElement implements DispatchingStrategy {
+
+	private final AtomicInteger offset = new AtomicInteger();
+
+	@Override
+	public void init(Router router) {
+	}
+
+	@Override
+	public Node dispatch(LoadBalancingInterceptor interceptor, AbstractExchange exc) throws EmptyNodeListException {
+		List<Node> endpoints = interceptor.getEndpoints();
+		if (endpoints.isEmpty())
+			throw new EmptyNodeListException();
+
+		int start = Math.floorMod(offset.getAndIncrement(), endpoints.size());
+		Node best = null;
+		int bestThreads = Integer.MAX_VALUE;
+		for (int i = 0; i < endpoints.size(); i++) {
+			Node node = endpoints.get((start + i) % endpoints.size());
+			int threads = node.getThreads();
+			if (threads < bestThreads) {
+				best = node;
+				bestThreads = threads;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public void done(AbstractExchange exc) {
+	}
+
+	@Override
+	public void write(XMLStreamWriter out) throws XMLStreamException {
+		out.writeStartElement("leastRequestsStrategy");
+		out.writeEndElement();
+	}
+
+	@Override
+	protected String getElementName() {
+		return "leastRequestsStrategy";
+	}
+}
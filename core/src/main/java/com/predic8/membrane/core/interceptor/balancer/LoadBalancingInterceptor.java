@@ -42,6 +42,8 @@ public class LoadBalancingInterceptor extends AbstractInterceptor {
 	private static final Logger log = LoggerFactory.getLogger(LoadBalancingInterceptor.class
 			.getName());
 
+	private static final String NODE_RELEASED = "dispatchedNodeReleased";
+
 	/**
 	 * Round-robin is the default, but it's configurable.
 	 */
@@ -103,7 +105,12 @@ public class LoadBalancingInterceptor extends AbstractInterceptor {
 	public void handleAbort(Exchange exc) {
 		if(nodeOnlineChecker != null){
 			nodeOnlineChecker.handle(exc);
-		}		
+		}
+		if (exc.getProperty("dispatchedNode") != null && exc.getProperty(NODE_RELEASED) == null) {
+			exc.setProperty(NODE_RELEASED, true);
+			((Node) exc.getProperty("dispatchedNode")).removeThread();
+			strategy.done(exc);
+		}
 	}
 
 	@Override
@@ -121,6 +128,7 @@ public class LoadBalancingInterceptor extends AbstractInterceptor {
 			}
 		}
 
+		exc.setProperty(NODE_RELEASED, true);
 		updateDispatchedNode(exc);
 		strategy.done(exc);
 
@@ -190,7 +190,8 @@ public class Node extends AbstractXmlElement {
 
 	public void removeThread() {
 		if (!isUp()) return;
-		threads.incrementAndGet();
+		// the counter is reset when the node goes down, so requests dispatched before must not make it negative
+		threads.updateAndGet(t -> Math.max(0, t - 1));
 	}
 
 	public int getThreads() {
@@ -0,0 +1,146 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.balancer;
+
+import com.predic8.membrane.annot.*;
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.config.*;
+import com.predic8.membrane.core.exchange.*;
+
+import javax.xml.stream.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @description <p>Picks two nodes at random and sends the request to the one with the lower load ("power of two
+ * choices"). The load of a node is the peak EWMA of its response times multiplied by the number of requests in
+ * flight plus one.</p>
+ * <p>The peak EWMA follows an increase of the response time immediately and decays slowly afterwards, so a node
+ * which becomes slow is avoided at once. Nodes without measurements are preferred until they have answered.</p>
+ * <p>Response times below 1 ms count as 1 ms, so the load of a node grows with its requests in flight even if it has
+ * never answered. A request which fails after it was sent counts with the time until it failed.</p>
+ */
+@MCElement(name="powerOfTwoChoicesStrategy")
+public class PowerOfTwoChoicesStrategy extends AbstractXmlElement implements DispatchingStrategy {
+
+	private static final double LATENCY_FLOOR = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private long decayTime = 10000;
+
+	private final ConcurrentHashMap<Node, AtomicReference<Ewma>> latencies = new ConcurrentHashMap<>();
+
+	/**
+	 * @param value average response time in nanoseconds
+	 * @param time  when the average was last updated, as {@link System#nanoTime()}
+	 */
+	record Ewma(double value, long time) {
+	}
+
+	@Override
+	public void init(Router router) {
+	}
+
+	@Override
+	public Node dispatch(LoadBalancingInterceptor interceptor, AbstractExchange exc) throws EmptyNodeListException {
+		List<Node> endpoints = interceptor.getEndpoints();
+		if (endpoints.isEmpty())
+			throw new EmptyNodeListException();
+		if (endpoints.size() == 1)
+			return endpoints.get(0);
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int a = random.nextInt(endpoints.size());
+		int b = random.nextInt(endpoints.size() - 1);
+		if (b >= a)
+			b++;
+		Node first = endpoints.get(a);
+		Node second = endpoints.get(b);
+		long now = System.nanoTime();
+		return getLoad(first, now) <= getLoad(second, now) ? first : second;
+	}
+
+	double getLoad(Node node, long now) {
+		return Math.max(LATENCY_FLOOR, getLatency(node, now)) * (node.getThreads() + 1);
+	}
+
+	/**
+	 * @return the average response time of the node in nanoseconds, decayed up to now
+	 */
+	double getLatency(Node node, long now) {
+		AtomicReference<Ewma> ref = latencies.get(node);
+		if (ref == null)
+			return 0;
+		Ewma ewma = ref.get();
+		return ewma.value * getWeight(now - ewma.time);
+	}
+
+	private double getWeight(long elapsed) {
+		return Math.exp(-(double) Math.max(0, elapsed) / TimeUnit.MILLISECONDS.toNanos(decayTime));
+	}
+
+	@Override
+	public void done(AbstractExchange exc) {
+		Node node = (Node) exc.getProperty("dispatchedNode");
+		if (node == null || exc.getTimeReqSent() == 0)
+			return;
+		long now = System.nanoTime();
+		// a node which does not answer is penalized at least when the request times out
+		long end = exc.getTimeResReceived() == 0 ? now : exc.getNanoTimeResReceived();
+		record(node, end - exc.getNanoTimeReqSent(), now);
+	}
+
+	void record(Node node, long responseTime, long now) {
+		AtomicReference<Ewma> ref = latencies.computeIfAbsent(node, n -> new AtomicReference<>(new Ewma(responseTime, now)));
+		while (true) {
+			Ewma current = ref.get();
+			double value;
+			if (responseTime > current.value) {
+				value = responseTime;
+			} else {
+				double w = getWeight(now - current.time);
+				value = current.value * w + responseTime * (1 - w);
+			}
+			if (ref.compareAndSet(current, new Ewma(value, Math.max(now, current.time))))
+				return;
+		}
+	}
+
+	public long getDecayTime() {
+		return decayTime;
+	}
+
+	/**
+	 * @description Time in milliseconds after which a measured response time has lost about 63% of its weight.
+	 * @default 10000
+	 */
+	@MCAttribute
+	public void setDecayTime(long decayTime) {
+		this.decayTime = decayTime;
+	}
+
+	@Override
+	public void write(XMLStreamWriter out) throws XMLStreamException {
+		out.writeStartElement("powerOfTwoChoicesStrategy");
+		out.writeAttribute("decayTime", "" + decayTime);
+		out.writeEndElement();
+	}
+
+	@Override
+	protected String getElementName() {
+		return "powerOfTwoChoicesStrategy";
+	}
+}
@@ -19,12 +19,16 @@ import com.predic8.membrane.core.exchange.*;
 import com.predic8.membrane.core.http.*;
 import com.predic8.membrane.core.interceptor.*;
 import com.predic8.membrane.core.resolver.*;
+import com.google.common.cache.*;
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static java.nio.charset.StandardCharsets.*;
 
@@ -46,7 +50,22 @@ public class CacheInterceptor extends AbstractInterceptor {
 
 	static final Logger log = LoggerFactory.getLogger(CacheInterceptor.class.getName());
 
+	private static final String PENDING = "cache.pending";
+
 	private Store store;
+	private long coalescingTimeout = 5000;
+
+	/**
+	 * Requests currently forwarded to the backend because of a cache miss, by destination. Other requests for the
+	 * same destination wait for their result instead of calling the backend as well.
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Node>> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Stored in the exchange fetching a destination, as the destinations of the exchange might be rewritten before
+	 * its response arrives.
+	 */
+	private record PendingRequest(String dest, CompletableFuture<Node> future) {}
 
 	public static abstract class Store {
 		public void init(Router router) {}
@@ -55,21 +74,87 @@ public class CacheInterceptor extends AbstractInterceptor {
 		public abstract void put(String url, Node node);
 	}
 
+	/**
+	 * @description Keeps cached responses in memory. The store is bounded by the total size of the cached bodies;
+	 * when it is full, the least recently used responses are evicted. Responses are only served until they expire
+	 * according to their <i>Cache-Control</i> or <i>Expires</i> headers.
+	 */
 	@MCElement(name="inMemoryStore")
 	public static class InMemoryStore extends Store {
-		HashMap<String, Node> cache = new HashMap<>();
+		private long maxSize = 100 * 1024 * 1024;
+		private Cache<String, Node> cache;
+
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+
+		@Override
+		public void init(Router router) {
+			// a single segment keeps the LRU order global and lets one response use the whole size; reads do
+			// not take the lock
+			cache = CacheBuilder.newBuilder()
+					.concurrencyLevel(1)
+					.maximumWeight(maxSize)
+					.weigher((String url, Node node) -> 2 * url.length() + node.getSize())
+					.removalListener(notification -> {
+						if (notification.wasEvicted())
+							evictions.increment();
+					})
+					.build();
+		}
 
 		@Override
 		public Node get(String url) {
-			return cache.get(url);
+			Node node = cache.getIfPresent(url);
+			if (node != null && node.isExpired(System.currentTimeMillis())) {
+				cache.asMap().remove(url, node);
+				node = null;
+			}
+			(node == null ? misses : hits).increment();
+			return node;
 		}
 
 		@Override
 		public void put(String url, Node node) {
+			if (node.isExpired(System.currentTimeMillis()))
+				return;
 			cache.put(url, node);
 		}
+
+		public long getMaxSize() {
+			return maxSize;
+		}
+
+		/**
+		 * @description Maximum total size of the cached responses in bytes.
+		 * @default 104857600
+		 */
+		@MCAttribute
+		public void setMaxSize(long maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public long getSize() {
+			return cache.asMap().entrySet().stream().mapToLong(e -> 2L * e.getKey().length() + e.getValue().getSize()).sum();
+		}
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
+		}
+
+		public long getEvictions() {
+			return evictions.sum();
+		}
 	}
 
+	/**
+	 * @description Keeps cached responses on disk. Responses do not expire, so this store can be used to serve
+	 * content while the backend is offline.
+	 */
 	@MCElement(name="fileStore")
 	public static class FileStore extends Store {
 		private String dir;
@@ -118,9 +203,13 @@ public class CacheInterceptor extends AbstractInterceptor {
 		@Override
 		public void put(String url, Node node) {
 			try {
-				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(new File(dir, encode(url))));
-				oos.writeObject(node);
-				oos.close();
+				// write to a temporary file first, so concurrent readers never see a partially written node
+				File f = new File(dir, encode(url));
+				File tmp = File.createTempFile(f.getName(), ".tmp", new File(dir));
+				try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+					oos.writeObject(node);
+				}
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 			} catch (Exception e) {
 				log.warn("", e);
 			}
@@ -171,6 +260,8 @@ public class CacheInterceptor extends AbstractInterceptor {
 	public Outcome handleRequest(Exchange exc) throws Exception {
 		String dest = exc.getDestinations().get(0);
 		Node node = store.get(dest);
+		if (node == null && canCache(exc.getRequest(), false))
+			node = awaitPendingRequest(exc, dest);
 		if (node != null && node.canSatisfy(exc.getRequest())) {
 			exc.setResponse(node.toResponse(exc.getRequest()));
 			return Outcome.RETURN;
@@ -184,25 +275,63 @@ public class CacheInterceptor extends AbstractInterceptor {
 		return super.handleRequest(exc);
 	}
 
+	/**
+	 * Either registers the exchange as the one fetching the destination from the backend, or waits for the
+	 * exchange already doing so.
+	 *
+	 * @return the node stored by the other exchange, or null if the exchange should call the backend
+	 */
+	private Node awaitPendingRequest(Exchange exc, String dest) throws InterruptedException {
+		CompletableFuture<Node> future = new CompletableFuture<>();
+		CompletableFuture<Node> existing = pending.putIfAbsent(dest, future);
+		if (existing == null) {
+			exc.setProperty(PENDING, new PendingRequest(dest, future));
+			return null;
+		}
+		try {
+			return existing.get(coalescingTimeout, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			return null;
+		} catch (TimeoutException e) {
+			pending.remove(dest, existing);
+			return null;
+		}
+	}
 
+	private void completePendingRequest(Exchange exc, Node node) {
+		PendingRequest request = (PendingRequest) exc.getProperties().remove(PENDING);
+		if (request == null)
+			return;
+		pending.remove(request.dest(), request.future());
+		// waiting exchanges call the backend themselves, if there is no node (e.g. because the request failed)
+		request.future().complete(node);
+	}
 
 	@Override
 	public Outcome handleResponse(Exchange exc) throws Exception {
+		Node node = null;
 		try {
 			if (canCache(exc.getRequest(), false)) {
 				if (canCache(exc.getResponse(), true)) {
 					String dest = exc.getDestinations().get(0);
-					switch (exc.getResponse().getStatusCode()) {
-						case 200 -> store.put(dest, new PositiveNode(exc));
-						case 401, 404 -> store.put(dest, new NegativeNode(exc));
-						case 301, 302, 307 -> store.put(dest, new PositiveNode(exc));
-						default ->
-								log.warn("Could not cache HTTP response because of its status code " + exc.getResponse().getStatusCode() + ".");
+					node = switch (exc.getResponse().getStatusCode()) {
+						case 200, 301, 302, 307 -> new PositiveNode(exc);
+						case 401, 404 -> new NegativeNode(exc);
+						default -> {
+							log.warn("Could not cache HTTP response because of its status code " + exc.getResponse().getStatusCode() + ".");
+							yield null;
+						}
+					};
+					if (node != null) {
+						node.expires = getExpiry(exc.getResponse(), System.currentTimeMillis());
+						store.put(dest, node);
 					}
 				}
 			}
 		} catch (Exception e) {
 			log.warn("Exception during cache handling.", e);
+		} finally {
+			completePendingRequest(exc, node);
 		}
 
 		// we drop some headers so the client does not get the idea we support
@@ -221,6 +350,71 @@ public class CacheInterceptor extends AbstractInterceptor {
 		return super.handleResponse(exc);
 	}
 
+	@Override
+	public void handleAbort(Exchange exc) {
+		completePendingRequest(exc, null);
+	}
+
+	/**
+	 * @return the point in time the response expires according to its <i>Cache-Control</i> (<i>s-maxage</i>,
+	 * <i>max-age</i>, <i>no-cache</i> and <i>no-store</i>) or <i>Expires</i> header, or 0 if it does not
+	 * specify an expiry
+	 */
+	static long getExpiry(Response response, long now) {
+		String cacheControl = response.getHeader().getFirstValue(Header.CACHE_CONTROL);
+		if (cacheControl != null) {
+			long maxAge = -1;
+			for (String directive : cacheControl.split(",")) {
+				directive = directive.trim().toLowerCase(Locale.US);
+				if (directive.equals("no-store") || directive.equals("no-cache"))
+					return now;
+				try {
+					if (directive.startsWith("s-maxage="))
+						return now + 1000 * Long.parseLong(unquote(directive.substring(9)));
+					if (directive.startsWith("max-age="))
+						maxAge = Long.parseLong(unquote(directive.substring(8)));
+				} catch (NumberFormatException e) {
+					return now;
+				}
+			}
+			if (maxAge != -1)
+				return now + 1000 * maxAge;
+		}
+		String expires = response.getHeader().getFirstValue(Header.EXPIRES);
+		if (expires == null)
+			return 0;
+		try {
+			long date = fromRFC(response.getHeader().getFirstValue(Header.DATE));
+			long result = fromRFC(expires);
+			// interpret the expiry relative to the origin server's clock
+			return Math.max(now, date == 0 ? result : now + result - date);
+		} catch (ParseException e) {
+			// invalid dates mean "already expired", see RFC 9111, section 5.3
+			return now;
+		}
+	}
+
+	private static String unquote(String value) {
+		if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+			return value.substring(1, value.length() - 1);
+		return value;
+	}
+
+	public long getCoalescingTimeout() {
+		return coalescingTimeout;
+	}
+
+	/**
+	 * @description Maximum time in milliseconds a request waits for a concurrent request to the same URL to
+	 * complete, before it is sent to the backend itself. A waiting request is sent to the backend immediately, if the
+	 * concurrent request fails.
+	 * @default 5000
+	 */
+	@MCAttribute
+	public void setCoalescingTimeout(long coalescingTimeout) {
+		this.coalescingTimeout = coalescingTimeout;
+	}
+
 	private boolean force = true;
 
 	private final HashSet<String> allowedRequestHeaders = new HashSet<>();
@@ -21,6 +21,22 @@ import com.predic8.membrane.core.http.Response;
 abstract class Node implements Serializable {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Point in time (in milliseconds) after which the node must not be used anymore, or 0 if it does not expire.
+	 */
+	long expires;
+
+	public boolean isExpired(long now) {
+		return expires != 0 && now >= expires;
+	}
+
+	/**
+	 * @return the approximate number of bytes the node occupies in memory
+	 */
+	public int getSize() {
+		return 64;
+	}
+
 	public boolean canSatisfy(Request request) {
 		return true; // TODO
 	}
@@ -74,6 +74,11 @@ class PositiveNode extends Node {
 			return builder.body(content).build();
 	}
 
+	@Override
+	public int getSize() {
+		return super.getSize() + content.length;
+	}
+
 	@Override
 	public boolean canSatisfy(Request request) {
 		String accept = request.getHeader().getFirstValue("accept");
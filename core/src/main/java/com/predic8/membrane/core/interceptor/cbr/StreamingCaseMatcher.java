@@ -0,0 +1,184 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.cbr;
+
+import javax.xml.stream.*;
+import java.io.*;
+import java.util.*;
+import java.util.regex.*;
+
+import static javax.xml.XMLConstants.*;
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Evaluates all cases of a {@link XPathCBRInterceptor} in one pass over the XML without building a DOM. This is only
+ * possible if every XPath expression is a simple location path like <code>/s:Envelope/s:Body/order</code> or
+ * <code>//order</code>, optionally followed by a <code>[text()='...']</code> predicate on the last step. Such an
+ * expression is true if the document contains a matching element.
+ * <p>
+ * Like in XPath 1.0, names without prefix match elements in no namespace, prefixes are resolved with the
+ * namespaces of the interceptor.
+ */
+class StreamingCaseMatcher {
+
+	private static final Pattern STEP = Pattern.compile("\\s*(//?)\\s*(\\*|(?:([A-Za-z_][\\w.-]*):)?([A-Za-z_][\\w.-]*))");
+	private static final Pattern TEXT_PREDICATE = Pattern.compile("\\s*\\[\\s*text\\(\\)\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*]\\s*");
+
+	private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+	static {
+		xmlInputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	/**
+	 * @param namespace null matches any namespace
+	 * @param localName null matches any name
+	 */
+	private record Step(boolean descendant, String namespace, String localName) {
+		boolean matches(String ns, String ln) {
+			return (namespace == null || namespace.equals(ns)) && (localName == null || localName.equals(ln));
+		}
+	}
+
+	/**
+	 * @param text null, if there is no predicate
+	 */
+	private record Path(Step[] steps, String text) {
+	}
+
+	private record Element(String namespace, String localName, List<Integer> awaitingText) {
+	}
+
+	private final Path[] paths;
+
+	private StreamingCaseMatcher(Path[] paths) {
+		this.paths = paths;
+	}
+
+	/**
+	 * @return null, if one of the XPath expressions is not a simple path
+	 */
+	static StreamingCaseMatcher create(List<Case> cases, Map<String, String> namespaces) {
+		Path[] paths = new Path[cases.size()];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = parse(cases.get(i).getXPath(), namespaces);
+			if (paths[i] == null)
+				return null;
+		}
+		return new StreamingCaseMatcher(paths);
+	}
+
+	private static Path parse(String xpath, Map<String, String> namespaces) {
+		if (xpath == null)
+			return null;
+		List<Step> steps = new ArrayList<>();
+		Matcher m = STEP.matcher(xpath);
+		int pos = 0;
+		while (pos < xpath.length() && m.region(pos, xpath.length()).lookingAt()) {
+			String namespace = null;
+			String localName = null;
+			if (!"*".equals(m.group(2))) {
+				localName = m.group(4);
+				if (m.group(3) == null) {
+					namespace = NULL_NS_URI;
+				} else {
+					namespace = namespaces == null ? null : namespaces.get(m.group(3));
+					if (namespace == null)
+						return null; // unknown prefix, let XPath report it
+				}
+			}
+			steps.add(new Step(m.group(1).length() == 2, namespace, localName));
+			pos = m.end();
+		}
+		if (steps.isEmpty())
+			return null;
+		String text = null;
+		if (pos < xpath.length()) {
+			Matcher p = TEXT_PREDICATE.matcher(xpath).region(pos, xpath.length());
+			if (!p.matches())
+				return null;
+			text = p.group(1) != null ? p.group(1) : p.group(2);
+		}
+		return new Path(steps.toArray(new Step[0]), text);
+	}
+
+	/**
+	 * Reads the whole document, so that malformed XML is reported like a DOM parser would do.
+	 *
+	 * @return the index of the first case that matches, or -1
+	 */
+	int match(InputStream is, String encoding) throws XMLStreamException {
+		boolean[] matched = new boolean[paths.length];
+		List<Element> stack = new ArrayList<>();
+		XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(is, encoding);
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case START_ELEMENT -> {
+						String ns = reader.getNamespaceURI();
+						Element element = new Element(ns == null ? NULL_NS_URI : ns, reader.getLocalName(), new ArrayList<>(0));
+						stack.add(element);
+						for (int i = 0; i < paths.length; i++) {
+							if (matched[i] || !matches(paths[i].steps(), paths[i].steps().length - 1, stack, stack.size() - 1))
+								continue;
+							if (paths[i].text() == null)
+								matched[i] = true;
+							else
+								element.awaitingText().add(i);
+						}
+					}
+					case CHARACTERS, CDATA, SPACE -> {
+						if (stack.isEmpty())
+							continue;
+						List<Integer> awaiting = stack.get(stack.size() - 1).awaitingText();
+						if (awaiting.isEmpty())
+							continue;
+						String text = reader.getText();
+						for (int i : awaiting)
+							if (paths[i].text().equals(text))
+								matched[i] = true;
+					}
+					case END_ELEMENT -> stack.remove(stack.size() - 1);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		for (int i = 0; i < matched.length; i++)
+			if (matched[i])
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @return whether the steps up to <code>step</code> match the elements on the stack up to <code>pos</code>
+	 */
+	private static boolean matches(Step[] steps, int step, List<Element> stack, int pos) {
+		Element element = stack.get(pos);
+		if (!steps[step].matches(element.namespace(), element.localName()))
+			return false;
+		if (step == 0)
+			return steps[0].descendant() || pos == 0;
+		if (!steps[step].descendant())
+			return pos > 0 && matches(steps, step - 1, stack, pos - 1);
+		for (int i = pos - 1; i >= 0; i--)
+			if (matches(steps, step - 1, stack, i))
+				return true;
+		return false;
+	}
+}
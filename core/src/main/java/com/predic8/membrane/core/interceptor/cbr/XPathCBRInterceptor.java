@@ -14,6 +14,7 @@
 
 package com.predic8.membrane.core.interceptor.cbr;
 
+import static com.predic8.membrane.core.http.BodyRepresentation.DOM;
 import static com.predic8.membrane.core.interceptor.Outcome.*;
 import static com.predic8.membrane.core.util.SynchronizedXPathFactory.newXPath;
 
@@ -22,12 +23,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.predic8.membrane.annot.Required;
-import org.xml.sax.InputSource;
+import org.w3c.dom.Document;
 
 import com.googlecode.jatl.Html;
 import com.predic8.membrane.annot.MCChildElement;
@@ -48,6 +52,7 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 
 	private List<Case> cases = new ArrayList<>();
 	private Map<String, String> namespaces;
+	private volatile Evaluation evaluation;
 
 	public XPathCBRInterceptor() {
 		name = "Content Based Router";
@@ -76,17 +81,69 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 	}
 
 	private Case findRoute(Request request) throws Exception {
-		for (Case r : cases) {
-			//TODO getBodyAsStream creates ByteArray each call. That could be a performance issue. Using BufferedInputStream did't work, because stream got closed.
-			InputSource is = new InputSource(request.getBodyAsStreamDecoded());
-			is.setEncoding(request.getCharset());
-			if ( (Boolean) newXPath(namespaces).evaluate(r.getXPath(), is, XPathConstants.BOOLEAN) )
-				return r;
-			log.debug("no match found for xpath {"+r.getXPath()+"}");
+		Evaluation evaluation = getEvaluation();
+		if (evaluation.matcher != null) {
+			int i = evaluation.matcher.match(request.getBodyAsStreamDecoded(), request.getCharset());
+			if (i == -1) {
+				log.debug("no match found");
+				return null;
+			}
+			return evaluation.cases.get(i);
+		}
+
+		// Parsed once for all cases and shared with other interceptors working on the DOM
+		Document doc = request.getParsedBody(DOM);
+		XPathExpression[] expressions = evaluation.getExpressions();
+		for (int i = 0; i < expressions.length; i++) {
+			if ( (Boolean) expressions[i].evaluate(doc, XPathConstants.BOOLEAN) )
+				return evaluation.cases.get(i);
+			log.debug("no match found for xpath {"+evaluation.cases.get(i).getXPath()+"}");
 		}
 		return null;
 	}
 
+	private Evaluation getEvaluation() {
+		Evaluation evaluation = this.evaluation;
+		if (evaluation == null || evaluation.namespaces != namespaces || !evaluation.cases.equals(cases)) {
+			evaluation = new Evaluation(List.copyOf(cases), namespaces);
+			this.evaluation = evaluation;
+		}
+		return evaluation;
+	}
+
+	/**
+	 * The cases prepared for evaluation: either all of them at once on the XML stream, or each one as compiled
+	 * XPath expression on the DOM.
+	 */
+	private static class Evaluation {
+		private final List<Case> cases;
+		private final Map<String, String> namespaces;
+		private final StreamingCaseMatcher matcher;
+
+		/**
+		 * Compiled once per thread, as XPathExpression is not thread-safe.
+		 */
+		private final ThreadLocal<XPathExpression[]> expressions = new ThreadLocal<>();
+
+		private Evaluation(List<Case> cases, Map<String, String> namespaces) {
+			this.cases = cases;
+			this.namespaces = namespaces;
+			matcher = StreamingCaseMatcher.create(cases, namespaces);
+		}
+
+		private XPathExpression[] getExpressions() throws XPathExpressionException {
+			XPathExpression[] result = expressions.get();
+			if (result == null) {
+				XPath xPath = newXPath(namespaces);
+				result = new XPathExpression[cases.size()];
+				for (int i = 0; i < result.length; i++)
+					result[i] = xPath.compile(cases.get(i).getXPath());
+				expressions.set(result);
+			}
+			return result;
+		}
+	}
+
 	public Map<String, String> getNamespaces() {
 		return namespaces;
 	}
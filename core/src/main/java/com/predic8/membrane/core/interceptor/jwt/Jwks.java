@@ -24,6 +24,7 @@ import com.predic8.membrane.core.resolver.ResolverMap;
 import com.predic8.membrane.core.util.TextUtil;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,12 @@ public class Jwks {
 
     List<Jwk> jwks;
     String jwksUris;
+    int jwksRefreshInterval = 3600;
+
+    /**
+     * JWKs loaded from the jwksUris. Replaced as a whole on every refresh.
+     */
+    volatile List<Jwk> jwksFromUris = List.of();
 
     public List<Jwk> getJwks() {
         return jwks;
@@ -53,22 +60,61 @@ public class Jwks {
         return this;
     }
 
+    public int getJwksRefreshInterval() {
+        return jwksRefreshInterval;
+    }
+
+    /**
+     * @description Interval in seconds after which the JWKs are loaded again from the jwksUris. Use 0 to load them
+     * only once.
+     * @default 3600
+     */
+    @MCAttribute
+    public Jwks setJwksRefreshInterval(int jwksRefreshInterval) {
+        this.jwksRefreshInterval = jwksRefreshInterval;
+        return this;
+    }
+
     public void init(ResolverMap resolverMap, String baseLocation) {
-        if(jwksUris == null || jwksUris.isEmpty())
+        refresh(resolverMap, baseLocation);
+    }
+
+    /**
+     * Loads the JWKs from the jwksUris again.
+     */
+    public void refresh(ResolverMap resolverMap, String baseLocation) {
+        if(!hasJwksUris())
             return;
 
         ObjectMapper mapper = new ObjectMapper();
+        List<Jwk> loaded = new ArrayList<>();
         for (String uri : jwksUris.split(" ")) {
             try {
                 for (Object jwkRaw : parseJwksUriIntoList(resolverMap, baseLocation, mapper, uri)) {
                     Jwk jwk = new Jwk();
                     jwk.setContent(mapper.writeValueAsString(jwkRaw));
-                    this.jwks.add(jwk);
+                    loaded.add(jwk);
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
+        jwksFromUris = loaded;
+    }
+
+    boolean hasJwksUris() {
+        return jwksUris != null && !jwksUris.isEmpty();
+    }
+
+    /**
+     * @return the configured JWKs followed by the JWKs loaded from the jwksUris
+     */
+    public List<Jwk> getAllJwks() {
+        List<Jwk> all = new ArrayList<>();
+        if (jwks != null)
+            all.addAll(jwks);
+        all.addAll(jwksFromUris);
+        return all;
     }
 
     private List parseJwksUriIntoList(ResolverMap resolverMap, String baseLocation, ObjectMapper mapper, String uri) throws java.io.IOException {
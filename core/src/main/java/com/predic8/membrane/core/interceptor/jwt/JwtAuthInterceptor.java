@@ -15,6 +15,8 @@ package com.predic8.membrane.core.interceptor.jwt;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCChildElement;
@@ -27,6 +29,8 @@ import com.predic8.membrane.core.interceptor.Outcome;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.jose4j.base64url.Base64Url;
 import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.InvalidJwtSignatureException;
 import org.jose4j.jwt.consumer.JwtConsumer;
@@ -34,12 +38,19 @@ import org.jose4j.jwt.consumer.JwtConsumerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import static com.predic8.membrane.core.interceptor.Interceptor.Flow.REQUEST;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.EnumSet.of;
 import static org.apache.commons.lang3.StringEscapeUtils.escapeHtml4;
 
@@ -53,14 +64,29 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
     public static final String ERROR_UNKNOWN_KEY = "JWT signed by unknown key";
     public static final String ERROR_VALIDATION_FAILED = "JWT validation failed";
 
+    /**
+     * Minimum time between two loads of the JWKs triggered by an unknown kid
+     */
+    static final long UNKNOWN_KID_REFRESH_INTERVAL = 30_000;
+
     ObjectMapper mapper = new ObjectMapper();
     JwtRetriever jwtRetriever;
     Jwks jwks;
     String expectedAud;
+    int verifiedTokenCacheSize = 10000;
 
-    // should be used read only after init
+    // should be used read only after it is published
     // Hashmap done on purpose as only here the read only thread safety is guaranteed
-    volatile HashMap<String, RsaJsonWebKey> kidToKey;
+    // A refresh of the JWKs replaces the whole map
+    volatile HashMap<String, VerificationKey> kidToKey;
+
+    /**
+     * Claims of tokens whose signature was already verified, by SHA-256 digest of the token
+     */
+    Cache<String, VerifiedToken> verifiedTokens;
+
+    private Router router;
+    private final AtomicLong lastUnknownKidRefresh = new AtomicLong();
 
     public JwtAuthInterceptor() {
         name = "JWT Checker.";
@@ -70,13 +96,32 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
     @Override
     public void init(Router router) throws Exception {
         super.init(router);
+        this.router = router;
 
         if(jwtRetriever == null)
             jwtRetriever = new HeaderJwtRetriever("Authorization","Bearer");
 
+        verifiedTokens = CacheBuilder.newBuilder().maximumSize(verifiedTokenCacheSize).build();
+
         jwks.init(router.getResolverMap(),router.getBaseLocation());
 
-        kidToKey = jwks.getJwks().stream()
+        kidToKey = loadKeys();
+
+        if(kidToKey.size() == 0)
+            throw new RuntimeException("No JWKs given or none resolvable - please specify at least one resolvable JWK");
+
+        if (jwks.hasJwksUris() && jwks.getJwksRefreshInterval() > 0 && router.getTimerManager() != null) {
+            router.getTimerManager().schedulePeriodicTask(new TimerTask() {
+                @Override
+                public void run() {
+                    refreshKeys();
+                }
+            }, jwks.getJwksRefreshInterval() * 1000L, "JWKs Refresh");
+        }
+    }
+
+    private HashMap<String, VerificationKey> loadKeys() {
+        return jwks.getAllJwks().stream()
                 .map(jwk -> {
                     try {
                         return new RsaJsonWebKey(mapper.readValue(jwk.getJwk(router.getResolverMap(), router.getBaseLocation(),mapper),Map.class));
@@ -84,10 +129,59 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
                         throw new RuntimeException(e);
                     }
                 })
-                .collect(HashMap::new, (m,e) -> m.put(e.getKeyId(),e), HashMap::putAll);
+                .collect(HashMap::new, (m,e) -> m.put(e.getKeyId(),new VerificationKey(e, createValidator(e))), HashMap::putAll);
+    }
 
-        if(kidToKey.size() == 0)
-            throw new RuntimeException("No JWKs given or none resolvable - please specify at least one resolvable JWK");
+    /**
+     * Loads the JWKs from the jwksUris again. If a key was removed or changed, the cached tokens are dropped.
+     * On failure the known keys are kept.
+     */
+    synchronized void refreshKeys() {
+        HashMap<String, VerificationKey> keys;
+        try {
+            jwks.refresh(router.getResolverMap(), router.getBaseLocation());
+            keys = loadKeys();
+        } catch (Exception e) {
+            LOG.warn("Could not refresh JWKs from " + jwks.getJwksUris() + ": " + e.getMessage());
+            return;
+        }
+        if (keys.isEmpty()) {
+            LOG.warn("Refreshing JWKs from " + jwks.getJwksUris() + " returned no keys. Keeping the known keys.");
+            return;
+        }
+        HashMap<String, VerificationKey> old = kidToKey;
+        kidToKey = keys;
+        if (!samePublicKeys(old, keys)) {
+            LOG.info("JWKs changed. Known key ids: " + keys.keySet());
+            verifiedTokens.invalidateAll();
+        }
+    }
+
+    private boolean samePublicKeys(Map<String, VerificationKey> a, Map<String, VerificationKey> b) {
+        if (!a.keySet().equals(b.keySet()))
+            return false;
+        return a.entrySet().stream().allMatch(e -> e.getValue().key().getRsaPublicKey().equals(b.get(e.getKey()).key().getRsaPublicKey()));
+    }
+
+    /**
+     * Looks up the key. If the kid is unknown, the JWKs are loaded again, but at most once per
+     * {@link #UNKNOWN_KID_REFRESH_INTERVAL}.
+     */
+    private VerificationKey getKey(String kid) {
+        VerificationKey key = kidToKey.get(kid);
+        if (key != null || !jwks.hasJwksUris())
+            return key;
+
+        long last = lastUnknownKidRefresh.get();
+        long now = System.currentTimeMillis();
+        if (last != 0 && now - last < UNKNOWN_KID_REFRESH_INTERVAL)
+            return null;
+        if (!lastUnknownKidRefresh.compareAndSet(last, now))
+            return null;
+
+        LOG.debug("Unknown kid " + kid + ". Loading JWKs again.");
+        refreshKeys();
+        return kidToKey.get(kid);
     }
 
     @Override
@@ -105,6 +199,16 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
         if(jwt == null)
             return setJsonErrorAndReturn(null,exc,400, ERROR_JWT_NOT_FOUND);
 
+        String digest = digest(jwt);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified != null) {
+            if (System.currentTimeMillis() < verified.expiresAt()) {
+                exc.getProperties().put("jwt", verified.claims());
+                return Outcome.CONTINUE;
+            }
+            verifiedTokens.invalidate(digest);
+        }
+
         String decode;
         try {
             String[] split = jwt.split(Pattern.quote("."));
@@ -140,25 +244,45 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
 
         // we could make it possible that every key is checked instead of having the "kid" field mandatory
         // this would then need up to n checks per incoming JWT - could be a performance problem
-        RsaJsonWebKey key = kidToKey.get(kid);
+        VerificationKey key = getKey(kid);
         if(key == null)
             return setJsonErrorAndReturn(null,exc,400, ERROR_UNKNOWN_KEY);
 
-
-        JwtConsumer jwtValidator = createValidator(key);
-
+        JwtClaims claims;
         Map<String, Object> jwtClaims;
         try {
-            jwtClaims = jwtValidator.processToClaims(jwt).getClaimsMap();
+            claims = key.validator().processToClaims(jwt);
+            jwtClaims = Collections.unmodifiableMap(claims.getClaimsMap());
         }catch (Exception e){
             return setJsonErrorAndReturn(e,exc,400, ERROR_VALIDATION_FAILED);
         }
 
+        cacheVerifiedToken(digest, claims, jwtClaims);
+
         exc.getProperties().put("jwt",jwtClaims);
 
         return Outcome.CONTINUE;
     }
 
+    private void cacheVerifiedToken(String digest, JwtClaims claims, Map<String, Object> jwtClaims) {
+        try {
+            // the token is cached until it expires, without the clock skew allowed by the validator
+            long expiresAt = claims.getExpirationTime().getValueInMillis();
+            if (expiresAt > System.currentTimeMillis())
+                verifiedTokens.put(digest, new VerifiedToken(jwtClaims, expiresAt));
+        } catch (MalformedClaimException e) {
+            // not cached, the token is verified again next time
+        }
+    }
+
+    private static String digest(String jwt) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private JwtConsumer createValidator(RsaJsonWebKey key) {
         JwtConsumerBuilder jwtConsumerBuilder = new JwtConsumerBuilder()
                 .setRequireExpirationTime()
@@ -222,6 +346,21 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
         this.jwks = jwks;
     }
 
+    public int getVerifiedTokenCacheSize() {
+        return verifiedTokenCacheSize;
+    }
+
+    /**
+     * @description Maximum number of verified tokens to remember. A remembered token is accepted without verifying
+     * its signature again until it expires. Use 0 to verify every token.
+     * @default 10000
+     */
+    @MCAttribute
+    public JwtAuthInterceptor setVerifiedTokenCacheSize(int verifiedTokenCacheSize) {
+        this.verifiedTokenCacheSize = verifiedTokenCacheSize;
+        return this;
+    }
+
     public String getExpectedAud() {
         return expectedAud;
     }
@@ -251,4 +390,9 @@ public class JwtAuthInterceptor extends AbstractInterceptor {
                 (jwks != null ? "Validates the JWT signature against " + jwks.getLongDescription() + " ." : "");
     }
 
+    record VerificationKey(RsaJsonWebKey key, JwtConsumer validator) {
+    }
+
+    record VerifiedToken(Map<String, Object> claims, long expiresAt) {
+    }
 }
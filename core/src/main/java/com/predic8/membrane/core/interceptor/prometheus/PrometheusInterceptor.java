@@ -22,11 +22,16 @@ import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
+import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.lang.AbstractScriptInterceptor;
+import com.predic8.membrane.core.lang.ScriptExecutorPool;
 import com.predic8.membrane.core.openapi.serviceproxy.*;
 import com.predic8.membrane.core.rules.Rule;
 import com.predic8.membrane.core.rules.StatisticCollector;
 import com.predic8.membrane.core.rules.TimeCollector;
+import com.predic8.membrane.core.stats.LatencyHistogram;
+import com.predic8.membrane.core.transport.ssl.HandshakeStatistics;
 import com.predic8.membrane.core.transport.ssl.SSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +49,8 @@ public class PrometheusInterceptor extends AbstractInterceptor {
     static final Logger LOG = LoggerFactory.getLogger(PrometheusInterceptor.class);
     static volatile boolean issuedDuplicateRuleNameWarning = false;
 
+    private double[] quantiles = {0.5, 0.99, 0.999};
+
     public PrometheusInterceptor() {
         name = "Prometheus Interceptor";
     }
@@ -59,7 +66,10 @@ public class PrometheusInterceptor extends AbstractInterceptor {
     private static class Context {
         StringBuilder sb = new StringBuilder();
 
-        List<StringBuilder> dynamic = new ArrayList<>();
+        /**
+         * One builder per metric family, as all samples of a family have to follow its TYPE line.
+         */
+        Map<String, StringBuilder> dynamic = new LinkedHashMap<>();
 
         StringBuilder s1 = new StringBuilder();
         StringBuilder s2 = new StringBuilder();
@@ -74,10 +84,8 @@ public class PrometheusInterceptor extends AbstractInterceptor {
 
         HashSet<String> seenRules = new HashSet<>();
 
-        private StringBuilder getNew() {
-            StringBuilder b = new StringBuilder();
-            dynamic.add(b);
-            return b;
+        private StringBuilder getDynamic(String family) {
+            return dynamic.computeIfAbsent(family, f -> new StringBuilder());
         }
 
         private void reset() {
@@ -92,7 +100,7 @@ public class PrometheusInterceptor extends AbstractInterceptor {
             s9.setLength(0);
             s10.setLength(0);
 
-            dynamic.forEach(s -> s.setLength(0));
+            dynamic.values().forEach(s -> s.setLength(0));
         }
 
         private void resetAll() {
@@ -112,7 +120,7 @@ public class PrometheusInterceptor extends AbstractInterceptor {
             sb.append(s9);
             sb.append(s10);
 
-            dynamic.forEach(s -> sb.append(s));
+            dynamic.values().forEach(s -> sb.append(s));
         }
     }
 
@@ -143,6 +151,8 @@ public class PrometheusInterceptor extends AbstractInterceptor {
                 buildOpenAPIValidatorLines(ctx, (APIProxy) r);
             }
 
+            buildScriptLines(ctx, r);
+
         }
         buildDuplicateRuleNameWarning(ctx, issuedDuplicateRuleNameWarning);
         ctx.collect();
@@ -155,6 +165,22 @@ public class PrometheusInterceptor extends AbstractInterceptor {
         }
     }
 
+    private void buildScriptLines(Context ctx, Rule r) {
+        List<Interceptor> interceptors = r.getInterceptors();
+        if (interceptors == null)
+            return;
+        for (int i = 0; i < interceptors.size(); i++) {
+            if (!(interceptors.get(i) instanceof AbstractScriptInterceptor si))
+                continue;
+            ScriptExecutorPool<?, ?> pool = si.getScriptExecutorPool();
+            if (pool == null || pool.getExecution().getCount() == 0)
+                continue;
+            String labels = "rule=\"" + prometheusCompatibleName(r.getName()) + "\",interceptor=\"" + i + "\"";
+            buildHistogram(ctx, "membrane_script_pool_wait_duration", labels, pool.getPoolWait());
+            buildHistogram(ctx, "membrane_script_execution_duration", labels, pool.getExecution());
+        }
+    }
+
     private StringBuilder buildLine(StringBuilder sb, String ruleName, long value, Map<String, String> labels, String postFix) {
         String prometheusName = prometheusCompatibleName("membrane_" + postFix);
         if (sb.length() == 0) {
@@ -186,6 +212,16 @@ public class PrometheusInterceptor extends AbstractInterceptor {
             buildSSLLine(ctx.s8, r.getName(), sslib.getPrometheusContextTypeName(), "ssl_validfrom_ms", sslib.getValidFrom());
             buildSSLLine(ctx.s9, r.getName(), sslib.getPrometheusContextTypeName(), "ssl_validuntil_ms", sslib.getValidUntil());
         }
+
+        HandshakeStatistics handshakes = sslib.getHandshakeStatistics();
+        String labels = "rule=\"" + prometheusCompatibleName(r.getName()) + "\",type=\"" + prometheusCompatibleName(sslib.getPrometheusContextTypeName()) + "\"";
+        StringBuilder sb = ctx.getDynamic("membrane_ssl_handshakes");
+        if (sb.length() == 0)
+            sb.append("# TYPE membrane_ssl_handshakes counter\n");
+        buildSample(sb, "membrane_ssl_handshakes", labels + ",resumed=\"false\"", handshakes.getFullHandshakes());
+        buildSample(sb, "membrane_ssl_handshakes", labels + ",resumed=\"true\"", handshakes.getResumedHandshakes());
+        if (handshakes.getLatency().getCount() > 0)
+            buildHistogram(ctx, "membrane_ssl_handshake_duration", labels, handshakes.getLatency());
     }
 
     private void buildSSLLine(StringBuilder sb, String ruleName, String prometheusContextTypeName, String metric, long value) {
@@ -221,22 +257,43 @@ public class PrometheusInterceptor extends AbstractInterceptor {
     }
 
     private void buildBuckets(Context ctx, Rule rule) {
-        rule.getStatisticCollector().getTimeStatisticsByStatusCodeRange().forEach((code, tc) -> tc.getTrackedTimes().forEach((name, tt) -> {
-            if (tt.isEmpty())
+        rule.getStatisticCollector().getTimeStatisticsByStatusCodeRange().forEach((code, tc) -> tc.getTrackedTimes().forEach((name, histogram) -> {
+            if (histogram.getCount() == 0)
                 return;
 
-            StringBuilder sb = ctx.getNew();
-            tt.forEach((le, count) -> {
-                if (le.equals("SUM") || le.equals("COUNT"))
-                    return;
-
-                buildBucketLine(sb, rule.getName(), le, count, name);
-            });
-            buildBucketLine(sb, rule.getName(), name + "_sum", tt.get("SUM"));
-            buildBucketLine(sb, rule.getName(), name + "_count", tt.get("COUNT"));
+            buildHistogram(ctx, prometheusCompatibleName("membrane_" + name),
+                    "rule=\"" + prometheusCompatibleName(rule.getName()) + "\",code=\"" + code + "xx\"", histogram);
         }));
     }
 
+    private void buildHistogram(Context ctx, String prometheusName, String labels, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+        StringBuilder sb = ctx.getDynamic(prometheusName);
+        if (sb.length() == 0)
+            sb.append("# TYPE ").append(prometheusName).append(" histogram\n");
+        for (long le : TimeCollector.getBuckets())
+            buildSample(sb, prometheusName + "_bucket", labels + ",le=\"" + le + "\"", snapshot.getCountAtOrBelow(le * 1000.0));
+        buildSample(sb, prometheusName + "_bucket", labels + ",le=\"+Inf\"", snapshot.getTotal());
+        buildSample(sb, prometheusName + "_sum", labels, histogram.getSumMicros() / 1000.0);
+        buildSample(sb, prometheusName + "_count", labels, snapshot.getTotal());
+
+        StringBuilder qb = ctx.getDynamic(prometheusName + "_quantile");
+        if (qb.length() == 0)
+            qb.append("# TYPE ").append(prometheusName).append("_quantile gauge\n");
+        for (double q : quantiles)
+            buildSample(qb, prometheusName + "_quantile", labels + ",quantile=\"" + q + "\"", snapshot.getValueAtQuantile(q) / 1000.0);
+    }
+
+    private void buildSample(StringBuilder sb, String prometheusName, String labels, Number value) {
+        sb.append(prometheusName);
+        sb.append("{");
+        sb.append(labels);
+        sb.append("} ");
+        sb.append(value);
+        sb.append("\n");
+    }
+
     private void buildStatuscodeLines(Context ctx, Rule rule) {
         Map<Integer, StatisticCollector> stats = rule.getStatisticCollector().getStatisticsByStatusCodes();
 
@@ -270,25 +327,6 @@ public class PrometheusInterceptor extends AbstractInterceptor {
         sb.append("\n");
     }
 
-    private void buildBucketLine(StringBuilder sb, String ruleName, String le, long valueCount, String infix) {
-        String prometheusName = prometheusCompatibleName("membrane_" + infix + "_bucket");
-        if (sb.length() == 0) {
-            sb.append("# TYPE ");
-            sb.append(prometheusName);
-            sb.append(" histogram\n");
-        }
-
-        sb.append(prometheusName);
-        sb.append("{rule=\"");
-        sb.append(prometheusCompatibleName(ruleName));
-        sb.append("\",le=\"");
-        sb.append(le);
-        sb.append("\"} ");
-        sb.append(valueCount);
-        sb.append("\n");
-
-    }
-
     /**
      * see <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Exposition Formats</a> .
      */
@@ -342,6 +380,10 @@ public class PrometheusInterceptor extends AbstractInterceptor {
 
     }
 
+    /**
+     * @description Comma separated upper bounds of the buckets of the latency histograms in milliseconds.
+     * @default 1,2,5,10,20,50,100,200,500,1000,2000,4000,10000
+     */
     @MCAttribute
     public void setBuckets(String buckets) {
         TimeCollector.setBuckets(Arrays.stream(buckets
@@ -355,6 +397,23 @@ public class PrometheusInterceptor extends AbstractInterceptor {
         return joinByComma(TimeCollector.getBuckets().stream().map(Object::toString).collect(toList()));
     }
 
+    /**
+     * @description Comma separated quantiles of the latencies to report. The latencies are reported in milliseconds.
+     * @default 0.5,0.99,0.999
+     */
+    @MCAttribute
+    public void setQuantiles(String quantiles) {
+        this.quantiles = Arrays.stream(quantiles
+                        .replaceAll("\\s+", "")
+                        .split(","))
+                .mapToDouble(Double::parseDouble)
+                .toArray();
+    }
+
+    public String getQuantiles() {
+        return joinByComma(Arrays.stream(quantiles).mapToObj(Double::toString).collect(toList()));
+    }
+
     @Override
     public String getShortDescription() {
         return "Returns Membrane's internal metrics in the Prometheus format.";
@@ -44,12 +44,7 @@ public class LazyRateLimit extends RateLimitStrategy {
 	}
 
 	private void addRequestEntry(String addr) {
-		synchronized (requestCounterFromKey) {
-			if (!requestCounterFromKey.containsKey(addr)) {
-				requestCounterFromKey.put(addr, new AtomicInteger());
-			}
-		}
-		requestCounterFromKey.get(addr).incrementAndGet();
+		requestCounterFromKey.computeIfAbsent(addr, k -> new AtomicInteger()).incrementAndGet();
 	}
 
 	private void incrementNextCleanupTime() {
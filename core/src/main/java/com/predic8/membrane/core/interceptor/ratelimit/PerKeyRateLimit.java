@@ -0,0 +1,95 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.ratelimit;
+
+import java.time.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Base class for strategies keeping a small, lock-free state per key.
+ * <p>
+ * Keys which have been idle long enough that their state equals a fresh one are removed from time to time, so the
+ * number of entries is bounded by the number of keys seen within roughly one period.
+ *
+ * @param <S> mutable, thread-safe state of a key
+ */
+public abstract class PerKeyRateLimit<S> extends RateLimitStrategy {
+
+	private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+	private final AtomicLong nextCleanup = new AtomicLong();
+	private final LongSupplier clock;
+
+	protected PerKeyRateLimit(Duration requestLimitDuration, int requestLimit, LongSupplier clock) {
+		this.requestLimitDuration = requestLimitDuration;
+		this.requestLimit = requestLimit;
+		this.clock = clock;
+		nextCleanup.set(clock.getAsLong() + getPeriodNanos());
+	}
+
+	@Override
+	public boolean isRequestLimitReached(String key) {
+		long now = clock.getAsLong();
+		cleanupIfDue(now);
+		return !tryAcquire(states.computeIfAbsent(key, k -> createState(now)), now);
+	}
+
+	@Override
+	public LocalDateTime getServiceAvailableAgainTime(String key) {
+		S state = states.get(key);
+		long wait = state == null ? 0 : getWaitNanos(state, clock.getAsLong());
+		return LocalDateTime.now().plusNanos(wait);
+	}
+
+	@Override
+	public void updateAfterConfigChange() {
+		states.clear();
+	}
+
+	public int getNumberOfKeys() {
+		return states.size();
+	}
+
+	protected long getPeriodNanos() {
+		return requestLimitDuration.toNanos();
+	}
+
+	private void cleanupIfDue(long now) {
+		long next = nextCleanup.get();
+		if (now - next < 0 || !nextCleanup.compareAndSet(next, now + getPeriodNanos()))
+			return;
+		// a request racing with the removal may count against a discarded state, which can only let it through
+		states.entrySet().removeIf(e -> isIdle(e.getValue(), now));
+	}
+
+	protected abstract S createState(long now);
+
+	/**
+	 * @return whether the request is allowed; if so, it has been counted
+	 */
+	protected abstract boolean tryAcquire(S state, long now);
+
+	/**
+	 * @return nanoseconds until the next request would be allowed
+	 */
+	protected abstract long getWaitNanos(S state, long now);
+
+	/**
+	 * @return whether the state does not restrict any request anymore and can be dropped
+	 */
+	protected abstract boolean isIdle(S state, long now);
+}
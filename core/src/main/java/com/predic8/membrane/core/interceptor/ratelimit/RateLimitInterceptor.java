@@ -65,7 +65,23 @@ public class RateLimitInterceptor extends AbstractInterceptor {
      */
     public static final String X_RATELIMIT_RESET = "X-RateLimit-Reset";
 
-    private final RateLimitStrategy strategy;
+    public enum Algorithm {
+        /**
+         * Counts the requests in fixed windows. Up to twice the limit can pass around the start of a window.
+         */
+        FIXED_WINDOW,
+        /**
+         * Weights the count of the previous window by its overlap with the sliding window ending now.
+         */
+        SLIDING_WINDOW,
+        /**
+         * Allows bursts up to the limit, refilled evenly over the duration.
+         */
+        TOKEN_BUCKET
+    }
+
+    private RateLimitStrategy strategy;
+    private Algorithm algorithm = Algorithm.FIXED_WINDOW;
 
     private String keyExpression;
     private Expression expression;
@@ -85,20 +101,29 @@ public class RateLimitInterceptor extends AbstractInterceptor {
     }
 
     public RateLimitInterceptor(Duration requestLimitDuration, int requestLimit) {
-        strategy = new LazyRateLimit(requestLimitDuration, requestLimit);
+        strategy = createStrategy(algorithm, requestLimitDuration, requestLimit);
         name = "RateLimiter";
         setFlow(REQUEST);
     }
 
+    private static RateLimitStrategy createStrategy(Algorithm algorithm, Duration requestLimitDuration, int requestLimit) {
+        return switch (algorithm) {
+            case FIXED_WINDOW -> new LazyRateLimit(requestLimitDuration, requestLimit);
+            case SLIDING_WINDOW -> new SlidingWindowRateLimit(requestLimitDuration, requestLimit);
+            case TOKEN_BUCKET -> new TokenBucketRateLimit(requestLimitDuration, requestLimit);
+        };
+    }
+
     @Override
     public Outcome handleRequest(Exchange exc) throws Exception {
-        if (!strategy.isRequestLimitReached(getKey(exc)))
+        String key = getKey(exc);
+        if (!strategy.isRequestLimitReached(key))
             return CONTINUE;
 
         Map<String,Object> details = new HashMap<>();
-        details.put("message","The quota of the ratelimiter is exceeded. Try again in %s seconds.".formatted(strategy.getLimitReset(exc.getRemoteAddrIp())));
+        details.put("message","The quota of the ratelimiter is exceeded. Try again in %s seconds.".formatted(strategy.getLimitReset(key)));
         exc.setResponse(createProblemDetails(429, "/ratelimiter/exceeded", "Rate Limit is Exceeded", details));
-        setHeaderRateLimitFieldsOnResponse(exc);
+        setHeaderRateLimitFieldsOnResponse(exc, key);
 
         return RETURN;
     }
@@ -203,11 +228,11 @@ public class RateLimitInterceptor extends AbstractInterceptor {
         return l.get(l.size() - count - 1).trim();
     }
 
-    private void setHeaderRateLimitFieldsOnResponse(Exchange exc) {
+    private void setHeaderRateLimitFieldsOnResponse(Exchange exc, String key) {
         Header h = exc.getResponse().getHeader();
         h.add(X_RATELIMIT_DURATION, strategy.getLimitDurationPeriod());
         h.add(X_RATELIMIT_LIMIT, Integer.toString(strategy.requestLimit));
-        h.add(X_RATELIMIT_RESET, strategy.getLimitReset(exc.getRemoteAddrIp()));
+        h.add(X_RATELIMIT_RESET, strategy.getLimitReset(key));
     }
 
     @SuppressWarnings("unused")
@@ -243,6 +268,24 @@ public class RateLimitInterceptor extends AbstractInterceptor {
         strategy.setRequestLimitDuration(duration);
     }
 
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @description How requests are counted: <i>fixed_window</i> resets all counters at the end of each period,
+     * <i>sliding_window</i> also takes the previous period into account, and <i>token_bucket</i> allows bursts
+     * of up to <i>requestLimit</i> requests and then one request every <i>requestLimitDuration / requestLimit</i>.
+     * The latter two do not synchronize requests and forget idle clients.
+     * @default fixed_window
+     * @example token_bucket
+     */
+    @MCAttribute
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+        strategy = createStrategy(algorithm, strategy.getRequestLimitDuration(), strategy.getRequestLimit());
+    }
+
     /**
      * @description The expression the ratelimiter should use to group the requests before counting. The Spring Expression Language (SpEL)
      * is used as language. In the expression the build-in variables request, header, properties can be used.
@@ -0,0 +1,93 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.ratelimit;
+
+import java.time.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Sliding window counter: requests are counted in fixed windows of <i>requestLimitDuration</i>, and the count of
+ * the previous window is weighted by how much of it still overlaps the sliding window ending now. In contrast to
+ * {@link LazyRateLimit}, this does not allow twice the limit within a short time around the start of a window.
+ */
+public class SlidingWindowRateLimit extends PerKeyRateLimit<AtomicReference<SlidingWindowRateLimit.Window>> {
+
+	record Window(long start, int previous, int current) {
+	}
+
+	public SlidingWindowRateLimit(Duration requestLimitDuration, int requestLimit) {
+		this(requestLimitDuration, requestLimit, System::nanoTime);
+	}
+
+	SlidingWindowRateLimit(Duration requestLimitDuration, int requestLimit, LongSupplier clock) {
+		super(requestLimitDuration, requestLimit, clock);
+	}
+
+	@Override
+	protected AtomicReference<Window> createState(long now) {
+		return new AtomicReference<>(new Window(now, 0, 0));
+	}
+
+	@Override
+	protected boolean tryAcquire(AtomicReference<Window> state, long now) {
+		while (true) {
+			Window w = state.get();
+			Window current = advance(w, now);
+			if (estimate(current, now) >= requestLimit) {
+				if (current != w)
+					state.compareAndSet(w, current);
+				return false;
+			}
+			if (state.compareAndSet(w, new Window(current.start, current.previous, current.current + 1)))
+				return true;
+		}
+	}
+
+	@Override
+	protected long getWaitNanos(AtomicReference<Window> state, long now) {
+		Window w = advance(state.get(), now);
+		if (estimate(w, now) < requestLimit)
+			return 0;
+		long period = getPeriodNanos();
+		if (w.current < requestLimit) {
+			// the weight of the previous window has to drop below (limit - current) / previous
+			long end = w.start + (long) (period * (1 - (double) (requestLimit - w.current) / w.previous)) + 1;
+			return Math.max(0, end - now);
+		}
+		// within the next window, the current count becomes the previous one
+		long end = w.start + period + (long) (period * (1 - (double) requestLimit / w.current)) + 1;
+		return Math.max(0, end - now);
+	}
+
+	@Override
+	protected boolean isIdle(AtomicReference<Window> state, long now) {
+		return now - state.get().start >= 2 * getPeriodNanos();
+	}
+
+	private Window advance(Window w, long now) {
+		long period = getPeriodNanos();
+		long windows = (now - w.start) / period;
+		if (windows <= 0)
+			return w;
+		return new Window(w.start + windows * period, windows == 1 ? w.current : 0, 0);
+	}
+
+	private double estimate(Window w, long now) {
+		double overlap = 1 - (double) (now - w.start) / getPeriodNanos();
+		return w.previous * overlap + w.current;
+	}
+}
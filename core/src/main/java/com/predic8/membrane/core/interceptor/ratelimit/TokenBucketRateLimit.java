@@ -0,0 +1,71 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.ratelimit;
+
+import java.time.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Token bucket holding up to <i>requestLimit</i> tokens, refilled continuously at <i>requestLimit</i> tokens per
+ * <i>requestLimitDuration</i>.
+ * <p>
+ * Implemented as the generic cell rate algorithm: the state of a key is a single timestamp, the theoretical arrival
+ * time of the next request if the bucket were drained evenly, updated with compare-and-set.
+ */
+public class TokenBucketRateLimit extends PerKeyRateLimit<AtomicLong> {
+
+	public TokenBucketRateLimit(Duration requestLimitDuration, int requestLimit) {
+		this(requestLimitDuration, requestLimit, System::nanoTime);
+	}
+
+	TokenBucketRateLimit(Duration requestLimitDuration, int requestLimit, LongSupplier clock) {
+		super(requestLimitDuration, requestLimit, clock);
+	}
+
+	private long getEmissionInterval() {
+		return Math.max(1, getPeriodNanos() / Math.max(1, requestLimit));
+	}
+
+	@Override
+	protected AtomicLong createState(long now) {
+		return new AtomicLong(now);
+	}
+
+	@Override
+	protected boolean tryAcquire(AtomicLong tat, long now) {
+		long interval = getEmissionInterval();
+		long burst = interval * requestLimit;
+		while (true) {
+			long current = tat.get();
+			long next = Math.max(current - now, 0) + interval;
+			if (next > burst)
+				return false;
+			if (tat.compareAndSet(current, now + next))
+				return true;
+		}
+	}
+
+	@Override
+	protected long getWaitNanos(AtomicLong tat, long now) {
+		return Math.max(0, tat.get() - now + getEmissionInterval() - getEmissionInterval() * requestLimit);
+	}
+
+	@Override
+	protected boolean isIdle(AtomicLong tat, long now) {
+		return tat.get() - now <= 0;
+	}
+}
@@ -41,7 +41,9 @@ public class InMemorySessionManager extends SessionManager {
 
     @Override
     public void init(Router router) throws Exception {
+        // the cache is thread safe, lookups of different sessions do not block each other
         sessions = CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
                 .expireAfterAccess(Duration.ofSeconds(getExpiresAfterSeconds()))
                 .build();
     }
@@ -49,9 +51,7 @@ public class InMemorySessionManager extends SessionManager {
     @Override
     protected Map<String, Object> cookieValueToAttributes(String cookie) {
         try {
-            synchronized (sessions) {
-                return sessions.get(cookie.split("=true")[0], () -> new Session(usernameKeyName, new HashMap<>())).get();
-            }
+            return sessions.get(cookie.split("=true")[0], () -> new Session(usernameKeyName, new HashMap<>())).get();
         } catch (ExecutionException e) {
             throw new RuntimeException(e);
         }
@@ -62,9 +62,7 @@ public class InMemorySessionManager extends SessionManager {
         createSessionIdsForNewSessions(session);
         fixMergedSessionId(session);
 
-        synchronized (sessions) {
-            addSessionToCache(session);
-        }
+        addSessionToCache(session);
 
         return mapSessionToName(session);
     }
@@ -99,16 +97,12 @@ public class InMemorySessionManager extends SessionManager {
 
     @Override
     protected boolean isValidCookieForThisSessionManager(String cookie) {
-        synchronized (sessions) {
-            return cookie.startsWith(cookieNamePrefix) && sessions.getIfPresent(cookie.split("=true")[0]) != null;
-        }
+        return cookie.startsWith(cookieNamePrefix) && sessions.getIfPresent(cookie.split("=true")[0]) != null;
     }
 
     @Override
     protected boolean cookieRenewalNeeded(String originalCookie) {
-        synchronized (sessions) {
-            return sessions.getIfPresent(originalCookie) != null;
-        }
+        return sessions.getIfPresent(originalCookie) != null;
     }
 
 
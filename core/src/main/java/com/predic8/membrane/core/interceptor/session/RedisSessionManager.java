@@ -16,6 +16,8 @@ package com.predic8.membrane.core.interceptor.session;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.Router;
@@ -24,20 +26,66 @@ import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.HeaderField;
 import com.predic8.membrane.core.http.HeaderName;
 import com.predic8.membrane.core.util.RedisConnector;
+import com.predic8.membrane.core.util.TimerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.params.GetExParams;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Stores sessions in Redis.
+ * <p>
+ * Sessions read or written by this instance are kept in a local near-cache. Every write gets a new version, which is
+ * published on the invalidation channel. Other instances drop their copy of the session when they see a version they
+ * do not hold. If the subscription is lost, the near-cache is cleared.
+ * <p>
+ * Writes can be deferred and sent to Redis in batches, see {@link #setWriteBehindInterval(int)}. Pending writes are
+ * sent and the invalidation listener is stopped when the Spring context is closed, see {@link #stop()}.
+ */
 @MCElement(name = "redisSessionManager")
-public class RedisSessionManager extends SessionManager{
+public class RedisSessionManager extends SessionManager implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSessionManager.class.getName());
 
     protected String cookieNamePrefix = UUID.randomUUID().toString().substring(0,8);
     private ObjectMapper objMapper;
     private RedisConnector connector;
     static final String ID_NAME = "_in_memory_session_id";
 
+    private int nearCacheSize = 10000;
+    private int writeBehindInterval = 0;
+    private String invalidationChannel = "membrane-sessions";
+
+    /**
+     * Session attributes by session id
+     */
+    Cache<String, CachedSession> nearCache;
+
+    /**
+     * Writes not yet sent to Redis by session id. A later write of the same session replaces the earlier one.
+     */
+    final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile boolean running;
+    /**
+     * Incremented by {@link #stop()}. The listener thread and the write-behind task end once it changed.
+     */
+    private volatile int generation;
+    private volatile JedisPubSub subscriber;
+    private TimerManager selfCreatedTimerManager;
 
     public RedisSessionManager(){
         objMapper = new ObjectMapper();
@@ -46,20 +94,153 @@ public class RedisSessionManager extends SessionManager{
 
     @Override
     public void init(Router router) throws Exception {
-        //Nothing to do
+        if (running)
+            stop();
+
+        nearCache = CacheBuilder.newBuilder()
+                .maximumSize(nearCacheSize)
+                .expireAfterAccess(Duration.ofSeconds(getExpiresAfterSeconds()))
+                .build();
+
+        running = true;
+        int g = generation;
+        if (nearCacheSize > 0)
+            startInvalidationListener(g);
+
+        if (writeBehindInterval > 0) {
+            TimerManager timerManager = router != null ? router.getTimerManager() : null;
+            if (timerManager == null)
+                selfCreatedTimerManager = timerManager = new TimerManager();
+            timerManager.schedulePeriodicTask(new TimerTask() {
+                @Override
+                public void run() {
+                    if (generation != g) {
+                        cancel();
+                        return;
+                    }
+                    flush();
+                }
+            }, writeBehindInterval, "Redis Session Write-Behind");
+        }
+    }
+
+    /**
+     * Stops listening for invalidations and writes pending sessions to Redis.
+     */
+    public void stop() {
+        running = false;
+        generation++;
+        JedisPubSub s = subscriber;
+        if (s != null && s.isSubscribed())
+            s.unsubscribe();
+        flush();
+        if (selfCreatedTimerManager != null)
+            selfCreatedTimerManager.shutdown();
+        selfCreatedTimerManager = null;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    boolean isListeningForInvalidations() {
+        JedisPubSub s = subscriber;
+        return s != null && s.isSubscribed();
+    }
+
+    private void startInvalidationListener(int g) {
+        Thread t = new Thread(() -> {
+            while (generation == g) {
+                try (Jedis jedis = connector.getJedisWithDb()) {
+                    JedisPubSub s = new JedisPubSub() {
+                        @Override
+                        public void onSubscribe(String channel, int subscribedChannels) {
+                            // stop() may have run before the subscription was set up
+                            if (generation != g) {
+                                unsubscribe();
+                                return;
+                            }
+                            // messages may have been missed while not subscribed
+                            nearCache.invalidateAll();
+                        }
+
+                        @Override
+                        public void onMessage(String channel, String message) {
+                            invalidate(message);
+                        }
+                    };
+                    subscriber = s;
+                    jedis.subscribe(s, invalidationChannel);
+                } catch (Exception e) {
+                    if (generation != g)
+                        return;
+                    log.warn("Lost subscription to session invalidation channel " + invalidationChannel + ": " + e.getMessage());
+                    nearCache.invalidateAll();
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        }, "Redis Session Invalidation");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * @param message session id and version separated by a space
+     */
+    private void invalidate(String message) {
+        invalidations.incrementAndGet();
+        int idx = message.lastIndexOf(' ');
+        if (idx == -1)
+            return;
+        String id = message.substring(0, idx);
+        CachedSession cached = nearCache.getIfPresent(id);
+        if (cached != null && !cached.version().equals(message.substring(idx + 1)))
+            nearCache.invalidate(id);
     }
 
     @Override
     protected Map<String, Object> cookieValueToAttributes(String cookie) {
+        CachedSession cached = lookup(sessionId(cookie));
+        if (cached == null)
+            return new Session(usernameKeyName, new HashMap<>()).get();
+        return new HashMap<>(cached.attributes());
+    }
+
+    /**
+     * @return the session from the near-cache or from Redis, null if the session does not exist
+     */
+    private CachedSession lookup(String id) {
+        CachedSession cached = nearCache.getIfPresent(id);
+        if (cached != null)
+            return cached;
+
+        PendingWrite pending = pendingWrites.get(id);
+        if (pending != null && pending != PendingWrite.TOUCH)
+            return pending.session();
+
+        long invalidationsBefore = invalidations.get();
+        String json;
+        try (Jedis jedis = connector.getJedisWithDb()) {
+            json = jedis.getEx(id, new GetExParams().ex(getExpiresAfterSeconds()));
+        }
+        if (json == null)
+            return null;
         try {
-            try (Jedis jedis = connector.getJedisWithDb()) {
-                return (!jedis.get(cookie.split("=true")[0]).equals("nil")) ?
-                        jsonStringtoSession(jedis.getEx(cookie.split("=true")[0], connector.getParams())).get() : new Session(usernameKeyName, new HashMap<>()).get();
-            }
+            // version unknown: any invalidation for this session drops it
+            cached = new CachedSession(Collections.unmodifiableMap(jsonStringtoSession(json).get()), "");
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.warn("Could not read session " + id + " from Redis: " + e.getMessage());
+            return null;
         }
-        return Collections.emptyMap();
+        // an invalidation received during the read might be for this session
+        if (nearCacheSize > 0 && invalidations.get() == invalidationsBefore)
+            nearCache.put(id, cached);
+        return cached;
     }
 
     @Override
@@ -77,16 +258,81 @@ public class RedisSessionManager extends SessionManager{
 
     private void addSessionToRedis(Session[] session) {
         Arrays.stream(session).forEach(s -> {
+            String id = s.get(ID_NAME);
+            CachedSession cached = nearCache.getIfPresent(id);
+            if (!s.isDirty() && cached != null && cached.attributes().equals(s.get())) {
+                // unchanged, only the expiry has to be refreshed
+                write(id, null);
+                return;
+            }
             try {
-                try (Jedis jedis = connector.getJedisWithDb()) {
-                    jedis.setex(s.get(ID_NAME), getExpiresAfterSeconds(), sessionToJsonString(s));
-                }
+                write(id, new PendingWrite(new CachedSession(Collections.unmodifiableMap(new HashMap<>(s.get())), nextVersion()), sessionToJsonString(s)));
             } catch (JsonProcessingException e) {
-                e.printStackTrace();
+                log.warn("Could not write session " + id + " to Redis: " + e.getMessage());
             }
         });
     }
 
+    /**
+     * @param write the new session or null to only refresh the expiry
+     */
+    private void write(String id, PendingWrite write) {
+        if (write != null && nearCacheSize > 0)
+            nearCache.put(id, write.session());
+
+        if (writeBehindInterval > 0) {
+            if (write != null)
+                pendingWrites.put(id, write);
+            else
+                pendingWrites.putIfAbsent(id, PendingWrite.TOUCH);
+            return;
+        }
+
+        try (Jedis jedis = connector.getJedisWithDb()) {
+            Pipeline p = jedis.pipelined();
+            send(p, id, write);
+            p.sync();
+        }
+    }
+
+    /**
+     * Sends the pending writes to Redis in one pipeline.
+     */
+    void flush() {
+        if (pendingWrites.isEmpty())
+            return;
+        try (Jedis jedis = connector.getJedisWithDb()) {
+            Pipeline p = jedis.pipelined();
+            for (String id : new ArrayList<>(pendingWrites.keySet())) {
+                PendingWrite write = pendingWrites.remove(id);
+                if (write != null)
+                    send(p, id, write == PendingWrite.TOUCH ? null : write);
+            }
+            p.sync();
+        } catch (Exception e) {
+            log.warn("Could not write sessions to Redis: " + e.getMessage());
+        }
+    }
+
+    private void send(Pipeline p, String id, PendingWrite write) {
+        if (write == null) {
+            p.expire(id, getExpiresAfterSeconds());
+            return;
+        }
+        p.setex(id, getExpiresAfterSeconds(), write.json());
+        if (nearCacheSize > 0)
+            p.publish(invalidationChannel, id + " " + write.session().version());
+    }
+
+    private String nextVersion() {
+        return instanceId + "-" + versionCounter.incrementAndGet();
+    }
+
+    private static String sessionId(String cookie) {
+        int idx = cookie.indexOf("=true");
+        return idx == -1 ? cookie : cookie.substring(0, idx);
+    }
+
     private void createSessionIdsForNewSessions(Session[] session) {
         Arrays.stream(session).filter(s -> s.get(ID_NAME) == null).forEach(s -> s.put(ID_NAME, cookieNamePrefix + "-" +UUID.randomUUID()));
     }
@@ -116,16 +362,12 @@ public class RedisSessionManager extends SessionManager{
 
     @Override
     protected boolean isValidCookieForThisSessionManager(String cookie) {
-        try (Jedis jedis = connector.getJedisWithDb()) {
-            return cookie.startsWith(cookieNamePrefix) && !jedis.get(cookie.split("=true")[0]).equals("nil");
-        }
+        return cookie.startsWith(cookieNamePrefix) && lookup(sessionId(cookie)) != null;
     }
 
     @Override
     protected boolean cookieRenewalNeeded(String originalCookie) {
-        try (Jedis jedis = connector.getJedisWithDb()) {
-            return !jedis.get(originalCookie).equals("nil");
-        }
+        return lookup(originalCookie) != null;
     }
 
     public RedisConnector getConnector() {
@@ -136,4 +378,57 @@ public class RedisSessionManager extends SessionManager{
     public void setConnector(RedisConnector connector) {
         this.connector = connector;
     }
+
+    public int getNearCacheSize() {
+        return nearCacheSize;
+    }
+
+    /**
+     * @description Maximum number of sessions kept in the local near-cache. Use 0 to read every session from Redis.
+     * @default 10000
+     */
+    @MCAttribute
+    public void setNearCacheSize(int nearCacheSize) {
+        this.nearCacheSize = nearCacheSize;
+    }
+
+    public int getWriteBehindInterval() {
+        return writeBehindInterval;
+    }
+
+    /**
+     * @description Interval in milliseconds in which changed sessions are written to Redis in one batch. Use 0 to
+     * write every change immediately. Until a change is written, other instances still see the previous session.
+     * @default 0
+     */
+    @MCAttribute
+    public void setWriteBehindInterval(int writeBehindInterval) {
+        this.writeBehindInterval = writeBehindInterval;
+    }
+
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    /**
+     * @description Redis pub/sub channel on which changed sessions are announced to the other instances.
+     * @default membrane-sessions
+     */
+    @MCAttribute
+    public void setInvalidationChannel(String invalidationChannel) {
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    /**
+     * @param version version of the last write, empty if the session was read from Redis
+     */
+    record CachedSession(Map<String, Object> attributes, String version) {
+    }
+
+    record PendingWrite(CachedSession session, String json) {
+        /**
+         * Only the expiry of the session has to be refreshed
+         */
+        static final PendingWrite TOUCH = new PendingWrite(null, null);
+    }
 }
@@ -21,6 +21,7 @@ import com.predic8.membrane.core.http.*;
 import com.predic8.membrane.core.interceptor.*;
 import com.predic8.membrane.core.lang.*;
 import com.predic8.membrane.core.resolver.*;
+import groovy.lang.*;
 import groovy.text.*;
 import org.apache.commons.io.*;
 import org.apache.commons.lang3.*;
@@ -29,6 +30,7 @@ import org.slf4j.*;
 import java.io.*;
 import java.util.*;
 
+import static com.predic8.membrane.core.http.Header.*;
 import static com.predic8.membrane.core.http.MimeType.*;
 import static com.predic8.membrane.core.interceptor.Interceptor.Flow.*;
 import static com.predic8.membrane.core.interceptor.Outcome.*;
@@ -65,6 +67,8 @@ public class TemplateInterceptor extends AbstractInterceptor{
 
     private Boolean pretty = false;
 
+    private boolean streaming;
+
     private final JSONBeautifier jsonBeautifier = new JSONBeautifier();
 
     private boolean scriptAccessesJson;
@@ -85,7 +89,10 @@ public class TemplateInterceptor extends AbstractInterceptor{
 
     private Outcome handleInternal(Message msg, Exchange exc, Flow flow) {
         try {
-            msg.setBodyContent(fillAndGetBytes(exc,msg,flow));
+            if (streaming)
+                setGeneratedBody(exc, msg, flow);
+            else
+                msg.setBodyContent(fillAndGetBytes(exc,msg,flow));
         }
         catch (TemplateExecutionException e) {
             log.warn("Template Exception" + e);
@@ -110,21 +117,47 @@ public class TemplateInterceptor extends AbstractInterceptor{
         }
     }
 
-    @SuppressWarnings("RedundantThrows") // Declaration of exception is needed. However, Groovy does not declare it.
-    private String fillTemplate(Exchange exc, Message msg, Flow flow) throws TemplateExecutionException {
-
-        HashMap<String, Object> binding = ScriptingUtils.createParameterBindings(router.getUriFactory(), exc, msg, flow, scriptAccessesJson && msg.isJSON());
+    private LazyBindings createBinding(Exchange exc, Message msg, Flow flow) {
+        LazyBindings binding = ScriptingUtils.createParameterBindings(router.getUriFactory(), exc, msg, flow, scriptAccessesJson && msg.isJSON());
         binding.put("props", binding.get("properties"));
         binding.remove("properties");
         binding.putAll(exc.getProperties()); // To be compatible with old Version
+        return binding;
+    }
 
-        String payload = template.make(binding).toString();
-        if (isOfMediaType(APPLICATION_JSON,contentType) && pretty) {
+    @SuppressWarnings("RedundantThrows") // Declaration of exception is needed. However, Groovy does not declare it.
+    private String fillTemplate(Exchange exc, Message msg, Flow flow) throws TemplateExecutionException {
+        String payload = template.make(createBinding(exc, msg, flow)).toString();
+        if (isPrettyJson()) {
             return prettifyJson(payload);
         }
         return payload;
     }
 
+    /**
+     * Replaces the body with one that renders the template while the message is sent.
+     */
+    private void setGeneratedBody(Exchange exc, Message msg, Flow flow) {
+        LazyBindings binding = createBinding(exc, msg, flow);
+        // Values taken from the current body have to be read before it is replaced
+        binding.resolveAll();
+        Writable writable = template.make(binding);
+        boolean prettyJson = isPrettyJson();
+
+        msg.setBody(new GeneratedBody(out -> {
+            try (Writer writer = new OutputStreamWriter(prettyJson ? jsonBeautifier.beautify(out) : out, UTF_8)) {
+                writable.writeTo(writer);
+            }
+        }));
+        msg.getHeader().removeFields(CONTENT_LENGTH);
+        msg.getHeader().removeFields(CONTENT_ENCODING);
+        msg.getHeader().setValue(TRANSFER_ENCODING, CHUNKED);
+    }
+
+    private boolean isPrettyJson() {
+        return isOfMediaType(APPLICATION_JSON,contentType) && pretty;
+    }
+
     private byte[] fillAndGetBytes(Exchange exc, Message msg, Flow flow) throws TemplateExecutionException {
         return fillTemplate(exc, msg, flow).getBytes(UTF_8);
     }
@@ -226,6 +259,22 @@ public class TemplateInterceptor extends AbstractInterceptor{
         this.pretty = Boolean.valueOf(pretty);
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @description Renders the template while the message is sent instead of into memory first. Use it for large
+     * documents. The body is sent with chunked transfer encoding. Errors in the template show up when the message is
+     * sent and abort the connection, as the status line has already been sent. With <i>pretty</i>, JSON is formatted
+     * token by token.
+     * @default false
+     */
+    @MCAttribute
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     private String formatAsHtml(String plaintext) {
         return String.join("<br />", escapeHtml4(plaintext).split("\n"));
     }
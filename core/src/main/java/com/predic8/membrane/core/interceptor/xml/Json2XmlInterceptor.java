@@ -14,8 +14,10 @@
 
 package com.predic8.membrane.core.interceptor.xml;
 
+import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.GeneratedBody;
 import com.predic8.membrane.core.http.Message;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
@@ -23,9 +25,11 @@ import com.predic8.membrane.core.interceptor.Outcome;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.json.XML;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import static com.predic8.membrane.core.http.Header.*;
 import static com.predic8.membrane.core.interceptor.Outcome.CONTINUE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -41,6 +45,8 @@ public class Json2XmlInterceptor extends AbstractInterceptor {
 
     private static final String ROOT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
 
+    private boolean streaming;
+
     @Override
     public Outcome handleRequest(Exchange exc) throws Exception {
         return handleInternal(exc.getRequest());
@@ -51,15 +57,26 @@ public class Json2XmlInterceptor extends AbstractInterceptor {
         return handleInternal(exc.getResponse());
     }
 
-    private Outcome handleInternal(Message msg){
+    private Outcome handleInternal(Message msg) throws IOException {
         if(!msg.isJSON())
             return CONTINUE;
         msg.getHeader().setContentType(MimeType.TEXT_XML);
-        msg.setBodyContent(json2Xml(msg.getBodyAsStream()));
+        if (streaming)
+            setGeneratedBody(msg);
+        else
+            msg.setBodyContent(json2Xml(msg.getBodyAsStream()));
 
         return CONTINUE;
     }
 
+    private void setGeneratedBody(Message msg) throws IOException {
+        // Checks the JSON, so that errors are reported before the status line is sent
+        Json2XmlTranscoder transcoder = Json2XmlTranscoder.prepare(msg.getBody());
+        msg.setBody(new GeneratedBody(transcoder::writeTo));
+        msg.getHeader().removeFields(CONTENT_LENGTH);
+        msg.getHeader().setValue(TRANSFER_ENCODING, CHUNKED);
+    }
+
 
     private byte[] json2Xml(InputStream body) {
         return (ROOT + XML.toString(convertToJsonObject(body))).getBytes(UTF_8);
@@ -70,4 +87,19 @@ public class Json2XmlInterceptor extends AbstractInterceptor {
         return new JSONObject(new JSONTokener(new InputStreamReader(body, UTF_8)));
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @description Converts the JSON with a streaming parser while the message is sent instead of through an
+     * <i>org.json</i> tree. The JSON is checked before, the XML is sent with chunked transfer encoding. The result is
+     * the same, except that elements keep the order of the document.
+     * @default false
+     */
+    @MCAttribute
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
 }
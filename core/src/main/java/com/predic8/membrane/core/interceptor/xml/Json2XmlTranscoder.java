@@ -0,0 +1,204 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.xml;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.json.*;
+import com.predic8.membrane.core.http.*;
+import org.json.*;
+
+import java.io.*;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converts JSON to XML with the mapping of <code>org.json.XML.toString()</code>, but from the tokens of a Jackson
+ * {@link JsonParser} directly to the output instead of through a <code>JSONObject</code> tree.
+ * <p>
+ * {@link #prepare(AbstractBody)} reads the JSON once to report syntax errors as {@link JSONException} before any
+ * output is written, {@link #writeTo(OutputStream)} converts it. Besides single quotes and unquoted names, the JSON
+ * has to be valid. Elements are written in document order.
+ */
+public class Json2XmlTranscoder {
+
+    private static final String CONTENT = "content";
+    private static final String ARRAY = "array";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    private static final JsonFactory jsonFactory = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+            .build();
+
+    private final AbstractBody source;
+
+    private Json2XmlTranscoder(AbstractBody source) {
+        this.source = source;
+    }
+
+    /**
+     * Reads the JSON once to check it. The JSON is read as UTF-8.
+     *
+     * @throws JSONException if the JSON is invalid or not an object
+     */
+    public static Json2XmlTranscoder prepare(AbstractBody source) throws IOException {
+        try (JsonParser parser = createParser(source)) {
+            if (parser.nextToken() != START_OBJECT)
+                throw new JSONException("A JSONObject text must begin with '{' at " + parser.currentLocation());
+            parser.skipChildren();
+        } catch (JsonProcessingException e) {
+            throw new JSONException(e.getOriginalMessage(), e);
+        }
+        return new Json2XmlTranscoder(source);
+    }
+
+    /**
+     * Writes the XML in UTF-8, starting with an XML declaration.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        try (JsonParser parser = createParser(source);
+             Writer writer = new OutputStreamWriter(out, UTF_8)) {
+            writer.write(XML_DECLARATION);
+            parser.nextToken();
+            writeValue(parser, null, writer);
+        }
+    }
+
+    private static JsonParser createParser(AbstractBody source) throws IOException {
+        return jsonFactory.createParser(new InputStreamReader(source.getContentAsStream(), UTF_8));
+    }
+
+    /**
+     * Writes the value at the current token of the parser. The parser is left at the last token of the value.
+     *
+     * @param tagName null for the members of the top level object and nested arrays
+     */
+    private static void writeValue(JsonParser parser, String tagName, Writer out) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT -> {
+                if (tagName != null)
+                    startTag(tagName, out);
+                while (parser.nextToken() == FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    writeMember(parser, name, out);
+                }
+                if (tagName != null)
+                    endTag(tagName, out);
+            }
+            // XML has no arrays, the items are written one after another
+            case START_ARRAY -> {
+                while (parser.nextToken() != END_ARRAY)
+                    writeValue(parser, tagName == null ? ARRAY : tagName, out);
+            }
+            default -> {
+                String text = XML.escape(scalarToString(parser));
+                if (tagName == null) {
+                    out.write('"');
+                    out.write(text);
+                    out.write('"');
+                } else if (text.isEmpty()) {
+                    emptyTag(tagName, out);
+                } else {
+                    startTag(tagName, out);
+                    out.write(text);
+                    endTag(tagName, out);
+                }
+            }
+        }
+    }
+
+    private static void writeMember(JsonParser parser, String name, Writer out) throws IOException {
+        if (CONTENT.equals(name)) {
+            writeContent(parser, out);
+            return;
+        }
+        if (parser.currentToken() != START_ARRAY) {
+            writeValue(parser, name, out);
+            return;
+        }
+        while (parser.nextToken() != END_ARRAY) {
+            if (parser.currentToken() == START_ARRAY) {
+                startTag(name, out);
+                writeValue(parser, null, out);
+                endTag(name, out);
+            } else {
+                writeValue(parser, name, out);
+            }
+        }
+    }
+
+    /**
+     * The member "content" is written as text, the items of an array separated by line breaks.
+     */
+    private static void writeContent(JsonParser parser, Writer out) throws IOException {
+        if (parser.currentToken() != START_ARRAY) {
+            out.write(XML.escape(contentToString(parser)));
+            return;
+        }
+        boolean first = true;
+        while (parser.nextToken() != END_ARRAY) {
+            if (!first)
+                out.write('\n');
+            first = false;
+            out.write(XML.escape(contentToString(parser)));
+        }
+    }
+
+    /**
+     * Objects and arrays as content are written as JSON.
+     */
+    private static String contentToString(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isStructStart())
+            return scalarToString(parser);
+        StringWriter sw = new StringWriter();
+        try (JsonGenerator gen = jsonFactory.createGenerator(sw)) {
+            gen.copyCurrentStructure(parser);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Numbers are formatted like the values <code>org.json</code> creates for them.
+     */
+    private static String scalarToString(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> JSONObject.stringToValue(parser.getText()).toString();
+            case VALUE_NULL -> "null";
+            default -> parser.getText();
+        };
+    }
+
+    private static void startTag(String name, Writer out) throws IOException {
+        out.write('<');
+        out.write(name);
+        out.write('>');
+    }
+
+    private static void endTag(String name, Writer out) throws IOException {
+        out.write("</");
+        out.write(name);
+        out.write('>');
+    }
+
+    private static void emptyTag(String name, Writer out) throws IOException {
+        out.write('<');
+        out.write(name);
+        out.write("/>");
+    }
+}
@@ -13,8 +13,10 @@
    limitations under the License. */
 
 package com.predic8.membrane.core.interceptor.xml;
+import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.GeneratedBody;
 import com.predic8.membrane.core.http.Message;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
@@ -31,6 +33,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.*;
 
+import static com.predic8.membrane.core.http.Header.*;
 import static com.predic8.membrane.core.interceptor.Outcome.CONTINUE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -44,6 +47,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 @MCElement(name="xml2Json")
 public class Xml2JsonInterceptor extends AbstractInterceptor {
 
+    private boolean streaming;
+
     @Override
     public Outcome handleRequest(Exchange exc) throws Exception {
         return handleInternal(exc.getRequest());
@@ -59,7 +64,10 @@ public class Xml2JsonInterceptor extends AbstractInterceptor {
             return CONTINUE;
         }
 
-        if(msg.getHeader().getContentEncoding() != null){
+        if (streaming) {
+            setGeneratedBody(msg);
+        }
+        else if(msg.getHeader().getContentEncoding() != null){
             msg.setBodyContent(xml2json(msg.getBodyAsStreamDecoded(), msg.getHeader().getContentEncoding()));
         }
         else{
@@ -70,6 +78,15 @@ public class Xml2JsonInterceptor extends AbstractInterceptor {
         return CONTINUE;
     }
 
+    private void setGeneratedBody(Message msg) throws Exception {
+        // Checks the XML, so that errors are reported before the status line is sent
+        Xml2JsonTranscoder transcoder = Xml2JsonTranscoder.prepare(msg.getBody(), msg.getHeader().getContentEncoding());
+        msg.setBody(new GeneratedBody(transcoder::writeTo));
+        msg.getHeader().removeFields(CONTENT_LENGTH);
+        msg.getHeader().removeFields(CONTENT_ENCODING);
+        msg.getHeader().setValue(TRANSFER_ENCODING, CHUNKED);
+    }
+
     private byte[] xml2json(InputStream body, String encoding) throws UnsupportedEncodingException {
         return XML.toJSONObject(new InputStreamReader(body, encoding)).toString().getBytes(UTF_8);
     }
@@ -103,6 +120,21 @@ public class Xml2JsonInterceptor extends AbstractInterceptor {
         }
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @description Converts the XML with StAX while the message is sent instead of through an <i>org.json</i> tree.
+     * The XML is checked before, the JSON is sent with chunked transfer encoding. The result is the same, except that
+     * keys keep the order of the document.
+     * @default false
+     */
+    @MCAttribute
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     @Override
     public String getDisplayName() {
         return "XML2JSON";
@@ -0,0 +1,448 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.xml;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.util.*;
+import com.predic8.membrane.core.http.*;
+import org.json.*;
+
+import javax.xml.stream.*;
+import java.io.*;
+import java.util.*;
+import java.util.regex.*;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Converts XML to JSON with the mapping of <code>org.json.XML.toJSONObject()</code>, but from StAX events to a
+ * Jackson {@link JsonGenerator} instead of through a <code>JSONObject</code> tree.
+ * <p>
+ * In that mapping, an element becomes an array if a name occurs more than once among its attributes and children,
+ * even if the occurrences are not adjacent. Therefore the XML is read twice: {@link #prepare(AbstractBody, String)}
+ * records the shape of every element, {@link #writeTo(OutputStream)} writes the JSON. Only the values of names that
+ * occur apart from each other are buffered until their last occurrence.
+ * <p>
+ * Unlike <code>org.json</code>, the input is parsed by an XML parser: names have to use declared prefixes, DOCTYPEs
+ * are rejected, and line breaks and whitespace in attribute values are normalized as the XML specification demands.
+ * Keys are written in document order.
+ */
+public class Xml2JsonTranscoder {
+
+    private static final String CONTENT = "content";
+    /** Numbers that do not match are written as strings by <code>org.json</code> */
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(?:0|[1-9]\\d*)(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
+
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        // The JDK parser reports CDATA sections as text otherwise
+        if (xmlInputFactory.isPropertySupported("http://java.sun.com/xml/stream/properties/report-cdata-event"))
+            xmlInputFactory.setProperty("http://java.sun.com/xml/stream/properties/report-cdata-event", true);
+    }
+
+    private enum Kind {
+        /** No attributes, children or text: <code>""</code> */
+        EMPTY,
+        /** Nothing but one text: the value of the text */
+        CONTENT,
+        /** Nothing but several texts: an array of the texts */
+        CONTENT_ARRAY,
+        OBJECT
+    }
+
+    private record Repeated(int count, boolean adjacent) {
+    }
+
+    /**
+     * @param repeated the names that occur more than once in an {@link Kind#OBJECT}
+     * @param array    whether the value is an array
+     */
+    private record Shape(Kind kind, Map<String, Repeated> repeated, boolean array) {
+    }
+
+    private static final Shape EMPTY = new Shape(Kind.EMPTY, Map.of(), false);
+    private static final Shape CONTENT_VALUE = new Shape(Kind.CONTENT, Map.of(), false);
+    /** The only text is a child element called "content" whose value is an array */
+    private static final Shape CONTENT_ARRAY_VALUE = new Shape(Kind.CONTENT, Map.of(), true);
+    private static final Shape CONTENT_ARRAY = new Shape(Kind.CONTENT_ARRAY, Map.of(), true);
+    private static final Shape OBJECT = new Shape(Kind.OBJECT, Map.of(), false);
+
+    private final AbstractBody source;
+    private final String encoding;
+    /** The shapes of all elements in document order */
+    private final List<Shape> shapes;
+
+    private Xml2JsonTranscoder(AbstractBody source, String encoding, List<Shape> shapes) {
+        this.source = source;
+        this.encoding = encoding;
+        this.shapes = shapes;
+    }
+
+    /**
+     * Reads the XML once to check it and to record the shape of its elements.
+     *
+     * @param encoding overrides the encoding of the XML declaration, if not null
+     */
+    public static Xml2JsonTranscoder prepare(AbstractBody source, String encoding) throws IOException, XMLStreamException {
+        ShapeRecorder recorder = new ShapeRecorder();
+        scan(source, encoding, recorder);
+        return new Xml2JsonTranscoder(source, encoding, recorder.shapes);
+    }
+
+    /**
+     * Writes the JSON in UTF-8.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            JsonWriter writer = new JsonWriter(gen, shapes.iterator());
+            scan(source, encoding, writer);
+            writer.finish();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private interface Handler {
+        void startElement(XMLStreamReader reader) throws IOException;
+
+        void content(Object value) throws IOException;
+
+        void endElement() throws IOException;
+    }
+
+    private static void scan(AbstractBody source, String encoding, Handler handler) throws IOException, XMLStreamException {
+        try (InputStream is = source.getContentAsStream()) {
+            XMLStreamReader reader = encoding == null
+                    ? xmlInputFactory.createXMLStreamReader(is)
+                    : xmlInputFactory.createXMLStreamReader(new InputStreamReader(is, encoding));
+            try {
+                scan(reader, handler);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Like <code>org.json</code>, the text between two tags, comments or CDATA sections is trimmed and converted
+     * with {@link XML#stringToValue(String)}, CDATA sections are taken as they are.
+     */
+    private static void scan(XMLStreamReader reader, Handler handler) throws IOException, XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 0;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case CHARACTERS, SPACE -> {
+                    if (depth > 0)
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                case CDATA -> {
+                    flushText(text, handler);
+                    if (reader.getTextLength() > 0)
+                        handler.content(reader.getText());
+                }
+                case START_ELEMENT -> {
+                    flushText(text, handler);
+                    depth++;
+                    handler.startElement(reader);
+                }
+                case END_ELEMENT -> {
+                    flushText(text, handler);
+                    depth--;
+                    handler.endElement();
+                }
+                case COMMENT, PROCESSING_INSTRUCTION -> flushText(text, handler);
+                case DTD -> throw new XMLStreamException("DOCTYPE is not allowed.", reader.getLocation());
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void flushText(StringBuilder text, Handler handler) throws IOException {
+        if (text.isEmpty())
+            return;
+        String value = text.toString().trim();
+        text.setLength(0);
+        if (!value.isEmpty())
+            handler.content(XML.stringToValue(value));
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String namespaceDeclaration(String prefix) {
+        return prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+    }
+
+    /**
+     * First pass: counts the names of every element.
+     */
+    private static class ShapeRecorder implements Handler {
+
+        private static class Names {
+            final int index;
+            final String name;
+            /** name -> {count, adjacent ? 1 : 0} */
+            final Map<String, int[]> counts = new LinkedHashMap<>();
+            String last;
+            boolean contentAttribute;
+            boolean contentArray;
+
+            Names(int index, String name) {
+                this.index = index;
+                this.name = name;
+            }
+
+            void add(String name) {
+                int[] c = counts.get(name);
+                if (c == null) {
+                    counts.put(name, new int[]{1, 1});
+                } else {
+                    c[0]++;
+                    if (!name.equals(last))
+                        c[1] = 0;
+                }
+                last = name;
+            }
+
+            Shape toShape() {
+                if (counts.isEmpty())
+                    return EMPTY;
+                int[] content = counts.get(CONTENT);
+                // org.json does not unwrap empty tags like <a content="..."/>, which cannot be told apart from <a content="..."></a>
+                if (content != null && counts.size() == 1 && !(contentAttribute && content[0] == 1))
+                    return content[0] > 1 ? CONTENT_ARRAY : contentArray ? CONTENT_ARRAY_VALUE : CONTENT_VALUE;
+                Map<String, Repeated> repeated = null;
+                for (Map.Entry<String, int[]> e : counts.entrySet()) {
+                    if (e.getValue()[0] == 1)
+                        continue;
+                    if (repeated == null)
+                        repeated = new HashMap<>();
+                    repeated.put(e.getKey(), new Repeated(e.getValue()[0], e.getValue()[1] == 1));
+                }
+                return repeated == null ? OBJECT : new Shape(Kind.OBJECT, repeated, false);
+            }
+        }
+
+        final List<Shape> shapes = new ArrayList<>();
+        private final Deque<Names> stack = new ArrayDeque<>();
+
+        @Override
+        public void startElement(XMLStreamReader reader) {
+            String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+            Names parent = stack.peek();
+            if (parent != null)
+                parent.add(name);
+            Names names = new Names(shapes.size(), name);
+            shapes.add(null);
+            for (int i = 0; i < reader.getNamespaceCount(); i++)
+                names.add(namespaceDeclaration(reader.getNamespacePrefix(i)));
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attribute = qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                names.add(attribute);
+                names.contentAttribute |= CONTENT.equals(attribute);
+            }
+            stack.push(names);
+        }
+
+        @Override
+        public void content(Object value) {
+            stack.element().add(CONTENT);
+        }
+
+        @Override
+        public void endElement() {
+            Names names = stack.pop();
+            Shape shape = names.toShape();
+            shapes.set(names.index, shape);
+            if (shape.array() && CONTENT.equals(names.name) && !stack.isEmpty())
+                stack.element().contentArray = true;
+        }
+    }
+
+    /**
+     * Second pass: writes the elements according to their shapes.
+     */
+    private static class JsonWriter implements Handler {
+
+        private static class Frame {
+            final Shape shape;
+            /** Where the value of the element is written to */
+            final JsonGenerator out;
+            /** The name whose array is open, if the occurrences of a repeated name are adjacent */
+            String openArray;
+            /** The arrays of repeated names whose occurrences are apart */
+            Map<String, TokenBuffer> buffered;
+            Map<String, Integer> seen;
+            /** The name of the value being written */
+            String current;
+            boolean wrapped;
+
+            Frame(Shape shape, JsonGenerator out) {
+                this.shape = shape;
+                this.out = out;
+            }
+
+            /**
+             * Starts the value of a name and returns the generator to write it to.
+             */
+            JsonGenerator begin(String name, boolean valueIsArray) throws IOException {
+                current = name;
+                wrapped = false;
+                // The only name is "content", its values are the value of the element
+                if (shape.kind() != Kind.OBJECT) {
+                    if (shape.kind() == Kind.CONTENT && valueIsArray) {
+                        out.writeStartArray();
+                        wrapped = true;
+                    }
+                    return out;
+                }
+                if (openArray != null && !openArray.equals(name)) {
+                    out.writeEndArray();
+                    openArray = null;
+                }
+                Repeated repeated = shape.repeated().get(name);
+                if (repeated == null) {
+                    out.writeFieldName(name);
+                    // org.json accumulates an array value into an array
+                    if (valueIsArray) {
+                        out.writeStartArray();
+                        wrapped = true;
+                    }
+                    return out;
+                }
+                if (repeated.adjacent()) {
+                    if (openArray == null) {
+                        out.writeFieldName(name);
+                        out.writeStartArray();
+                        openArray = name;
+                    }
+                    return out;
+                }
+                if (buffered == null) {
+                    buffered = new HashMap<>();
+                    seen = new HashMap<>();
+                }
+                TokenBuffer buffer = buffered.get(name);
+                if (buffer == null) {
+                    buffer = new TokenBuffer(null, false);
+                    buffer.writeStartArray();
+                    buffered.put(name, buffer);
+                }
+                return buffer;
+            }
+
+            void end() throws IOException {
+                if (wrapped)
+                    out.writeEndArray();
+                Repeated repeated = shape.repeated().get(current);
+                if (repeated == null || repeated.adjacent())
+                    return;
+                if (seen.merge(current, 1, Integer::sum) < repeated.count())
+                    return;
+                TokenBuffer buffer = buffered.remove(current);
+                buffer.writeEndArray();
+                out.writeFieldName(current);
+                buffer.serialize(out);
+            }
+
+            void value(String name, Object value) throws IOException {
+                writeScalar(begin(name, false), value);
+                end();
+            }
+        }
+
+        private final JsonGenerator gen;
+        private final Iterator<Shape> shapes;
+        private final Deque<Frame> stack = new ArrayDeque<>();
+
+        JsonWriter(JsonGenerator gen, Iterator<Shape> shapes) throws IOException {
+            this.gen = gen;
+            this.shapes = shapes;
+            gen.writeStartObject();
+            stack.push(new Frame(OBJECT, gen));
+        }
+
+        @Override
+        public void startElement(XMLStreamReader reader) throws IOException {
+            Shape shape = shapes.next();
+            JsonGenerator out = stack.element().begin(qualifiedName(reader.getPrefix(), reader.getLocalName()), shape.array());
+            Frame frame = new Frame(shape, out);
+            stack.push(frame);
+            switch (shape.kind()) {
+                case OBJECT -> out.writeStartObject();
+                case CONTENT_ARRAY -> out.writeStartArray();
+                default -> {
+                }
+            }
+            for (int i = 0; i < reader.getNamespaceCount(); i++)
+                frame.value(namespaceDeclaration(reader.getNamespacePrefix(i)), XML.stringToValue(reader.getNamespaceURI(i)));
+            for (int i = 0; i < reader.getAttributeCount(); i++)
+                frame.value(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), XML.stringToValue(reader.getAttributeValue(i)));
+        }
+
+        @Override
+        public void content(Object value) throws IOException {
+            stack.element().value(CONTENT, value);
+        }
+
+        @Override
+        public void endElement() throws IOException {
+            Frame frame = stack.pop();
+            switch (frame.shape.kind()) {
+                case EMPTY -> frame.out.writeString("");
+                case CONTENT_ARRAY -> frame.out.writeEndArray();
+                case OBJECT -> {
+                    if (frame.openArray != null)
+                        frame.out.writeEndArray();
+                    frame.out.writeEndObject();
+                }
+                default -> {
+                }
+            }
+            stack.element().end();
+        }
+
+        void finish() throws IOException {
+            gen.writeEndObject();
+        }
+
+        private static void writeScalar(JsonGenerator out, Object value) throws IOException {
+            if (value instanceof Boolean b)
+                out.writeBoolean(b);
+            else if (value instanceof Number n)
+                writeNumber(out, JSONObject.numberToString(n));
+            else if (value == JSONObject.NULL)
+                out.writeNull();
+            else
+                out.writeString(value.toString());
+        }
+
+        private static void writeNumber(JsonGenerator out, String number) throws IOException {
+            if (JSON_NUMBER.matcher(number).matches())
+                out.writeNumber(number);
+            else
+                out.writeString(number);
+        }
+    }
+}
@@ -21,7 +21,6 @@ import com.predic8.membrane.annot.*;
 import com.predic8.membrane.core.exchange.*;
 import com.predic8.membrane.core.http.*;
 import com.predic8.membrane.core.interceptor.*;
-import org.graalvm.polyglot.*;
 import org.slf4j.*;
 
 import java.io.*;
@@ -100,6 +99,12 @@ public abstract class AbstractScriptInterceptor extends AbstractInterceptor {
             return CONTINUE;
         }
 
+        if(res instanceof Collection c) {
+            msg.getHeader().setContentType(APPLICATION_JSON);
+            msg.setBodyContent(om.writeValueAsBytes(c));
+            return CONTINUE;
+        }
+
         if(res instanceof String s) {
             if (s.equals("undefined")) {
                 return CONTINUE;
@@ -109,23 +114,11 @@ public abstract class AbstractScriptInterceptor extends AbstractInterceptor {
             return CONTINUE;
         }
 
-        if(res == null) {
-            return CONTINUE;
-        }
-
-        // Test for packagename is needed cause the dependency is provided and maybe not on the classpath
-        if(res.getClass().getPackageName().startsWith("org.graalvm.polyglot") && res instanceof Value value) {
-            Map m = value.as(Map.class);
-            msg.getHeader().setContentType(APPLICATION_JSON);
-            msg.setBodyContent(om.writeValueAsBytes(m));
-            return CONTINUE;
-        }
-
         return CONTINUE;
     }
 
-    private HashMap<String, Object> getParameterBindings(Exchange exc, Flow flow, Message msg) {
-        HashMap<String, Object> parameterBindings = createParameterBindings(router.getUriFactory(), exc, msg, flow, scriptAccessesJson && msg.isJSON());
+    private Map<String, Object> getParameterBindings(Exchange exc, Flow flow, Message msg) {
+        Map<String, Object> parameterBindings = createParameterBindings(router.getUriFactory(), exc, msg, flow, scriptAccessesJson && msg.isJSON());
         addOutcomeObjects(parameterBindings);
         parameterBindings.put("spring", router.getBeanFactory());
         return parameterBindings;
@@ -142,13 +135,20 @@ public abstract class AbstractScriptInterceptor extends AbstractInterceptor {
         }
     }
 
-    private void addOutcomeObjects(HashMap<String, Object> parameters) {
+    private void addOutcomeObjects(Map<String, Object> parameters) {
         parameters.put("Outcome", Outcome.class);
         parameters.put("RETURN", RETURN);
         parameters.put("CONTINUE", CONTINUE);
         parameters.put("ABORT", Outcome.ABORT);
     }
 
+    /**
+     * @return the pool running the script, or null if the script is not pooled or not initialized yet
+     */
+    public ScriptExecutorPool<?, ?> getScriptExecutorPool() {
+        return script instanceof ScriptExecutorPool<?, ?> pool ? pool : null;
+    }
+
     public String getSrc() {
         return src;
     }
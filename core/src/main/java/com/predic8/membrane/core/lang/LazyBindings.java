@@ -0,0 +1,85 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.lang;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Bindings for scripts and templates. Values that are expensive to compute are only computed when they are read
+ * for the first time.
+ * <p>
+ * Iterating over the entries computes all values. Replacing or removing a value that was not computed yet does not
+ * compute it, {@link #put} and {@link #remove} return null in that case.
+ */
+public class LazyBindings extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, Supplier<?>> suppliers = new HashMap<>();
+
+    public void putLazy(String key, Supplier<?> supplier) {
+        values.remove(key);
+        suppliers.put(key, supplier);
+    }
+
+    private void resolve(Object key) {
+        Supplier<?> supplier = suppliers.remove(key);
+        if (supplier != null)
+            values.put((String) key, supplier.get());
+    }
+
+    @Override
+    public Object get(Object key) {
+        resolve(key);
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key) || suppliers.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        suppliers.remove(key);
+        return values.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        suppliers.remove(key);
+        return values.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size() + suppliers.size();
+    }
+
+    /**
+     * Computes all values that were not read yet.
+     */
+    public void resolveAll() {
+        for (String key : new ArrayList<>(suppliers.keySet()))
+            resolve(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        resolveAll();
+        return values.entrySet();
+    }
+}
@@ -14,6 +14,7 @@
 
 package com.predic8.membrane.core.lang;
 
+import com.predic8.membrane.core.stats.*;
 import org.slf4j.*;
 
 import java.util.*;
@@ -26,6 +27,9 @@ public abstract class ScriptExecutorPool<T, R> implements Function<Map<String, O
 	private static final int concurrency = Runtime.getRuntime().availableProcessors() * 2;
 	ArrayBlockingQueue<T> scripts = new ArrayBlockingQueue<>(concurrency);
 
+	private final LatencyHistogram poolWait = new LatencyHistogram();
+	private final LatencyHistogram execution = new LatencyHistogram();
+
 	public void init(ExecutorService executorService) {
 		scripts.add(createOneScript());
 		executorService.execute(() -> {
@@ -40,10 +44,14 @@ public abstract class ScriptExecutorPool<T, R> implements Function<Map<String, O
 
 	public final Object execute(Map<String, Object> parameters) {
 		try {
+			long start = System.nanoTime();
 			T script = scripts.take();
+			long acquired = System.nanoTime();
+			poolWait.record((acquired - start) / 1000);
 			try {
 				return invoke(script, parameters);
 			} finally {
+				execution.record((System.nanoTime() - acquired) / 1000);
 				scripts.put(script);
 			}
 		} catch (InterruptedException e) {
@@ -52,6 +60,20 @@ public abstract class ScriptExecutorPool<T, R> implements Function<Map<String, O
 		}
 	}
 
+	/**
+	 * @return the time callers waited for a free script instance
+	 */
+	public LatencyHistogram getPoolWait() {
+		return poolWait;
+	}
+
+	/**
+	 * @return the time spent running the script, including the conversion of its result
+	 */
+	public LatencyHistogram getExecution() {
+		return execution;
+	}
+
 	protected abstract Object invoke(T script, Map<String, Object> parameters);
 	protected abstract T createOneScript();
 
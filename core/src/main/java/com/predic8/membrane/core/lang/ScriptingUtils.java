@@ -25,8 +25,8 @@ import org.slf4j.*;
 
 import java.util.*;
 
+import static com.predic8.membrane.core.http.BodyRepresentation.JSON;
 import static com.predic8.membrane.core.interceptor.Interceptor.Flow.REQUEST;
-import static com.predic8.membrane.core.util.FileUtil.readInputStream;
 import static com.predic8.membrane.core.util.URLParamUtil.DuplicateKeyOrInvalidFormStrategy.MERGE_USING_COMMA;
 import static com.predic8.membrane.core.util.URLParamUtil.getParams;
 
@@ -36,29 +36,38 @@ public class ScriptingUtils {
 
     private static final ObjectMapper om = new ObjectMapper();
 
-    public static HashMap<String, Object> createParameterBindings(URIFactory uriFactory, Exchange exc, Message msg, Interceptor.Flow flow, boolean includeJsonObject) {
-        HashMap<String, Object> parameters = new HashMap<>();
+    /**
+     * The query parameters and the JSON object are only parsed when the script or template reads them. The JSON
+     * object is a copy of the tree cached on the message, so it can be modified.
+     */
+    public static LazyBindings createParameterBindings(URIFactory uriFactory, Exchange exc, Message msg, Interceptor.Flow flow, boolean includeJsonObject) {
+        LazyBindings parameters = new LazyBindings();
         parameters.put("exc", exc);
         parameters.put("flow", flow);
 
         if (flow == REQUEST) {
-            try {
-                parameters.put("params", getParams(uriFactory, exc, MERGE_USING_COMMA));
-            } catch (Exception e) {
-                log.info("Cannot parse query parameter from " + exc.getRequest().getUri());
-            }
+            parameters.putLazy("params", () -> {
+                try {
+                    return getParams(uriFactory, exc, MERGE_USING_COMMA);
+                } catch (Exception e) {
+                    log.info("Cannot parse query parameter from " + exc.getRequest().getUri());
+                    return null;
+                }
+            });
         }
 
         if (msg != null) {
             parameters.put("message", msg);
             parameters.put("header", msg.getHeader());
             if (includeJsonObject) {
-                try {
-                    log.info("Parsing body as JSON for scripting plugins");
-                    parameters.put("json",om.readValue(readInputStream(msg.getBodyAsStream()),Map.class));  // @Todo not with Javascript
-                } catch (Exception e) {
-                    log.warn("Can't parse body as JSON: " + e);
-                }
+                parameters.putLazy("json", () -> {
+                    try {
+                        return om.convertValue(msg.getParsedBody(JSON), Map.class);
+                    } catch (Exception e) {
+                        log.warn("Can't parse body as JSON: " + e);
+                        return null;
+                    }
+                });
             }
         }
 
@@ -46,6 +46,9 @@ public class GroovyLanguageSupport extends LanguageSupport {
 		}
 
 		private static Binding getBinding(Map<String, Object> parameters) {
+			// Lazy bindings are used directly, so values the script does not read are never computed
+			if (parameters instanceof LazyBindings)
+				return new Binding(parameters);
 			Binding b = new Binding();
 			for (Map.Entry<String, Object> parameter : parameters.entrySet())
 				b.setVariable(parameter.getKey(), parameter.getValue());
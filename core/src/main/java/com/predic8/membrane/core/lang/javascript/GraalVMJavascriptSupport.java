@@ -28,37 +28,36 @@ public class GraalVMJavascriptSupport extends LanguageSupport {
 
     private static final Logger log = LoggerFactory.getLogger(GraalVMJavascriptSupport.class);
 
-    private abstract static class GraalVMJavascriptExecutorPool<R> extends ScriptExecutorPool<Source, R> {
+    /**
+     * Shared by all contexts, so that a script is compiled only once no matter how many contexts run it.
+     */
+    private static final Engine engine = Engine.create();
 
-        // Permissions are needed to access the Java Host from Javascript e.g. access to Exchange
-        private static final Context context = Context.newBuilder()
-                .allowHostAccess(HostAccess.ALL)
-                .allowHostClassLookup(s -> true)
-                .allowPolyglotAccess(PolyglotAccess.ALL).build();
+    /**
+     * A context with the script parsed in it. A context is used by one thread at a time only.
+     */
+    private record PooledContext(Context context, Value script) {
+    }
+
+    private abstract static class GraalVMJavascriptExecutorPool<R> extends ScriptExecutorPool<PooledContext, R> {
 
-        private final String javascriptCode;
+        private final Source source;
 
         private GraalVMJavascriptExecutorPool(ExecutorService executorService, String expression) {
-            this.javascriptCode = expression;
+            // The same Source instance lets the engine find the code it already compiled for another context.
+            this.source = Source.create("js", expression);
             init(executorService);
         }
 
         @Override
-        protected Object invoke(Source source, Map<String, Object> parameters) {
+        protected Object invoke(PooledContext pooled, Map<String, Object> parameters) {
+            Value bindings = pooled.context().getBindings("js");
+            Value result;
             try {
-                synchronized (context) {
-                    for (String name : parameters.keySet()) {
-                        context.getBindings("js").putMember(name, parameters.get(name));
-                    }
-
-                    // Eval caches the compiled script internally. No need to call parse and try to
-                    // cache it in Membrane.
-                    Value js = context.eval(source);
-
-                    if (js.isHostObject())
-                        return js.asHostObject();
-                    return js;
+                for (Map.Entry<String, Object> e : parameters.entrySet()) {
+                    bindings.putMember(e.getKey(), e.getValue());
                 }
+                result = pooled.script().execute();
             } catch (PolyglotException e) {
                 if (e.isSyntaxError()) {
                     SourceSection location = e.getSourceLocation();
@@ -71,13 +70,82 @@ public class GraalVMJavascriptSupport extends LanguageSupport {
             } catch (Exception e) {
                 log.error("Error compiling script:", e);
                 throw new RuntimeException("Error compiling script:", e);
+            } finally {
+                for (String name : parameters.keySet()) {
+                    bindings.removeMember(name);
+                }
             }
+            // Values must not escape, as the context is handed to the next thread afterwards.
+            return toJava(result);
         }
 
         @Override
-        protected Source createOneScript() {
-            return Source.create("js", javascriptCode);
+        protected PooledContext createOneScript() {
+            // Permissions are needed to access the Java Host from Javascript e.g. access to Exchange
+            Context context = Context.newBuilder()
+                    .engine(engine)
+                    .allowHostAccess(HostAccess.ALL)
+                    .allowHostClassLookup(s -> true)
+                    .allowPolyglotAccess(PolyglotAccess.ALL).build();
+            return new PooledContext(context, context.parse(source));
+        }
+    }
+
+    /**
+     * Copies a value into plain Java objects: host objects are unwrapped, Javascript objects become maps and
+     * arrays become lists. Functions and other values that have no Java counterpart become null.
+     *
+     * @throws IllegalArgumentException if an object or array contains itself
+     */
+    static Object toJava(Value value) {
+        return toJava(value, new ArrayDeque<>());
+    }
+
+    /**
+     * @param ancestors the objects and arrays that contain value
+     */
+    private static Object toJava(Value value, Deque<Value> ancestors) {
+        if (value == null || value.isNull())
+            return null;
+        if (value.isHostObject())
+            return value.asHostObject();
+        if (value.isProxyObject())
+            return value.asProxyObject();
+        if (value.isBoolean())
+            return value.asBoolean();
+        if (value.isString())
+            return value.asString();
+        if (value.isNumber()) {
+            if (value.fitsInInt())
+                return value.asInt();
+            if (value.fitsInLong())
+                return value.asLong();
+            return value.asDouble();
+        }
+        if (value.hasArrayElements() || value.hasMembers() && !value.canExecute()) {
+            if (ancestors.contains(value))
+                throw new IllegalArgumentException("Result of script contains itself and cannot be copied.");
+            ancestors.push(value);
+            try {
+                return copy(value, ancestors);
+            } finally {
+                ancestors.pop();
+            }
+        }
+        return null;
+    }
+
+    private static Object copy(Value value, Deque<Value> ancestors) {
+        if (value.hasArrayElements()) {
+            List<Object> list = new ArrayList<>((int) value.getArraySize());
+            for (long i = 0; i < value.getArraySize(); i++)
+                list.add(toJava(value.getArrayElement(i), ancestors));
+            return list;
         }
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String key : value.getMemberKeys())
+            map.put(key, toJava(value.getMember(key), ancestors));
+        return map;
     }
 
     @Override
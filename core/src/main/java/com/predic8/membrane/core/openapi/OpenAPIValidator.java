@@ -26,9 +26,11 @@ import org.slf4j.*;
 
 import java.io.*;
 import java.net.*;
-import java.util.concurrent.atomic.*;
+import java.util.*;
+import java.util.regex.*;
 
 import static com.predic8.membrane.core.openapi.util.UriUtil.normalizeUri;
+import static com.predic8.membrane.core.openapi.util.UriUtil.trimQueryString;
 import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.*;
 import static java.lang.String.*;
 
@@ -40,6 +42,11 @@ public class OpenAPIValidator {
     private final URIFactory uriFactory;
     private String basePath = "";
 
+    /**
+     * Paths of the API in document order. The first matching path wins.
+     */
+    private List<PathEntry> paths;
+
     public OpenAPIValidator(URIFactory uriFactory, OpenAPI api) {
         this.api = api;
         this.uriFactory = uriFactory;
@@ -72,6 +79,9 @@ public class OpenAPIValidator {
                 throw new RuntimeException("Config Error ", e);
             }
         }
+        paths = new ArrayList<>();
+        if (api.getPaths() != null)
+            api.getPaths().forEach((uriTemplate, pathItem) -> paths.add(new PathEntry(uriTemplate, pathItem, normalizeUri(basePath + uriTemplate))));
     }
 
     public ValidationErrors validate(Request request) {
@@ -87,38 +97,31 @@ public class OpenAPIValidator {
 
         ValidationErrors errors = new ValidationErrors();
 
-        AtomicBoolean pathFound = new AtomicBoolean(false);
-        api.getPaths().forEach((uriTemplate, pathItem) -> {
-
-            // Path was already found so we do not need to check this uriTemplate
-            if (pathFound.get()) {
-                return;
-            }
+        String path = trimQueryString(req.getPath());
+        for (PathEntry entry : paths) {
+            if (!entry.mightMatch(path))
+                continue;
 
             try {
-                req.parsePathParameters(normalizeUri(basePath + uriTemplate));
-                pathFound.set(true);
+                req.parsePathParameters(entry.template);
             } catch (PathDoesNotMatchException ignore) {
-                return;
+                continue;
             } catch (UnsupportedEncodingException e) {
-                log.warn(format("Cannot decode path %s/%s. Request will be rejected.", basePath, uriTemplate));
-                return;
+                log.warn(format("Cannot decode path %s/%s. Request will be rejected.", basePath, entry.uriTemplate));
+                continue;
             }
 
-            errors.add(validateMethods(ctx.uriTemplate(uriTemplate), req, response, pathItem));
+            errors.add(validateMethods(ctx.uriTemplate(entry.uriTemplate), req, response, entry.pathItem));
 
             // If there is no response we validate the request
             if (response == null) {
                 PathParametersValidator pathParametersValidator = new PathParametersValidator(api);
-                errors.add(pathParametersValidator.validatePathParameters(ctx.uriTemplate(uriTemplate), req, pathItem.getParameters()));
+                errors.add(pathParametersValidator.validatePathParameters(ctx.uriTemplate(entry.uriTemplate), req, entry.pathItem.getParameters()));
             }
-        });
-
-        if (!pathFound.get()) {
-            errors.add(new ValidationError(ctx.validatedEntity(req.getPath()).validatedEntityType(PATH).statusCode(404), format("Path %s is invalid.", req.getPath())));
+            return errors;
         }
 
-        return errors;
+        return errors.add(new ValidationError(ctx.validatedEntity(req.getPath()).validatedEntityType(PATH).statusCode(404), format("Path %s is invalid.", req.getPath())));
     }
 
     private ValidationErrors validateMethods(ValidationContext ctx, Request req, Response response, PathItem pathItem) {
@@ -131,4 +134,31 @@ public class OpenAPIValidator {
                     .validatedEntityType(METHOD), format("Method %s is not allowed", req.getMethod()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A path of the API with the literal start of its template. Templates are used as regular expressions, so the
+     * literal start can only be used to skip a path if it does not contain any special characters.
+     */
+    private static class PathEntry {
+
+        private static final Pattern REGEX_CHARS = Pattern.compile("[\\\\.\\[\\]()*+?^$|{}]");
+
+        final String uriTemplate;
+        final PathItem pathItem;
+        final String template;
+        final String literalPrefix;
+
+        PathEntry(String uriTemplate, PathItem pathItem, String template) {
+            this.uriTemplate = uriTemplate;
+            this.pathItem = pathItem;
+            this.template = template;
+            int idx = template.indexOf('{');
+            String prefix = idx == -1 ? template : template.substring(0, idx);
+            literalPrefix = REGEX_CHARS.matcher(prefix).find() ? "" : prefix;
+        }
+
+        boolean mightMatch(String path) {
+            return path.startsWith(literalPrefix);
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class APIProxy extends ServiceProxy {
     public static final String REQUESTS = "requests";
     public static final String RESPONSES = "responses";
     public static final String VALIDATION_DETAILS = "details";
+    public static final String STREAMING = "streaming";
 
     protected Map<String,OpenAPIRecord> apiRecords = new LinkedHashMap<>();
 
@@ -70,6 +71,7 @@ public class APIProxy extends ServiceProxy {
         YesNoOpenAPIOption validateRequests = ASINOPENAPI;
         YesNoOpenAPIOption validateResponses = ASINOPENAPI;
         YesNoOpenAPIOption validationDetails = ASINOPENAPI;
+        YesNoOpenAPIOption streaming = ASINOPENAPI;
 
         public Spec() {
         }
@@ -143,6 +145,21 @@ public class APIProxy extends ServiceProxy {
             return validationDetails;
         }
 
+        /**
+         * @description Validate JSON bodies while they are parsed instead of reading them into a tree first. The body
+         * is still read completely before it is validated. Only the first validation error is reported.
+         * @example yes
+         * @default no
+         */
+        @MCAttribute()
+        public void setStreaming(YesNoOpenAPIOption streaming) {
+            this.streaming = streaming;
+        }
+
+        public YesNoOpenAPIOption getStreaming() {
+            return streaming;
+        }
+
         public enum YesNoOpenAPIOption {
             YES,
             NO,
@@ -68,7 +68,7 @@ public class OpenAPIInterceptor extends AbstractInterceptor {
         if (!hasProxyATargetElement())
             setDestinationsFromOpenAPI(rec, exc);
 
-        ValidationErrors errors = validateRequest(rec.api, exc);
+        ValidationErrors errors = validateRequest(rec, exc);
 
         if (errors != null && errors.size() > 0) {
             proxy.statisticCollector.collect(errors);
@@ -88,7 +88,7 @@ public class OpenAPIInterceptor extends AbstractInterceptor {
     public Outcome handleResponse(Exchange exc) throws Exception {
 
         OpenAPIRecord rec = (OpenAPIRecord) exc.getProperty("openApi");
-        ValidationErrors errors = validateResponse(rec.api, exc);
+        ValidationErrors errors = validateResponse(rec, exc);
 
         if (errors != null && errors.hasErrors()) {
             exc.getResponse().setStatusCode(500); // A validation error in the response is a server error!
@@ -107,19 +107,19 @@ public class OpenAPIInterceptor extends AbstractInterceptor {
         return null;
     }
 
-    private ValidationErrors validateRequest(OpenAPI api, Exchange exc) throws IOException, ParseException {
+    private ValidationErrors validateRequest(OpenAPIRecord rec, Exchange exc) throws IOException, ParseException {
         ValidationErrors errors = new ValidationErrors();
-        if (!shouldValidate(api, REQUESTS))
+        if (!shouldValidate(rec.api, REQUESTS))
             return errors;
 
-        return new OpenAPIValidator(router.getUriFactory(), api).validate(getOpenapiValidatorRequest(exc));
+        return rec.getValidator(router.getUriFactory()).validate(getOpenapiValidatorRequest(exc));
     }
 
-    private ValidationErrors validateResponse(OpenAPI api, Exchange exc) throws IOException, ParseException {
+    private ValidationErrors validateResponse(OpenAPIRecord rec, Exchange exc) throws IOException, ParseException {
         ValidationErrors errors = new ValidationErrors();
-        if (!shouldValidate(api, RESPONSES))
+        if (!shouldValidate(rec.api, RESPONSES))
             return errors;
-        return new OpenAPIValidator(router.getUriFactory(), api).validateResponse(getOpenapiValidatorRequest(exc), getOpenapiValidatorResponse(exc));
+        return rec.getValidator(router.getUriFactory()).validateResponse(getOpenapiValidatorRequest(exc), getOpenapiValidatorResponse(exc));
     }
 
     public boolean validationDetails(OpenAPI api) {
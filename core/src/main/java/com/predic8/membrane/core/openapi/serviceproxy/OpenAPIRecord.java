@@ -17,6 +17,8 @@
 package com.predic8.membrane.core.openapi.serviceproxy;
 
 import com.fasterxml.jackson.databind.*;
+import com.predic8.membrane.core.openapi.*;
+import com.predic8.membrane.core.util.*;
 import io.swagger.v3.oas.models.*;
 
 import static com.predic8.membrane.core.openapi.util.OpenAPIUtil.*;
@@ -38,12 +40,24 @@ public class OpenAPIRecord {
      */
     String version;
 
+    /**
+     * Validator for the specification. Built on first use, as it precompiles the paths of the API.
+     */
+    private volatile OpenAPIValidator validator;
+
     public OpenAPIRecord(OpenAPI api, JsonNode node) {
         this.api = api;
         this.node = node;
         this.version = getOpenAPIVersion(node);
     }
 
+    public OpenAPIValidator getValidator(URIFactory uriFactory) {
+        OpenAPIValidator v = validator;
+        if (v == null)
+            validator = v = new OpenAPIValidator(uriFactory, api);
+        return v;
+    }
+
     public boolean isVersion2() {
         return version.startsWith("2");
     }
@@ -181,6 +181,9 @@ public class OpenAPIRecordFactory {
         if (spec.validateResponses != ASINOPENAPI)
             extension.put(RESPONSES, toYesNo(spec.validateResponses));
 
+        if (spec.streaming != ASINOPENAPI)
+            extension.put(STREAMING, toYesNo(spec.streaming));
+
         extension.putIfAbsent(REQUESTS, false);
         extension.putIfAbsent(RESPONSES, false);
 
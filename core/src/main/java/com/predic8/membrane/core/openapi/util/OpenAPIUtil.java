@@ -21,9 +21,10 @@ import com.predic8.membrane.core.transport.http.*;
 import io.swagger.v3.oas.models.*;
 import org.slf4j.*;
 
+import java.util.*;
 import java.util.regex.*;
 
-import static com.predic8.membrane.core.openapi.serviceproxy.APIProxy.X_MEMBRANE_ID;
+import static com.predic8.membrane.core.openapi.serviceproxy.APIProxy.*;
 import static com.predic8.membrane.core.openapi.util.Utils.normalizeForId;
 
 public class OpenAPIUtil {
@@ -45,6 +46,19 @@ public class OpenAPIUtil {
         return "-v" + api.getInfo().getVersion();
     }
 
+    /**
+     * @return true if x-membrane-validation of the API turns on validation of JSON bodies on the parser's token
+     * stream, see {@link com.predic8.membrane.core.openapi.validators.StreamingSchemaValidator}
+     */
+    public static boolean isStreamingValidation(OpenAPI api) {
+        if (api.getExtensions() == null)
+            return false;
+        Object xValidation = api.getExtensions().get(X_MEMBRANE_VALIDATION);
+        if (!(xValidation instanceof Map<?, ?> m))
+            return false;
+        return Boolean.TRUE.equals(m.get(STREAMING));
+    }
+
     public static String getOpenAPIVersion(JsonNode node) {
         if (isSwagger2(node)) {
             return node.get("swagger").asText();
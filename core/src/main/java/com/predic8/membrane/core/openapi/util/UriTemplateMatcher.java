@@ -20,6 +20,7 @@ import java.io.*;
 import java.net.*;
 import java.nio.charset.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 
 import static com.predic8.membrane.core.openapi.util.UriUtil.trimQueryString;
@@ -29,14 +30,20 @@ public class UriTemplateMatcher {
 
     private  static final Pattern pathParameterNamePattern = Pattern.compile("\\{(.*?)}");
 
+    /**
+     * Templates are taken from the OpenAPI documents, so the number of entries is bounded.
+     */
+    private static final ConcurrentMap<String, CompiledTemplate> compiledTemplates = new ConcurrentHashMap<>();
+
     /**
      *
      * @return Map of Parameters. If the path does not match null is returned.
      */
     public Map<String,String> match(String template, String uri) throws PathDoesNotMatchException {
-        final Matcher matcher = Pattern.compile(escapeSlash(prepareRegex(template))).matcher(trimQueryString(uri));
+        final CompiledTemplate compiled = compile(template);
+        final Matcher matcher = compiled.pattern.matcher(trimQueryString(uri));
 
-        final List<String> parameterNames = getPathParameterNames(template);
+        final List<String> parameterNames = compiled.parameterNames;
 
         Map<String,String> pathParameters = new HashMap<>();
 
@@ -52,6 +59,13 @@ public class UriTemplateMatcher {
         return pathParameters;
     }
 
+    private CompiledTemplate compile(String template) {
+        CompiledTemplate compiled = compiledTemplates.get(template);
+        if (compiled == null)
+            compiled = compiledTemplates.computeIfAbsent(template, t -> new CompiledTemplate(Pattern.compile(escapeSlash(prepareRegex(t))), getPathParameterNames(t)));
+        return compiled;
+    }
+
     public String prepareRegex(String uriTemplate) {
         return uriTemplate.replaceAll("\\{(.*?)}","(.*)");
     }
@@ -72,4 +86,7 @@ public class UriTemplateMatcher {
         }
         return variables;
     }
+
+    private record CompiledTemplate(Pattern pattern, List<String> parameterNames) {
+    }
 }
@@ -21,6 +21,7 @@ import io.swagger.v3.oas.models.*;
 import io.swagger.v3.oas.models.media.*;
 
 import static com.predic8.membrane.core.http.MimeType.*;
+import static com.predic8.membrane.core.openapi.util.OpenAPIUtil.isStreamingValidation;
 
 public class AbstractBodyValidator<T> {
 
@@ -38,7 +39,11 @@ public class AbstractBodyValidator<T> {
             if (mediaTypeObj.getSchema().get$ref() != null) {
                 ctx.schemaType(mediaTypeObj.getSchema().get$ref());
             }
-            errors.add(new SchemaValidator(api, mediaTypeObj.getSchema()).validate(ctx.statusCode(statusCode), message.getBody()));
+            if (message.getBody() instanceof InputStreamBody body && isStreamingValidation(api)) {
+                errors.add(new StreamingSchemaValidator(api, mediaTypeObj.getSchema()).validate(ctx.statusCode(statusCode), body.getInputStream()));
+                return;
+            }
+            errors.add(SchemaValidator.of(api, mediaTypeObj.getSchema()).validate(ctx.statusCode(statusCode), message.getBody()));
         } else if(isXML(mediaType)) {
             errors.add(ctx.statusCode(statusCode),"Validation of XML messages is not implemented yet!");
         } else if(isWWWFormUrlEncoded(mediaType)) {
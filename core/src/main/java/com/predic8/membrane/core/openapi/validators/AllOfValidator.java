@@ -38,7 +38,7 @@ public class AllOfValidator {
         @SuppressWarnings("unchecked")
         List<Schema> allOfSchemas = schema.getAllOf();
 
-        allOfSchemas.forEach(schema -> errors.add(new SchemaValidator(api,schema).validate(ctx,obj)));
+        allOfSchemas.forEach(schema -> errors.add(SchemaValidator.of(api,schema).validate(ctx,obj)));
         if (errors.size() > 0) {
             errors.add(ctx, "One of the subschemas of allOf is not valid.");
         }
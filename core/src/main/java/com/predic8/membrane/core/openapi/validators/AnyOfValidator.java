@@ -40,7 +40,7 @@ public class AnyOfValidator {
         AtomicBoolean oneIsValid = new AtomicBoolean();
         //noinspection unchecked
         ((List<Schema>) schema.getAnyOf()).forEach(schema -> {
-             if (!areThereErrors(new SchemaValidator(api,schema).validate(ctx,obj))) {
+             if (!areThereErrors(SchemaValidator.of(api,schema).validate(ctx,obj))) {
                  oneIsValid.set(true);
              }
         });
@@ -47,7 +47,7 @@ public class ArrayValidator implements IJSONSchemaValidator {
 
         if (itemsSchema != null) {
             for (int i = 0; i < node.size(); i++) {
-                errors.add(new SchemaValidator(api, itemsSchema).validate(ctx.addJSONpointerSegment(Integer.toString(i)), node.get(i)));
+                errors.add(SchemaValidator.of(api, itemsSchema).validate(ctx.addJSONpointerSegment(Integer.toString(i)), node.get(i)));
             }
         }
 
@@ -38,7 +38,7 @@ public class NotValidator {
     public ValidationErrors validate(ValidationContext ctx, Object obj) {
         Schema notSchema = schema.getNot();
 
-        ValidationErrors ve = new SchemaValidator(api,notSchema).validate(ctx,obj);
+        ValidationErrors ve = SchemaValidator.of(api,notSchema).validate(ctx,obj);
         if (ve.size() > 0)
             return null;
 
@@ -47,12 +47,6 @@ public class ObjectValidator implements IJSONSchemaValidator {
 
     final private OpenAPI api;
 
-    /**
-     * ObjectMapper is Thread safe!
-     * <a href="https://fasterxml.github.io/jackson-databind/javadoc/2.6/com/fasterxml/jackson/databind/ObjectMapper.html">ObjectMapper.html</a>
-     */
-    final private ObjectMapper om = new ObjectMapper();
-
 
     @SuppressWarnings("rawtypes")
     public ObjectValidator(OpenAPI api, Schema schema) {
@@ -102,7 +96,7 @@ public class ObjectValidator implements IJSONSchemaValidator {
         if (schema.getType().equals(propertyName))
             return null;
 
-        return new SchemaValidator(api, getBaseSchema(node, propertyName)).validate(ctx,node);
+        return SchemaValidator.of(api, getBaseSchema(node, propertyName)).validate(ctx,node);
     }
 
 
@@ -150,7 +144,7 @@ public class ObjectValidator implements IJSONSchemaValidator {
 
         if (schema.getAdditionalProperties() instanceof Schema) {
             addionalProperties.forEach((propName, value) ->
-                errors.add(new SchemaValidator(api, (Schema) schema.getAdditionalProperties()).validate(ctx.addJSONpointerSegment(propName), value)));
+                errors.add(SchemaValidator.of(api, (Schema) schema.getAdditionalProperties()).validate(ctx.addJSONpointerSegment(propName), value)));
             return errors;
         }
 
@@ -303,7 +297,7 @@ public class ObjectValidator implements IJSONSchemaValidator {
             ctx) {
         ValidationErrors errors = new ValidationErrors();
         if (node.get(propertyName) != null)
-            errors.add(new SchemaValidator(api, schema).validate(ctx, node.get(propertyName)));
+            errors.add(SchemaValidator.of(api, schema).validate(ctx, node.get(propertyName)));
         return errors;
     }
 }
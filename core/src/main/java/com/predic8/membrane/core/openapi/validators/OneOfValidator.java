@@ -41,7 +41,7 @@ public class OneOfValidator {
 
         AtomicInteger numberValid = new AtomicInteger();
         oneOfSchemas.forEach(schema -> {
-             if (!areThereErrors(new SchemaValidator(api,schema).validate(ctx,obj))) {
+             if (!areThereErrors(SchemaValidator.of(api,schema).validate(ctx,obj))) {
                  numberValid.incrementAndGet();
              }
         });
@@ -83,7 +83,7 @@ public class OperationValidator {
             if (value == null) {
                 throw new RuntimeException("Should not happen!");
             }
-            errors.add(new SchemaValidator(api, parameter.getSchema()).validate(ctx.validatedEntityType(PATH_PARAMETER)
+            errors.add(SchemaValidator.of(api, parameter.getSchema()).validate(ctx.validatedEntityType(PATH_PARAMETER)
                     .validatedEntity(parameter.getName())
                     .path(req.getPath())
                     .statusCode(400), value));
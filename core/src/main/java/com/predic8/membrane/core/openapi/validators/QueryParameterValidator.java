@@ -90,7 +90,7 @@ public class QueryParameterValidator {
         String value = qparams.get(param.getName());
 
         if (value != null) {
-            errors.add(new SchemaValidator(api, param.getSchema()).validate(ctx
+            errors.add(SchemaValidator.of(api, param.getSchema()).validate(ctx
                             .statusCode(400)
                             .validatedEntity(param.getName())
                             .validatedEntityType(QUERY_PARAMETER)
@@ -16,8 +16,8 @@
 
 package com.predic8.membrane.core.openapi.validators;
 
-import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.node.*;
+import com.google.common.cache.*;
 import com.predic8.membrane.core.openapi.model.*;
 import com.predic8.membrane.core.openapi.util.*;
 
@@ -26,27 +26,95 @@ import io.swagger.v3.oas.models.media.*;
 import org.slf4j.*;
 
 import java.io.*;
+import java.util.concurrent.*;
 
 import static com.predic8.membrane.core.openapi.util.SchemaUtil.getSchemaNameFromRef;
 import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.BODY;
 
+/**
+ * Validates a value against a schema.
+ * <p>
+ * Instances are immutable and cached per schema object (see {@link #of(OpenAPI, Schema)}), so the validators of an
+ * API form a tree which is built once, while it is visited by the first requests. References to other schemas and the
+ * validators for the schema's type are resolved when the instance is created.
+ */
+@SuppressWarnings("rawtypes")
 public class SchemaValidator implements IJSONSchemaValidator {
 
     private static Logger log = LoggerFactory.getLogger(SchemaValidator.class.getName());
 
-    final private ObjectMapper om = new ObjectMapper();
+    /**
+     * Keys are compared by identity. Values are held softly, as a validator references its schema.
+     */
+    private static final ConcurrentMap<Schema, SchemaValidator> validators = CacheBuilder.newBuilder().weakKeys().softValues().<Schema, SchemaValidator>build().asMap();
 
-    @SuppressWarnings("rawtypes")
-    private Schema schema;
+    private final Schema schema;
     final private OpenAPI api;
 
-    @SuppressWarnings("rawtypes")
+    private final AllOfValidator allOfValidator;
+    private final AnyOfValidator anyOfValidator;
+    private final OneOfValidator oneOfValidator;
+    private final NotValidator notValidator;
+
+    /**
+     * Name of the referenced schema, if this schema is a reference
+     */
+    private final String refName;
+    private final Schema referencedSchema;
+
+    private final StringRestrictionValidator stringRestrictionValidator;
+    private final NumberRestrictionValidator numberRestrictionValidator;
+    private final IJSONSchemaValidator typeValidator;
+
     public SchemaValidator(OpenAPI api, Schema schema) {
         if (schema == null)
             throw new RuntimeException("Should not happen!");
 
         this.schema = schema;
         this.api = api;
+
+        allOfValidator = schema.getAllOf() != null ? new AllOfValidator(api, schema) : null;
+        anyOfValidator = schema.getAnyOf() != null ? new AnyOfValidator(api, schema) : null;
+        oneOfValidator = schema.getOneOf() != null ? new OneOfValidator(api, schema) : null;
+        notValidator = schema.getNot() != null ? new NotValidator(api, schema) : null;
+
+        if (schema.get$ref() != null) {
+            refName = getSchemaNameFromRef(schema);
+            referencedSchema = SchemaUtil.getSchemaFromRef(api, schema);
+        } else {
+            refName = null;
+            referencedSchema = null;
+        }
+
+        stringRestrictionValidator = new StringRestrictionValidator(schema);
+        numberRestrictionValidator = new NumberRestrictionValidator(schema);
+        typeValidator = createTypeValidator();
+    }
+
+    /**
+     * @return the cached validator for the schema
+     */
+    public static SchemaValidator of(OpenAPI api, Schema schema) {
+        if (schema == null)
+            throw new RuntimeException("Should not happen!");
+        SchemaValidator validator = validators.get(schema);
+        if (validator == null)
+            validator = validators.computeIfAbsent(schema, s -> new SchemaValidator(api, s));
+        return validator;
+    }
+
+    private IJSONSchemaValidator createTypeValidator() {
+        if (schema.getType() == null)
+            return null;
+        return switch (schema.getType()) {
+            case "number" -> new NumberValidator();
+            case "integer" -> new IntegerValidator();
+            case "string" -> new StringValidator(schema);
+            case "boolean" -> new BooleanValidator();
+            case "array" -> new ArrayValidator(api, schema);
+            case "object" -> new ObjectValidator(api, schema);
+            default -> null;
+        };
     }
 
     @Override
@@ -66,28 +134,28 @@ public class SchemaValidator implements IJSONSchemaValidator {
             return errors.add(new ValidationError(ctx.statusCode(400).validatedEntityType(BODY).validatedEntity("REQUEST"), "Request body cannot be parsed as JSON"));
         }
 
-        if (schema.getAllOf() != null) {
-            errors.add(new AllOfValidator(api, schema).validate(ctx, obj));
+        if (allOfValidator != null) {
+            errors.add(allOfValidator.validate(ctx, obj));
         }
-        if (schema.getAnyOf() != null) {
-            errors.add(new AnyOfValidator(api, schema).validate(ctx, obj));
+        if (anyOfValidator != null) {
+            errors.add(anyOfValidator.validate(ctx, obj));
         }
-        if (schema.getOneOf() != null) {
-            errors.add(new OneOfValidator(api, schema).validate(ctx, obj));
+        if (oneOfValidator != null) {
+            errors.add(oneOfValidator.validate(ctx, obj));
         }
-        if (schema.getNot() != null) {
-            errors.add(new NotValidator(api, schema).validate(ctx, obj));
+        if (notValidator != null) {
+            errors.add(notValidator.validate(ctx, obj));
         }
 
-        if (schema.get$ref() != null) {
-            if (!getSchemaNameFromRef(schema).equals(ctx.getComplexType())) {
-                ctx = ctx.complexType(getSchemaNameFromRef(schema));
-                schema = SchemaUtil.getSchemaFromRef(api, schema);
-                if (schema == null)
-                    throw new RuntimeException("Should not happen!");
-            }
+        if (refName != null && !refName.equals(ctx.getComplexType())) {
+            if (referencedSchema == null)
+                throw new RuntimeException("Should not happen!");
+            return of(api, referencedSchema).validateValue(ctx.complexType(refName), value, errors);
         }
+        return validateValue(ctx, value, errors);
+    }
 
+    private ValidationErrors validateValue(ValidationContext ctx, Object value, ValidationErrors errors) {
         if (schema.getType() == null) {
             if ((value == null || value instanceof  NullNode) && schema.getNullable()) {
                 return ValidationErrors.create(ctx,"Value is null and no type is set.");
@@ -98,8 +166,8 @@ public class SchemaValidator implements IJSONSchemaValidator {
             }
         }
 
-        errors.add(new StringRestrictionValidator(schema).validate(ctx, value));
-        errors.add(new NumberRestrictionValidator(schema).validate(ctx, value));
+        errors.add(stringRestrictionValidator.validate(ctx, value));
+        errors.add(numberRestrictionValidator.validate(ctx, value));
         errors.add(validateByType(ctx, value));
         return errors;
     }
@@ -111,22 +179,9 @@ public class SchemaValidator implements IJSONSchemaValidator {
         }
 
         try {
-            switch (schema.getType()) {
-                case "number":
-                    return new NumberValidator().validate(ctx.schemaType("number"), value);
-                case "integer":
-                    return new IntegerValidator().validate(ctx.schemaType("integer"), value);
-                case "string":
-                    return new StringValidator(schema).validate(ctx.schemaType("string"), value);
-                case "boolean":
-                    return new BooleanValidator().validate(ctx.schemaType("boolean"), value);
-                case "array":
-                    return new ArrayValidator(api, schema).validate(ctx.schemaType("array"), value);
-                case "object":
-                    return new ObjectValidator(api, schema).validate(ctx.schemaType("object"), value);
-                default:
-                    throw new RuntimeException("Should not happen! " + schema.getType());
-            }
+            if (typeValidator == null)
+                throw new RuntimeException("Should not happen! " + schema.getType());
+            return typeValidator.validate(ctx.schemaType(schema.getType()), value);
         } catch (Exception e) {
             return ValidationErrors.create(ctx, String.format("%s is not of %s format.", value, schema.getType()));
         }
@@ -0,0 +1,229 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.openapi.validators;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import com.predic8.membrane.core.openapi.util.*;
+import io.swagger.v3.oas.models.*;
+import io.swagger.v3.oas.models.media.*;
+import org.slf4j.*;
+
+import java.io.*;
+import java.util.*;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.predic8.membrane.core.openapi.util.SchemaUtil.getSchemaNameFromRef;
+import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.BODY;
+import static java.lang.String.*;
+
+/**
+ * Validates a JSON document against a schema while it is parsed.
+ * <p>
+ * Objects and arrays are validated token by token without building a tree of the document. Scalars and values
+ * whose schema needs the whole value (allOf, anyOf, oneOf, not, discriminator, uniqueItems) are read as a tree and
+ * validated by {@link SchemaValidator}.
+ * <p>
+ * This does not validate the bytes as they arrive: the message body is read completely by Membrane before it is
+ * validated, as an invalid message has to be rejected before it is forwarded. Only the tree is saved.
+ * <p>
+ * Validation stops at the first error.
+ */
+@SuppressWarnings("rawtypes")
+public class StreamingSchemaValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingSchemaValidator.class.getName());
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    private final OpenAPI api;
+    private final Schema schema;
+
+    public StreamingSchemaValidator(OpenAPI api, Schema schema) {
+        this.api = api;
+        this.schema = schema;
+    }
+
+    public ValidationErrors validate(ValidationContext ctx, InputStream is) {
+        ValidationErrors errors = new ValidationErrors();
+        try (JsonParser parser = om.createParser(is)) {
+            if (parser.nextToken() == null)
+                throw new EOFException("No content");
+            validateValue(ctx, schema, parser, errors);
+            return errors;
+        } catch (IOException e) {
+            log.warn("Cannot parse body. " + e);
+            return errors.add(new ValidationError(ctx.statusCode(400).validatedEntityType(BODY).validatedEntity("REQUEST"), "Request body cannot be parsed as JSON"));
+        }
+    }
+
+    /**
+     * Validates the value starting at the current token. Afterwards the parser is positioned at the last token of the
+     * value.
+     *
+     * @return false if an error was found
+     */
+    private boolean validateValue(ValidationContext ctx, Schema schema, JsonParser parser, ValidationErrors errors) throws IOException {
+        if (needsTree(schema))
+            return validateTree(ctx, schema, parser, errors);
+
+        // Resolve references like SchemaValidator does
+        ValidationContext valueCtx = ctx;
+        Schema valueSchema = schema;
+        if (schema.get$ref() != null) {
+            String refName = getSchemaNameFromRef(schema);
+            if (!refName.equals(ctx.getComplexType())) {
+                valueSchema = SchemaUtil.getSchemaFromRef(api, schema);
+                if (valueSchema == null)
+                    throw new RuntimeException("Should not happen!");
+                valueCtx = ctx.complexType(refName);
+            }
+        }
+
+        if (valueSchema.get$ref() == null && valueSchema.getType() != null) {
+            if (parser.currentToken() == START_OBJECT && valueSchema.getType().equals("object") && valueSchema.getDiscriminator() == null)
+                return validateObject(valueCtx.schemaType("object"), valueSchema, parser, errors);
+            if (parser.currentToken() == START_ARRAY && valueSchema.getType().equals("array") && !Boolean.TRUE.equals(valueSchema.getUniqueItems()))
+                return validateArray(valueCtx.schemaType("array"), valueSchema, parser, errors);
+        }
+        return validateTree(ctx, schema, parser, errors);
+    }
+
+    private boolean needsTree(Schema schema) {
+        return schema.getAllOf() != null || schema.getAnyOf() != null || schema.getOneOf() != null || schema.getNot() != null;
+    }
+
+    private boolean validateTree(ValidationContext ctx, Schema schema, JsonParser parser, ValidationErrors errors) throws IOException {
+        JsonNode node = parser.readValueAsTree();
+        return add(errors, SchemaValidator.of(api, schema).validate(ctx, node));
+    }
+
+    private boolean validateObject(ValidationContext ctx, Schema schema, JsonParser parser, ValidationErrors errors) throws IOException {
+        @SuppressWarnings("unchecked") Map<String, Schema> properties = schema.getProperties();
+        @SuppressWarnings("unchecked") List<String> required = schema.getRequired();
+        BitSet present = new BitSet();
+        int size = 0;
+
+        while (parser.nextToken() == FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            size++;
+
+            if (required != null) {
+                int idx = required.indexOf(name);
+                if (idx != -1)
+                    present.set(idx);
+            }
+
+            Schema propertySchema = properties != null ? properties.get(name) : null;
+            if (propertySchema != null) {
+                if (!validateReadWriteOnly(ctx, name, propertySchema, parser, errors))
+                    return false;
+                if (!validateValue(ctx.addJSONpointerSegment(name), propertySchema, parser, errors))
+                    return false;
+            } else if (schema.getAdditionalProperties() instanceof Schema additionalSchema) {
+                if (!validateValue(ctx.addJSONpointerSegment(name), additionalSchema, parser, errors))
+                    return false;
+            } else if (schema.getAdditionalProperties() != null) {
+                errors.add(ctx.statusCode(400), format("The object has the additional Property: %s .But the schema does not allow additional properties.", name));
+                return false;
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (required != null && !add(errors, validateRequired(ctx, required, present, properties)))
+            return false;
+
+        if (schema.getMinProperties() != null && size < schema.getMinProperties()) {
+            errors.add(ctx, format("Object has %d properties. This is smaller then minProperties of %d.", size, schema.getMinProperties()));
+            return false;
+        }
+        if (schema.getMaxProperties() != null && size > schema.getMaxProperties()) {
+            errors.add(ctx, format("Object has %d properties. This is more then maxProperties of %d.", size, schema.getMaxProperties()));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean validateReadWriteOnly(ValidationContext ctx, String name, Schema propertySchema, JsonParser parser, ValidationErrors errors) throws IOException {
+        if (Boolean.TRUE.equals(propertySchema.getReadOnly()) && ctx.getValidatedEntity().equals("REQUEST")) {
+            errors.add(ctx.addJSONpointerSegment(name), format("The property %s is read only. But the request contains the value %s for this field.", name, parser.readValueAsTree()));
+            return false;
+        }
+        if (Boolean.TRUE.equals(propertySchema.getWriteOnly()) && ctx.getValidatedEntity().equals("RESPONSE")) {
+            errors.add(ctx.addJSONpointerSegment(name), format("The property %s is write only. But the response contained the value %s.", name, parser.readValueAsTree()));
+            return false;
+        }
+        return true;
+    }
+
+    private ValidationErrors validateRequired(ValidationContext ctx, List<String> required, BitSet present, Map<String, Schema> properties) {
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < required.size(); i++) {
+            if (present.get(i))
+                continue;
+            Schema propertySchema = properties != null ? properties.get(required.get(i)) : null;
+            if (propertySchema != null) {
+                if (ctx.getValidatedEntity().equals("REQUEST") && Boolean.TRUE.equals(propertySchema.getReadOnly()))
+                    continue;
+                if (!ctx.getValidatedEntity().equals("REQUEST") && Boolean.TRUE.equals(propertySchema.getWriteOnly()))
+                    continue;
+            }
+            missing.add(required.get(i));
+        }
+
+        ValidationErrors errors = new ValidationErrors();
+        if (missing.size() == 1) {
+            errors.add(new ValidationError(ctx.addJSONpointerSegment(missing.get(0)), format("Required property %s is missing.", missing.get(0))));
+        } else if (missing.size() > 1) {
+            errors.add(new ValidationError(ctx, format("Required properties %s are missing in object %s.", String.join(",", missing), ctx.getJSONpointer())));
+        }
+        return errors;
+    }
+
+    private boolean validateArray(ValidationContext ctx, Schema schema, JsonParser parser, ValidationErrors errors) throws IOException {
+        Schema itemsSchema = schema.getItems();
+        int size = 0;
+
+        while (parser.nextToken() != END_ARRAY) {
+            if (itemsSchema != null) {
+                if (!validateValue(ctx.addJSONpointerSegment(Integer.toString(size)), itemsSchema, parser, errors))
+                    return false;
+            } else {
+                parser.skipChildren();
+            }
+            size++;
+        }
+
+        if (schema.getMinItems() != null && size < schema.getMinItems()) {
+            errors.add(ctx, format("Array has %d items. This is less then minItems of %d.", size, schema.getMinItems()));
+            return false;
+        }
+        if (schema.getMaxItems() != null && size > schema.getMaxItems()) {
+            errors.add(ctx, format("Array has %d items. This is more then maxItems of %d.", size, schema.getMaxItems()));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean add(ValidationErrors errors, ValidationErrors ve) {
+        if (ve == null || ve.isEmpty())
+            return true;
+        errors.add(ve);
+        return false;
+    }
+}
@@ -33,6 +33,11 @@ public class StringValidator implements IJSONSchemaValidator {
 
     private final Schema schema;
 
+    /**
+     * Compiled on first use, so an invalid pattern is reported while validating
+     */
+    private volatile Pattern pattern;
+
     public StringValidator(Schema schema) {
         this.schema = schema;
     }
@@ -122,6 +127,9 @@ public class StringValidator implements IJSONSchemaValidator {
     }
 
     private boolean matchRegexPattern(String v) {
-        return Pattern.compile(schema.getPattern()).matcher(v).matches();
+        Pattern p = pattern;
+        if (p == null)
+            pattern = p = Pattern.compile(schema.getPattern());
+        return p.matcher(v).matches();
     }
 }
@@ -109,6 +109,7 @@ public abstract class AbstractProxy implements Rule {
 
     public void setKey(RuleKey ruleKey) {
         this.key = ruleKey;
+        AbstractRuleKey.modified();
     }
 
     /**
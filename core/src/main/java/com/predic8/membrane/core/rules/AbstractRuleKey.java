@@ -13,6 +13,7 @@
    limitations under the License. */
 package com.predic8.membrane.core.rules;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -22,6 +23,11 @@ public abstract class AbstractRuleKey implements RuleKey {
 
 	private static Logger log = LoggerFactory.getLogger(AbstractRuleKey.class.getName());
 
+	/**
+	 * Counts changes to the matching criteria of any key, see {@link RuleIndex#isStale(long)}.
+	 */
+	private static final AtomicLong modifications = new AtomicLong();
+
 	/**
 	 * -1 is used as a wildcard. It is used by HttpServletHandler, since its port
 	 * is determined by the webserver and not by the proxies.xml
@@ -66,6 +72,7 @@ public abstract class AbstractRuleKey implements RuleKey {
 
 	public void setPort(int port) {
 		this.port = port;
+		modified();
 	}
 
 	public boolean isPathRegExp() {
@@ -74,6 +81,7 @@ public abstract class AbstractRuleKey implements RuleKey {
 
 	public void setPathRegExp(boolean pathRegExp) {
 		this.pathRegExp = pathRegExp;
+		modified();
 	}
 
 	public boolean isUsePathPattern() {
@@ -83,11 +91,13 @@ public abstract class AbstractRuleKey implements RuleKey {
 	public void setUsePathPattern(boolean usePathPattern) {
 		this.usePathPattern = usePathPattern;
 		pathPattern = null;
+		modified();
 	}
 
 	public void setPath(String path) {
 		this.path = path;
 		pathPattern = null;
+		modified();
 	}
 
 	public String getPath() {
@@ -124,6 +134,15 @@ public abstract class AbstractRuleKey implements RuleKey {
 
 	public void setIp(String ip) {
 		this.ip = ip;
+		modified();
+	}
+
+	static void modified() {
+		modifications.incrementAndGet();
+	}
+
+	public static long getModificationCount() {
+		return modifications.get();
 	}
 
 	@Override
@@ -0,0 +1,300 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.rules;
+
+import com.google.common.cache.*;
+
+import java.util.*;
+
+/**
+ * Immutable lookup structure over an ordered list of rules, used by
+ * {@link com.predic8.membrane.core.RuleManager#getMatchingRule(String, String, String, String, int, String)}.
+ * <p>
+ * Rules are partitioned by port and IP, then by exact host name, wildcard host pattern or any host, and
+ * finally by the literal prefix of their path in a character trie. A lookup only collects the candidates
+ * from the matching partitions and evaluates them in their original order using the same conditions as a
+ * linear scan, so the first matching rule still wins.
+ * <p>
+ * Recent decisions are cached, unless they might change without the index being rebuilt: a candidate which
+ * was skipped only because it was inactive, or a key with its own {@link RuleKey#complexMatch} logic.
+ */
+public class RuleIndex {
+
+	private static final int DECISION_CACHE_SIZE = 10000;
+
+	private final Rule[] rules;
+	private final boolean[] cacheable;
+	private final Map<PortIp, Partition> partitions = new HashMap<>();
+	private final Partition all = new Partition();
+	private final long ruleVersion;
+	private final long keyVersion;
+
+	private final Cache<DecisionKey, Decision> decisions = CacheBuilder.newBuilder().maximumSize(DECISION_CACHE_SIZE).build();
+
+	private record PortIp(int port, String ip) {
+	}
+
+	private record DecisionKey(String hostHeader, String method, String uri, String version, int port, String localIP) {
+	}
+
+	private record Decision(Rule rule) {
+	}
+
+	/**
+	 * @param ruleVersion version of the rule list the index is built from
+	 */
+	public RuleIndex(List<Rule> rules, long ruleVersion) {
+		this.keyVersion = AbstractRuleKey.getModificationCount();
+		this.ruleVersion = ruleVersion;
+		this.rules = rules.toArray(new Rule[0]);
+		this.cacheable = new boolean[this.rules.length];
+		for (int i = 0; i < this.rules.length; i++) {
+			RuleKey key = this.rules[i].getKey();
+			cacheable[i] = !hasComplexMatch(key);
+			partitions.computeIfAbsent(new PortIp(key.getPort(), key.getIp()), k -> new Partition()).add(i, key);
+			all.add(i, key);
+		}
+	}
+
+	/**
+	 * Whether rules or keys have been changed since this index was built.
+	 */
+	public boolean isStale(long currentRuleVersion) {
+		return ruleVersion != currentRuleVersion || keyVersion != AbstractRuleKey.getModificationCount();
+	}
+
+	public Rule getMatchingRule(String hostHeader, String method, String uri, String version, int port, String localIP) {
+		DecisionKey dk = new DecisionKey(hostHeader, method, uri, version, port, localIP);
+		Decision d = decisions.getIfPresent(dk);
+		if (d != null && (d.rule() == null || d.rule().isActive()))
+			return d.rule();
+
+		int[] candidates = collectCandidates(hostHeader, uri, port, localIP);
+		boolean cache = true;
+		for (int i : candidates) {
+			Rule rule = rules[i];
+			cache &= cacheable[i];
+			if (!rule.isActive()) {
+				if (matches(rule.getKey(), hostHeader, method, uri, version, port, localIP))
+					cache = false;
+				continue;
+			}
+			if (matches(rule.getKey(), hostHeader, method, uri, version, port, localIP)) {
+				if (cache)
+					decisions.put(dk, new Decision(rule));
+				return rule;
+			}
+		}
+		if (cache)
+			decisions.put(dk, new Decision(null));
+		return null;
+	}
+
+	/**
+	 * The conditions a rule has to fulfill to handle a request, apart from being active.
+	 */
+	public static boolean matches(RuleKey key, String hostHeader, String method, String uri, String version, int port, String localIP) {
+		if (!key.matchesVersion(version))
+			return false;
+		if (key.getIp() != null && !key.getIp().equals(localIP))
+			return false;
+		if (!key.matchesHostHeader(hostHeader))
+			return false;
+		if (key.getPort() != -1 && port != -1 && key.getPort() != port)
+			return false;
+		if (!key.getMethod().equals(method) && !key.isMethodWildcard())
+			return false;
+		if (key.isUsePathPattern() && !key.matchesPath(uri))
+			return false;
+		return key.complexMatch(hostHeader, method, uri, version, port, localIP);
+	}
+
+	private int[] collectCandidates(String hostHeader, String uri, int port, String localIP) {
+		IntList result = new IntList();
+		String host = hostHeader == null ? null : asciiLowerCase(hostHeader.split(":")[0]);
+		if (port == -1) {
+			all.collect(host, uri, result);
+		} else {
+			collect(new PortIp(port, localIP), host, uri, result);
+			collect(new PortIp(-1, localIP), host, uri, result);
+			if (localIP != null) {
+				collect(new PortIp(port, null), host, uri, result);
+				collect(new PortIp(-1, null), host, uri, result);
+			}
+		}
+		return result.toSortedArray();
+	}
+
+	private void collect(PortIp portIp, String host, String uri, IntList result) {
+		Partition p = partitions.get(portIp);
+		if (p != null)
+			p.collect(host, uri, result);
+	}
+
+	private static boolean hasComplexMatch(RuleKey key) {
+		try {
+			return key.getClass().getMethod("complexMatch", String.class, String.class, String.class, String.class,
+					int.class, String.class).getDeclaringClass() != AbstractRuleKey.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	private static String asciiLowerCase(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 'A' && c <= 'Z') {
+				char[] cs = s.toCharArray();
+				for (int j = i; j < cs.length; j++)
+					if (cs[j] >= 'A' && cs[j] <= 'Z')
+						cs[j] += 'a' - 'A';
+				return new String(cs);
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Rules listening on the same port and IP.
+	 */
+	private static class Partition {
+		private final Map<String, PathTrie> exactHosts = new HashMap<>();
+		private final PathTrie wildcardHosts = new PathTrie();
+		private final PathTrie anyHost = new PathTrie();
+
+		void add(int index, RuleKey key) {
+			String prefix = getPathPrefix(key);
+			if (!(key instanceof ServiceProxyKey spk)) {
+				// matchesHostHeader() is specific to the key
+				anyHost.add(prefix, index);
+				return;
+			}
+			if (spk.isHostWildcard()) {
+				anyHost.add(prefix, index);
+				return;
+			}
+			List<String> names = getExactHostNames(spk.getHost());
+			if (names == null) {
+				wildcardHosts.add(prefix, index);
+				return;
+			}
+			for (String name : names)
+				exactHosts.computeIfAbsent(name, k -> new PathTrie()).add(prefix, index);
+		}
+
+		void collect(String host, String uri, IntList result) {
+			anyHost.collect(uri, result);
+			if (host == null)
+				return; // only wildcard keys match a missing host header
+			wildcardHosts.collect(uri, result);
+			PathTrie t = exactHosts.get(host);
+			if (t != null)
+				t.collect(uri, result);
+		}
+
+		/**
+		 * @return the lower-cased alternatives of the host attribute, or null if one of them contains a wildcard
+		 * or non-ASCII characters
+		 */
+		private static List<String> getExactHostNames(String host) {
+			List<String> names = new ArrayList<>();
+			for (String name : host.split(" ")) {
+				if (name.isEmpty())
+					continue;
+				for (int i = 0; i < name.length(); i++)
+					if (name.charAt(i) == '*' || name.charAt(i) > 127)
+						return null;
+				names.add(asciiLowerCase(name));
+			}
+			return names.isEmpty() ? null : names;
+		}
+	}
+
+	/**
+	 * The literal prefix every matching request URI has to start with.
+	 */
+	static String getPathPrefix(RuleKey key) {
+		if (!key.isUsePathPattern() || key.getPath() == null)
+			return "";
+		if (!key.isPathRegExp())
+			return key.getPath();
+		return getLiteralPrefix(key.getPath());
+	}
+
+	/**
+	 * @return the characters at the start of the regular expression which match themselves, e.g. "/api/" for
+	 * "/api/v.*"
+	 */
+	static String getLiteralPrefix(String regex) {
+		if (regex.indexOf('|') != -1)
+			return "";
+		int i = 0;
+		while (i < regex.length() && "\\.[]{}()*+?^$".indexOf(regex.charAt(i)) == -1)
+			i++;
+		// a quantifier applies to the preceding character
+		if (i < regex.length() && i > 0 && "*+?{".indexOf(regex.charAt(i)) != -1)
+			i--;
+		return regex.substring(0, i);
+	}
+
+	private static class PathTrie {
+		private final Node root = new Node();
+
+		private static class Node {
+			Map<Character, Node> children;
+			int[] rules = new int[0];
+		}
+
+		void add(String prefix, int index) {
+			Node n = root;
+			for (int i = 0; i < prefix.length(); i++) {
+				if (n.children == null)
+					n.children = new HashMap<>();
+				n = n.children.computeIfAbsent(prefix.charAt(i), k -> new Node());
+			}
+			n.rules = Arrays.copyOf(n.rules, n.rules.length + 1);
+			n.rules[n.rules.length - 1] = index;
+		}
+
+		void collect(String uri, IntList result) {
+			Node n = root;
+			result.addAll(n.rules);
+			for (int i = 0; i < uri.length() && n.children != null; i++) {
+				n = n.children.get(uri.charAt(i));
+				if (n == null)
+					return;
+				result.addAll(n.rules);
+			}
+		}
+	}
+
+	private static class IntList {
+		private int[] values = new int[8];
+		private int size;
+
+		void addAll(int[] vs) {
+			if (size + vs.length > values.length)
+				values = Arrays.copyOf(values, Math.max(values.length * 2, size + vs.length));
+			System.arraycopy(vs, 0, values, size, vs.length);
+			size += vs.length;
+		}
+
+		int[] toSortedArray() {
+			int[] result = Arrays.copyOf(values, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
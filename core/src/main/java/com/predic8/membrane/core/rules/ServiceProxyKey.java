@@ -54,6 +54,7 @@ public class ServiceProxyKey extends AbstractRuleKey {
 
 	public void setMethod(String method) {
 		this.method = method;
+		modified();
 	}
 
 	@Override
@@ -128,6 +129,7 @@ public class ServiceProxyKey extends AbstractRuleKey {
 		} else {
 			this.hostPattern = null;
 		}
+		modified();
 	}
 
 	public static String createHostPattern(String host) {
@@ -17,6 +17,8 @@ package com.predic8.membrane.core.rules;
 import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.exchange.Exchange;
@@ -31,23 +33,21 @@ import org.slf4j.LoggerFactory;
  * {@link StatisticCollector} counts {@link Exchange} objects, tracks the time they took
  * to complete, the number of bytes they sent, and some more numbers.
  * <p>
- * Instances are not thread-safe.
+ * Instances are thread-safe and do not lock, so exchanges can be counted concurrently.
  */
 public class StatisticCollector {
 	private static Logger log = LoggerFactory.getLogger(StatisticCollector.class.getName());
 
-	private final NumberFormat nf = NumberFormat.getInstance(Locale.US);
-
 	private final boolean countErrorExchanges;
 
-	private int totalCount = 0;
-	private int goodCount = 0;
-	private int errorCount = 0;
-	private int minTime = Integer.MAX_VALUE;
-	private int maxTime = -1;
-	private long totalTime = 0;
-	private long totalBytesSent = 0;
-	private long totalBytesReceived = 0;
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder goodCount = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final AtomicInteger minTime = new AtomicInteger(Integer.MAX_VALUE);
+	private final AtomicInteger maxTime = new AtomicInteger(-1);
+	private final LongAdder totalTime = new LongAdder();
+	private final LongAdder totalBytesSent = new LongAdder();
+	private final LongAdder totalBytesReceived = new LongAdder();
 
 	/**
 	 * @param countErrorExchanges whether to count failed Exchange objects. Since
@@ -59,14 +59,20 @@ public class StatisticCollector {
 	 */
 	public StatisticCollector(boolean countErrorExchanges) {
 		this.countErrorExchanges = countErrorExchanges;
+	}
+
+	private static String format(double value) {
+		// NumberFormat is not thread-safe
+		NumberFormat nf = NumberFormat.getInstance(Locale.US);
 		nf.setMaximumFractionDigits(3);
+		return nf.format(value);
 	}
 
 	public void collectFrom(AbstractExchange exc) {
-		totalCount++;
+		totalCount.increment();
 
 		if (exc.getStatus() == ExchangeState.FAILED) {
-			errorCount++;
+			errorCount.increment();
 			if (!countErrorExchanges)
 				return;
 		}
@@ -79,74 +85,75 @@ public class StatisticCollector {
 		if (timeResSent == 0)
 			return; // this Exchange is not yet completed
 
-		goodCount++;
+		goodCount.increment();
 
 		int time = (int) (timeResSent - timeReqSent);
-		if (time < minTime)
-			minTime = time;
-		if (time > maxTime)
-			maxTime = time;
-		totalTime += time;
+		minTime.accumulateAndGet(time, Math::min);
+		maxTime.accumulateAndGet(time, Math::max);
+		totalTime.add(time);
 
 		try {
 			AbstractBody requestBody = exc.getRequest().getBody();
-			totalBytesSent += requestBody.isRead() ? requestBody.getLength() : 0;
+			totalBytesSent.add(requestBody.isRead() ? requestBody.getLength() : 0);
 			AbstractBody responseBody = exc.getResponse().getBody();
-			totalBytesReceived += responseBody.isRead() ? responseBody.getLength() : 0;
+			totalBytesReceived.add(responseBody.isRead() ? responseBody.getLength() : 0);
 		} catch (IOException e) {
 			log.warn("", e);
 		}
 	}
 
 	public void collectFrom(StatisticCollector s) {
-		totalCount += s.totalCount;
-		goodCount += s.goodCount;
-		errorCount += s.errorCount;
-		minTime = Math.min(minTime, s.minTime);
-		maxTime = Math.max(maxTime, s.maxTime);
-		totalTime += s.totalTime;
-		totalBytesSent += s.totalBytesSent;
-		totalBytesReceived += s.totalBytesReceived;
+		totalCount.add(s.totalCount.sum());
+		goodCount.add(s.goodCount.sum());
+		errorCount.add(s.errorCount.sum());
+		minTime.accumulateAndGet(s.minTime.get(), Math::min);
+		maxTime.accumulateAndGet(s.maxTime.get(), Math::max);
+		totalTime.add(s.totalTime.sum());
+		totalBytesSent.add(s.totalBytesSent.sum());
+		totalBytesReceived.add(s.totalBytesReceived.sum());
 	}
 
 	public int getCount() {
-		return totalCount;
+		return totalCount.intValue();
 	}
 
 	public int getGoodCount() {
-		return goodCount;
+		return goodCount.intValue();
 	}
 
 	public String getMinTime() {
-		return minTime == Integer.MAX_VALUE ? "" : "" + nf.format(minTime) + " ms";
+		int min = minTime.get();
+		return min == Integer.MAX_VALUE ? "" : "" + format(min) + " ms";
 	}
 
 	public String getMaxTime() {
-		return maxTime == -1 ? "" : "" + nf.format(maxTime) + " ms";
+		int max = maxTime.get();
+		return max == -1 ? "" : "" + format(max) + " ms";
 	}
 
 	public String getAvgTime() {
-		return goodCount == 0 ? "" : "" + nf.format(((double)totalTime)/goodCount) + " ms";
+		long good = goodCount.sum();
+		return good == 0 ? "" : "" + format(((double)totalTime.sum())/good) + " ms";
 	}
 
 	public long getGoodTotalTime() {
-		return totalTime;
+		return totalTime.sum();
 	}
 
 	public long getGoodTotalBytesReceived() {
-		return totalBytesReceived;
+		return totalBytesReceived.sum();
 	}
 
 	public long getGoodTotalBytesSent() {
-		return totalBytesSent;
+		return totalBytesSent.sum();
 	}
 
 	public String getBytesSent() {
-		return goodCount == 0 ? "" : "" + nf.format(totalBytesSent);
+		return goodCount.sum() == 0 ? "" : "" + format(totalBytesSent.sum());
 	}
 
 	public String getBytesReceived() {
-		return goodCount == 0 ? "" : "" + nf.format(totalBytesReceived);
+		return goodCount.sum() == 0 ? "" : "" + format(totalBytesReceived.sum());
 	}
 
 	@Override
@@ -159,7 +166,7 @@ public class StatisticCollector {
 	}
 
 	public String getErrorCount() {
-		return ""+errorCount;
+		return ""+errorCount.sum();
 	}
 
 }
@@ -15,42 +15,51 @@ package com.predic8.membrane.core.rules;
 
 import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.exchange.ExchangeState;
+import com.predic8.membrane.core.stats.LatencyHistogram;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * Tracks the distribution of the processing times of exchanges. Instances are thread-safe and do not lock.
+ */
 public class TimeCollector {
 
+    public static final String PROCESS_REQ_TIME = "process_req_time";
+    public static final String PROCESS_RES_TIME = "process_res_time";
+    public static final String RESPONSE_TIME = "response_time";
+    public static final String OVERHEAD_TIME = "overhead_time";
+    public static final String TOTAL_TIME = "total_time";
+
     private final boolean countErrorExchanges;
 
-    private static List<Long> buckets = Stream.of(500L, 1000L, 2000L, 4000L, 10_000L)
-            .collect(Collectors.toList());
+    /**
+     * Upper bounds of the buckets reported to Prometheus in milliseconds.
+     */
+    private static volatile List<Long> buckets = List.of(1L, 2L, 5L, 10L, 20L, 50L, 100L, 200L, 500L, 1000L, 2000L, 4000L, 10_000L);
 
-    private Map<String, Map<String, Long>> trackedTimes;
-    private Map<String, Long> membraneReqProcess;
-    private Map<String, Long> membraneResProcess;
-    private Map<String, Long> responseProcess;
-    private Map<String, Long> totalTimeProcess;
+    private final Map<String, LatencyHistogram> trackedTimes;
+    private final LatencyHistogram membraneReqProcess = new LatencyHistogram();
+    private final LatencyHistogram membraneResProcess = new LatencyHistogram();
+    private final LatencyHistogram responseProcess = new LatencyHistogram();
+    private final LatencyHistogram overheadProcess = new LatencyHistogram();
+    private final LatencyHistogram totalTimeProcess = new LatencyHistogram();
 
     public TimeCollector(boolean countErrorExchanges) {
         this.countErrorExchanges = countErrorExchanges;
 
-        trackedTimes = new HashMap<>();
-        membraneReqProcess = new HashMap<>();
-        membraneReqProcess = new HashMap<>();
-        membraneResProcess = new HashMap<>();
-        totalTimeProcess = new HashMap<>();
-
-        responseProcess = new HashMap<>();
-        trackedTimes.put("process_req_time", membraneReqProcess);
-        trackedTimes.put("process_res_time", membraneResProcess);
-        trackedTimes.put("response_time", responseProcess);
-        trackedTimes.put("total_time", totalTimeProcess);
-
+        Map<String, LatencyHistogram> times = new LinkedHashMap<>();
+        times.put(PROCESS_REQ_TIME, membraneReqProcess);
+        times.put(PROCESS_RES_TIME, membraneResProcess);
+        times.put(RESPONSE_TIME, responseProcess);
+        times.put(OVERHEAD_TIME, overheadProcess);
+        times.put(TOTAL_TIME, totalTimeProcess);
+        trackedTimes = Collections.unmodifiableMap(times);
     }
 
-    public Map<String, Map<String, Long>> getTrackedTimes() {
+    /**
+     * @return the histograms by name, durations are in microseconds
+     */
+    public Map<String, LatencyHistogram> getTrackedTimes() {
         return trackedTimes;
     }
 
@@ -65,35 +74,26 @@ public class TimeCollector {
             return; // exchange is not yet completed
 
         // 2-1
-        long timeMembraneReqProcess = exc.getTimeReqSent() - exc.getTimeReqReceived();
-        addToBucket(timeMembraneReqProcess, membraneReqProcess);
+        long timeMembraneReqProcess = toMicros(exc.getNanoTimeReqSent() - exc.getNanoTimeReqReceived());
+        membraneReqProcess.record(timeMembraneReqProcess);
 
         if (exc.getTimeResReceived() == 0)
             return;
 
         // 3-2
-        long timeResponseProcess = exc.getTimeResReceived() - exc.getTimeReqSent();
-        addToBucket(timeResponseProcess, responseProcess);
+        long timeResponseProcess = toMicros(exc.getNanoTimeResReceived() - exc.getNanoTimeReqSent());
+        responseProcess.record(timeResponseProcess);
 
         // 4-3
-        long timeMembraneResProcess = exc.getTimeResSent() - exc.getTimeResReceived();
-        addToBucket(timeMembraneResProcess, membraneResProcess);
+        long timeMembraneResProcess = toMicros(exc.getNanoTimeResSent() - exc.getNanoTimeResReceived());
+        membraneResProcess.record(timeMembraneResProcess);
 
-
-        long totalTime = timeMembraneReqProcess + timeResponseProcess + timeMembraneResProcess;
-        addToBucket(totalTime, totalTimeProcess);
+        overheadProcess.record(timeMembraneReqProcess + timeMembraneResProcess);
+        totalTimeProcess.record(timeMembraneReqProcess + timeResponseProcess + timeMembraneResProcess);
     }
 
-    private void addToBucket(long value, Map<String, Long> buckets) {
-        buckets.merge("SUM", value, Long::sum);
-        buckets.merge("COUNT", 1L, Long::sum);
-
-        for (long bucket : TimeCollector.buckets) {
-            if (value <= bucket) {
-                buckets.merge(String.valueOf(bucket), 1L, Long::sum);
-            }
-        }
-        buckets.merge("+Inf", 1L, Long::sum);
+    private static long toMicros(long nanos) {
+        return Math.max(0, nanos / 1000);
     }
 
     public static List<Long> getBuckets() {
@@ -101,6 +101,6 @@ public class TimeCollector {
     }
 
     public static void setBuckets(List<Long> buckets) {
-        TimeCollector.buckets = buckets;
+        TimeCollector.buckets = List.copyOf(buckets);
     }
 }
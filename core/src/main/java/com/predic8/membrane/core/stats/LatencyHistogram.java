@@ -0,0 +1,160 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.stats;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Lock-free histogram of durations in microseconds.
+ * <p>
+ * Like HdrHistogram, the buckets are log-linear: each power of two is split into {@value #SUB_BUCKETS} / 2 buckets
+ * of equal width, so a recorded value is known with a relative error of at most 2 / {@value #SUB_BUCKETS}. Values
+ * below {@value #SUB_BUCKETS} µs are recorded exactly, values above {@link #MAX_VALUE} are recorded as
+ * {@link #MAX_VALUE}.
+ * <p>
+ * The counts are striped by thread to avoid contention on hot buckets. A stripe is only allocated when a thread
+ * mapping to it records its first value.
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKETS = 64;
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	private static final int HALF = SUB_BUCKETS / 2;
+
+	/**
+	 * About 19 hours.
+	 */
+	public static final long MAX_VALUE = (1L << 36) - 1;
+
+	static final int BUCKETS = getIndex(MAX_VALUE) + 1;
+
+	private static final int STRIPES = 4;
+
+	private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	public void record(long micros) {
+		micros = Math.max(0, Math.min(micros, MAX_VALUE));
+		getStripe().incrementAndGet(getIndex(micros));
+		count.increment();
+		sum.add(micros);
+	}
+
+	private AtomicLongArray getStripe() {
+		int i = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		AtomicLongArray stripe = stripes.get(i);
+		if (stripe == null) {
+			stripes.compareAndSet(i, null, new AtomicLongArray(BUCKETS));
+			stripe = stripes.get(i);
+		}
+		return stripe;
+	}
+
+	static int getIndex(long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return shift * HALF + (int) (value >>> shift);
+	}
+
+	static long getLowestValue(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / HALF - 1;
+		return (long) (index - shift * HALF) << shift;
+	}
+
+	static long getHighestValue(int index) {
+		return getLowestValue(index + 1) - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSumMicros() {
+		return sum.sum();
+	}
+
+	/**
+	 * @return a consistent copy of the counts per bucket; the total of the copy may differ slightly from
+	 * {@link #getCount()} while values are being recorded
+	 */
+	public Snapshot getSnapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int s = 0; s < STRIPES; s++) {
+			AtomicLongArray stripe = stripes.get(s);
+			if (stripe == null)
+				continue;
+			for (int i = 0; i < BUCKETS; i++)
+				counts[i] += stripe.get(i);
+		}
+		return new Snapshot(counts);
+	}
+
+	public static class Snapshot {
+		private final long[] counts;
+		private final long total;
+
+		private Snapshot(long[] counts) {
+			this.counts = counts;
+			long t = 0;
+			for (long c : counts)
+				t += c;
+			this.total = t;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return the number of values less than or equal to the bound, interpolating within the bucket containing
+		 * the bound
+		 */
+		public long getCountAtOrBelow(double boundMicros) {
+			if (boundMicros < 0)
+				return 0;
+			long result = 0;
+			for (int i = 0; i < counts.length; i++) {
+				long highest = getHighestValue(i);
+				if (highest <= boundMicros) {
+					result += counts[i];
+					continue;
+				}
+				long lowest = getLowestValue(i);
+				if (lowest <= boundMicros)
+					result += (long) (counts[i] * (Math.floor(boundMicros) - lowest + 1) / (highest - lowest + 1));
+				break;
+			}
+			return result;
+		}
+
+		/**
+		 * @param quantile between 0 and 1
+		 * @return the highest value equivalent to the value at the quantile, or 0 if there are no values
+		 */
+		public long getValueAtQuantile(double quantile) {
+			long rank = Math.max(1, (long) Math.ceil(quantile * total));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank)
+					return getHighestValue(i);
+			}
+			return 0;
+		}
+	}
+}
@@ -31,12 +31,8 @@ public class RuleStatisticCollector {
 
     private StatisticCollector getStatisticCollectorByStatusCode(int code) {
         StatisticCollector sc = statusCodes.get(code);
-        if (sc == null) {
-            sc = new StatisticCollector(true);
-            StatisticCollector sc2 = statusCodes.putIfAbsent(code, sc);
-            if (sc2 != null)
-                sc = sc2;
-        }
+        if (sc == null)
+            sc = statusCodes.computeIfAbsent(code, c -> new StatisticCollector(true));
         return sc;
     }
 
@@ -44,14 +40,8 @@ public class RuleStatisticCollector {
         code /= 100;
 
         TimeCollector tc = timeCollector.get(code);
-
-        if (tc == null) {
-            tc = new TimeCollector(true);
-            TimeCollector tc2 = timeCollector.putIfAbsent(code, tc);
-            if (tc2 != null)
-                tc = tc2;
-        }
-
+        if (tc == null)
+            tc = timeCollector.computeIfAbsent(code, c -> new TimeCollector(true));
         return tc;
     }
 
@@ -64,17 +54,9 @@ public class RuleStatisticCollector {
     }
 
     public void collect(Exchange exc) {
-        StatisticCollector sc = getStatisticCollectorByStatusCode(exc
-                .getResponse().getStatusCode());
-        synchronized (sc) {
-            sc.collectFrom(exc);
-        }
-
-        TimeCollector tc = getTimeCollectorByStatusCode(exc
-                .getResponse().getStatusCode());
-        synchronized (tc) {
-            tc.collectFrom(exc);
-        }
+        int code = exc.getResponse().getStatusCode();
+        getStatisticCollectorByStatusCode(code).collectFrom(exc);
+        getTimeCollectorByStatusCode(code).collectFrom(exc);
     }
 
     public int getCount() {
@@ -20,6 +20,8 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocket;
@@ -72,6 +74,14 @@ public class Connection implements Closeable, MessageObserver, NonRelevantBodyOb
 	private Exchange exchange;
 	private boolean keepAttachedToExchange;
 
+	/**
+	 * Bookkeeping of the {@link ConnectionManager}.
+	 */
+	enum PoolState { LEASED, IDLE, CLOSED }
+
+	private final AtomicReference<PoolState> poolState = new AtomicReference<>(PoolState.LEASED);
+	private volatile ConnectionManager.DestinationPool pool;
+
 	public static Connection open(String host, int port, String localHost, SSLProvider sslProvider, int connectTimeout) throws UnknownHostException, IOException {
 		return open(host, port, localHost, sslProvider, null, connectTimeout);
 	}
@@ -99,12 +109,10 @@ public class Connection implements Closeable, MessageObserver, NonRelevantBodyOb
 				con.socket = sslProvider.createSocket(host, port, InetAddress.getByName(localHost), 0,
 						connectTimeout, sniServername, applicationProtocols);
 		} else {
-			if (isNullOrEmpty(localHost)) {
-				con.socket = new Socket();
-			} else {
-				con.socket = new Socket();
+			// opened through a channel, so that the connection can be handed over to the TunnelRelay
+			con.socket = SocketChannel.open().socket();
+			if (!isNullOrEmpty(localHost))
 				con.socket.bind(new InetSocketAddress(InetAddress.getByName(localHost), 0));
-			}
 			con.socket.connect(new InetSocketAddress(host, port), connectTimeout);
 		}
 
@@ -116,7 +124,7 @@ public class Connection implements Closeable, MessageObserver, NonRelevantBodyOb
 		log.debug("Opened connection on localPort: " + con.socket.getLocalPort());
 		//Creating output stream before input stream is suggested.
 		con.out = new BufferedOutputStream(con.socket.getOutputStream(), 2048);
-		con.in = new BufferedInputStream(con.socket.getInputStream(), 2048);
+		con.in = new LineBufferedInputStream(con.socket.getInputStream(), 2048);
 
 		return con;
 	}
@@ -258,6 +266,23 @@ public class Connection implements Closeable, MessageObserver, NonRelevantBodyOb
 		return host;
 	}
 
+	void leased(ConnectionManager.DestinationPool pool) {
+		this.pool = pool;
+		poolState.set(PoolState.LEASED);
+	}
+
+	ConnectionManager.DestinationPool getPool() {
+		return pool;
+	}
+
+	PoolState setPoolState(PoolState state) {
+		return poolState.getAndSet(state);
+	}
+
+	boolean compareAndSetPoolState(PoolState expected, PoolState state) {
+		return poolState.compareAndSet(expected, state);
+	}
+
 	void setKeepAttachedToExchange(boolean keepAttachedToExchange) {
 		this.keepAttachedToExchange = keepAttachedToExchange;
 	}
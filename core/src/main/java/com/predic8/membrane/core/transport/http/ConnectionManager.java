@@ -16,16 +16,17 @@ package com.predic8.membrane.core.transport.http;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.predic8.membrane.core.transport.http.client.ConnectionConfiguration;
 import com.predic8.membrane.core.transport.http.client.ProxyConfiguration;
 import com.predic8.membrane.core.transport.ssl.SSLContext;
 import com.predic8.membrane.core.util.TimerManager;
@@ -36,6 +37,8 @@ import com.predic8.membrane.core.transport.ssl.SSLProvider;
 
 import javax.annotation.Nullable;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 /**
  * Pools TCP/IP connections, holding them open for a configurable number of milliseconds.
  * <p>
@@ -53,6 +56,11 @@ import javax.annotation.Nullable;
  * <p>
  * Note that you should call {@link Connection#release()} exactly once, or alternatively
  * {@link Connection#close()} at least once.
+ * <p>
+ * Idle connections are kept in one lock-free LIFO deque per {@link ConnectionKey}, so that requests to
+ * different destinations never contend with each other. Optionally, the number of idle connections and the
+ * total number of connections per destination can be limited (see {@link ConnectionConfiguration}). When
+ * the total limit is reached, {@link #getConnection} waits until a connection is released.
  */
 public class ConnectionManager {
 
@@ -60,9 +68,11 @@ public class ConnectionManager {
 
 	private final long keepAliveTimeout;
 	private final long autoCloseInterval;
+	private final int maxIdlePerDestination;
+	private final int maxTotalPerDestination;
+	private final long connectionRequestTimeout;
 	private final AtomicInteger numberInPool = new AtomicInteger();
-	private final HashMap<ConnectionKey, ArrayList<OldConnection>> availableConnections =
-            new HashMap<>(); // guarded by this
+	private final ConcurrentHashMap<ConnectionKey, DestinationPool> pools = new ConcurrentHashMap<>();
 	private volatile boolean shutdownWhenDone = false;
 	private TimerManager selfCreatedTimerManager;
 
@@ -88,14 +98,68 @@ public class ConnectionManager {
 		}
 	}
 
+	/**
+	 * The connections to one {@link ConnectionKey}. Every leased connection holds one permit of {@link #permits},
+	 * if the total number of connections is limited.
+	 */
+	static class DestinationPool {
+		final ConnectionKey key;
+		final ConcurrentLinkedDeque<OldConnection> idle = new ConcurrentLinkedDeque<>(); // first = most recently used
+		final AtomicInteger idleCount = new AtomicInteger();
+		final AtomicInteger leased = new AtomicInteger(); // includes pending
+		final AtomicInteger pending = new AtomicInteger(); // waiting for a permit
+		final LongAdder created = new LongAdder();
+		final LongAdder closed = new LongAdder();
+		@Nullable
+		final Semaphore permits;
+		volatile boolean retired;
+
+		DestinationPool(ConnectionKey key, int maxTotal) {
+			this.key = key;
+			this.permits = maxTotal > 0 ? new Semaphore(maxTotal) : null;
+		}
+
+		boolean isUnused() {
+			return leased.get() == 0 && idle.isEmpty() && (permits == null || !permits.hasQueuedThreads());
+		}
+
+		void releasePermit() {
+			if (permits != null)
+				permits.release();
+		}
+	}
+
+	/**
+	 * Snapshot of the state of the connections to one destination.
+	 */
+	public record PoolStatistics(ConnectionKey key, int idle, int leased, int pending, long created, long closed) {
+	}
+
 	/**
 	 * @param keepAliveTimeout milliseconds to keep idle connections around for
 	 * @param timerManager a TimerManager instance to use to close idle connections. Providing a TimerManager instance
 	 *                     prevents the ConnectionManager from creating its own Timer (and TimerManager). Can be null.
 	 */
 	public ConnectionManager(long keepAliveTimeout, @Nullable TimerManager timerManager) {
+		this(keepAliveTimeout, -1, -1, 0, timerManager);
+	}
+
+	/**
+	 * @param configuration the keep-alive timeout and pool limits to use
+	 * @param timerManager see {@link #ConnectionManager(long, TimerManager)}
+	 */
+	public ConnectionManager(ConnectionConfiguration configuration, @Nullable TimerManager timerManager) {
+		this(configuration.getKeepAliveTimeout(), configuration.getMaxIdlePerDestination(),
+				configuration.getMaxTotalPerDestination(), configuration.getConnectionRequestTimeout(), timerManager);
+	}
+
+	private ConnectionManager(long keepAliveTimeout, int maxIdlePerDestination, int maxTotalPerDestination,
+							  long connectionRequestTimeout, @Nullable TimerManager timerManager) {
 		this.keepAliveTimeout = keepAliveTimeout;
 		this.autoCloseInterval = keepAliveTimeout * 2;
+		this.maxIdlePerDestination = maxIdlePerDestination;
+		this.maxTotalPerDestination = maxTotalPerDestination;
+		this.connectionRequestTimeout = connectionRequestTimeout;
 		if (timerManager == null) {
 			selfCreatedTimerManager = timerManager = new TimerManager();
 		}
@@ -129,96 +193,155 @@ public class ConnectionManager {
 		}
 
 		ConnectionKey key = new ConnectionKey(cacheHost, cachePort, sslProvider, sniServerName, proxy, proxySSLContext, applicationProtocols);
-		long now = System.currentTimeMillis();
+		DestinationPool pool = leasePool(key);
 
-		synchronized(this) {
-			ArrayList<OldConnection> l = availableConnections.get(key);
-			if (l != null) {
-				int i = l.size() - 1;
-				while(i >= 0) {
-					OldConnection c = l.get(i);
-					if (c.deathTime > now) {
-						l.remove(i);
-						return c.connection;
-					}
-					Collections.swap(l, 0, i);
-					i--;
+		try {
+			long now = System.currentTimeMillis();
+			OldConnection o;
+			while ((o = pool.idle.pollFirst()) != null) {
+				pool.idleCount.decrementAndGet();
+				if (o.deathTime > now) {
+					o.connection.leased(pool);
+					return o.connection;
 				}
+				closeQuietly(o.connection);
 			}
-		}
 
-		Connection result = Connection.open(host, port, localHost, sslProvider, this, connectTimeout,
-				sniServerName, proxy, proxySSLContext, applicationProtocols);
-		numberInPool.incrementAndGet();
-		return result;
+			Connection result = Connection.open(host, port, localHost, sslProvider, this, connectTimeout,
+					sniServerName, proxy, proxySSLContext, applicationProtocols);
+			numberInPool.incrementAndGet();
+			pool.created.increment();
+			result.leased(pool);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			pool.leased.decrementAndGet();
+			pool.releasePermit();
+			throw e;
+		}
 	}
 
 	public Connection getConnection(String host, int port, String localHost, SSLProvider sslProvider, int connectTimeout) throws UnknownHostException, IOException {
 		return getConnection(host,port,localHost,sslProvider,connectTimeout,null,null,null,null);
 	}
 
+	/**
+	 * Counts a lease on the pool for the key, waiting for a permit if the number of connections is limited.
+	 */
+	private DestinationPool leasePool(ConnectionKey key) throws IOException {
+		while (true) {
+			DestinationPool pool = pools.computeIfAbsent(key, k -> new DestinationPool(k, maxTotalPerDestination));
+			pool.leased.incrementAndGet();
+			if (pool.retired) {
+				// lost the race against closeOldConnections() removing the pool: use a new one
+				pool.leased.decrementAndGet();
+				continue;
+			}
+			acquirePermit(pool);
+			return pool;
+		}
+	}
+
+	private void acquirePermit(DestinationPool pool) throws IOException {
+		if (pool.permits == null)
+			return;
+		pool.pending.incrementAndGet();
+		try {
+			if (connectionRequestTimeout <= 0)
+				pool.permits.acquire();
+			else if (!pool.permits.tryAcquire(connectionRequestTimeout, MILLISECONDS))
+				throw new ConnectionPoolExhaustedException(pool.key, maxTotalPerDestination, connectionRequestTimeout);
+		} catch (InterruptedException e) {
+			pool.leased.decrementAndGet();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a connection to " + pool.key, e);
+		} catch (ConnectionPoolExhaustedException e) {
+			pool.leased.decrementAndGet();
+			throw e;
+		} finally {
+			pool.pending.decrementAndGet();
+		}
+	}
+
 	public void releaseConnection(Connection connection) {
 		if (connection == null)
 			return;
 
+		DestinationPool pool = connection.getPool();
+
 		if (connection.isClosed()) {
+			Connection.PoolState previous = connection.setPoolState(Connection.PoolState.CLOSED);
+			if (previous == Connection.PoolState.CLOSED)
+				return; // already accounted for
 			numberInPool.decrementAndGet();
+			if (pool != null) {
+				pool.closed.increment();
+				if (previous == Connection.PoolState.LEASED) {
+					pool.leased.decrementAndGet();
+					pool.releasePermit();
+				}
+			}
+			return;
+		}
+
+		if (pool == null || !connection.compareAndSetPoolState(Connection.PoolState.LEASED, Connection.PoolState.IDLE)) {
+			log.debug("Ignoring release of connection which is not leased: " + connection);
 			return;
 		}
 
-		ConnectionKey key = new ConnectionKey(connection.getHost(), connection.socket.getPort(),
-				connection.getSslProvider(), connection.getSniServerName(), connection.getProxyConfiguration(),
-				connection.getProxySSLProvider(), connection.getApplicationProtocols());
-		OldConnection o = new OldConnection(connection, keepAliveTimeout);
-		ArrayList<OldConnection> l;
-		synchronized(this) {
-			l = availableConnections.computeIfAbsent(key, k -> new ArrayList<>());
-			l.add(o);
+		if (maxIdlePerDestination >= 0 && pool.idleCount.get() >= maxIdlePerDestination) {
+			pool.leased.decrementAndGet();
+			pool.releasePermit();
+			closeQuietly(connection);
+			return;
 		}
+
+		pool.idle.offerFirst(new OldConnection(connection, keepAliveTimeout));
+		pool.idleCount.incrementAndGet();
+		pool.leased.decrementAndGet();
+		pool.releasePermit();
 	}
 
 	private int closeOldConnections() {
-		ArrayList<ConnectionKey> toRemove = new ArrayList<>();
-		ArrayList<Connection> toClose = new ArrayList<>();
 		long now = System.currentTimeMillis();
 		log.trace("closing old connections");
-		int closed = 0, remaining;
-		synchronized(this) {
-			// close connections after their timeout
-			for (Map.Entry<ConnectionKey, ArrayList<OldConnection>> e : availableConnections.entrySet()) {
-				ArrayList<OldConnection> l = e.getValue();
-				for (int i = 0; i < l.size(); i++) {
-					OldConnection o = l.get(i);
-					if (o.deathTime < now) {
-						// replace [i] by [last]
-						if (i == l.size() - 1)
-							l.remove(i);
-						else
-							l.set(i, l.remove(l.size() - 1));
-						--i;
-						closed++;
-						toClose.add(o.connection);
-					}
+		int closed = 0, remaining = 0;
+		for (DestinationPool pool : pools.values()) {
+			// the least recently used connections are at the end
+			for (Iterator<OldConnection> it = pool.idle.descendingIterator(); it.hasNext(); ) {
+				OldConnection o = it.next();
+				// remove() fails, if the connection has just been leased by getConnection()
+				if (o.deathTime < now && pool.idle.removeLastOccurrence(o)) {
+					pool.idleCount.decrementAndGet();
+					closeQuietly(o.connection);
+					closed++;
 				}
-				if (l.isEmpty())
-					toRemove.add(e.getKey());
-			}
-			for (ConnectionKey remove : toRemove)
-				availableConnections.remove(remove);
-			remaining = availableConnections.size();
-		}
-		for (Connection c : toClose) {
-			try {
-				c.close();
-			} catch (Exception e) {
-				// do nothing
 			}
+			remaining += pool.idleCount.get();
+			retireIfUnused(pool);
 		}
 		if (closed != 0)
 			log.debug("closed " + closed + " connections");
 		return remaining;
 	}
 
+	private void retireIfUnused(DestinationPool pool) {
+		if (!pool.isUnused())
+			return;
+		pool.retired = true;
+		if (pool.isUnused())
+			pools.remove(pool.key, pool);
+		else
+			pool.retired = false;
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (Exception e) {
+			// do nothing
+		}
+	}
+
 	public void shutdownWhenDone() {
 		shutdownWhenDone = true;
 	}
@@ -227,14 +350,23 @@ public class ConnectionManager {
 		return numberInPool.get();
 	}
 
+	public List<PoolStatistics> getPoolStatistics() {
+		List<PoolStatistics> result = new ArrayList<>();
+		for (DestinationPool pool : pools.values()) {
+			int pending = pool.pending.get();
+			result.add(new PoolStatistics(pool.key, pool.idleCount.get(), pool.leased.get() - pending, pending,
+					pool.created.sum(), pool.closed.sum()));
+		}
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("Number in pool: " + numberInPool.get() + "\n");
-		synchronized(this) {
-			for (Map.Entry<ConnectionKey, ArrayList<OldConnection>> e : availableConnections.entrySet()) {
-				sb.append("To " + e.getKey() + ": " + e.getValue().size() + "\n");
-			}
+		for (PoolStatistics s : getPoolStatistics()) {
+			sb.append("To " + s.key() + ": " + s.idle() + " idle, " + s.leased() + " leased, " + s.pending()
+					+ " pending, " + s.created() + " created, " + s.closed() + " closed\n");
 		}
 		return sb.toString();
 	}
@@ -0,0 +1,30 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import java.io.IOException;
+
+/**
+ * Indicates that no connection to a destination became available within the connection request timeout,
+ * because the maximum number of connections to it was in use.
+ */
+public class ConnectionPoolExhaustedException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ConnectionPoolExhaustedException(ConnectionKey key, int maxTotal, long timeout) {
+		super("All " + maxTotal + " connections to " + key + " are in use. Waited " + timeout + " ms.");
+	}
+}
@@ -18,8 +18,11 @@ import com.predic8.membrane.core.*;
 import com.predic8.membrane.core.config.security.*;
 import com.predic8.membrane.core.exchange.*;
 import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import com.predic8.membrane.core.interceptor.tunnel.*;
 import com.predic8.membrane.core.model.*;
 import com.predic8.membrane.core.resolver.*;
+import com.predic8.membrane.core.rules.*;
 import com.predic8.membrane.core.transport.http.client.*;
 import com.predic8.membrane.core.transport.http2.*;
 import com.predic8.membrane.core.transport.ssl.*;
@@ -70,6 +73,7 @@ public class HttpClient implements AutoCloseable {
 	private final String localAddr;
 	private final SSLContext sslContext;
 	private final boolean useHttp2;
+	private final boolean useH2c;
 
 	private final ConnectionManager conMgr;
 	private final Http2ClientPool http2ClientPool;
@@ -110,11 +114,13 @@ public class HttpClient implements AutoCloseable {
 		connectTimeout = configuration.getConnection().getTimeout();
 		localAddr = configuration.getConnection().getLocalAddr();
 
-		conMgr = new ConnectionManager(configuration.getConnection().getKeepAliveTimeout(), timerManager);
+		conMgr = new ConnectionManager(configuration.getConnection(), timerManager);
 
 		useHttp2 = configuration.isUseExperimentalHttp2();
-		if (useHttp2)
-			http2ClientPool = new Http2ClientPool(configuration.getConnection().getKeepAliveTimeout());
+		useH2c = configuration.isUseExperimentalH2c();
+		if (useHttp2 || useH2c)
+			http2ClientPool = new Http2ClientPool(configuration.getConnection().getKeepAliveTimeout(),
+					configuration.getConnection().getMaxHttp2ConnectionsPerDestination());
 		else
 			http2ClientPool = null;
 	}
@@ -225,7 +231,8 @@ public class HttpClient implements AutoCloseable {
 				Http2Client h2c = null;
 				SSLProvider sslProvider = getOutboundSSLProvider(exc, target);
 				String sniServerName = getSNIServerName(exc);
-				if (con == null && useHttp2) {
+				boolean cleartextHttp2 = isH2c(exc, sslProvider);
+				if (con == null && (useHttp2 && sslProvider != null || cleartextHttp2)) {
 					h2c = http2ClientPool.reserveStream(target.host(), target.port(), sslProvider, sniServerName, proxy, proxySSLContext);
 					if (h2c != null) {
 						con = h2c.getConnection();
@@ -235,7 +242,7 @@ public class HttpClient implements AutoCloseable {
 				if (con == null) {
 					con = conMgr.getConnection(target.host(), target.port(), localAddr, sslProvider, connectTimeout,
 							sniServerName, proxy, proxySSLContext, getApplicationProtocols());
-					if (useHttp2 && Http2TlsSupport.isHttp2(con.socket))
+					if (cleartextHttp2 || useHttp2 && Http2TlsSupport.isHttp2(con.socket))
 						usingHttp2 = true;
 					else
 						exc.setTargetConnection(con);
@@ -358,7 +365,9 @@ public class HttpClient implements AutoCloseable {
 	private Response doHttp2Call(Exchange exc, Connection con, HostColonPort target, Http2Client h2c, SSLProvider sslProvider, String sniServerName) throws IOException, InterruptedException {
 		Response response;
 		if (h2c == null) {
-			h2c = new Http2Client(con, sslProvider.showSSLExceptions());
+			h2c = new Http2Client(con, sslProvider != null && sslProvider.showSSLExceptions());
+			// reserve the stream before sharing, so that the connection is not considered idle
+			h2c.reserveStream();
 			http2ClientPool.share(target.host(), target.port(), sslProvider, sniServerName, proxy, proxySSLContext, h2c);
 		}
 		response = h2c.doCall(exc, con);
@@ -368,6 +377,18 @@ public class HttpClient implements AutoCloseable {
 		return response;
 	}
 
+	/**
+	 * Whether to talk HTTP/2 to a plain HTTP target using "prior knowledge", see
+	 * {@link HttpClientConfiguration#setUseExperimentalH2c(boolean)}.
+	 */
+	private boolean isH2c(Exchange exc, SSLProvider sslProvider) {
+		return useH2c
+				&& sslProvider == null
+				&& proxy == null
+				&& !exc.getRequest().isCONNECTRequest()
+				&& exc.getRequest().getHeader().getFirstValue(Header.UPGRADE) == null;
+	}
+
 	private static boolean trackNodeStatus(Exchange exc) {
 		if (exc.getProperty(TRACK_NODE_STATUS) instanceof Boolean status)
 			return status;
@@ -475,6 +496,39 @@ public class HttpClient implements AutoCloseable {
 		final HttpServerHandler hsr = (HttpServerHandler)exc.getHandler();
 		String source = hsr.getSourceSocket().getRemoteSocketAddress().toString();
 		String dest = con.toString();
+		TunnelRelay relay = hsr.getTransport().getTunnelRelay();
+		if (relay != null && isRelayable(hsr, con, protocol, exc.getRule())) {
+			exc.addExchangeViewerListener(new AbstractExchangeViewerListener() {
+				@Override
+				public void setExchangeFinished() {
+					try {
+						// bytes which have already been read into the buffers are forwarded before switching
+						transferBuffered(hsr.getSrcIn(), con.out);
+						transferBuffered(con.in, hsr.getSrcOut());
+						hsr.relayed();
+						relay.relay(hsr.getSourceSocket(), con.socket, streamPumpStats,
+								protocol + " " + source + " -> " + dest, protocol + " " + source + " <- " + dest, exc.getRule(),
+								() -> {
+									hsr.closeRelayedConnection();
+									try {
+										con.close();
+									} catch (IOException e) {
+										log.debug("", e);
+									}
+								});
+					} catch (IOException e) {
+						log.debug("Could not relay tunnel.", e);
+						hsr.closeRelayedConnection();
+						try {
+							con.close();
+						} catch (IOException e2) {
+							log.debug("", e2);
+						}
+					}
+				}
+			});
+			return;
+		}
 		final StreamPump a;
 		final StreamPump b;
 		if("WebSocket".equals(protocol)){
@@ -512,6 +566,28 @@ public class HttpClient implements AutoCloseable {
 		});
 	}
 
+	/**
+	 * Whether the tunnel can be relayed byte by byte by the {@link TunnelRelay}: Both sockets are plain channels, and
+	 * WebSocket frames do not have to pass through WebSocket interceptors.
+	 */
+	private static boolean isRelayable(HttpServerHandler hsr, Connection con, String protocol, Rule rule) {
+		if (!TunnelRelay.supports(hsr.getSourceSocket()) || !TunnelRelay.supports(con.socket))
+			return false;
+		if (!"WebSocket".equals(protocol))
+			return true;
+		for (Interceptor i : rule.getInterceptors())
+			if (i instanceof WebSocketInterceptor wsi && !wsi.getInterceptors().isEmpty())
+				return false;
+		return true;
+	}
+
+	private static void transferBuffered(InputStream in, OutputStream out) throws IOException {
+		int available = in.available();
+		if (available > 0)
+			out.write(in.readNBytes(available));
+		out.flush();
+	}
+
 	private boolean isUpgradeToResponse(Response res, String protocol) {
 		return res.getStatusCode() == 101 &&
 				"upgrade".equalsIgnoreCase(res.getHeader().getFirstValue(Header.CONNECTION)) &&
@@ -539,6 +615,13 @@ public class HttpClient implements AutoCloseable {
 		Util.shutdownOutput(con.socket);
 	}
 
+	/**
+	 * @return the pool of HTTP/2 connections, or null if neither HTTP/2 nor h2c is used
+	 */
+	public Http2ClientPool getHttp2ClientPool() {
+		return http2ClientPool;
+	}
+
 	ConnectionManager getConnectionManager() {
 		return conMgr;
 	}
@@ -23,6 +23,7 @@ import org.slf4j.*;
 import javax.annotation.*;
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
@@ -79,6 +80,8 @@ public class HttpEndpointListener extends Thread {
 		try {
 			if (sslProvider != null)
 				serverSocket = sslProvider.createServerSocket(p.port(), 50, p.ip());
+			else if (transport.getMode() == HttpTransport.Mode.NIO)
+				serverSocket = openServerSocketChannel(p);
 			else
 				serverSocket = new ServerSocket(p.port(), 50, p.ip());
 
@@ -108,6 +111,20 @@ public class HttpEndpointListener extends Thread {
 		}
 	}
 
+	/**
+	 * Sockets accepted through a channel can be parked by the {@link KeepAliveSelector} while idle.
+	 */
+	private static ServerSocket openServerSocketChannel(IpPort p) throws IOException {
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.bind(new InetSocketAddress(p.ip(), p.port()), 50);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel.socket();
+	}
+
 	@Override
 	public void run() {
 		while (!closed) {
@@ -139,6 +156,9 @@ public class HttpEndpointListener extends Thread {
 				} else {
 					log.error("",e);
 				}
+			} catch (ClosedChannelException e) {
+				log.debug("socket closed.");
+				break;
 			} catch (NullPointerException e) {
 				// Ignore this. serverSocket variable is set null during a loop in the process of closing server socket.
 				e.printStackTrace();
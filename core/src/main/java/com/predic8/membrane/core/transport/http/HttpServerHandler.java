@@ -23,6 +23,7 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.Base64;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLException;
@@ -44,6 +45,7 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 
 	private static final Logger log = LoggerFactory.getLogger(HttpServerHandler.class);
 	private static final AtomicInteger counter = new AtomicInteger();
+	private static final String HTTP2_SETTINGS = "HTTP2-Settings";
 
 	private final HttpEndpointListener endpointListener;
 	private final Socket rawSourceSocket;
@@ -54,6 +56,10 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 	private boolean showSSLExceptions = true;
 	private Http2ServerHandler http2ServerHandler;
 
+	private Connection boundConnection; // see Request.isBindTargetConnectionToIncoming()
+	private boolean resumed;
+	private volatile boolean relayed;
+
 
 	public HttpServerHandler(Socket socket, HttpEndpointListener endpointListener) throws IOException {
 		super(endpointListener.getTransport());
@@ -78,20 +84,29 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 			showSSLExceptions = false;
 		}
 		log.debug("New ServerThread created. " + counter.incrementAndGet());
-		srcIn = new BufferedInputStream(sourceSocket.getInputStream(), 2048);
+		srcIn = new LineBufferedInputStream(sourceSocket.getInputStream(), 2048);
 		srcOut = new BufferedOutputStream(sourceSocket.getOutputStream(), 2048);
 		sourceSocket.setSoTimeout(endpointListener.getTransport().getSocketTimeout());
 		sourceSocket.setTcpNoDelay(endpointListener.getTransport().isTcpNoDelay());
 	}
 
 	public void run() {
-		Connection boundConnection = null; // see Request.isBindTargetConnectionToIncoming()
+		boolean parked = false;
 		try {
 			updateThreadName(true);
-			setup();
+			if (exchange == null)
+				setup();
 			while (true) {
 				srcReq = new Request();
 
+				if (mayPark()) {
+					endpointListener.setIdleStatus(sourceSocket, true);
+					parked = true;
+					getTransport().getKeepAliveSelector().park(this);
+					return;
+				}
+				resumed = false;
+
 				endpointListener.setIdleStatus(sourceSocket, true);
 				try {
 					srcIn.mark(2);
@@ -102,7 +117,7 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 					endpointListener.setIdleStatus(sourceSocket, false);
 				}
 
-				if (Http2TlsSupport.isHttp2(sourceSocket)) {
+				if (Http2TlsSupport.isHttp2(sourceSocket) || isH2cPriorKnowledge()) {
 					http2ServerHandler = new Http2ServerHandler(this, sourceSocket, srcIn, srcOut, showSSLExceptions);
 					http2ServerHandler.handle();
 					http2ServerHandler = null;
@@ -116,6 +131,12 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 
 				srcReq.read(srcIn, true);
 
+				byte[] h2cSettings = getH2cUpgradeSettings();
+				if (h2cSettings != null) {
+					upgradeToH2c(h2cSettings);
+					break;
+				}
+
 				exchange.received();
 
 				if (srcReq.getHeader().getProxyConnection() != null) {
@@ -126,6 +147,11 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 
 				process();
 
+				if (relayed) {
+					log.debug("stopping HTTP Server Thread after handing the connection over to the tunnel relay");
+					return;
+				}
+
 				if (srcReq.isCONNECTRequest()) {
 					log.debug("stopping HTTP Server Thread after establishing an HTTP connect");
 					return;
@@ -169,21 +195,130 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 		} catch (Exception e) {
 			log.error("", e);
 		} finally {
-			endpointListener.setOpenStatus(rawSourceSocket);
+			if (!parked && !relayed)
+				cleanup();
 
-			if (boundConnection != null)
-				try {
-					boundConnection.close();
-				} catch (IOException e) {
-					log.debug("Closing bound connection.", e);
-				}
+			updateThreadName(false);
+		}
+	}
 
-			closeConnections();
+	private boolean isH2cAllowed() {
+		return getTransport().isUseExperimentalH2c() && !(sourceSocket instanceof SSLSocket);
+	}
 
-			exchange.detach();
+	/**
+	 * Whether the connection starts with the HTTP/2 preface. Only the bytes matching the preface are read, so that a
+	 * short HTTP/1.1 request does not block the check.
+	 */
+	private boolean isH2cPriorKnowledge() throws IOException {
+		if (!isH2cAllowed())
+			return false;
+		srcIn.mark(Http2ServerHandler.PREFACE.length);
+		try {
+			for (byte b : Http2ServerHandler.PREFACE)
+				if (srcIn.read() != b)
+					return false;
+			return true;
+		} finally {
+			srcIn.reset();
+		}
+	}
 
-			updateThreadName(false);
+	/**
+	 * @return the decoded "HTTP2-Settings" header, if the request asks for an upgrade to h2c which can be performed,
+	 * null otherwise
+	 */
+	private byte[] getH2cUpgradeSettings() {
+		if (!isH2cAllowed())
+			return null;
+		Header header = srcReq.getHeader();
+		String settings = header.getFirstValue(HTTP2_SETTINGS);
+		if (settings == null || !"h2c".equalsIgnoreCase(header.getFirstValue(Header.UPGRADE)))
+			return null;
+		// the request body would have to be read before switching protocols
+		if (header.getContentLength() > 0 || header.isChunked())
+			return null;
+		try {
+			return Base64.getUrlDecoder().decode(settings.trim());
+		} catch (IllegalArgumentException e) {
+			log.debug("Ignoring upgrade to h2c because of invalid HTTP2-Settings header.");
+			return null;
+		}
+	}
+
+	private void upgradeToH2c(byte[] settings) throws Exception {
+		Header header = srcReq.getHeader();
+		header.removeFields(Header.UPGRADE);
+		header.removeFields(HTTP2_SETTINGS);
+		header.removeFields(Header.CONNECTION);
+
+		Response.statusCode(101).header(Header.CONNECTION, Header.UPGRADE).header(Header.UPGRADE, "h2c").build().write(srcOut, false);
+		srcOut.flush();
+
+		http2ServerHandler = new Http2ServerHandler(this, sourceSocket, srcIn, srcOut, showSSLExceptions);
+		http2ServerHandler.handleUpgrade(srcReq, settings);
+		http2ServerHandler = null;
+	}
+
+	/**
+	 * Whether the idle connection can be handed over to the {@link KeepAliveSelector} instead of blocking this
+	 * thread until the next request arrives. Only plain connections accepted through a channel can be parked.
+	 */
+	private boolean mayPark() throws IOException {
+		return getTransport().getKeepAliveSelector() != null
+				&& !resumed
+				&& boundConnection == null
+				&& sourceSocket.getChannel() != null
+				&& srcIn.available() == 0;
+	}
+
+	/**
+	 * Called by the {@link KeepAliveSelector} when the next request arrives on a parked connection.
+	 */
+	void resume() {
+		resumed = true;
+	}
+
+	/**
+	 * Called by the {@link KeepAliveSelector} when a parked connection has been closed or timed out.
+	 */
+	void closeParkedConnection() {
+		try {
+			endpointListener.setIdleStatus(sourceSocket, false);
+		} catch (IOException ignored) {
+			// cannot happen when removing the idle status
 		}
+		cleanup();
+	}
+
+	/**
+	 * Called when the connection has been handed over to the {@link TunnelRelay}. The handler's thread must not touch
+	 * the connection afterwards.
+	 */
+	void relayed() {
+		relayed = true;
+	}
+
+	/**
+	 * Called by the {@link TunnelRelay} when the tunnel has been closed.
+	 */
+	void closeRelayedConnection() {
+		cleanup();
+	}
+
+	private void cleanup() {
+		endpointListener.setOpenStatus(rawSourceSocket);
+
+		if (boundConnection != null)
+			try {
+				boundConnection.close();
+			} catch (IOException e) {
+				log.debug("Closing bound connection.", e);
+			}
+
+		closeConnections();
+
+		exchange.detach();
 	}
 
 	private void closeConnections() {
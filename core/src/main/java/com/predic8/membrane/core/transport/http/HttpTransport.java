@@ -52,6 +52,26 @@ public class HttpTransport extends Transport {
 	private int socketTimeout = 30000;
 	private int forceSocketCloseOnHotDeployAfter = 30000;
 	private boolean tcpNoDelay = true;
+	private boolean useExperimentalH2c;
+	private Mode mode = Mode.BLOCKING;
+
+	/**
+	 * How incoming connections are served.
+	 */
+	public enum Mode {
+		/**
+		 * One pooled platform thread per connection, blocking while the connection is idle.
+		 */
+		BLOCKING,
+		/**
+		 * One pooled platform thread per request. Idle keep-alive connections are parked on a selector.
+		 */
+		NIO,
+		/**
+		 * One virtual thread per connection. Requires Java 21 or newer.
+		 */
+		VIRTUAL
+	}
 
 	private final Map<Integer, Map<IpPort, HttpEndpointListener>> portListenerMapping = new HashMap<>();
 	private final List<WeakReference<HttpEndpointListener>> stillRunning = new ArrayList<>();
@@ -60,9 +80,25 @@ public class HttpTransport extends Transport {
 			MAX_VALUE, 60L, SECONDS,
 			new SynchronousQueue<>(), new HttpServerThreadFactory());
 
+	private ExecutorService virtualThreadExecutor;
+	private KeepAliveSelector keepAliveSelector;
+	private TunnelRelay tunnelRelay;
+
 	@Override
 	public void init(Router router) throws Exception {
 		super.init(router);
+		if (mode == Mode.VIRTUAL && virtualThreadExecutor == null)
+			virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new RuntimeException("<transport mode=\"virtual\"> requires Java 21 or newer.");
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Could not create virtual thread executor.", e);
+		}
 	}
 
 	/**
@@ -116,18 +152,27 @@ public class HttpTransport extends Transport {
 		if (waitForCompletion) {
 			long now = System.currentTimeMillis();
 			log.debug("Waiting for running exchanges to finish.");
-			executorService.shutdown();
+			ExecutorService executor = getExecutorService();
+			executor.shutdown();
 			try {
 				while (true) {
 					boolean onlyIdle = System.currentTimeMillis() - now <= forceSocketCloseOnHotDeployAfter;
 					closeConnections(onlyIdle);
-					if (executorService.awaitTermination(5, SECONDS))
+					if (executor.awaitTermination(5, SECONDS))
 						break;
 					log.warn("Still waiting for running exchanges to finish. (Set <transport forceSocketCloseOnHotDeployAfter=\"" + forceSocketCloseOnHotDeployAfter + "\"> to a lower value to forcibly close connections more quickly.");
 				}
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 			}
+			if (keepAliveSelector != null) {
+				keepAliveSelector.close();
+				keepAliveSelector = null;
+			}
+			if (tunnelRelay != null) {
+				tunnelRelay.close();
+				tunnelRelay = null;
+			}
 		}
 	}
 
@@ -170,6 +215,12 @@ public class HttpTransport extends Transport {
 	        throw new RuntimeException(createDiffInterfacesErrorMsg(p,mih));
 	    }
 
+		if (mode == Mode.NIO && keepAliveSelector == null) {
+			keepAliveSelector = new KeepAliveSelector(this);
+			keepAliveSelector.start();
+			tunnelRelay = new TunnelRelay();
+		}
+
 		HttpEndpointListener portListenerThread = new HttpEndpointListener(p, this, sslProvider, timerManager);
 		mih.put(p, portListenerThread);
 		portListenerThread.start();
@@ -227,9 +278,51 @@ public class HttpTransport extends Transport {
 	}
 
 	public ExecutorService getExecutorService() {
+		if (virtualThreadExecutor != null)
+			return virtualThreadExecutor;
 		return executorService;
 	}
 
+	/**
+	 * @return the selector parking idle keep-alive connections, or null if not running in {@link Mode#NIO}
+	 */
+	@Nullable
+	public KeepAliveSelector getKeepAliveSelector() {
+		return keepAliveSelector;
+	}
+
+	/**
+	 * @return the relay for tunnels, or null if not running in {@link Mode#NIO}
+	 */
+	@Nullable
+	public TunnelRelay getTunnelRelay() {
+		return tunnelRelay;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @description <p>How incoming connections are served.</p>
+	 *              <p><i>blocking</i>: Each connection is bound to one thread of the thread pool, also while it is
+	 *              idle between two requests.</p>
+	 *              <p><i>nio</i>: Idle keep-alive connections are watched by a single selector thread and only get a
+	 *              thread from the pool when the next request arrives. This keeps the number of threads proportional to
+	 *              the number of concurrent requests instead of open connections. Tunnels (CONNECT, plain WebSocket
+	 *              connections without WebSocket interceptors, ...) between plain connections are relayed by a small
+	 *              pool of selector threads instead of two threads per tunnel. Connections on TLS ports are served
+	 *              as in <i>blocking</i> mode.</p>
+	 *              <p><i>virtual</i>: Each connection is served by its own virtual thread. The thread pool settings
+	 *              are ignored. Requires Java 21 or newer.</p>
+	 * @default blocking
+	 * @example nio
+	 */
+	@MCAttribute
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
 	public int getSocketTimeout() {
 		return socketTimeout;
 	}
@@ -260,6 +353,21 @@ public class HttpTransport extends Transport {
 		this.tcpNoDelay = tcpNoDelay;
 	}
 
+	public boolean isUseExperimentalH2c() {
+		return useExperimentalH2c;
+	}
+
+	/**
+	 * @description Whether to accept HTTP/2 on connections without TLS ("h2c"), either by "prior knowledge" (the
+	 *              client starts the connection with the HTTP/2 preface) or by an "Upgrade: h2c" request. Only
+	 *              requests without a body are upgraded, others are served using HTTP/1.1.
+	 * @default false
+	 */
+	@MCAttribute
+	public void setUseExperimentalH2c(boolean useExperimentalH2c) {
+		this.useExperimentalH2c = useExperimentalH2c;
+	}
+
 	@Override
 	public boolean isOpeningPorts() {
 		return true;
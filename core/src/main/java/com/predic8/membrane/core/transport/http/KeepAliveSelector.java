@@ -0,0 +1,172 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import org.slf4j.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.channels.SelectionKey.*;
+
+/**
+ * Watches idle keep-alive connections using a single {@link Selector}, so that they do not occupy a thread
+ * while waiting for the next request (see {@link HttpTransport.Mode#NIO}).
+ * <p>
+ * A {@link HttpServerHandler} parks its connection after a response has been written. As soon as the client
+ * sends the next request, the connection is switched back to blocking mode and the handler is resubmitted
+ * to the transport's executor. Connections idle for longer than the socket timeout, or closed in the meantime
+ * (e.g. by {@link HttpEndpointListener#closeConnections(boolean)} during hot deployment), are cleaned up here.
+ */
+public class KeepAliveSelector extends Thread {
+
+	private static final Logger log = LoggerFactory.getLogger(KeepAliveSelector.class.getName());
+
+	private final HttpTransport transport;
+	private final Selector selector;
+	private final Queue<HttpServerHandler> toRegister = new ConcurrentLinkedQueue<>();
+
+	// only accessed by the selector thread
+	private final Map<HttpServerHandler, Long> parked = new HashMap<>();
+
+	private volatile boolean closed;
+	private volatile int numberOfParkedConnections;
+
+	public KeepAliveSelector(HttpTransport transport) throws IOException {
+		this.transport = transport;
+		this.selector = Selector.open();
+		setName("Keep-Alive Selector");
+		setDaemon(true);
+	}
+
+	/**
+	 * Hands the connection of the handler over to the selector. The calling thread must not touch the
+	 * handler afterwards.
+	 */
+	public void park(HttpServerHandler handler) throws IOException {
+		handler.getSourceSocket().getChannel().configureBlocking(false);
+		toRegister.add(handler);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!closed) {
+				selector.select(1000);
+				registerParkedConnections();
+				List<HttpServerHandler> readable = collectReadable();
+				List<HttpServerHandler> expired = collectExpired();
+				numberOfParkedConnections = parked.size();
+				if (readable.isEmpty() && expired.isEmpty())
+					continue;
+				// deregisters the cancelled keys, so that the channels may be switched back to blocking mode
+				selector.selectNow();
+				for (HttpServerHandler handler : readable)
+					resume(handler);
+				for (HttpServerHandler handler : expired)
+					handler.closeParkedConnection();
+			}
+		} catch (Exception e) {
+			log.error("", e);
+		} finally {
+			closeAllParkedConnections();
+		}
+	}
+
+	private void registerParkedConnections() {
+		HttpServerHandler handler;
+		while ((handler = toRegister.poll()) != null) {
+			try {
+				handler.getSourceSocket().getChannel().register(selector, OP_READ, handler);
+				parked.put(handler, System.currentTimeMillis());
+			} catch (ClosedChannelException e) {
+				handler.closeParkedConnection();
+			}
+		}
+	}
+
+	private List<HttpServerHandler> collectReadable() {
+		List<HttpServerHandler> readable = new ArrayList<>();
+		for (SelectionKey key : selector.selectedKeys()) {
+			key.cancel();
+			HttpServerHandler handler = (HttpServerHandler) key.attachment();
+			parked.remove(handler);
+			readable.add(handler);
+		}
+		selector.selectedKeys().clear();
+		return readable;
+	}
+
+	private List<HttpServerHandler> collectExpired() {
+		List<HttpServerHandler> expired = new ArrayList<>();
+		int timeout = transport.getSocketTimeout();
+		long now = System.currentTimeMillis();
+		for (Iterator<Map.Entry<HttpServerHandler, Long>> it = parked.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<HttpServerHandler, Long> e = it.next();
+			SocketChannel channel = e.getKey().getSourceSocket().getChannel();
+			if (channel.isOpen() && (timeout <= 0 || now - e.getValue() < timeout))
+				continue;
+			SelectionKey key = channel.keyFor(selector);
+			if (key != null)
+				key.cancel();
+			it.remove();
+			expired.add(e.getKey());
+		}
+		return expired;
+	}
+
+	private void resume(HttpServerHandler handler) {
+		try {
+			handler.getSourceSocket().getChannel().configureBlocking(true);
+			handler.resume();
+			transport.getExecutorService().execute(handler);
+		} catch (IOException | RejectedExecutionException e) {
+			log.debug("Could not resume keep-alive connection.", e);
+			handler.closeParkedConnection();
+		}
+	}
+
+	private void closeAllParkedConnections() {
+		HttpServerHandler handler;
+		while ((handler = toRegister.poll()) != null)
+			handler.closeParkedConnection();
+		for (HttpServerHandler h : parked.keySet())
+			h.closeParkedConnection();
+		parked.clear();
+		numberOfParkedConnections = 0;
+		try {
+			selector.close();
+		} catch (IOException e) {
+			log.debug("Closing selector.", e);
+		}
+	}
+
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getNumberOfParkedConnections() {
+		return numberOfParkedConnections;
+	}
+}
@@ -0,0 +1,110 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import java.io.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * A {@link BufferedInputStream} which reads the lines of a HTTP message head by scanning its buffer, instead
+ * of reading the line byte by byte.
+ * <p>
+ * Used by {@link com.predic8.membrane.core.util.HttpUtil#readLine(InputStream)}, the behaviour is the same.
+ */
+public class LineBufferedInputStream extends BufferedInputStream {
+
+	public LineBufferedInputStream(InputStream in, int size) {
+		super(in, size);
+	}
+
+	/**
+	 * Reads a line terminated by CR LF (or LF, optionally followed by CR). Bytes are mapped to chars as
+	 * ISO-8859-1.
+	 */
+	public synchronized String readLine(int maxLength) throws IOException {
+		// only used if the line spans more than one buffer
+		byte[] line = null;
+		int lineLength = 0;
+
+		while (true) {
+			if (pos >= count && !fill())
+				throw new EOFWhileReadingLineException(toString(line, lineLength));
+
+			int start = pos;
+			int end = start;
+			while (end < count && buf[end] != 13 && buf[end] != 10)
+				end++;
+
+			int length = end - start;
+			if (lineLength + length >= maxLength) {
+				line = append(line, lineLength, buf, start, maxLength - lineLength);
+				pos = start + maxLength - lineLength;
+				throw new LineTooLongException(toString(line, maxLength));
+			}
+
+			if (end == count) {
+				line = append(line, lineLength, buf, start, length);
+				lineLength += length;
+				pos = count;
+				continue;
+			}
+
+			String result;
+			if (line == null) {
+				result = new String(buf, start, length, ISO_8859_1);
+			} else {
+				line = append(line, lineLength, buf, start, length);
+				result = toString(line, lineLength + length);
+			}
+			pos = end + 1;
+			if (buf[end] == 13) {
+				//noinspection ResultOfMethodCallIgnored
+				read();
+			} else {
+				mark(2);
+				if (read() != 13)
+					reset();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Makes sure that there is at least one byte in the buffer.
+	 *
+	 * @return false at the end of the stream
+	 */
+	private boolean fill() throws IOException {
+		if (read() == -1)
+			return false;
+		pos--;
+		return true;
+	}
+
+	private static byte[] append(byte[] line, int lineLength, byte[] b, int offset, int length) {
+		if (line == null)
+			line = new byte[Math.max(128, length)];
+		else if (lineLength + length > line.length)
+			line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+		System.arraycopy(b, offset, line, lineLength, length);
+		return line;
+	}
+
+	private static String toString(byte[] line, int length) {
+		return line == null ? "" : new String(line, 0, length, ISO_8859_1);
+	}
+}
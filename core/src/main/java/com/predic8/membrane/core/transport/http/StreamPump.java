@@ -21,6 +21,8 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -30,27 +32,27 @@ import com.predic8.membrane.core.rules.Rule;
 
 import javax.net.ssl.SSLException;
 
-public class StreamPump implements Runnable {
+public class StreamPump implements Runnable, Pump {
 
 	protected static Logger log = LoggerFactory.getLogger(StreamPump.class.getName());
 
 	public static class StreamPumpStats {
-		private static ArrayList<StreamPump> pumps = new ArrayList<>();
+		private static final Set<Pump> pumps = ConcurrentHashMap.newKeySet();
 
-		public synchronized int getRunning() {
+		public int getRunning() {
 			return pumps.size();
 		}
-		public synchronized void registerPump(StreamPump pump) {
+		public void registerPump(Pump pump) {
 			pumps.add(pump);
 		}
-		public synchronized void unregisterPump(StreamPump pump) {
+		public void unregisterPump(Pump pump) {
 			pumps.remove(pump);
 		}
-		public synchronized List<StreamPump> getStreamPumps() {
+		public List<Pump> getStreamPumps() {
 			return new ArrayList<>(pumps);
 		}
-		public synchronized void closeAllStreamPumps() {
-			for (StreamPump p : new ArrayList<>(pumps)) {
+		public void closeAllStreamPumps() {
+			for (Pump p : new ArrayList<>(pumps)) {
 				p.close();
 			}
 		}
@@ -104,19 +106,24 @@ public class StreamPump implements Runnable {
 		}
 	}
 
+	@Override
 	public String getName() {
 		return this.pumpName;
 	}
+	@Override
 	public String getServiceProxyName() {
 		return rule.getName();
 	}
-	public synchronized long getTransferredBytes() {
+	@Override
+	public long getTransferredBytes() {
 		return bytesTransferred.get();
 	}
-	public synchronized long getCreationTime() {
+	@Override
+	public long getCreationTime() {
 		return creationTime;
 	}
 
+	@Override
 	public synchronized void close() {
 		try {
 			log.debug("Closing Stream Pump '" + pumpName + "'");
@@ -0,0 +1,405 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.http;
+
+import com.predic8.membrane.core.rules.*;
+import org.slf4j.*;
+
+import javax.net.ssl.*;
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static java.nio.channels.SelectionKey.*;
+
+/**
+ * Relays the bytes of tunnels (CONNECT, TCP, plain WebSocket, ...) using a small pool of {@link Selector}s, instead of
+ * two blocking {@link StreamPump} threads per tunnel (see {@link HttpTransport.Mode#NIO}).
+ * <p>
+ * Only sockets accepted or opened through a channel and not using TLS can be relayed, see {@link #supports(Socket)}.
+ * Read buffers are taken from a shared pool and are only held by a tunnel while the target cannot take the data.
+ * Both directions of a tunnel show up in the {@link StreamPump.StreamPumpStats} like stream pumps. When one side
+ * closes its output, the other side's output is shut down once the pending data has been written, the tunnel is
+ * closed when both directions have ended.
+ */
+public class TunnelRelay {
+
+	private static final Logger log = LoggerFactory.getLogger(TunnelRelay.class.getName());
+
+	private static final int BUFFER_SIZE = 16384;
+	private static final int MAX_POOLED_BUFFERS = 1024;
+
+	private final RelaySelector[] selectors;
+	private final AtomicInteger nextSelector = new AtomicInteger();
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooledBuffers = new AtomicInteger();
+	private final AtomicInteger numberOfTunnels = new AtomicInteger();
+
+	public TunnelRelay() throws IOException {
+		this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+	}
+
+	public TunnelRelay(int threads) throws IOException {
+		selectors = new RelaySelector[threads];
+		for (int i = 0; i < threads; i++) {
+			selectors[i] = new RelaySelector("Tunnel Relay " + i);
+			selectors[i].start();
+		}
+	}
+
+	public static boolean supports(Socket socket) {
+		return socket.getChannel() != null && !(socket instanceof SSLSocket);
+	}
+
+	/**
+	 * Relays the bytes between the two sockets, until one of them is closed. The sockets are switched to non-blocking
+	 * mode, the calling thread must not use them afterwards. Data buffered by the caller must have been forwarded
+	 * before.
+	 *
+	 * @param onClose called on a relay thread, once both sockets have been closed
+	 */
+	public void relay(Socket left, Socket right, StreamPump.StreamPumpStats stats, String leftToRightName, String rightToLeftName, Rule rule, Runnable onClose) throws IOException {
+		if (!supports(left) || !supports(right))
+			throw new IllegalArgumentException("Only plain sockets opened through a channel can be relayed.");
+		RelaySelector selector = selectors[Math.floorMod(nextSelector.getAndIncrement(), selectors.length)];
+		Tunnel tunnel = new Tunnel(selector, left.getChannel(), right.getChannel(), stats, leftToRightName, rightToLeftName, rule, onClose);
+		left.getChannel().configureBlocking(false);
+		right.getChannel().configureBlocking(false);
+		numberOfTunnels.incrementAndGet();
+		selector.register(tunnel);
+	}
+
+	public int getNumberOfTunnels() {
+		return numberOfTunnels.get();
+	}
+
+	public void close() {
+		for (RelaySelector selector : selectors)
+			selector.close();
+	}
+
+	private ByteBuffer acquireBuffer() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null)
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		pooledBuffers.decrementAndGet();
+		return buffer;
+	}
+
+	private void releaseBuffer(ByteBuffer buffer) {
+		if (pooledBuffers.incrementAndGet() > MAX_POOLED_BUFFERS) {
+			pooledBuffers.decrementAndGet();
+			return;
+		}
+		buffer.clear();
+		buffers.add(buffer);
+	}
+
+	/**
+	 * One direction of a tunnel, listed in the stats like a stream pump.
+	 */
+	private static class Direction implements Pump {
+		private final Tunnel tunnel;
+		private final SocketChannel from;
+		private final SocketChannel to;
+		private final String name;
+		private final Rule rule;
+		private final long creationTime = System.currentTimeMillis();
+		private final AtomicLong bytesTransferred = new AtomicLong();
+		/**
+		 * Data read from 'from' which could not be written to 'to' yet, or null.
+		 */
+		private ByteBuffer pending;
+		/**
+		 * Whether 'from' has reached the end of its stream.
+		 */
+		private boolean eof;
+		/**
+		 * Whether the output of 'to' has been shut down.
+		 */
+		private boolean ended;
+
+		Direction(Tunnel tunnel, SocketChannel from, SocketChannel to, String name, Rule rule) {
+			this.tunnel = tunnel;
+			this.from = from;
+			this.to = to;
+			this.name = name;
+			this.rule = rule;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getServiceProxyName() {
+			return rule.getName();
+		}
+
+		@Override
+		public long getTransferredBytes() {
+			return bytesTransferred.get();
+		}
+
+		@Override
+		public long getCreationTime() {
+			return creationTime;
+		}
+
+		@Override
+		public void close() {
+			log.debug("Closing relayed tunnel '" + name + "'");
+			tunnel.selector.closeLater(tunnel);
+		}
+	}
+
+	private class Tunnel {
+		private final RelaySelector selector;
+		private final SocketChannel left;
+		private final SocketChannel right;
+		private final Direction toRight;
+		private final Direction toLeft;
+		private final StreamPump.StreamPumpStats stats;
+		private final Runnable onClose;
+		private SelectionKey leftKey;
+		private SelectionKey rightKey;
+		private boolean closed;
+
+		Tunnel(RelaySelector selector, SocketChannel left, SocketChannel right, StreamPump.StreamPumpStats stats, String leftToRightName, String rightToLeftName, Rule rule, Runnable onClose) {
+			this.selector = selector;
+			this.left = left;
+			this.right = right;
+			this.stats = stats;
+			this.onClose = onClose;
+			toRight = new Direction(this, left, right, leftToRightName, rule);
+			toLeft = new Direction(this, right, left, rightToLeftName, rule);
+		}
+
+		void register(Selector selector) throws IOException {
+			if (stats != null) {
+				stats.registerPump(toRight);
+				stats.registerPump(toLeft);
+			}
+			leftKey = left.register(selector, OP_READ, this);
+			rightKey = right.register(selector, OP_READ, this);
+		}
+
+		void handle(SelectionKey key) throws IOException {
+			boolean isLeft = key == leftKey;
+			// the channel of the key is the target of one direction and the source of the other one
+			if (key.isWritable() && !flush(isLeft ? toLeft : toRight))
+				return;
+			if (key.isReadable() && !transfer(isLeft ? toRight : toLeft))
+				return;
+			updateInterestOps();
+		}
+
+		/**
+		 * @return false, if the tunnel has been closed
+		 */
+		private boolean transfer(Direction d) throws IOException {
+			if (d.pending != null || d.eof)
+				return true;
+			ByteBuffer buffer = acquireBuffer();
+			int read = d.from.read(buffer);
+			if (read < 0) {
+				releaseBuffer(buffer);
+				d.eof = true;
+				return end(d);
+			}
+			if (stats != null)
+				d.bytesTransferred.addAndGet(read);
+			buffer.flip();
+			d.pending = buffer;
+			return flush(d);
+		}
+
+		/**
+		 * @return false, if the tunnel has been closed
+		 */
+		private boolean flush(Direction d) throws IOException {
+			if (d.pending == null)
+				return true;
+			d.to.write(d.pending);
+			if (!d.pending.hasRemaining()) {
+				releaseBuffer(d.pending);
+				d.pending = null;
+				if (d.eof)
+					return end(d);
+			}
+			return true;
+		}
+
+		/**
+		 * Passes the end of the stream on to the target, once all data has been written, by shutting down its output.
+		 * The other direction keeps going until it ends as well.
+		 *
+		 * @return false, if the tunnel has been closed
+		 */
+		private boolean end(Direction d) throws IOException {
+			if (d.pending != null)
+				return true;
+			if (!d.ended) {
+				d.ended = true;
+				d.to.shutdownOutput();
+			}
+			if (toRight.ended && toLeft.ended) {
+				close();
+				return false;
+			}
+			return true;
+		}
+
+		private void updateInterestOps() {
+			leftKey.interestOps((toRight.pending == null && !toRight.eof ? OP_READ : 0) | (toLeft.pending != null ? OP_WRITE : 0));
+			rightKey.interestOps((toLeft.pending == null && !toLeft.eof ? OP_READ : 0) | (toRight.pending != null ? OP_WRITE : 0));
+		}
+
+		void close() {
+			if (closed)
+				return;
+			closed = true;
+			numberOfTunnels.decrementAndGet();
+			selector.tunnels.remove(this);
+			if (leftKey != null)
+				leftKey.cancel();
+			if (rightKey != null)
+				rightKey.cancel();
+			closeQuietly(left);
+			closeQuietly(right);
+			for (Direction d : List.of(toRight, toLeft)) {
+				if (d.pending != null) {
+					releaseBuffer(d.pending);
+					d.pending = null;
+				}
+				if (stats != null)
+					stats.unregisterPump(d);
+			}
+			try {
+				onClose.run();
+			} catch (RuntimeException e) {
+				log.debug("", e);
+			}
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			log.debug("Closing tunnel channel.", e);
+		}
+	}
+
+	private static class RelaySelector extends Thread {
+		private final Selector selector;
+		private final Queue<Tunnel> toRegister = new ConcurrentLinkedQueue<>();
+		private final Queue<Tunnel> toClose = new ConcurrentLinkedQueue<>();
+		// only accessed by the selector thread
+		private final Set<Tunnel> tunnels = new HashSet<>();
+		private volatile boolean closed;
+
+		RelaySelector(String name) throws IOException {
+			selector = Selector.open();
+			setName(name);
+			setDaemon(true);
+		}
+
+		void register(Tunnel tunnel) {
+			toRegister.add(tunnel);
+			selector.wakeup();
+		}
+
+		void closeLater(Tunnel tunnel) {
+			toClose.add(tunnel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!closed) {
+					selector.select();
+					registerTunnels();
+					closeTunnels();
+					for (SelectionKey key : selector.selectedKeys()) {
+						Tunnel tunnel = (Tunnel) key.attachment();
+						try {
+							if (key.isValid())
+								tunnel.handle(key);
+						} catch (IOException | CancelledKeyException e) {
+							log.debug("Closing tunnel: " + e);
+							close(tunnel);
+						}
+					}
+					selector.selectedKeys().clear();
+				}
+			} catch (Exception e) {
+				log.error("", e);
+			} finally {
+				closeAll();
+			}
+		}
+
+		private void registerTunnels() {
+			Tunnel tunnel;
+			while ((tunnel = toRegister.poll()) != null) {
+				try {
+					tunnel.register(selector);
+					tunnels.add(tunnel);
+				} catch (IOException e) {
+					tunnel.close();
+				}
+			}
+		}
+
+		private void closeTunnels() {
+			Tunnel tunnel;
+			while ((tunnel = toClose.poll()) != null)
+				close(tunnel);
+		}
+
+		private void close(Tunnel tunnel) {
+			tunnel.close();
+		}
+
+		private void closeAll() {
+			registerTunnels();
+			for (Tunnel tunnel : new ArrayList<>(tunnels))
+				tunnel.close();
+			try {
+				selector.close();
+			} catch (IOException e) {
+				log.debug("Closing selector.", e);
+			}
+		}
+
+		void close() {
+			closed = true;
+			selector.wakeup();
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -21,6 +21,7 @@ import com.predic8.membrane.core.rules.Rule;
 import com.predic8.membrane.core.transport.ws.WebSocketFrame;
 import com.predic8.membrane.core.transport.ws.WebSocketFrameAssembler;
 import com.predic8.membrane.core.transport.ws.WebSocketInterceptorInterface;
+import com.predic8.membrane.core.transport.ws.PerMessageDeflate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,7 @@ public class WebSocketStreamPump extends StreamPump {
     public WebSocketStreamPump(InputStream in, OutputStream out, StreamPumpStats stats, String name, Rule rule, boolean pumpsToRight, Exchange originalExchange) {
         super(in, out, stats, name, rule);
         this.pumpsToRight = pumpsToRight;
+        this.originalExchange = originalExchange;
         frameAssembler = new WebSocketFrameAssembler(in, originalExchange);
         for (Interceptor i : rule.getInterceptors()) {
             if (i instanceof WebSocketInterceptor) {
@@ -61,14 +63,29 @@ public class WebSocketStreamPump extends StreamPump {
     private final boolean pumpsToRight;
     boolean connectionIsOpen = true;
     WebSocketFrameAssembler frameAssembler;
+    private final Exchange originalExchange;
+    private boolean negotiated;
+    /**
+     * decodes the frames read by this pump and encodes the frames written to {@link #out}: both travel in the same
+     * direction
+     */
+    private PerMessageDeflate.Codec codec;
 
     @Override
     public void run() {
         if (otherStreamPump == null)
             throw new RuntimeException("Call init with other WebSocketStreamPump (backward direction)");
+        if (chain.isEmpty()) {
+            // frames are not inspected: no need to parse them
+            super.run();
+            return;
+        }
+        PerMessageDeflate.Codec decoder = getCodec();
         try {
             frameAssembler.readFrames(frame -> {
                 try {
+                    if (decoder != null)
+                        decoder.decode(frame);
                     if (pumpsToRight) {
                         //System.out.println("==client to server==");
                         passFrameToChainElement(0, true, frame);
@@ -96,26 +113,35 @@ public class WebSocketStreamPump extends StreamPump {
     }
 
     private void passFrameToChainElement(int i, boolean frameTravelsToRight, WebSocketFrame frame) throws Exception {
-        if (chain.isEmpty()) {
-            if (true)
-                synchronized (out) {
-                    frame.write(out);
-                }
-            return;
-        }
         if (i == -1) {
-            OutputStream target = pumpsToRight ? otherStreamPump.out : out;
-            synchronized (target) {
-                frame.write(target);
-            }
+            (pumpsToRight ? otherStreamPump : this).write(frame);
         } else if (chain.size() == i) {
-            OutputStream target = pumpsToRight ? out : otherStreamPump.out;
-            synchronized (target) {
-                frame.write(target);
-            }
+            (pumpsToRight ? this : otherStreamPump).write(frame);
         } else {
             chain.get(i).handleFrame(frame, frameTravelsToRight, frame1 -> passFrameToChainElement(i + (frameTravelsToRight ? 1 : -1), frameTravelsToRight, frame1));
         }
     }
 
+    /**
+     * The handshake has completed when the pumps are started. (This might be called by the other pump first, if a
+     * WebSocket interceptor turns a frame around.)
+     */
+    private synchronized PerMessageDeflate.Codec getCodec() {
+        if (!negotiated) {
+            PerMessageDeflate deflate = PerMessageDeflate.negotiated(pumpsToRight ? originalExchange : otherStreamPump.originalExchange);
+            codec = deflate == null ? null : deflate.getCodec(pumpsToRight);
+            negotiated = true;
+        }
+        return codec;
+    }
+
+    private void write(WebSocketFrame frame) throws Exception {
+        PerMessageDeflate.Codec encoder = getCodec();
+        synchronized (out) {
+            if (encoder != null)
+                encoder.encode(frame);
+            frame.write(out);
+        }
+    }
+
 }
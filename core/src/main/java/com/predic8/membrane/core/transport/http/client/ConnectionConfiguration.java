@@ -24,6 +24,10 @@ public class ConnectionConfiguration {
 	private long keepAliveTimeout = 4000;
 	private int connectTimeout = 10000;
 	private String localAddr;
+	private int maxIdlePerDestination = -1;
+	private int maxTotalPerDestination = -1;
+	private long connectionRequestTimeout = 10000;
+	private int maxHttp2ConnectionsPerDestination = 4;
 
 	@Override
 	public boolean equals(Object o) {
@@ -32,12 +36,17 @@ public class ConnectionConfiguration {
 		ConnectionConfiguration that = (ConnectionConfiguration) o;
 		return keepAliveTimeout == that.keepAliveTimeout
 				&& connectTimeout == that.connectTimeout
-				&& Objects.equals(localAddr, that.localAddr);
+				&& Objects.equals(localAddr, that.localAddr)
+				&& maxIdlePerDestination == that.maxIdlePerDestination
+				&& maxTotalPerDestination == that.maxTotalPerDestination
+				&& connectionRequestTimeout == that.connectionRequestTimeout
+				&& maxHttp2ConnectionsPerDestination == that.maxHttp2ConnectionsPerDestination;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(keepAliveTimeout, connectTimeout, localAddr);
+		return Objects.hash(keepAliveTimeout, connectTimeout, localAddr, maxIdlePerDestination, maxTotalPerDestination,
+				connectionRequestTimeout, maxHttp2ConnectionsPerDestination);
 	}
 
 	public long getKeepAliveTimeout() {
@@ -80,4 +89,63 @@ public class ConnectionConfiguration {
 	public void setLocalAddr(String localAddr) {
 		this.localAddr = localAddr;
 	}
+
+	public int getMaxIdlePerDestination() {
+		return maxIdlePerDestination;
+	}
+
+	/**
+	 * @description Maximum number of idle connections kept open to one server. Connections released beyond this
+	 * number are closed. -1 means no limit.
+	 * @default -1
+	 * @example 20
+	 */
+	@MCAttribute
+	public void setMaxIdlePerDestination(int maxIdlePerDestination) {
+		this.maxIdlePerDestination = maxIdlePerDestination;
+	}
+
+	public int getMaxTotalPerDestination() {
+		return maxTotalPerDestination;
+	}
+
+	/**
+	 * @description Maximum number of connections (in use or idle) to one server. When all of them are in use, a
+	 * request waits for one to be released (see connectionRequestTimeout). -1 means no limit.
+	 * @default -1
+	 * @example 100
+	 */
+	@MCAttribute
+	public void setMaxTotalPerDestination(int maxTotalPerDestination) {
+		this.maxTotalPerDestination = maxTotalPerDestination;
+	}
+
+	public long getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * @description Time in milliseconds to wait for a connection to a server, when maxTotalPerDestination connections
+	 * are already in use. 0 means to wait indefinitely.
+	 * @default 10000
+	 */
+	@MCAttribute
+	public void setConnectionRequestTimeout(long connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	public int getMaxHttp2ConnectionsPerDestination() {
+		return maxHttp2ConnectionsPerDestination;
+	}
+
+	/**
+	 * @description Maximum number of HTTP/2 connections to one server which are opened ahead of saturation, i.e.
+	 * when the existing connections use 3/4 of the concurrent streams the server allows. Once all connections are
+	 * saturated, a new connection is opened for every further request.
+	 * @default 4
+	 */
+	@MCAttribute
+	public void setMaxHttp2ConnectionsPerDestination(int maxHttp2ConnectionsPerDestination) {
+		this.maxHttp2ConnectionsPerDestination = maxHttp2ConnectionsPerDestination;
+	}
 }
@@ -35,6 +35,7 @@ public class HttpClientConfiguration implements ApplicationContextAware {
 	private SSLParser sslParser;
 	private String baseLocation;
 	private boolean useExperimentalHttp2;
+	private boolean useExperimentalH2c;
 
 	@Override
 	public boolean equals(Object o) {
@@ -43,6 +44,7 @@ public class HttpClientConfiguration implements ApplicationContextAware {
 		HttpClientConfiguration that = (HttpClientConfiguration) o;
 		return maxRetries == that.maxRetries
 				&& useExperimentalHttp2 == that.useExperimentalHttp2
+				&& useExperimentalH2c == that.useExperimentalH2c
 				&& Objects.equals(connection, that.connection)
 				&& Objects.equals(proxy, that.proxy)
 				&& Objects.equals(authentication, that.authentication)
@@ -58,7 +60,8 @@ public class HttpClientConfiguration implements ApplicationContextAware {
 				authentication,
 				sslParser,
 				baseLocation,
-				useExperimentalHttp2);
+				useExperimentalHttp2,
+				useExperimentalH2c);
 	}
 
 	public ConnectionConfiguration getConnection() {
@@ -139,4 +142,20 @@ public class HttpClientConfiguration implements ApplicationContextAware {
 	public void setUseExperimentalHttp2(boolean useExperimentalHttp2) {
 		this.useExperimentalHttp2 = useExperimentalHttp2;
 	}
+
+	public boolean isUseExperimentalH2c() {
+		return useExperimentalH2c;
+	}
+
+	/**
+	 * @description Whether to use HTTP/2 without TLS ("h2c") for plain HTTP targets. The connection is started with
+	 *              the HTTP/2 preface ("prior knowledge"), so the target has to support h2c. Requests are multiplexed
+	 *              onto shared connections. CONNECT requests, requests carrying an "Upgrade" header and requests
+	 *              sent through a proxy use HTTP/1.1.
+	 * @default false
+	 */
+	@MCAttribute
+	public void setUseExperimentalH2c(boolean useExperimentalH2c) {
+		this.useExperimentalH2c = useExperimentalH2c;
+	}
 }
@@ -27,31 +27,46 @@ import java.util.Map;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The FrameSender instance synchronized access to the OutputStream as well as the Encoder.
+ * <p>
+ * Control frames are sent first. DATA frames are then scheduled according to the {@link PriorityTree}; streams which
+ * are not part of the tree (e.g. streams opened by the client side) are served round-robin.
+ * <p>
+ * Frames are collected in a batch buffer, which is written to the OutputStream in one call when it is full or when
+ * there is no further frame to send. The stream is only flushed in the latter case.
  */
 public class FrameSender implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(FrameSender.class.getName());
     private static final int TYPE_STOP = -1;
+    private static final int BATCH_SIZE = 65536;
 
     private final OutputStream out;
     private final Encoder encoder;
     private final Settings peerSettings;
     private final Map<Integer, StreamInfo> streams;
+    private final PriorityTree priorityTree;
     private final String remoteAddr;
     private final LinkedTransferQueue<Frame> queue = new LinkedTransferQueue<>();
     private final AtomicInteger totalBufferedFrames = new AtomicInteger(0);
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition hasFrame = lock.newCondition();
+    private final byte[] batch = new byte[BATCH_SIZE];
+    private int batchLength;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
 
-    public FrameSender(OutputStream out, Encoder encoder, Settings peerSettings, Map<Integer, StreamInfo> streams, String remoteAddr) {
+    public FrameSender(OutputStream out, Encoder encoder, Settings peerSettings, Map<Integer, StreamInfo> streams, PriorityTree priorityTree, String remoteAddr) {
         this.out = out;
         this.encoder = encoder;
         this.peerSettings = peerSettings;
         this.streams = streams;
+        this.priorityTree = priorityTree;
         this.remoteAddr = remoteAddr;
     }
 
@@ -90,14 +105,23 @@ public class FrameSender implements Runnable {
             totalBufferedFrames.decrementAndGet();
             return frame;
         }
-        // TODO: implement prioritization logic
+        frame = priorityTree.pollDataFrame();
+        if (frame == null)
+            frame = pollUnprioritizedDataFrame();
+        if (frame != null) {
+            streams.get(frame.getStreamId()).getBufferedDataFrames().release();
+            totalBufferedFrames.decrementAndGet();
+        }
+        return frame;
+    }
+
+    private Frame pollUnprioritizedDataFrame() {
         for (StreamInfo streamInfo : streams.values()) {
-            frame = streamInfo.getDataFramesToBeSent().poll();
-            if (frame != null) {
-                streamInfo.getBufferedDataFrames().release();
-                totalBufferedFrames.decrementAndGet();
+            if (streamInfo.getPriorityParent() != null)
+                continue;
+            Frame frame = streamInfo.getDataFramesToBeSent().poll();
+            if (frame != null)
                 return frame;
-            }
         }
         return null;
     }
@@ -105,7 +129,8 @@ public class FrameSender implements Runnable {
     private Frame waitForNextFrame() throws InterruptedException {
         lock.lock();
         try {
-            hasFrame.await(1000, TimeUnit.MILLISECONDS);
+            if (totalBufferedFrames.get() == 0)
+                hasFrame.await(1000, TimeUnit.MILLISECONDS);
         } finally {
             lock.unlock();
         }
@@ -120,6 +145,7 @@ public class FrameSender implements Runnable {
             while (true) {
                 Frame frame = getNextFrame();
                 if (frame == null) {
+                    writeBatch();
                     out.flush();
                     log.debug("found no frame to send, starting wait loop.");
                     while (frame == null)
@@ -127,8 +153,11 @@ public class FrameSender implements Runnable {
                     log.debug("found another frame to send.");
                 }
 
-                if (frame.getType() == TYPE_STOP)
+                if (frame.getType() == TYPE_STOP) {
+                    writeBatch();
+                    out.flush();
                     break;
+                }
 
                 if (frame.getType() == Frame.TYPE_RST_STREAM)
                     streams.get(frame.getStreamId()).sendRstStream();
@@ -146,7 +175,7 @@ public class FrameSender implements Runnable {
                 else if (log.isDebugEnabled())
                     log.debug("sending: " + frame.getTypeString() + " length=" + frame.getLength());
 
-                frame.write(out);
+                append(frame);
             }
         } catch (Throwable e) {
             e.printStackTrace();
@@ -156,13 +185,74 @@ public class FrameSender implements Runnable {
         log.debug("frame sender shutdown");
     }
 
+    private void append(Frame frame) throws IOException {
+        int length = 9 + frame.getLength();
+        if (batchLength + length > BATCH_SIZE)
+            writeBatch();
+        framesWritten.incrementAndGet();
+        if (length > BATCH_SIZE) {
+            frame.write(out);
+            writes.incrementAndGet();
+            bytesWritten.addAndGet(length);
+            return;
+        }
+        int l = frame.getLength();
+        batch[batchLength++] = (byte) (l >> 16);
+        batch[batchLength++] = (byte) (l >> 8);
+        batch[batchLength++] = (byte) l;
+        batch[batchLength++] = (byte) frame.getType();
+        batch[batchLength++] = (byte) frame.getFlags();
+        int streamId = frame.getStreamId();
+        batch[batchLength++] = (byte) ((streamId >> 24) & 0x7F);
+        batch[batchLength++] = (byte) (streamId >> 16);
+        batch[batchLength++] = (byte) (streamId >> 8);
+        batch[batchLength++] = (byte) streamId;
+        if (l > 0) {
+            System.arraycopy(frame.getContent(), 0, batch, batchLength, l);
+            batchLength += l;
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        if (batchLength == 0)
+            return;
+        out.write(batch, 0, batchLength);
+        writes.incrementAndGet();
+        bytesWritten.addAndGet(batchLength);
+        batchLength = 0;
+    }
+
     public void stop() {
         Frame e = new Frame();
         e.fill(TYPE_STOP, 0, 0, null, 0, 0);
         queue.add(e);
+        totalBufferedFrames.incrementAndGet();
         fire();
     }
 
+    /**
+     * @return the number of frames waiting to be sent
+     */
+    public int getQueueDepth() {
+        return totalBufferedFrames.get();
+    }
+
+    /**
+     * @return the number of write calls issued on the OutputStream. {@link #getFramesWritten()} divided by this
+     * value is the average number of frames coalesced per write.
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
     private void updateThreadName(boolean fromConnection) {
         if (fromConnection) {
             String sb = "HTTP2 Frame Sender " +
@@ -24,8 +24,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.GuardedBy;
+import javax.net.ssl.SSLSocket;
 import java.io.IOException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.predic8.membrane.core.transport.http2.Http2ExchangeHandler.createHeadersFrames;
 import static com.predic8.membrane.core.transport.http2.Http2ExchangeHandler.writeMessageBody;
@@ -40,17 +43,30 @@ public class Http2Client implements Runnable, AutoCloseable {
     private final ConcurrentHashMap<Integer, ResponseInfo> responses = new ConcurrentHashMap<>();
     private final Connection con;
     private final Http2Logic logic;
+    private final String scheme;
     @GuardedBy("this")
     private int reserved;
+    /**
+     * Number of streams opened by this client which have not been closed yet.
+     */
+    private final AtomicInteger inUse = new AtomicInteger();
+    /**
+     * Set once the peer sent GOAWAY or the connection failed: no new streams are started.
+     */
+    private volatile boolean draining;
+    @GuardedBy("this")
+    private boolean retired;
 
     private static class ResponseInfo {
         private final CountDownLatch cdl = new CountDownLatch(1);
         private Response response;
+        private IOException error;
     }
 
 
     public Http2Client(Connection con, boolean showSSLExceptions) {
         this.con = con;
+        this.scheme = con.socket instanceof SSLSocket ? "https" : "http";
         this.logic = new Http2Logic(executor, con.socket, con.in, con.out, showSSLExceptions, new Http2MessageHandler() {
             @Override
             public Message createMessage() {
@@ -67,6 +83,13 @@ public class Http2Client implements Runnable, AutoCloseable {
                     ri.cdl.countDown();
                 }
             }
+
+            @Override
+            public void goawayReceived(int lastStreamId, int errorCode) {
+                LOG.debug("received GOAWAY, lastStreamId=" + lastStreamId + " errorCode=" + errorCode);
+                draining = true;
+                failPendingResponses(lastStreamId, "Stream was not processed by the server (GOAWAY).");
+            }
         });
 
         Thread thread = new Thread(this);
@@ -78,28 +101,48 @@ public class Http2Client implements Runnable, AutoCloseable {
         synchronized(this) {
             if (reserved > 0)
                 reserved--;
+            if (draining)
+                throw new IOException("HTTP/2 connection is draining.");
             streamId = logic.nextClientStreamId.getAndAccumulate(2, Integer::sum);
+            inUse.incrementAndGet();
         }
-        // TODO: check number of concurrent streams
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true))
+                releaseStream();
+        };
         ResponseInfo ri = new ResponseInfo();
         responses.put(streamId, ri);
         try {
+            // the connection might have started draining before the response could be registered
+            if (draining)
+                throw new IOException("HTTP/2 connection is draining.");
             StreamInfo streamInfo = new StreamInfo(streamId, logic.sender, logic.peerSettings, logic.ourSettings);
+            streamInfo.setOnClosed(release);
             logic.streams.put(streamId, streamInfo);
 
-            logic.sender.send(streamId, (encoder, peerSettings) -> createHeadersFrames(exc.getRequest(), exc.getRequest().getHeader(), streamId, encoder, peerSettings, false));
+            logic.sender.send(streamId, (encoder, peerSettings) -> createHeadersFrames(exc.getRequest(), exc.getRequest().getHeader(), streamId, encoder, peerSettings, false, scheme));
 
             writeMessageBody(streamId, streamInfo, logic.sender, logic.peerSettings, logic.peerFlowControl, exc.getRequest());
 
-            // TODO: handle error/exception
             ri.cdl.await();
 
+            if (ri.response == null)
+                throw ri.error;
             return ri.response;
         } finally {
             responses.remove(streamId);
+            // the stream will not be closed regularly, if it failed before a response was received
+            if (ri.response == null)
+                release.run();
         }
     }
 
+    private synchronized void releaseStream() {
+        inUse.decrementAndGet();
+        notifyAll();
+    }
+
     @Override
     public void run() {
         try {
@@ -113,12 +156,25 @@ public class Http2Client implements Runnable, AutoCloseable {
         } catch (Exception e) {
             if (logic.receiving)
                 e.printStackTrace();
-            // TODO: notify threads waiting on responses
         } finally {
+            draining = true;
+            failPendingResponses(0, "HTTP/2 connection closed.");
             updateThreadName(false);
         }
     }
 
+    private void failPendingResponses(int lastStreamId, String message) {
+        for (var e : responses.entrySet()) {
+            if (e.getKey() <= lastStreamId)
+                continue;
+            ResponseInfo ri = e.getValue();
+            if (ri.response == null && ri.error == null) {
+                ri.error = new IOException(message);
+                ri.cdl.countDown();
+            }
+        }
+    }
+
     private void updateThreadName(boolean fromConnection) {
         if (fromConnection) {
             Thread.currentThread().setName("HTTP2 Client " +
@@ -133,10 +189,12 @@ public class Http2Client implements Runnable, AutoCloseable {
     }
 
     public boolean reserveStream() {
-        int max = getMax();
+        int max = getMaxConcurrentStreams();
 
         synchronized(this) {
-            int current = logic.streams.size() + reserved;
+            if (retired || draining)
+                return false;
+            int current = inUse.get() + reserved;
             if (current < 0 || current >= max)
                 return false;
             reserved += 1;
@@ -144,7 +202,17 @@ public class Http2Client implements Runnable, AutoCloseable {
         }
     }
 
-    private int getMax() {
+    /**
+     * @return the number of streams in use or reserved
+     */
+    public synchronized int getStreamsInUse() {
+        return inUse.get() + reserved;
+    }
+
+    /**
+     * @return the peer's SETTINGS_MAX_CONCURRENT_STREAMS, or Integer.MAX_VALUE if unlimited
+     */
+    public int getMaxConcurrentStreams() {
         int max = logic.peerSettings.getMaxConcurrentStreams();
         if (max == -1)
             return Integer.MAX_VALUE;
@@ -171,10 +239,38 @@ public class Http2Client implements Runnable, AutoCloseable {
     }
 
     public boolean isIdle() {
-        for (StreamInfo value : logic.streams.values()) {
-            if (value.getState() != StreamState.CLOSED)
+        return getStreamsInUse() == 0;
+    }
+
+    /**
+     * Waits until no stream is in use or reserved. Streams are released by the reader thread, when they are closed.
+     *
+     * @return whether the client became idle within the timeout
+     */
+    public synchronized boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isIdle()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
                 return false;
+            wait(remaining);
         }
         return true;
     }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Marks the client as retired, if it is idle. A retired client does not accept new streams and can be closed.
+     *
+     * @return whether the client has been retired
+     */
+    public synchronized boolean retireIfIdle() {
+        if (!isIdle())
+            return false;
+        retired = true;
+        return true;
+    }
 }
@@ -20,21 +20,53 @@ import com.predic8.membrane.core.transport.ssl.SSLProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.concurrent.GuardedBy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Pool of HTTP/2 connections, grouped by destination.
+ * <p>
+ * A stream is reserved on the least loaded connection to the destination. When the best connection uses 3/4 of the
+ * streams the peer allows (SETTINGS_MAX_CONCURRENT_STREAMS), the caller is asked to open another connection ahead
+ * of saturation, as long as there are fewer than maxConnectionsPerDestination connections. Once all connections
+ * are saturated, a new connection is opened for every further request.
+ * <p>
+ * Connections which received GOAWAY are drained: they do not get new streams and are closed once their streams
+ * have completed.
+ */
 public class Http2ClientPool {
 
     private static Logger log = LoggerFactory.getLogger(Http2ClientPool.class.getName());
 
+    private static final long OPEN_AHEAD_INTERVAL = SECONDS.toNanos(1);
+
     private final long keepAliveTimeout;
-    @GuardedBy("availableConnections")
-    private final HashMap<ConnectionKey, ArrayList<Http2Client>> availableConnections = new HashMap<>();
+    private final int maxConnectionsPerDestination;
+    private final ConcurrentHashMap<ConnectionKey, Destination> destinations = new ConcurrentHashMap<>();
     private final Timer timer;
     private volatile boolean shutdownWhenDone = false;
 
-    public Http2ClientPool(long keepAliveTimeout) {
+    private static class Destination {
+        private final List<Http2Client> clients = new CopyOnWriteArrayList<>();
+        /**
+         * The earliest time (as System.nanoTime()) another connection may be opened ahead of saturation.
+         */
+        private final AtomicLong nextOpenAhead = new AtomicLong(System.nanoTime());
+
+        private boolean mayOpenAhead() {
+            long now = System.nanoTime();
+            long next = nextOpenAhead.get();
+            return now - next >= 0 && nextOpenAhead.compareAndSet(next, now + OPEN_AHEAD_INTERVAL);
+        }
+    }
+
+    public Http2ClientPool(long keepAliveTimeout, int maxConnectionsPerDestination) {
         this.keepAliveTimeout = keepAliveTimeout;
+        this.maxConnectionsPerDestination = maxConnectionsPerDestination;
         long autoCloseInterval = keepAliveTimeout * 2;
         timer = new Timer("Connection Closer", true);
         timer.schedule(new TimerTask() {
@@ -46,26 +78,81 @@ public class Http2ClientPool {
         }, autoCloseInterval, autoCloseInterval);
     }
 
+    /**
+     * @return a client with a reserved stream, or null if the caller should open a new connection and
+     * {@link #share} it
+     */
     public Http2Client reserveStream(String host, int port, SSLProvider sslProvider, String sniServerName, ProxyConfiguration proxy, SSLContext proxySSLContext) {
         ConnectionKey key = new ConnectionKey(host, port, sslProvider, sniServerName, proxy, proxySSLContext, null);
-        synchronized(availableConnections) {
-            ArrayList<Http2Client> http2Clients = availableConnections.get(key);
-            if (http2Clients == null)
+        Destination destination = destinations.get(key);
+        if (destination == null)
+            return null;
+        for (int attempt = 0; attempt <= destination.clients.size(); attempt++) {
+            Http2Client best = null;
+            int bestInUse = Integer.MAX_VALUE;
+            int usable = 0;
+            for (Http2Client client : destination.clients) {
+                if (client.isDraining())
+                    continue;
+                usable++;
+                int inUse = client.getStreamsInUse();
+                if (inUse < client.getMaxConcurrentStreams() && inUse < bestInUse) {
+                    best = client;
+                    bestInUse = inUse;
+                }
+            }
+            if (best == null)
+                return null;
+            if (usable < maxConnectionsPerDestination && isNearlySaturated(bestInUse, best.getMaxConcurrentStreams()) && destination.mayOpenAhead()) {
+                log.debug("opening another connection to " + host + ":" + port + " ahead of saturation.");
                 return null;
-            for (Http2Client h2c : http2Clients) {
-                if (h2c.reserveStream())
-                    return h2c;
             }
+            if (best.reserveStream())
+                return best;
         }
         return null;
     }
 
+    private static boolean isNearlySaturated(int inUse, int max) {
+        return max != Integer.MAX_VALUE && inUse >= max - max / 4;
+    }
+
     public void share(String host, int port, SSLProvider sslProvider, String sniServerName, ProxyConfiguration proxy, SSLContext proxySSLContext, Http2Client h2c) {
         ConnectionKey key = new ConnectionKey(host, port, sslProvider, sniServerName, proxy, proxySSLContext, null);
-        synchronized(availableConnections) {
-            ArrayList<Http2Client> http2Clients = availableConnections.computeIfAbsent(key, k -> new ArrayList<>());
-            http2Clients.add(h2c);
-        }
+        destinations.compute(key, (k, destination) -> {
+            if (destination == null)
+                destination = new Destination();
+            destination.clients.add(h2c);
+            return destination;
+        });
+    }
+
+    /**
+     * @return the number of streams in use on each connection, by destination
+     */
+    public Map<ConnectionKey, List<Integer>> getStreamsInUse() {
+        Map<ConnectionKey, List<Integer>> result = new HashMap<>();
+        destinations.forEach((key, destination) -> {
+            List<Integer> l = new ArrayList<>();
+            for (Http2Client client : destination.clients)
+                l.add(client.getStreamsInUse());
+            result.put(key, l);
+        });
+        return result;
+    }
+
+    /**
+     * Waits until no stream is in use or reserved on any connection.
+     *
+     * @return whether all connections became idle within the timeout
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Destination destination : destinations.values())
+            for (Http2Client client : destination.clients)
+                if (!client.awaitIdle(Math.max(1, deadline - System.currentTimeMillis())))
+                    return false;
+        return true;
     }
 
     public void shutdownWhenDone() {
@@ -73,33 +160,18 @@ public class Http2ClientPool {
     }
 
     private int closeOldConnections() {
-        ArrayList<ConnectionKey> toRemove = new ArrayList<>();
-        ArrayList<Http2Client> toClose = new ArrayList<>();
+        List<Http2Client> toClose = new ArrayList<>();
         log.trace("closing old connections");
-        int closed = 0, remaining;
-        synchronized(availableConnections) {
-            // close connections after their timeout
-            for (Map.Entry<ConnectionKey, ArrayList<Http2Client>> e : availableConnections.entrySet()) {
-                ArrayList<Http2Client> l = e.getValue();
-                for (int i = 0; i < l.size(); i++) {
-                    Http2Client o = l.get(i);
-                    if (o.isIdle()) {
-                        // replace [i] by [last]
-                        if (i == l.size() - 1)
-                            l.remove(i);
-                        else
-                            l.set(i, l.remove(l.size() - 1));
-                        --i;
-                        closed++;
-                        toClose.add(o);
+        for (ConnectionKey key : destinations.keySet()) {
+            destinations.computeIfPresent(key, (k, destination) -> {
+                for (Http2Client client : destination.clients) {
+                    if (client.retireIfIdle()) {
+                        destination.clients.remove(client);
+                        toClose.add(client);
                     }
                 }
-                if (l.isEmpty())
-                    toRemove.add(e.getKey());
-            }
-            for (ConnectionKey remove : toRemove)
-                availableConnections.remove(remove);
-            remaining = availableConnections.size();
+                return destination.clients.isEmpty() ? null : destination;
+            });
         }
         for (Http2Client c : toClose) {
             try {
@@ -108,9 +180,9 @@ public class Http2ClientPool {
                 // do nothing
             }
         }
-        if (closed != 0)
-            log.debug("closed " + closed + " connections");
-        return remaining;
+        if (!toClose.isEmpty())
+            log.debug("closed " + toClose.size() + " connections");
+        return destinations.size();
     }
 
 }
@@ -249,6 +249,13 @@ public class Http2ExchangeHandler implements Runnable {
     }
 
     public static List<Frame> createHeadersFrames(Message res, Header header, int streamId, Encoder encoder, Settings peerSettings, boolean isAtEof) throws IOException {
+        return createHeadersFrames(res, header, streamId, encoder, peerSettings, isAtEof, "https");
+    }
+
+    /**
+     * @param scheme the value of the ":scheme" pseudo-header, if res is a request
+     */
+    public static List<Frame> createHeadersFrames(Message res, Header header, int streamId, Encoder encoder, Settings peerSettings, boolean isAtEof, String scheme) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
         encoder.setMaxHeaderTableSize(baos, peerSettings.getHeaderTableSize());
@@ -263,7 +270,7 @@ public class Http2ExchangeHandler implements Runnable {
 
         if (res instanceof Request req) {
             encodeHeader(encoder, baos, sb, ":method", req.getMethod());
-            encodeHeader(encoder, baos, sb, ":scheme", "https");
+            encodeHeader(encoder, baos, sb, ":scheme", scheme);
             encodeHeader(encoder, baos, sb, ":path", req.getUri());
             encodeHeader(encoder, baos, sb, ":authority", req.getHeader().getHost());
         }
@@ -273,7 +280,7 @@ public class Http2ExchangeHandler implements Runnable {
 
         for (HeaderField hf : header.getAllHeaderFields()) {
             String key = hf.getHeaderName().toString().toLowerCase();
-            if ("keep-alive".equals(key) || "proxy-connection".equals(key) || "transfer-encoding".equals(key) || "upgrade".equals(key) || "connection".equals(key) || "host".equals(key))
+            if ("keep-alive".equals(key) || "proxy-connection".equals(key) || "transfer-encoding".equals(key) || "upgrade".equals(key) || "connection".equals(key) || "host".equals(key) || "http2-settings".equals(key))
                 continue;
 
             encodeHeader(encoder, baos, sb, key, hf.getValue());
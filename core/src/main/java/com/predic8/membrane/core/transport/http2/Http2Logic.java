@@ -70,7 +70,7 @@ public class Http2Logic {
         int maxHeaderTableSize = 4096; // TODO: update with SETTINGS_HEADER_TABLE_SIZE https://datatracker.ietf.org/doc/html/rfc9113#section-4.3.1
         decoder = new Decoder(MAX_LINE_LENGTH, maxHeaderTableSize);
         // TODO: update this value
-        this.sender = new FrameSender(srcOut, new Encoder(maxHeaderTableSize), peerSettings, streams, remoteAddr);
+        this.sender = new FrameSender(srcOut, new Encoder(maxHeaderTableSize), peerSettings, streams, priorityTree, remoteAddr);
         flowControl = new FlowControl(0, sender, ourSettings);
         peerFlowControl = new PeerFlowControl(0, sender, peerSettings);
 
@@ -160,7 +160,7 @@ public class Http2Logic {
         if (goawayFrame.getFrame().getStreamId() != 0)
             throw new FatalConnectionException(ERROR_PROTOCOL_ERROR);
 
-        // TODO: implement this, once sending PUSH_PROMISE is implemented
+        messageHandler.goawayReceived(goawayFrame.getLastStreamId(), goawayFrame.getErrorCode());
     }
 
     private void handleFrame(RstStreamFrame rstStream) throws IOException {
@@ -394,6 +394,11 @@ public class Http2Logic {
             return;
         }
 
+        applySettings(settings);
+        sender.send(SettingsFrame.ack());
+    }
+
+    private void applySettings(SettingsFrame settings) throws IOException {
         for (int i = 0; i < settings.getSettingsCount(); i++) {
             long settingsValue = settings.getSettingsValue(i);
             switch (settings.getSettingsId(i)) {
@@ -438,7 +443,29 @@ public class Http2Logic {
                 default -> System.err.println("not implemented: setting " + settings.getSettingsId(i));
             }
         }
-        sender.send(SettingsFrame.ack());
+    }
+
+    /**
+     * Continues a connection which has been upgraded from HTTP/1.1 to "h2c" (RFC 7540, section 3.2): The settings
+     * from the "HTTP2-Settings" header are applied without acknowledgement, and the request which carried the upgrade
+     * is handled as stream 1 in the "half-closed (remote)" state.
+     */
+    public void upgrade(byte[] settingsPayload, Message request) throws IOException {
+        if (settingsPayload.length % 6 != 0)
+            throw new FatalConnectionException(ERROR_FRAME_SIZE_ERROR);
+        Frame frame = new Frame(ourSettings);
+        frame.fill(TYPE_SETTINGS, 0, 0, settingsPayload, 0, settingsPayload.length);
+        applySettings(frame.asSettings());
+
+        StreamInfo streamInfo = new StreamInfo(1, sender, peerSettings, ourSettings);
+        streams.put(1, streamInfo);
+        streamInfo.receivedHeaders();
+        priorityTree.reprioritize(streamInfo, 16, null, false);
+        streamInfo.setMessage(request);
+
+        messageHandler.handleExchange(streamInfo, request, showSSLExceptions, remoteAddr);
+
+        streamInfo.receivedEndStream(false);
     }
 
 }
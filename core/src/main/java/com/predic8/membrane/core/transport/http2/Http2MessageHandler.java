@@ -21,4 +21,11 @@ public interface Http2MessageHandler {
 
     void handleExchange(StreamInfo streamInfo, Message message, boolean showSSLExceptions, String remoteAddr);
 
+    /**
+     * Called when the peer sent GOAWAY: streams with higher IDs than lastStreamId have not been and will not be
+     * processed by the peer.
+     */
+    default void goawayReceived(int lastStreamId, int errorCode) {
+    }
+
 }
@@ -75,15 +75,33 @@ public class Http2ServerHandler extends AbstractHttpHandler {
     }
 
     public void handle() throws IOException, EndOfStreamException {
-        byte[] preface = ByteUtil.readByteArray(logic.srcIn, 24);
+        readPreface();
 
-        if (!isCorrectPreface(preface))
-            throw new RuntimeException("Incorrect Preface.");
+        logic.init();
+        logic.handle();
+    }
+
+    /**
+     * Handles a connection after the "101 Switching Protocols" response to an "Upgrade: h2c" request has been sent.
+     *
+     * @param request the request which carried the upgrade. Its response is sent on stream 1.
+     * @param settings the decoded "HTTP2-Settings" header
+     */
+    public void handleUpgrade(Request request, byte[] settings) throws IOException, EndOfStreamException {
+        readPreface();
 
         logic.init();
+        logic.upgrade(settings, request);
         logic.handle();
     }
 
+    private void readPreface() throws IOException {
+        byte[] preface = ByteUtil.readByteArray(logic.srcIn, 24);
+
+        if (!isCorrectPreface(preface))
+            throw new RuntimeException("Incorrect Preface.");
+    }
+
     private boolean isCorrectPreface(byte[] preface) {
         if (preface.length != PREFACE.length)
             return false;
@@ -31,12 +31,18 @@ public class PriorityTree {
 
     private final StreamInfo root = new StreamInfo(0, null, null, null);
 
-    public void reprioritize(@NotNull StreamInfo stream, int weight, @Null StreamInfo parent, boolean exclusive) throws IOException {
+    public synchronized void reprioritize(@NotNull StreamInfo stream, int weight, @Null StreamInfo parent, boolean exclusive) throws IOException {
         if (parent == stream)
             throw new FatalConnectionException(ERROR_PROTOCOL_ERROR);
 
         if (parent == null)
             parent = root;
+        else if (parent != root && parent.getPriorityParent() == null) {
+            // the parent was never prioritized or has been pruned: it gets the default priority
+            root.getPriorityChildren().add(parent);
+            parent.setPriorityParent(root);
+            parent.setWeight(16);
+        }
 
         if (log.isDebugEnabled())
             log.debug("reprioritize(streamId=" + stream.getStreamId() + ", weight=" + weight + ", parentStreamId=" + parent.getStreamId() + ", exclusive=" + exclusive + ")");
@@ -68,6 +74,61 @@ public class PriorityTree {
             log.trace("\n" + toString());
     }
 
+    /**
+     * Removes the next DATA frame to send according to the stream priorities (RFC 7540, section 5.3): a stream
+     * is only served if its parent has nothing to send, and siblings share the bandwidth proportionally to their
+     * weights. The share is measured in bytes using stride scheduling.
+     * <p>
+     * Closed streams without children are pruned from the tree on the way.
+     *
+     * @return the frame, or null if no stream in the tree has a frame to send
+     */
+    public synchronized Frame pollDataFrame() {
+        StreamInfo stream = select(root);
+        if (stream == null)
+            return null;
+        Frame frame = stream.getDataFramesToBeSent().poll();
+        if (frame != null)
+            charge(stream, frame.getLength());
+        return frame;
+    }
+
+    private StreamInfo select(StreamInfo node) {
+        if (node != root && !node.getDataFramesToBeSent().isEmpty())
+            return node;
+        List<StreamInfo> children = node.getPriorityChildren();
+        StreamInfo bestChild = null;
+        StreamInfo best = null;
+        for (int i = children.size() - 1; i >= 0; i--) {
+            StreamInfo child = children.get(i);
+            if (bestChild != null && getPass(child, node) >= getPass(bestChild, node))
+                continue;
+            StreamInfo s = select(child);
+            if (s != null) {
+                bestChild = child;
+                best = s;
+            } else if (child.getPriorityChildren().isEmpty() && child.getState() == StreamState.CLOSED) {
+                children.remove(i);
+                child.setPriorityParent(null);
+            }
+        }
+        return best;
+    }
+
+    private static double getPass(StreamInfo child, StreamInfo parent) {
+        // a stream becoming active again must not catch up on the time it was idle
+        return Math.max(child.priorityPass, parent.priorityVirtualTime);
+    }
+
+    private void charge(StreamInfo stream, int length) {
+        for (StreamInfo s = stream; s != root && s.getPriorityParent() != null; s = s.getPriorityParent()) {
+            StreamInfo parent = s.getPriorityParent();
+            double start = getPass(s, parent);
+            parent.priorityVirtualTime = start;
+            s.priorityPass = start + (double) Math.max(1, length) / Math.max(1, s.getWeight());
+        }
+    }
+
     private boolean isChildOf(StreamInfo a, StreamInfo b) {
         StreamInfo p = a;
         while (true) {
@@ -45,8 +45,16 @@ public class StreamInfo {
     private StreamInfo priorityParent = null;
     private StreamState state = StreamState.IDLE;
     private int weight;
+
+    /**
+     * Scheduling state used by {@link PriorityTree}: the virtual time up to which this stream has been served, and
+     * the virtual time of the last child served.
+     */
+    double priorityPass;
+    double priorityVirtualTime;
     private Message message;
     private boolean isTrailer;
+    private Runnable onClosed;
 
     public StreamInfo(int streamId, FrameSender sender, Settings peerSettings, Settings ourSettings) {
         this.streamId = streamId;
@@ -137,8 +145,13 @@ public class StreamInfo {
         this.state = state;
 
         // detach message, since no trailers can follow, once the CLOSED state has been reached
-        if (state == StreamState.CLOSED)
+        if (state == StreamState.CLOSED) {
             message = null;
+            if (onClosed != null) {
+                onClosed.run();
+                onClosed = null;
+            }
+        }
 
         log.debug("streamId=" + streamId + " changed state to " + state);
     }
@@ -170,7 +183,6 @@ public class StreamInfo {
 
     private class Http2Body extends AbstractBody {
 
-        int streamedLength = 0;
         Header trailer;
 
         @Override
@@ -197,8 +209,10 @@ public class StreamInfo {
 
         @Override
         protected void writeAlreadyRead(AbstractBodyTransferrer out) throws IOException {
-            if (getLength() > 0)
-                out.write(getContent(), 0, getLength());
+            read();
+            for (Chunk chunk : chunks)
+                if (chunk.getLength() > 0)
+                    out.write(chunk.getContent(), 0, chunk.getLength());
             out.finish(trailer);
         }
 
@@ -254,7 +268,7 @@ public class StreamInfo {
         }
 
         @Override
-        public int getLength() throws IOException {
+        public long getLength() throws IOException {
             if (wasStreamed())
                 return streamedLength;
             return super.getLength();
@@ -297,6 +311,13 @@ public class StreamInfo {
         this.weight = weight;
     }
 
+    /**
+     * @param onClosed called once, when the stream reaches the "closed" state
+     */
+    public synchronized void setOnClosed(Runnable onClosed) {
+        this.onClosed = onClosed;
+    }
+
     /**
      * Do not use within the logic part.
      */
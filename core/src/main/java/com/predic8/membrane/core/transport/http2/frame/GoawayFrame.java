@@ -76,4 +76,12 @@ public class GoawayFrame {
     public Frame getFrame() {
         return frame;
     }
+
+    public int getLastStreamId() {
+        return lastStreamId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
 }
@@ -0,0 +1,73 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.ssl;
+
+import com.predic8.membrane.core.stats.*;
+
+import javax.net.ssl.*;
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counts the server side TLS handshakes of an {@link SSLContext}.
+ */
+public class HandshakeStatistics {
+
+    /**
+     * Same as the timeout used while reading the ClientHello for SNI.
+     */
+    static final int HANDSHAKE_TIMEOUT = 30000;
+
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Completes the handshake on an accepted socket and records it.
+     * <p>
+     * A handshake is counted as resumed if the negotiated session has been created before the handshake started.
+     */
+    void handshake(SSLSocket socket) throws IOException {
+        int timeout = socket.getSoTimeout();
+        if (timeout == 0)
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        socket.startHandshake();
+        latency.record((System.nanoTime() - start) / 1000);
+        if (socket.getSession().getCreationTime() < startMillis)
+            resumedHandshakes.increment();
+        else
+            fullHandshakes.increment();
+        if (timeout == 0)
+            socket.setSoTimeout(0);
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    /**
+     * @return the duration of the handshakes in microseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
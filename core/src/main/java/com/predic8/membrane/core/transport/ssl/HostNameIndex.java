@@ -0,0 +1,93 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.ssl;
+
+import com.predic8.membrane.core.rules.*;
+
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Finds the first of a list of host name patterns (same syntax as {@link ServiceProxyKey#setHost(String)}) matching
+ * a host name.
+ * <p>
+ * Plain host names are looked up in a hash map, wildcard names of the form <code>*.example.com</code> by their
+ * suffixes. Only the remaining patterns are matched as regular expressions. The result is the same as matching all
+ * patterns in order.
+ */
+class HostNameIndex {
+
+    private final Map<String, Integer> exact = new HashMap<>();
+    private final Map<String, Integer> suffixes = new HashMap<>();
+    private final List<Integer> otherIndices = new ArrayList<>();
+    private final List<Pattern> otherPatterns = new ArrayList<>();
+
+    /**
+     * @param hostNames space separated host name patterns per entry
+     */
+    HostNameIndex(List<String> hostNames) {
+        for (int i = 0; i < hostNames.size(); i++) {
+            String hostName = hostNames.get(i);
+            boolean indexed = true;
+            for (String name : hostName.trim().split(" +")) {
+                if (name.isEmpty())
+                    continue;
+                int wildcards = countWildcards(name);
+                if (wildcards == 0)
+                    exact.putIfAbsent(name.toLowerCase(Locale.ROOT), i);
+                else if (wildcards == 1 && name.startsWith("*.") && name.length() > 2)
+                    suffixes.putIfAbsent(name.substring(1).toLowerCase(Locale.ROOT), i);
+                else
+                    indexed = false;
+            }
+            if (!indexed) {
+                otherIndices.add(i);
+                otherPatterns.add(Pattern.compile(ServiceProxyKey.createHostPattern(hostName), Pattern.CASE_INSENSITIVE));
+            }
+        }
+    }
+
+    private static int countWildcards(String name) {
+        int result = 0;
+        for (int i = 0; i < name.length(); i++)
+            if (name.charAt(i) == '*')
+                result++;
+        return result;
+    }
+
+    /**
+     * @return the index of the first entry matching the host name, or -1
+     */
+    int find(String hostName) {
+        String name = hostName.toLowerCase(Locale.ROOT);
+        int result = exact.getOrDefault(name, Integer.MAX_VALUE);
+
+        // '*' matches one or more characters, so '*.example.com' also matches 'a.b.example.com'
+        for (int dot = name.indexOf('.', 1); dot != -1; dot = name.indexOf('.', dot + 1)) {
+            Integer i = suffixes.get(name.substring(dot));
+            if (i != null && i < result)
+                result = i;
+        }
+
+        for (int j = 0; j < otherIndices.size() && otherIndices.get(j) < result; j++)
+            if (otherPatterns.get(j).matcher(hostName).matches()) {
+                result = otherIndices.get(j);
+                break;
+            }
+
+        return result == Integer.MAX_VALUE ? -1 : result;
+    }
+}
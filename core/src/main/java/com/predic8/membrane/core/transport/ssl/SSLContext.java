@@ -64,6 +64,7 @@ public abstract class SSLContext implements SSLProvider {
     private boolean showSSLExceptions = true;
     private boolean useAsDefault;
     private boolean useHttp2;
+    private final HandshakeStatistics handshakeStatistics = new HandshakeStatistics();
 
     public void init(SSLParser sslParser, javax.net.ssl.SSLContext sslc) {
         showSSLExceptions = sslParser.isShowSSLExceptions();
@@ -111,6 +112,11 @@ public abstract class SSLContext implements SSLProvider {
 
         endpointIdentificationAlgorithm = sslParser.getEndpointIdentificationAlgorithm();
         useHttp2 = sslParser.isUseExperimentalHttp2();
+
+        if (sslParser.getSessionCacheSize() >= 0)
+            sslc.getServerSessionContext().setSessionCacheSize(sslParser.getSessionCacheSize());
+        if (sslParser.getSessionTimeout() >= 0)
+            sslc.getServerSessionContext().setSessionTimeout(sslParser.getSessionTimeout());
     }
 
     abstract String getLocation();
@@ -141,6 +147,7 @@ public abstract class SSLContext implements SSLProvider {
         serviceSocket.setNeedClientAuth(isNeedClientAuth());
         if (useHttp2)
             Http2TlsSupport.offerHttp2(serviceSocket);
+        handshakeStatistics.handshake(serviceSocket);
         return serviceSocket;
     }
 
@@ -358,6 +365,10 @@ public abstract class SSLContext implements SSLProvider {
         return certs.stream().map(cert -> ((X509Certificate)cert).getNotAfter().getTime()).min(Long::compare).get();
     }
 
+    public HandshakeStatistics getHandshakeStatistics() {
+        return handshakeStatistics;
+    }
+
     @Override
     public void stop() {
         // do nothing
@@ -22,7 +22,6 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SNIServerName;
@@ -67,7 +66,7 @@ public class SSLContextCollection implements SSLProvider {
 	}
 
 	private final List<SSLContext> sslContexts;
-	private final List<Pattern> dnsNames;
+	private final HostNameIndex dnsNames;
 
 	/**
 	 * @param sslContexts
@@ -78,9 +77,7 @@ public class SSLContextCollection implements SSLProvider {
 	 *            {@link ServiceProxyKey#setHost(String)})
 	 */
 	private SSLContextCollection(List<SSLContext> sslContexts, List<String> dnsNames) {
-		this.dnsNames = new ArrayList<>();
-		for (String dnsName : dnsNames)
-			this.dnsNames.add(Pattern.compile(ServiceProxyKey.createHostPattern(dnsName), Pattern.CASE_INSENSITIVE));
+		this.dnsNames = new HostNameIndex(dnsNames);
 		this.sslContexts = sslContexts;
 	}
 
@@ -131,15 +128,13 @@ public class SSLContextCollection implements SSLProvider {
 		if (capabilities != null) {
 			List<SNIServerName> serverNames = capabilities.getServerNames();
 			if (serverNames != null && serverNames.size() > 0) {
-				OUTER:
-					for (SNIServerName snisn : serverNames) {
-						String hostname = new String(snisn.getEncoded(), "UTF-8");
-						for (int i = 0; i < dnsNames.size(); i++)
-							if (dnsNames.get(i).matcher(hostname).matches()) {
-								sslContext = sslContexts.get(i);
-								break OUTER;
-							}
+				for (SNIServerName snisn : serverNames) {
+					int i = dnsNames.find(new String(snisn.getEncoded(), "UTF-8"));
+					if (i != -1) {
+						sslContext = sslContexts.get(i);
+						break;
 					}
+				}
 			if (sslContext == null) {
 				// no hostname matched: send 'unrecognized_name' alert and close socket
 
@@ -180,15 +175,8 @@ public class SSLContextCollection implements SSLProvider {
 	}
 
 	private SSLContext getSSLContextForHostname(String hostname) {
-		SSLContext sslContext = null;
-		for (int i = 0; i < dnsNames.size(); i++)
-			if (dnsNames.get(i).matcher(hostname).matches()) {
-				sslContext = sslContexts.get(i);
-				break;
-			}
-		if (sslContext == null)
-			sslContext = sslContexts.get(0);
-		return sslContext;
+		int i = dnsNames.find(hostname);
+		return sslContexts.get(i == -1 ? 0 : i);
 	}
 
 	@Override
@@ -301,6 +301,8 @@ public class StaticSSLContext extends SSLContext {
     }
 
     public Socket wrapAcceptedSocket(Socket socket) throws IOException {
+        if (socket instanceof SSLSocket)
+            getHandshakeStatistics().handshake((SSLSocket) socket);
         return socket;
     }
 
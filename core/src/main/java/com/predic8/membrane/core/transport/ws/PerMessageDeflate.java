@@ -0,0 +1,182 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.ws;
+
+import com.predic8.membrane.core.exchange.*;
+
+import javax.annotation.*;
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * The <code>permessage-deflate</code> extension (RFC 7692) as negotiated between a WebSocket client and server.
+ *
+ * When frames have to be inspected by WebSocket interceptors, messages are decompressed after they have been read
+ * and compressed again before they are written. Each direction has its own compression context.
+ */
+public class PerMessageDeflate {
+
+    public static final String SEC_WEBSOCKET_EXTENSIONS = "Sec-WebSocket-Extensions";
+    public static final String EXTENSION_NAME = "permessage-deflate";
+
+    private static final byte[] TAIL = new byte[]{0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private final Codec clientToServer;
+    private final Codec serverToClient;
+
+    PerMessageDeflate(Codec clientToServer, Codec serverToClient) {
+        this.clientToServer = clientToServer;
+        this.serverToClient = serverToClient;
+    }
+
+    /**
+     * @param handshake the exchange which upgraded the connection
+     * @return the negotiated extension, or null if the server did not accept <code>permessage-deflate</code>
+     */
+    @Nullable
+    public static PerMessageDeflate negotiated(@Nullable Exchange handshake) {
+        if (handshake == null || handshake.getResponse() == null)
+            return null;
+        String extensions = handshake.getResponse().getHeader().getFirstValue(SEC_WEBSOCKET_EXTENSIONS);
+        if (extensions == null)
+            return null;
+        for (String extension : extensions.split(",")) {
+            String[] parameters = extension.split(";");
+            if (!EXTENSION_NAME.equalsIgnoreCase(parameters[0].trim()))
+                continue;
+            boolean clientNoContextTakeover = false, serverNoContextTakeover = false;
+            int clientMaxWindowBits = 15, serverMaxWindowBits = 15;
+            for (int i = 1; i < parameters.length; i++) {
+                String[] nameValue = parameters[i].split("=", 2);
+                String name = nameValue[0].trim().toLowerCase(Locale.ROOT);
+                String value = nameValue.length > 1 ? nameValue[1].trim().replace("\"", "") : null;
+                switch (name) {
+                    case "client_no_context_takeover" -> clientNoContextTakeover = true;
+                    case "server_no_context_takeover" -> serverNoContextTakeover = true;
+                    case "client_max_window_bits" -> clientMaxWindowBits = value == null ? 15 : Integer.parseInt(value);
+                    case "server_max_window_bits" -> serverMaxWindowBits = value == null ? 15 : Integer.parseInt(value);
+                }
+            }
+            return new PerMessageDeflate(
+                    new Codec(clientNoContextTakeover, clientMaxWindowBits),
+                    new Codec(serverNoContextTakeover, serverMaxWindowBits));
+        }
+        return null;
+    }
+
+    /**
+     * @param frameTravelsToRight whether the messages are sent from the client to the server
+     */
+    public Codec getCodec(boolean frameTravelsToRight) {
+        return frameTravelsToRight ? clientToServer : serverToClient;
+    }
+
+    /**
+     * Compression state of one direction. {@link #decode(WebSocketFrame)} and {@link #encode(WebSocketFrame)} keep
+     * separate message state, as frames may be dropped or created by interceptors in between.
+     */
+    public static class Codec {
+
+        private final boolean noContextTakeover;
+        /**
+         * {@link Deflater} always uses a window of 2^15 bytes. If the receiver only accepts a smaller window, messages
+         * are sent uncompressed, which the extension allows.
+         */
+        private final boolean compress;
+
+        private final Inflater inflater = new Inflater(true);
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private byte[] scratch = new byte[WebSocketFrame.INITIAL_BUFFER_SIZE];
+
+        private boolean decoding;
+        private boolean encoding;
+
+        Codec(boolean noContextTakeover, int maxWindowBits) {
+            this.noContextTakeover = noContextTakeover;
+            this.compress = maxWindowBits >= 15;
+        }
+
+        /**
+         * Decompresses the frame's payload in place, if it is part of a compressed message.
+         */
+        public synchronized void decode(WebSocketFrame frame) throws IOException {
+            if (frame.getOpcode() >= 8)
+                return;
+            if (frame.getOpcode() != 0)
+                decoding = frame.isRsv1();
+            if (!decoding)
+                return;
+
+            try {
+                inflater.setInput(frame.getPayload(), 0, (int) frame.getPayloadLength());
+                int length = inflate(0);
+                if (frame.isFinalFragment()) {
+                    inflater.setInput(TAIL);
+                    length = inflate(length);
+                    if (noContextTakeover || inflater.finished())
+                        inflater.reset();
+                }
+                frame.setPayload(Arrays.copyOf(scratch, length));
+                frame.setRsv1(false);
+            } catch (DataFormatException e) {
+                throw new IOException("Could not decompress WebSocket message.", e);
+            }
+        }
+
+        private int inflate(int length) throws DataFormatException {
+            while (true) {
+                if (length == scratch.length)
+                    scratch = Arrays.copyOf(scratch, scratch.length * 2);
+                length += inflater.inflate(scratch, length, scratch.length - length);
+                if (length < scratch.length && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()))
+                    return length;
+            }
+        }
+
+        /**
+         * Compresses the frame's payload in place, if it is a data frame.
+         */
+        public synchronized void encode(WebSocketFrame frame) {
+            if (frame.getOpcode() >= 8 || !compress)
+                return;
+            boolean first = frame.getOpcode() != 0;
+            if (first)
+                encoding = true;
+            if (!encoding)
+                return;
+
+            deflater.setInput(frame.getPayload(), 0, (int) frame.getPayloadLength());
+            int length = 0;
+            while (true) {
+                length += deflater.deflate(scratch, length, scratch.length - length, Deflater.SYNC_FLUSH);
+                if (length < scratch.length)
+                    break;
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            if (frame.isFinalFragment()) {
+                // the final empty block is implied, see RFC 7692 section 7.2.1
+                if (length >= 4 && Arrays.equals(scratch, length - 4, length, TAIL, 0, 4))
+                    length -= 4;
+                if (noContextTakeover)
+                    deflater.reset();
+                encoding = false;
+            }
+            frame.setPayload(Arrays.copyOf(scratch, length));
+            frame.setRsv1(first);
+        }
+    }
+}
@@ -15,14 +15,15 @@
 package com.predic8.membrane.core.transport.ws;
 
 import com.predic8.membrane.core.exchange.Exchange;
-import com.predic8.membrane.core.util.ByteUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 public class WebSocketFrame {
@@ -30,6 +31,9 @@ public class WebSocketFrame {
     protected static Logger log = LoggerFactory.getLogger(WebSocketFrame.class.getName());
 
     final static int INITIAL_BUFFER_SIZE = 8192;
+    final static int MAX_HEADER_SIZE = 14;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 
     Exchange originalExchange;
     private String error = null;
@@ -42,6 +46,11 @@ public class WebSocketFrame {
     long payloadLength;
     final byte[] maskKey = new byte[4];
     byte[] payload = new byte[INITIAL_BUFFER_SIZE];
+    /**
+     * header and (masked) payload are assembled here before they are written. As frames are reused by the
+     * {@link WebSocketFrameAssembler}, the buffer is only reallocated when a frame is larger than all previous ones.
+     */
+    private byte[] writeBuffer;
 
     public WebSocketFrame() {
 
@@ -54,9 +63,8 @@ public class WebSocketFrame {
         this.rsv3 = rsv3;
         this.opcode = opcode;
         this.isMasked = isMasked;
-        payloadLength = payload.length;
-        System.arraycopy(this.maskKey,0,maskingKey,0,maskingKey.length);
-        System.arraycopy(this.payload,0,payload,0,payload.length);
+        setMaskKey(maskingKey);
+        setPayload(payload);
     }
 
     private String calcError() {
@@ -66,60 +74,57 @@ public class WebSocketFrame {
     }
 
     public void write(OutputStream out) throws IOException {
-        byte[] result = new byte[getSizeInBytes()];
-
-        byte finAndReservedAndOpcode = 0;
-        finAndReservedAndOpcode = ByteUtil.setBitValueBigEndian(finAndReservedAndOpcode, 0, finalFragment);
-        finAndReservedAndOpcode = ByteUtil.setBitValueBigEndian(finAndReservedAndOpcode, 1, rsv1);
-        finAndReservedAndOpcode = ByteUtil.setBitValueBigEndian(finAndReservedAndOpcode, 2, rsv2);
-        finAndReservedAndOpcode = ByteUtil.setBitValueBigEndian(finAndReservedAndOpcode, 3, rsv3);
-        finAndReservedAndOpcode = ByteUtil.setBitValuesBigEndian(finAndReservedAndOpcode, 4, 7, opcode);
+        int size = getSizeInBytes();
+        if (writeBuffer == null || writeBuffer.length < size)
+            writeBuffer = new byte[Math.max(size, INITIAL_BUFFER_SIZE)];
+        writeTo(writeBuffer);
 
-        byte maskAndPayloadLength = 0;
-        maskAndPayloadLength = ByteUtil.setBitValueBigEndian(maskAndPayloadLength, 0, this.isMasked);
-        int additionalPayloadBytes = getExtendedPayloadSize(computePayloadField());
-
-        maskAndPayloadLength = ByteUtil.setBitValuesBigEndian(maskAndPayloadLength, 1, 7, computePayloadField());
-
-        result[0] = finAndReservedAndOpcode;
-        result[1] = maskAndPayloadLength;
-
-        byte[] additionalPayloadLength = null;
+        out.write(writeBuffer, 0, size);
+        out.flush();
+    }
 
-        if (additionalPayloadBytes == 2) {
-            byte[] extendedPayloadLength = ByteBuffer.allocate(4).putInt((int) payloadLength).array();
-            byte[] correctedExtendedPayloadLength = new byte[2];
-            for (int i = 2; i < extendedPayloadLength.length; i++)
-                correctedExtendedPayloadLength[i - 2] = extendedPayloadLength[i];
-            additionalPayloadLength = correctedExtendedPayloadLength;
-        }
-        if (additionalPayloadBytes == 8) {
-            additionalPayloadLength = ByteBuffer.allocate(8).putLong((int) payloadLength).array();
+    private void writeTo(byte[] result) {
+        result[0] = (byte) ((finalFragment ? 0x80 : 0) | (rsv1 ? 0x40 : 0) | (rsv2 ? 0x20 : 0) | (rsv3 ? 0x10 : 0) | (opcode & 0x0F));
+        int payloadField = computePayloadField();
+        result[1] = (byte) ((isMasked ? 0x80 : 0) | payloadField);
+
+        int offset = 2;
+        if (payloadField == 126) {
+            result[offset++] = (byte) (payloadLength >> 8);
+            result[offset++] = (byte) payloadLength;
+        } else if (payloadField == 127) {
+            for (int shift = 56; shift >= 0; shift -= 8)
+                result[offset++] = (byte) (payloadLength >> shift);
         }
-        if (additionalPayloadLength != null)
-            for (int i = 0; i < additionalPayloadBytes; i++) {
-                result[2 + i] = additionalPayloadLength[i];
-            }
-
-
-        int maskKeyLength = isMasked ? maskKey.length : 0;
-        for (int i = 0; i < maskKeyLength; i++)
-            result[2 + additionalPayloadBytes + i] = maskKey[i];
-
-        int payloadOffset = 2 + additionalPayloadBytes + maskKeyLength;
-        System.arraycopy(payload, 0, result, payloadOffset, (int) payloadLength);
 
         if (isMasked) {
-            int maskIndex = 0;
-            for (int i = 0; i < payloadLength; i++) {
-                result[payloadOffset + i] = (byte) (result[payloadOffset + i] ^ maskKey[maskIndex]);
-                maskIndex = (maskIndex + 1) % 4;
-            }
+            System.arraycopy(maskKey, 0, result, offset, 4);
+            offset += 4;
+            mask(payload, 0, result, offset, (int) payloadLength, maskKey, 0);
+        } else {
+            System.arraycopy(payload, 0, result, offset, (int) payloadLength);
         }
+    }
 
-        out.write(result);
-        out.flush();
-
+    /**
+     * Copies <code>length</code> bytes from <code>src</code> to <code>dst</code>, XORing them with the mask key.
+     * Masking is its own inverse, so this is used for both directions. Eight bytes are processed at a time.
+     *
+     * @param maskOffset the position within the masked payload of the first byte copied, so that a payload can be
+     *                   (un)masked in several chunks
+     */
+    static void mask(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte[] maskKey, int maskOffset) {
+        int i = 0;
+        if (length >= 8) {
+            long key = 0;
+            for (int j = 0; j < 4; j++)
+                key = key << 8 | (maskKey[(maskOffset + j) & 3] & 0xFF);
+            key |= key << 32;
+            for (; i <= length - 8; i += 8)
+                LONGS.set(dst, dstOffset + i, (long) LONGS.get(src, srcOffset + i) ^ key);
+        }
+        for (; i < length; i++)
+            dst[dstOffset + i] = (byte) (src[srcOffset + i] ^ maskKey[(maskOffset + i) & 3]);
     }
 
     private int computePayloadField() {
@@ -141,11 +146,31 @@ public class WebSocketFrame {
             return 0;
     }
 
-    private int getSizeInBytes() {
+    int getSizeInBytes() {
         return 2 + getExtendedPayloadSize(computePayloadField()) + (isMasked ? maskKey.length : 0) + (payload != null ? (int) payloadLength : 0);
     }
 
 
+    public boolean isFinalFragment() {
+        return finalFragment;
+    }
+
+    public void setFinalFragment(boolean finalFragment) {
+        this.finalFragment = finalFragment;
+    }
+
+    /**
+     * @return whether the first reserved bit is set, which marks the first frame of a compressed message when
+     * <code>permessage-deflate</code> has been negotiated.
+     */
+    public boolean isRsv1() {
+        return rsv1;
+    }
+
+    public void setRsv1(boolean rsv1) {
+        this.rsv1 = rsv1;
+    }
+
     public int getOpcode() {
         return opcode;
     }
@@ -196,73 +221,79 @@ public class WebSocketFrame {
      * @return the number of bytes read. if > 0, this class has been properly initialized with the frame data read.
      */
     public int tryRead(byte[] buffer, int offset, int length) {
+        int headerLength = tryReadHeader(buffer, offset, length);
+        // if payloadLength is bigger than what can currently be in the buffer then we haven't read the whole frame
+        if (headerLength == 0 || payloadLength > length - headerLength)
+            return 0;
+
+        readPayload(buffer, offset + headerLength, (int) payloadLength, 0);
+
+        if (opcode == 8)
+            error = calcError();
+
+        return headerLength + (int) payloadLength;
+    }
+
+    /**
+     * Reads the frame header only.
+     *
+     * @return the length of the header, or 0 if the buffer does not yet contain the whole header.
+     */
+    int tryReadHeader(byte[] buffer, int offset, int length) {
         if (length < 2)
             return 0;
 
-        int origOffset = offset;
-
-        byte finAndReservedAndOpCode = buffer[offset++];
-        finalFragment = ByteUtil.getBitValueBigEndian(finAndReservedAndOpCode, 0);
-        rsv1 = ByteUtil.getBitValueBigEndian(finAndReservedAndOpCode, 1);
-        rsv2 = ByteUtil.getBitValueBigEndian(finAndReservedAndOpCode, 2);
-        rsv3 = ByteUtil.getBitValueBigEndian(finAndReservedAndOpCode, 3);
-        opcode = ByteUtil.getValueOfBits(finAndReservedAndOpCode, 4, 7);
-
-        int headerLength = 2;
-
-        byte maskAndPayloadLength = buffer[offset++];
-        isMasked = ByteUtil.getBitValueBigEndian(maskAndPayloadLength, 0);
-        payloadLength = ByteUtil.getValueOfBits(maskAndPayloadLength, 1, 7);
-        if (payloadLength >= 126) {
-            if (payloadLength == 126) {
-                headerLength += 2;
-                byte[] newPayloadLength = new byte[4];
-                for (int i = 2; i < newPayloadLength.length; i++)
-                    newPayloadLength[i] = buffer[offset++];
-                payloadLength = ByteBuffer.wrap(newPayloadLength).getInt();
-            } else {
-                headerLength += 8;
-                byte[] newPayloadLength = new byte[8];
-                for (int i = 0; i < newPayloadLength.length; i++)
-                    newPayloadLength[i] = buffer[offset++];
-                payloadLength = ByteBuffer.wrap(newPayloadLength).getLong();
-            }
-        }
+        byte finAndReservedAndOpCode = buffer[offset];
+        byte maskAndPayloadLength = buffer[offset + 1];
+        int payloadField = maskAndPayloadLength & 0x7F;
+        boolean masked = (maskAndPayloadLength & 0x80) != 0;
 
-        if (isMasked) {
-            headerLength += 4;
-            for (int i = 0; i < 4; i++)
-                maskKey[i] = buffer[offset++];
+        int headerLength = 2 + (payloadField == 126 ? 2 : payloadField == 127 ? 8 : 0) + (masked ? 4 : 0);
+        if (length < headerLength)
+            return 0;
+
+        finalFragment = (finAndReservedAndOpCode & 0x80) != 0;
+        rsv1 = (finAndReservedAndOpCode & 0x40) != 0;
+        rsv2 = (finAndReservedAndOpCode & 0x20) != 0;
+        rsv3 = (finAndReservedAndOpCode & 0x10) != 0;
+        opcode = finAndReservedAndOpCode & 0x0F;
+        isMasked = masked;
+
+        if (payloadField == 126) {
+            payloadLength = (buffer[offset + 2] & 0xFF) << 8 | buffer[offset + 3] & 0xFF;
+        } else if (payloadField == 127) {
+            payloadLength = 0;
+            for (int i = 0; i < 8; i++)
+                payloadLength = payloadLength << 8 | buffer[offset + 2 + i] & 0xFF;
+        } else {
+            payloadLength = payloadField;
         }
 
+        if (isMasked)
+            System.arraycopy(buffer, offset + headerLength - 4, maskKey, 0, 4);
+
         if (payloadLength > Integer.MAX_VALUE || payloadLength < 0) {
             log.warn("Payload of ws message is bigger than Integer.MAX_VALUE which is currently not supported. Message will be truncated");
             payloadLength = Integer.MAX_VALUE;
         }
-        // if payloadLength is bigger than what can currently be in the buffer then we haven't read the whole frame
-        if(payloadLength > length-headerLength)
-            return 0;
-        // ensure that 'payload' buffer is large enough
-        if (payload.length < payloadLength)
-            payload = new byte[(int) payloadLength];
-
-        int maskIndex = 0;
-        for (int i = 0; i < payloadLength; i++) {
-            payload[i] = buffer[offset++];
-            if (isMasked)
-                payload[i] = (byte) (payload[i] ^ maskKey[maskIndex]);
-            maskIndex = (maskIndex + 1) % 4;
-        }
-
-        // TODO: directly set the fields (or better: use them during parsing)
-
-        if (opcode == 8)
-            error = calcError();
-
-
-        return offset - origOffset;
+        return headerLength;
     }
 
+    /**
+     * Copies (and unmasks) <code>length</code> bytes of payload into this frame's payload buffer.
+     *
+     * @param maskOffset the position of the first byte within the payload of the frame as it was received
+     */
+    void readPayload(byte[] buffer, int offset, int length, int maskOffset) {
+        // ensure that 'payload' buffer is large enough
+        if (payload.length < length)
+            payload = new byte[length];
+        if (isMasked)
+            mask(buffer, offset, payload, 0, length, maskKey, maskOffset);
+        else
+            System.arraycopy(buffer, offset, payload, 0, length);
+        payloadLength = length;
+    }
 
     @Override
     public String toString() {
@@ -350,9 +381,9 @@ public class WebSocketFrame {
     }
 
     public byte[] toBytes() throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        write(baos);
-        return baos.toByteArray();
+        byte[] result = new byte[getSizeInBytes()];
+        writeTo(result);
+        return result;
     }
 
     public Exchange getOriginalExchange() {
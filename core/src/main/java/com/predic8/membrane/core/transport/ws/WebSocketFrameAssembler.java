@@ -22,20 +22,41 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.function.Consumer;
 
+/**
+ * Splits the data read from a stream into {@link WebSocketFrame}s.
+ *
+ * The frame object passed to the consumer is reused for the next frame. Data frames with a payload larger than
+ * {@link #maxFramePayload} are not buffered completely: They are handed to the consumer as a sequence of fragments
+ * as the data arrives.
+ */
 public class WebSocketFrameAssembler {
 
     protected static Logger log = LoggerFactory.getLogger(WebSocketFrameAssembler.class.getName());
 
     final static int BUFFER_SIZE = 8192;
+    final static int DEFAULT_MAX_FRAME_PAYLOAD = 1024 * 1024;
+
     private final Exchange originalExchange;
+    private final int maxFramePayload;
 
     InputStream in;
 
     byte[] buffer = new byte[BUFFER_SIZE];
+    int start, end;
+
+    // state of a frame currently being streamed as fragments
+    private long remainingPayload;
+    private int streamedBytes;
+    private boolean streamedFinalFragment;
 
     public WebSocketFrameAssembler(InputStream in, Exchange originalExchange) {
+        this(in, originalExchange, DEFAULT_MAX_FRAME_PAYLOAD);
+    }
+
+    public WebSocketFrameAssembler(InputStream in, Exchange originalExchange, int maxFramePayload) {
         this.in = in;
         this.originalExchange = originalExchange;
+        this.maxFramePayload = maxFramePayload;
     }
 
     public synchronized void readFrames(Consumer<WebSocketFrame> consumer) throws IOException {
@@ -43,18 +64,18 @@ public class WebSocketFrameAssembler {
         WebSocketFrame frame = new WebSocketFrame();
         if (originalExchange != null)
             frame.setOriginalExchange(originalExchange);
-        int offset = 0;
-        int handled;
-        while ((read = in.read(buffer, offset, buffer.length - offset)) > 0) {
+        while ((read = in.read(buffer, end, buffer.length - end)) > 0) {
+            end += read;
 
-            offset = offset + read;
+            while (handleBuffer(frame, consumer))
+                ;
 
-            while ((handled = frame.tryRead(buffer, 0, offset)) > 0) {
-                consumer.accept(frame);
-                System.arraycopy(buffer, handled, buffer, 0, offset - handled);
-                offset -= handled;
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
             }
-            if(offset >= buffer.length && handled == 0){
+            if (end == buffer.length) {
                 byte[] newBuffer = new byte[buffer.length*2];
                 System.arraycopy(buffer,0,newBuffer,0,buffer.length);
                 buffer = newBuffer;
@@ -62,5 +83,51 @@ public class WebSocketFrameAssembler {
         }
     }
 
+    /**
+     * @return whether a frame or fragment has been passed to the consumer
+     */
+    private boolean handleBuffer(WebSocketFrame frame, Consumer<WebSocketFrame> consumer) {
+        if (remainingPayload > 0)
+            return streamFragment(frame, consumer);
+
+        int handled = frame.tryRead(buffer, start, end - start);
+        if (handled > 0) {
+            start += handled;
+            consumer.accept(frame);
+            return true;
+        }
+
+        int headerLength = frame.tryReadHeader(buffer, start, end - start);
+        if (headerLength == 0 || frame.getPayloadLength() <= maxFramePayload || frame.getOpcode() >= 8)
+            return false;
+
+        // the frame is too large to be buffered
+        start += headerLength;
+        remainingPayload = frame.getPayloadLength();
+        streamedBytes = 0;
+        streamedFinalFragment = frame.isFinalFragment();
+        return streamFragment(frame, consumer);
+    }
+
+    private boolean streamFragment(WebSocketFrame frame, Consumer<WebSocketFrame> consumer) {
+        int available = end - start;
+        // wait until the buffer is full, or the rest of the frame has arrived, to avoid tiny fragments
+        if (available == 0 || (available < remainingPayload && end < buffer.length))
+            return false;
+        int length = (int) Math.min(available, remainingPayload);
+
+        frame.readPayload(buffer, start, length, streamedBytes);
+        start += length;
+        remainingPayload -= length;
+        if (streamedBytes > 0) {
+            frame.setOpcode(0);
+            frame.setRsv1(false);
+        }
+        streamedBytes += length;
+        frame.setFinalFragment(remainingPayload == 0 && streamedFinalFragment);
+
+        consumer.accept(frame);
+        return true;
+    }
 
 }
@@ -48,6 +48,8 @@ public class HttpUtil {
 	}
 
 	public static String readLine(InputStream in) throws IOException, EndOfStreamException {
+		if (in instanceof LineBufferedInputStream lbis)
+			return lbis.readLine(MAX_LINE_LENGTH);
 
 		StringBuilder line = new StringBuilder(128);
 
@@ -19,18 +19,24 @@ import com.predic8.membrane.core.config.ReadRulesConfigurationTest;
 import com.predic8.membrane.core.config.ReadRulesWithInterceptorsConfigurationTest;
 import com.predic8.membrane.core.exchangestore.*;
 import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.stats.*;
 import com.predic8.membrane.core.http.cookie.*;
 import com.predic8.membrane.core.interceptor.*;
 import com.predic8.membrane.core.interceptor.acl.AccessControlInterceptorTest;
 import com.predic8.membrane.core.interceptor.acl.AccessControlParserTest;
 import com.predic8.membrane.core.interceptor.balancer.*;
+import com.predic8.membrane.core.interceptor.cache.CacheInterceptorTest;
 import com.predic8.membrane.core.interceptor.cbr.XPathCBRInterceptorTest;
 import com.predic8.membrane.core.interceptor.formvalidation.FormValidationInterceptorTest;
 import com.predic8.membrane.core.interceptor.groovy.GroovyInterceptorTest;
 import com.predic8.membrane.core.interceptor.javascript.*;
+import com.predic8.membrane.core.lang.*;
+import com.predic8.membrane.core.lang.javascript.*;
 import com.predic8.membrane.core.interceptor.json.*;
+import com.predic8.membrane.core.interceptor.jwt.*;
 import com.predic8.membrane.core.interceptor.misc.*;
 import com.predic8.membrane.core.interceptor.oauth2.OAuth2UnitTests;
+import com.predic8.membrane.core.interceptor.ratelimit.PerKeyRateLimitTest;
 import com.predic8.membrane.core.interceptor.ratelimit.RateLimitInterceptorTest;
 import com.predic8.membrane.core.interceptor.rest.HTTP2XMLInterceptorTest;
 import com.predic8.membrane.core.interceptor.rewrite.ReverseProxyingInterceptorTest;
@@ -39,10 +45,13 @@ import com.predic8.membrane.core.interceptor.schemavalidation.JSONSchemaValidati
 import com.predic8.membrane.core.interceptor.schemavalidation.SOAPMessageValidatorInterceptorTest;
 import com.predic8.membrane.core.interceptor.schemavalidation.SOAPUtilTest;
 import com.predic8.membrane.core.interceptor.schemavalidation.ValidatorInterceptorTest;
+import com.predic8.membrane.core.interceptor.session.RedisSessionManagerTest;
 import com.predic8.membrane.core.interceptor.soap.SoapOperationExtractorTest;
 import com.predic8.membrane.core.interceptor.templating.TemplateInterceptorTest;
 import com.predic8.membrane.core.interceptor.xml.Json2XmlInterceptorTest;
+import com.predic8.membrane.core.interceptor.xml.Json2XmlTranscoderTest;
 import com.predic8.membrane.core.interceptor.xml.Xml2JsonInterceptorTest;
+import com.predic8.membrane.core.interceptor.xml.Xml2JsonTranscoderTest;
 import com.predic8.membrane.core.interceptor.xml.XmlPathExtractorInterceptorTest;
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathAnalyzerTest;
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathParserTest;
@@ -55,13 +64,23 @@ import com.predic8.membrane.core.magic.MagicTest;
 import com.predic8.membrane.core.multipart.ReassembleTest;
 import com.predic8.membrane.core.resolver.SingleResolverTest;
 import com.predic8.membrane.core.rules.ProxyRuleTest;
+import com.predic8.membrane.core.rules.RuleIndexTest;
 import com.predic8.membrane.core.rules.ServiceProxyKeyTest;
 import com.predic8.membrane.core.transport.ExchangeTest;
+import com.predic8.membrane.core.transport.http.ConnectionManagerTest;
 import com.predic8.membrane.core.transport.http.HostColonPortTest;
 import com.predic8.membrane.core.transport.http2.Http2ClientServerTest;
+import com.predic8.membrane.core.transport.http2.H2cTest;
+import com.predic8.membrane.core.transport.http2.Http2ClientPoolTest;
+import com.predic8.membrane.core.transport.ws.PerMessageDeflateTest;
+import com.predic8.membrane.core.interceptor.websocket.WebSocketFrameTest;
+import com.predic8.membrane.core.transport.http2.PriorityTreeTest;
 import com.predic8.membrane.core.transport.http.HttpKeepAliveTest;
+import com.predic8.membrane.core.transport.http.KeepAliveSelectorTest;
+import com.predic8.membrane.core.transport.http.TunnelRelayTest;
 import com.predic8.membrane.core.transport.http.ServiceInvocationTest;
 import com.predic8.membrane.core.transport.ssl.SSLContextTest;
+import com.predic8.membrane.core.transport.ssl.HostNameIndexTest;
 import com.predic8.membrane.core.transport.ssl.SessionResumptionTest;
 import com.predic8.membrane.core.transport.ssl.acme.AcmeRenewTest;
 import com.predic8.membrane.core.transport.ssl.acme.AcmeStepTest;
@@ -72,7 +91,7 @@ import com.predic8.membrane.interceptor.MultipleLoadBalancersTest;
 import org.junit.platform.suite.api.*;
 
 @Suite
-@SelectClasses({HeaderTest.class, BodyTest.class, ByteUtilTest.class,
+@SelectClasses({HeaderTest.class, BodyTest.class, BodyStorageTest.class, LatencyHistogramTest.class, ByteUtilTest.class,
         HttpUtilTest.class, RequestTest.class,
 
 		ResponseTest.class,
@@ -84,20 +103,20 @@ import org.junit.platform.suite.api.*;
         HostColonPortTest.class,
         HTTP2XMLInterceptorTest.class, ReadRulesConfigurationTest.class,
         ReadRulesWithInterceptorsConfigurationTest.class,
-        RuleManagerTest.class, ProxyTest.class, ServiceProxyKeyTest.class,
+        RuleManagerTest.class, RuleIndexTest.class, ProxyTest.class, ServiceProxyKeyTest.class,
         ProxyRuleTest.class, TextUtilTest.class, RelocatorTest.class,
         XSLTInterceptorTest.class, URLUtilTest.class, ClusterManagerTest.class,
         ClusterNotificationInterceptorTest.class,
-        XMLSessionIdExtractorTest.class, ClusterBalancerTest.class,
+        XMLSessionIdExtractorTest.class, ClusterBalancerTest.class, DispatchingStrategyTest.class,
         LoadBalancingWithClusterManagerAndNoSessionTest.class,
         LoadBalancingWithClusterManagerTest.class,
         MultipleLoadBalancersTest.class, DNSCacheTest.class,
-        ValidatorInterceptorTest.class, XPathCBRInterceptorTest.class,
+        ValidatorInterceptorTest.class, XPathCBRInterceptorTest.class, CacheInterceptorTest.class,
         CustomSpringConfigurationTest.class, JSESSIONIDExtractorTest.class,
         ThrottleInterceptorTest.class, GroovyInterceptorTest.class,
         FormValidationInterceptorTest.class, ServiceInvocationTest.class,
-        HttpKeepAliveTest.class, ReverseProxyingInterceptorTest.class,
-        SSLContextTest.class, RelocatorWADLTest.class,
+        HttpKeepAliveTest.class, KeepAliveSelectorTest.class, TunnelRelayTest.class, ConnectionManagerTest.class, ReverseProxyingInterceptorTest.class,
+        SSLContextTest.class, HostNameIndexTest.class, RelocatorWADLTest.class,
         WADLInterceptorTest.class, ReassembleTest.class,
         XMLContentFilterTest.class, XMLElementFinderTest.class,
         SimpleXPathAnalyzerTest.class, SimpleXPathParserTest.class,
@@ -112,21 +131,24 @@ import org.junit.platform.suite.api.*;
         SOAPMessageValidatorInterceptorTest.class,
         URITest.class,
         RewriteInterceptorTest.class,
-        AbortExchangeTest.class, RateLimitInterceptorTest.class,
+        AbortExchangeTest.class, RateLimitInterceptorTest.class, PerKeyRateLimitTest.class,
         OAuth2UnitTests.class, SessionResumptionTest.class,
 		Xml2JsonInterceptorTest.class, Json2XmlInterceptorTest.class, TemplateInterceptorTest.class,
+		Xml2JsonTranscoderTest.class, Json2XmlTranscoderTest.class,
 		XmlPathExtractorInterceptorTest.class, JsonPointerExtractorInterceptorTest.class,
 		AcmeStepTest.class, AcmeRenewTest.class, KubernetesClientTest.class,
-		ProxyTest.class, Http2ClientServerTest.class, ChunkedBodyTest.class,
+		ProxyTest.class, Http2ClientServerTest.class, PriorityTreeTest.class, H2cTest.class, Http2ClientPoolTest.class, WebSocketFrameTest.class, PerMessageDeflateTest.class, ChunkedBodyTest.class,
 		ReturnInterceptorTest.class,
-		JavascriptInterceptor.class,
+		JavascriptInterceptor.class, GraalVMJavascriptSupportTest.class, LazyBindingsTest.class,
 		MimeTypeTest.class,
 		MessageBytesTest.class,
 		RegExReplaceInterceptorTest.class,
 		URLParamUtilTest.class,
 		XMLProtectorTest.class,
 		AbstractExchangeStoreTest.class,
-		JsonProtectionInterceptorTest.class
+		JsonProtectionInterceptorTest.class,
+		JwtAuthInterceptorTest.class,
+		RedisSessionManagerTest.class
 })
 @SelectPackages({"com.predic8.membrane.core.openapi"})
 public class UnitTests {
@@ -125,7 +125,7 @@ public class LimitedMemoryExchangeStoreIntegrationTest {
 
         assertTrue(e.getRequest().getBody().wasStreamed());
         assertTrue(middleExchange.get().getRequest().getBody().wasStreamed());
-        int snappedLength = lmes.getAllExchangesAsList().get(0).getRequest().getBody().getLength();
+        long snappedLength = lmes.getAllExchangesAsList().get(0).getRequest().getBody().getLength();
         assertTrue( 100000 <= snappedLength && snappedLength <= 150000);
     }
 
@@ -138,7 +138,7 @@ public class LimitedMemoryExchangeStoreIntegrationTest {
 
         assertTrue(e.getRequest().getBody().wasStreamed());
         assertTrue(middleExchange.get().getRequest().getBody().wasStreamed());
-        int snappedLength = lmes.getAllExchangesAsList().get(0).getRequest().getBody().getLength();
+        long snappedLength = lmes.getAllExchangesAsList().get(0).getRequest().getBody().getLength();
         assertTrue( 100000 <= snappedLength && snappedLength <= 150000);
     }
 
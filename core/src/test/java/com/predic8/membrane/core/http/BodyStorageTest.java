@@ -0,0 +1,88 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BodyStorageTest {
+
+	@TempDir
+	Path dir;
+
+	private static byte[] content(int length) {
+		byte[] content = new byte[length];
+		new Random(length).nextBytes(content);
+		return content;
+	}
+
+	private static long length(List<Chunk> chunks) {
+		return chunks.stream().mapToLong(Chunk::getLength).sum();
+	}
+
+	@Test
+	public void keepsSmallBodiesInMemory() throws Exception {
+		List<Chunk> chunks = new ArrayList<>();
+		BodyStorage storage = new BodyStorage(1000, dir);
+		storage.read(new ByteArrayInputStream(content(1000)), 1000, chunks::add);
+
+		assertEquals(1, chunks.size());
+		assertFalse(storage.isSpilled());
+	}
+
+	@Test
+	public void spillsBeyondThreshold() throws Exception {
+		byte[] content = content(3 * BodyStorage.SEGMENT_SIZE);
+		List<Chunk> chunks = new ArrayList<>();
+		BodyStorage storage = new BodyStorage(1000, dir);
+		storage.read(new ByteArrayInputStream(content), content.length, chunks::add);
+
+		assertTrue(storage.isSpilled());
+		assertEquals(1000, chunks.get(0).getLength());
+		assertFalse(chunks.get(0) instanceof FileChunk);
+		assertTrue(chunks.stream().skip(1).allMatch(c -> c instanceof FileChunk && c.getLength() <= BodyStorage.SEGMENT_SIZE));
+		assertEquals(content.length, length(chunks));
+		assertArrayEquals(content, new BodyInputStream(chunks).readAllBytes());
+	}
+
+	@Test
+	public void thresholdAppliesToWholeBody() throws Exception {
+		byte[] c1 = content(600);
+		byte[] c2 = content(600);
+		List<Chunk> chunks = new ArrayList<>();
+		BodyStorage storage = new BodyStorage(1000, dir);
+		storage.read(new ByteArrayInputStream(c1), c1.length, chunks::add);
+		storage.read(new ByteArrayInputStream(c2), -1, chunks::add);
+
+		assertTrue(storage.isSpilled());
+		assertEquals(List.of(600, 400, 200), chunks.stream().map(Chunk::getLength).toList());
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(c1);
+		expected.write(c2);
+		assertArrayEquals(expected.toByteArray(), new BodyInputStream(chunks).readAllBytes());
+	}
+
+	@Test
+	public void tooLargeForByteArray() {
+		assertThrows(IOException.class, () -> AbstractBody.toArrayLength(Integer.MAX_VALUE + 1L));
+	}
+}
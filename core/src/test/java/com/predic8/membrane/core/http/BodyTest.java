@@ -121,4 +121,46 @@ public class BodyTest {
 		assertArrayEquals(ciob2.getContent(), ciob.getContent());
 	}
 
+	@Test
+	public void testStreamedDoesNotReadBeyondLength() throws Exception {
+		ByteArrayInputStream in = new ByteArrayInputStream(msg1);
+		Body body = new Body(in, 6);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		body.write(new PlainBodyTransferrer(out), false);
+
+		assertArrayEquals(msg0, out.toByteArray());
+		assertEquals(6, body.getStreamedLength());
+		assertEquals(2, in.available());
+	}
+
+	@Test
+	public void testChunkedStreamedKeepsChunks() throws Exception {
+		byte[] content = new byte[20000];
+		Arrays.fill(content, (byte) 'a');
+		ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+		ChunkedBodyTransferrer transferrer = new ChunkedBodyTransferrer(chunked);
+		transferrer.write(content, 0, content.length);
+		transferrer.write(content, 0, 3);
+		transferrer.finish(null);
+
+		ChunkedBody body = new ChunkedBody(new ByteArrayInputStream(chunked.toByteArray()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		body.write(new ChunkedBodyTransferrer(out), false);
+
+		assertArrayEquals(chunked.toByteArray(), out.toByteArray());
+		assertEquals(20003, body.getStreamedLength());
+		assertEquals(20003, body.getLength());
+	}
+
+	@Test
+	public void testBufferPool() {
+		BufferPool pool = new BufferPool(16, 4);
+		byte[] b1 = pool.acquire();
+		byte[] b2 = pool.acquire();
+		assertNotSame(b1, b2);
+		pool.release(b1);
+		assertSame(b1, pool.acquire());
+		pool.release(new byte[8]);
+		assertEquals(16, pool.acquire().length);
+	}
 }
@@ -120,4 +120,37 @@ public class HeaderTest {
         h.add("Foo", "3");
         assertEquals("1,2,3", h.getNormalizedValue("Foo"));
     }
+
+    @Test
+    void parsedHeaderNames() {
+        HeaderField f1 = new HeaderField("Content-Type:  text/plain \t");
+        HeaderField f2 = new HeaderField("content-TYPE:");
+        HeaderField f3 = new HeaderField("X-Custom: a: b");
+
+        assertSame(CONTENT_TYPE, f1.getHeaderName().toString());
+        assertEquals("text/plain", f1.getValue());
+        assertEquals("", f2.getValue());
+        assertEquals("content-TYPE", f2.getHeaderName().toString());
+        assertEquals(f1.getHeaderName(), f2.getHeaderName());
+        assertEquals(f1.getHeaderName().hashCode(), f2.getHeaderName().hashCode());
+        assertNotEquals(f1.getHeaderName(), f3.getHeaderName());
+        assertEquals("X-Custom", f3.getHeaderName().toString());
+        assertEquals("a: b", f3.getValue());
+        assertEquals(new HeaderName("\u00c4rger").hashCode(), new HeaderName("\u00e4RGER").hashCode());
+    }
+
+    @Test
+    void lookupIgnoresCase() {
+        Header h = new Header();
+        h.add("x-a", "1");
+        h.add(CONTENT_TYPE, "text/plain");
+        h.add("X-A", "2");
+        assertEquals("1", h.getFirstValue("X-a"));
+        assertEquals(2, h.getNumberOf("x-A"));
+        assertEquals("1,2", h.getNormalizedValue("X-A"));
+        h.setValue("X-A", "3");
+        assertEquals(1, h.getNumberOf("x-a"));
+        h.removeFields("content-type");
+        assertNull(h.getContentType());
+    }
 }
@@ -19,6 +19,7 @@ import org.junit.jupiter.api.*;
 
 import java.io.*;
 import java.net.*;
+import java.util.concurrent.atomic.*;
 
 import static com.predic8.membrane.core.http.Request.*;
 import static com.predic8.membrane.core.util.StringTestUtil.*;
@@ -176,4 +177,61 @@ public class RequestTest {
 
 		assertEquals("1,2,3",req.getHeader().getNormalizedValue("Foo"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void parseStartLineLikeRegex() throws Exception {
+		java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(.+?) (.+?) HTTP/(.+?)$");
+		for (String line : new String[]{"GET / HTTP/1.1", "PATCH /a b HTTP/1.0", "FOO /x HTTP/2", "GET /a HTTP/1.1 HTTP/1.0",
+				" GET / HTTP/1.1", "GET  HTTP/1.1 HTTP/1.1", "get /?q=HTTP/ HTTP/1.1"}) {
+			Request req = new Request();
+			req.parseStartLine(new ByteArrayInputStream((line + "\r\n").getBytes(ISO_8859_1)));
+			java.util.regex.Matcher m = pattern.matcher(line);
+			assertTrue(m.find());
+			assertEquals(m.group(1), req.getMethod(), line);
+			assertEquals(m.group(2), req.getUri(), line);
+			assertEquals(m.group(3), req.getVersion(), line);
+		}
+		Request req = new Request();
+		req.parseStartLine(new ByteArrayInputStream("CONNECT\r\n".getBytes(ISO_8859_1)));
+		assertEquals("STOMP", req.getVersion());
+	}
+
+	@Test
+	public void knownMethodsAreShared() throws Exception {
+		Request req = new Request();
+		req.parseStartLine(new ByteArrayInputStream("POST / HTTP/1.1\r\n".getBytes(ISO_8859_1)));
+		assertSame(METHOD_POST, req.getMethod());
+		assertSame("1.1", req.getVersion());
+	}
+
+	@Test
+	void parsedBodyIsCachedUntilTheBodyChanges() throws Exception {
+		Request req = new Builder().body("{\"a\":1}").build();
+		com.fasterxml.jackson.databind.JsonNode json = req.getParsedBody(BodyRepresentation.JSON);
+		assertEquals(1, json.get("a").asInt());
+		assertSame(json, req.getParsedBody(BodyRepresentation.JSON));
+
+		req.setBodyContent("{\"a\":2}".getBytes(UTF_8));
+		assertEquals(2, req.getParsedBody(BodyRepresentation.JSON).get("a").asInt());
+	}
+
+	@Test
+	void parsedDomIsNamespaceAware() throws Exception {
+		Request req = new Builder().body("<a:foo xmlns:a='urn:a'/>").build();
+		assertEquals("urn:a", req.getParsedBody(BodyRepresentation.DOM).getDocumentElement().getNamespaceURI());
+	}
+
+	@Test
+	void unparsableBodyIsParsedAgain() {
+		AtomicInteger parses = new AtomicInteger();
+		BodyRepresentation<Object> failing = new BodyRepresentation<>("failing", msg -> {
+			parses.incrementAndGet();
+			throw new IOException("unparsable");
+		});
+		Request req = new Builder().body("{").build();
+
+		assertThrows(IOException.class, () -> req.getParsedBody(failing));
+		assertThrows(IOException.class, () -> req.getParsedBody(failing));
+		assertEquals(2, parses.get());
+	}
+}
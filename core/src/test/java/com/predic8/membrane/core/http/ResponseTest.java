@@ -306,4 +306,19 @@ public class ResponseTest {
         assertTrue(res.isBodyEmpty());
         assertTrue(res.getBody() instanceof EmptyBody);
     }
-}
\ No newline at end of file
+
+	@Test
+	void parseStartLineLikeRegex() throws Exception {
+		java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("HTTP/(\\d\\.\\d) (\\d\\d\\d)( (.*?))?$");
+		for (String line : new String[]{"HTTP/1.1 200 OK", "HTTP/1.0 404", "HTTP/1.1 500 ", "HTTP/1.1 201 Created  x",
+				"xHTTP/1.1 200 OK", "HTTP/1.1 200OK HTTP/1.0 201 Created"}) {
+			Response res = new Response();
+			res.parseStartLine(new ByteArrayInputStream((line + "\r\n").getBytes()));
+			java.util.regex.Matcher m = pattern.matcher(line);
+			assertTrue(m.find());
+			assertEquals(m.group(1), res.getVersion(), line);
+			assertEquals(Integer.parseInt(m.group(2)), res.getStatusCode(), line);
+			assertEquals(m.group(4), res.getStatusMessage(), line);
+		}
+	}
+}
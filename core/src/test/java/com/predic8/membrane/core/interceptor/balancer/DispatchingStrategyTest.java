@@ -0,0 +1,133 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.balancer;
+
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispatchingStrategyTest {
+
+	private final List<Node> nodes = new ArrayList<>();
+
+	private final LoadBalancingInterceptor lb = new LoadBalancingInterceptor() {
+		@Override
+		public List<Node> getEndpoints() {
+			return nodes;
+		}
+	};
+
+	@BeforeEach
+	public void setUp() {
+		for (int i = 0; i < 3; i++) {
+			Node node = new Node("node" + i, 80);
+			node.setStatus(Node.Status.UP);
+			nodes.add(node);
+		}
+	}
+
+	@Test
+	public void leastRequests() throws Exception {
+		LeastRequestsStrategy strategy = new LeastRequestsStrategy();
+		nodes.get(0).addThread();
+		nodes.get(1).addThread();
+		nodes.get(1).addThread();
+		assertSame(nodes.get(2), strategy.dispatch(lb, null));
+
+		nodes.get(2).addThread();
+		Set<Node> chosen = new HashSet<>();
+		for (int i = 0; i < 3; i++)
+			chosen.add(strategy.dispatch(lb, null));
+		assertEquals(Set.of(nodes.get(0), nodes.get(2)), chosen);
+	}
+
+	@Test
+	public void powerOfTwoChoicesAvoidsSlowNode() throws Exception {
+		PowerOfTwoChoicesStrategy strategy = new PowerOfTwoChoicesStrategy();
+		long now = System.nanoTime();
+		strategy.record(nodes.get(0), MILLISECONDS.toNanos(100), now);
+		strategy.record(nodes.get(1), MILLISECONDS.toNanos(10), now);
+		strategy.record(nodes.get(2), MILLISECONDS.toNanos(10), now);
+
+		Map<Node, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 1000; i++)
+			counts.merge(strategy.dispatch(lb, null), 1, Integer::sum);
+		assertNull(counts.get(nodes.get(0)));
+
+		// requests in flight count as well
+		for (int i = 0; i < 20; i++)
+			nodes.get(1).addThread();
+		for (int i = 0; i < 100; i++)
+			assertNotSame(nodes.get(1), strategy.dispatch(lb, null));
+	}
+
+	@Test
+	public void powerOfTwoChoicesAvoidsNodeThatNeverAnswers() throws Exception {
+		PowerOfTwoChoicesStrategy strategy = new PowerOfTwoChoicesStrategy();
+		long now = System.nanoTime();
+		strategy.record(nodes.get(1), MILLISECONDS.toNanos(10), now);
+		strategy.record(nodes.get(2), MILLISECONDS.toNanos(10), now);
+
+		// requests are stuck on node0, it has never answered
+		Map<Node, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			Node node = strategy.dispatch(lb, null);
+			counts.merge(node, 1, Integer::sum);
+			if (node == nodes.get(0))
+				node.addThread();
+		}
+		assertTrue(counts.getOrDefault(nodes.get(0), 0) <= 11, counts.toString());
+	}
+
+	@Test
+	public void peakEwma() {
+		PowerOfTwoChoicesStrategy strategy = new PowerOfTwoChoicesStrategy();
+		Node node = nodes.get(0);
+		long now = 0;
+		strategy.record(node, 1000, now);
+		strategy.record(node, 50000, now);
+		assertEquals(50000, strategy.getLatency(node, now), 0.1);
+
+		// decays slowly after the peak
+		strategy.record(node, 1000, now + MILLISECONDS.toNanos(100));
+		double latency = strategy.getLatency(node, now + MILLISECONDS.toNanos(100));
+		assertTrue(latency > 49000 && latency < 50000, "" + latency);
+
+		assertEquals(latency / Math.E, strategy.getLatency(node, now + MILLISECONDS.toNanos(10100)), 1);
+	}
+
+	@Test
+	public void requestsInFlightAreReleased() throws Exception {
+		lb.setDispatchingStrategy(new LeastRequestsStrategy());
+
+		Exchange completed = Request.get("/").buildExchange();
+		lb.handleRequest(completed);
+		Exchange aborted = Request.get("/").buildExchange();
+		lb.handleRequest(aborted);
+		assertEquals(2, nodes.stream().mapToInt(Node::getThreads).sum());
+
+		completed.setResponse(Response.ok().build());
+		lb.handleResponse(completed);
+		lb.handleAbort(aborted);
+		lb.handleAbort(completed);
+		assertEquals(0, nodes.stream().mapToInt(Node::getThreads).sum());
+	}
+}
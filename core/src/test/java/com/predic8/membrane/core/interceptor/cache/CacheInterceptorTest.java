@@ -0,0 +1,158 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.cache;
+
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+
+import static com.predic8.membrane.core.interceptor.Outcome.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheInterceptorTest {
+
+	private static final long NOW = 1_000_000_000L;
+
+	private static Node node(int size, long expires) {
+		Node node = new Node() {
+			@Override
+			public Response toResponse(Request request) {
+				return Response.ok().build();
+			}
+
+			@Override
+			public int getSize() {
+				return size;
+			}
+		};
+		node.expires = expires;
+		return node;
+	}
+
+	private static CacheInterceptor.InMemoryStore createStore(long maxSize) {
+		CacheInterceptor.InMemoryStore store = new CacheInterceptor.InMemoryStore();
+		store.setMaxSize(maxSize);
+		store.init(new HttpRouter());
+		return store;
+	}
+
+	@Test
+	public void inMemoryStoreEvictsLeastRecentlyUsed() {
+		CacheInterceptor.InMemoryStore store = createStore(1000);
+		store.put("a", node(400, 0));
+		store.put("b", node(400, 0));
+		assertNotNull(store.get("a"));
+		store.put("c", node(400, 0));
+
+		assertNotNull(store.get("a"));
+		assertNull(store.get("b"));
+		assertNotNull(store.get("c"));
+		assertTrue(store.getSize() <= 1000);
+		assertEquals(3, store.getHits());
+		assertEquals(1, store.getMisses());
+		assertEquals(1, store.getEvictions());
+	}
+
+	@Test
+	public void inMemoryStoreDropsExpiredNodes() {
+		CacheInterceptor.InMemoryStore store = createStore(1000);
+		store.put("a", node(10, System.currentTimeMillis() - 1));
+		store.put("b", node(10, System.currentTimeMillis() + 60000));
+
+		assertNull(store.get("a"));
+		assertNotNull(store.get("b"));
+	}
+
+	@Test
+	public void expiry() throws Exception {
+		assertEquals(0, CacheInterceptor.getExpiry(Response.ok().build(), NOW));
+		assertEquals(NOW + 60000, CacheInterceptor.getExpiry(Response.ok().header("Cache-Control", "public, max-age=60").build(), NOW));
+		assertEquals(NOW + 10000, CacheInterceptor.getExpiry(Response.ok().header("Cache-Control", "max-age=60, s-maxage=\"10\"").build(), NOW));
+		assertEquals(NOW, CacheInterceptor.getExpiry(Response.ok().header("Cache-Control", "No-Store").build(), NOW));
+		assertEquals(NOW, CacheInterceptor.getExpiry(Response.ok().header("Cache-Control", "max-age=x").build(), NOW));
+		assertEquals(NOW + 3600000, CacheInterceptor.getExpiry(Response.ok()
+				.header("Date", "Tue, 10 Mar 2015 13:00:00 GMT")
+				.header("Expires", "Tue, 10 Mar 2015 14:00:00 GMT").build(), NOW));
+		assertEquals(NOW, CacheInterceptor.getExpiry(Response.ok().header("Expires", "0").build(), NOW));
+	}
+
+	@Test
+	public void concurrentMissesAreCoalesced() throws Exception {
+		CacheInterceptor ci = new CacheInterceptor();
+		ci.setStore(new CacheInterceptor.InMemoryStore());
+		ci.init(new HttpRouter());
+
+		Exchange first = createExchange();
+		assertEquals(CONTINUE, ci.handleRequest(first));
+
+		Future<Exchange> second = Executors.newSingleThreadExecutor().submit(() -> {
+			Exchange exc = createExchange();
+			assertEquals(RETURN, ci.handleRequest(exc));
+			return exc;
+		});
+		Thread.sleep(100);
+		assertFalse(second.isDone());
+
+		first.setResponse(Response.ok("cached").build());
+		ci.handleResponse(first);
+
+		assertEquals("cached", second.get(5, TimeUnit.SECONDS).getResponse().getBodyAsStringDecoded());
+	}
+
+	@Test
+	public void abortedRequestReleasesWaitingRequests() throws Exception {
+		CacheInterceptor ci = new CacheInterceptor();
+		ci.setStore(new CacheInterceptor.InMemoryStore());
+		ci.init(new HttpRouter());
+
+		Exchange first = createExchange();
+		assertEquals(CONTINUE, ci.handleRequest(first));
+
+		Future<Outcome> second = Executors.newSingleThreadExecutor().submit(() -> ci.handleRequest(createExchange()));
+		Thread.sleep(100);
+		ci.handleAbort(first);
+
+		assertEquals(CONTINUE, second.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void rewrittenDestinationReleasesPendingRequest() throws Exception {
+		CacheInterceptor ci = new CacheInterceptor();
+		ci.setStore(new CacheInterceptor.InMemoryStore());
+		ci.setCoalescingTimeout(60000);
+		ci.init(new HttpRouter());
+
+		Exchange first = createExchange();
+		assertEquals(CONTINUE, ci.handleRequest(first));
+		// e.g. by a load balancer
+		first.getDestinations().set(0, "http://node1/foo");
+		first.setResponse(Response.ok("cached").build());
+		ci.handleResponse(first);
+
+		Future<Outcome> second = Executors.newSingleThreadExecutor().submit(() -> ci.handleRequest(createExchange()));
+		assertEquals(CONTINUE, second.get(5, TimeUnit.SECONDS));
+	}
+
+	private static Exchange createExchange() throws Exception {
+		Exchange exc = Request.get("/foo").buildExchange();
+		exc.getDestinations().add("http://localhost/foo");
+		return exc;
+	}
+}
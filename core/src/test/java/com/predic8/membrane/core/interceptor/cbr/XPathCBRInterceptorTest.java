@@ -15,14 +15,20 @@
 package com.predic8.membrane.core.interceptor.cbr;
 
 import static com.predic8.membrane.core.util.ByteUtil.getByteArrayData;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static com.predic8.membrane.core.util.SynchronizedXPathFactory.newXPath;
+import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+
 import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
 
 import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Request;
@@ -66,6 +72,57 @@ public class XPathCBRInterceptorTest {
 
 	}
 
+	@Test
+	public void streamingAgreesWithXPath() throws Exception {
+		byte[] xml = getByteArrayData(getClass().getResourceAsStream("/customerFromBonnWithNS.xml"));
+		Map<String, String> ns = getNamespaceMap("pre", "http://predic8.de/customer/1");
+		Document doc = DocumentBuilderFactory.newNSInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+
+		for (String xpath : new String[] { "//pre:CITY", "/pre:CUSTOMER/pre:CITY", "/pre:CITY", "//CITY", "/*/*",
+				"/pre:CUSTOMER//pre:ID", "//pre:CUSTOMER//pre:CUSTOMER", "//*[text()='Panse']", "//pre:CITY[text()=\"Bonn\"]",
+				"//pre:CITY[text()='Bon']", "/ pre:CUSTOMER / pre:STREET[ text() = 'Moltkestrasse 44' ]" }) {
+			StreamingCaseMatcher matcher = StreamingCaseMatcher.create(getRouteList(xpath, "x"), ns);
+			assertNotNull(matcher, xpath);
+			boolean expected = (Boolean) newXPath(ns).evaluate(xpath, doc, XPathConstants.BOOLEAN);
+			assertEquals(expected, matcher.match(new ByteArrayInputStream(xml), "UTF-8") == 0, xpath);
+		}
+	}
+
+	@Test
+	public void onlySimplePathsAreStreamed() {
+		Map<String, String> ns = getNamespaceMap("pre", "http://predic8.de/customer/1");
+		for (String xpath : new String[] { "count(//pre:CITY) > 0", "//pre:CITY/text()='Bonn'", "//pre:CITY[1]", "//x:CITY", "//@id", "//CITY/" })
+			assertNull(StreamingCaseMatcher.create(getRouteList(xpath, "x"), ns), xpath);
+	}
+
+	@Test
+	public void firstMatchingCaseWins() throws Exception {
+		exc = new Exchange(null);
+		exc.setRequest(new Request.Builder().body("<a><b/><c/></a>").build());
+
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//d", "http://d", "//c", "http://c", "/a/b", "http://b"));
+		i.handleRequest(exc);
+		assertEquals("http://c", exc.getDestinations().get(0));
+
+		// Not a simple path, so all cases are evaluated as XPath expressions on the DOM
+		i.getCases().add(0, new Case("count(//b) = 2", "http://two-b"));
+		i.getCases().add(1, new Case("count(//b) = 1", "http://one-b"));
+		exc.getDestinations().clear();
+		i.handleRequest(exc);
+		assertEquals("http://one-b", exc.getDestinations().get(0));
+	}
+
+	@Test
+	public void malformedXmlIsReported() {
+		exc = new Exchange(null);
+		exc.setRequest(new Request.Builder().body("<a><b/>").build());
+
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//b", "http://b"));
+		assertThrows(Exception.class, () -> i.handleRequest(exc));
+	}
+
 	private List<Case> getRouteList(String... args) {
 		List<Case> l = new ArrayList<>();
 		for (int i = 0; i < args.length; i+=2) {
@@ -176,6 +176,17 @@ public class JavascriptInterceptorTest {
         assertEquals("äöüÄÖÜ", m.get("desc"));
     }
 
+    @ParameterizedTest
+    @ValueSource(classes = {GraalVMJavascriptSupport.class, RhinoJavascriptLanguageSupport.class})
+    void returnArray(Class<LanguageSupport> engine) throws Exception {
+        executeScript("""
+               [{id: 7}, 'Roller'];
+                """, engine);
+
+        assertEquals(APPLICATION_JSON, exc.getRequest().getHeader().getContentType());
+        assertEquals("[{\"id\":7},\"Roller\"]", exc.getRequest().getBodyAsStringDecoded());
+    }
+
     @ParameterizedTest
     @ValueSource(classes = {GraalVMJavascriptSupport.class, RhinoJavascriptLanguageSupport.class})
     public void testProperties(Class<LanguageSupport> engine) throws Exception {
@@ -24,11 +24,15 @@ import org.jose4j.jwk.RsaJwkGenerator;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
 import org.jose4j.lang.JoseException;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -234,6 +238,118 @@ public class JwtAuthInterceptorTest{
         asserts.call(exc);
     }
 
+    @Test
+    public void verifiedTokenIsCached() throws Exception {
+        RsaJsonWebKey privateKey = generateKey(KID);
+        JwtAuthInterceptor interceptor = prepareInterceptor(publicOnly(privateKey));
+        String jwt = getSignedJwt(privateKey);
+
+        for (int i = 0; i < 2; i++) {
+            Exchange exc = exchangeWithJwt(jwt);
+            interceptor.handleRequest(exc);
+            assertEquals(SUB_CLAIM_CONTENT, ((Map<?, ?>)exc.getProperties().get("jwt")).get("sub"));
+        }
+        assertEquals(1, interceptor.verifiedTokens.size());
+    }
+
+    @Test
+    public void expiredTokenIsNotCached() throws Exception {
+        RsaJsonWebKey privateKey = generateKey(KID);
+        JwtAuthInterceptor interceptor = prepareInterceptor(publicOnly(privateKey));
+
+        // still accepted because of the allowed clock skew
+        JwtClaims claims = createClaims(AUDIENCE);
+        claims.setIssuedAt(NumericDate.fromSeconds(NumericDate.now().getValue() - 60));
+        claims.setExpirationTimeMinutesInTheFuture(-0.1f);
+        Exchange exc = exchangeWithJwt(getSignedJwt(privateKey, claims));
+        interceptor.handleRequest(exc);
+
+        assertNotNull(exc.getProperties().get("jwt"));
+        assertEquals(0, interceptor.verifiedTokens.size());
+    }
+
+    @Test
+    public void unknownKidLoadsJwksAgain() throws Exception {
+        RsaJsonWebKey first = generateKey(KID);
+        RsaJsonWebKey second = generateKey(KID + "2");
+        Path jwksFile = Files.createTempFile("jwks", ".json");
+        try {
+            writeJwks(jwksFile, first);
+            JwtAuthInterceptor interceptor = initInterceptor(createInterceptorWithJwksUri(jwksFile));
+
+            writeJwks(jwksFile, first, second);
+            Exchange exc = exchangeWithJwt(getSignedJwt(second));
+            interceptor.handleRequest(exc);
+
+            assertEquals(SUB_CLAIM_CONTENT, ((Map<?, ?>)exc.getProperties().get("jwt")).get("sub"));
+        } finally {
+            Files.delete(jwksFile);
+        }
+    }
+
+    @Test
+    public void removedKeyIsRejectedAfterRefresh() throws Exception {
+        RsaJsonWebKey first = generateKey(KID);
+        RsaJsonWebKey second = generateKey(KID + "2");
+        Path jwksFile = Files.createTempFile("jwks", ".json");
+        try {
+            writeJwks(jwksFile, first, second);
+            JwtAuthInterceptor interceptor = initInterceptor(createInterceptorWithJwksUri(jwksFile));
+            String jwt = getSignedJwt(first);
+            interceptor.handleRequest(exchangeWithJwt(jwt));
+            assertEquals(1, interceptor.verifiedTokens.size());
+
+            writeJwks(jwksFile, second);
+            interceptor.refreshKeys();
+
+            Exchange exc = exchangeWithJwt(jwt);
+            interceptor.handleRequest(exc);
+            assertNull(exc.getProperties().get("jwt"));
+            assertEquals(JwtAuthInterceptor.ERROR_UNKNOWN_KEY, unpackBody(exc).get("description"));
+        } finally {
+            Files.delete(jwksFile);
+        }
+    }
+
+    private static RsaJsonWebKey generateKey(String kid) throws JoseException {
+        RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+        key.setKeyId(kid);
+        return key;
+    }
+
+    private static RsaJsonWebKey publicOnly(RsaJsonWebKey privateKey) {
+        RsaJsonWebKey publicOnly = new RsaJsonWebKey(privateKey.getRsaPublicKey());
+        publicOnly.setKeyId(privateKey.getKeyId());
+        return publicOnly;
+    }
+
+    private static void writeJwks(Path file, RsaJsonWebKey... privateKeys) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"keys\":[");
+        for (int i = 0; i < privateKeys.length; i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append(publicOnly(privateKeys[i]).toJson());
+        }
+        Files.writeString(file, sb.append("]}").toString());
+    }
+
+    private static Exchange exchangeWithJwt(String jwt) throws Exception {
+        return new Request.Builder()
+                .get("")
+                .header("Authorization", "Bearer " + jwt)
+                .buildExchange();
+    }
+
+    private JwtAuthInterceptor createInterceptorWithJwksUri(Path jwksFile) {
+        JwtAuthInterceptor interceptor = new JwtAuthInterceptor();
+        Jwks jwks = new Jwks();
+        jwks.setJwks(new ArrayList<>());
+        jwks.setJwksUris(jwksFile.toAbsolutePath().toString());
+        interceptor.setJwks(jwks);
+        interceptor.setExpectedAud(AUDIENCE);
+        return interceptor;
+    }
+
     private JwtAuthInterceptor prepareInterceptor(RsaJsonWebKey publicOnly) throws Exception {
         return initInterceptor(createInterceptor(publicOnly));
     }
@@ -0,0 +1,104 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.ratelimit;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static java.time.Duration.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerKeyRateLimitTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	private final AtomicLong now = new AtomicLong(42 * SECOND);
+
+	private int countAllowed(RateLimitStrategy strategy, String key, int requests) {
+		int allowed = 0;
+		for (int i = 0; i < requests; i++)
+			if (!strategy.isRequestLimitReached(key))
+				allowed++;
+		return allowed;
+	}
+
+	@Test
+	public void tokenBucket() {
+		TokenBucketRateLimit strategy = new TokenBucketRateLimit(ofSeconds(10), 5, now::get);
+		assertEquals(5, countAllowed(strategy, "a", 10));
+		assertEquals(5, countAllowed(strategy, "b", 10));
+
+		now.addAndGet(2 * SECOND - 1);
+		assertEquals(0, countAllowed(strategy, "a", 1));
+		assertEquals(1, strategy.getWaitNanos(new AtomicLong(now.get() + 8 * SECOND + 1), now.get()));
+		now.addAndGet(1);
+		assertEquals(1, countAllowed(strategy, "a", 10));
+
+		now.addAndGet(100 * SECOND);
+		assertEquals(5, countAllowed(strategy, "a", 10));
+	}
+
+	@Test
+	public void slidingWindowHasNoBurstAtWindowStart() {
+		SlidingWindowRateLimit strategy = new SlidingWindowRateLimit(ofSeconds(10), 10, now::get);
+		assertEquals(1, countAllowed(strategy, "a", 1));
+		now.addAndGet(9 * SECOND);
+		assertEquals(9, countAllowed(strategy, "a", 20));
+
+		// a fixed window would allow another 10 requests now
+		now.addAndGet(2 * SECOND);
+		assertEquals(1, countAllowed(strategy, "a", 20));
+		assertEquals(4 * SECOND + 1, strategy.getWaitNanos(new AtomicReference<>(new SlidingWindowRateLimit.Window(now.get() - SECOND, 10, 5)), now.get()));
+
+		now.addAndGet(5 * SECOND);
+		assertEquals(5, countAllowed(strategy, "a", 20));
+
+		now.addAndGet(20 * SECOND);
+		assertEquals(10, countAllowed(strategy, "a", 20));
+	}
+
+	@Test
+	public void idleKeysAreRemoved() {
+		for (PerKeyRateLimit<?> strategy : new PerKeyRateLimit<?>[]{
+				new TokenBucketRateLimit(ofSeconds(10), 5, now::get),
+				new SlidingWindowRateLimit(ofSeconds(10), 5, now::get)}) {
+			for (int i = 0; i < 100; i++)
+				strategy.isRequestLimitReached("key" + i);
+			assertEquals(100, strategy.getNumberOfKeys());
+
+			now.addAndGet(30 * SECOND);
+			strategy.isRequestLimitReached("other");
+			assertEquals(1, strategy.getNumberOfKeys());
+		}
+	}
+
+	@Test
+	public void concurrentRequestsAreCountedExactly() throws Exception {
+		for (RateLimitStrategy strategy : new RateLimitStrategy[]{
+				new TokenBucketRateLimit(ofHours(1), 1000),
+				new SlidingWindowRateLimit(ofHours(1), 1000)}) {
+			AtomicInteger allowed = new AtomicInteger();
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			for (int i = 0; i < 8; i++)
+				executor.submit(() -> allowed.addAndGet(countAllowed(strategy, "a", 500)));
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(1000, allowed.get());
+		}
+	}
+}
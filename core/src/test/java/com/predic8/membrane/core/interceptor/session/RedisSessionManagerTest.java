@@ -0,0 +1,157 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.session;
+
+import com.predic8.membrane.core.util.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.function.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisSessionManagerTest {
+
+    RedisStandIn redis;
+    final List<RedisSessionManager> managers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redis = new RedisStandIn();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        managers.forEach(RedisSessionManager::stop);
+        redis.close();
+    }
+
+    @Test
+    void sessionIsServedFromNearCache() throws Exception {
+        RedisSessionManager manager = createManager(0);
+        String cookie = write(manager, new Session(new HashMap<>()), "b");
+
+        int reads = redis.count("GETEX");
+        assertEquals("b", manager.cookieValueToAttributes(cookie).get("a"));
+        assertTrue(manager.isValidCookieForThisSessionManager(cookie));
+        assertEquals(reads, redis.count("GETEX"));
+        assertEquals(1, redis.count("SETEX"));
+
+        RedisSessionManager other = createManager(0);
+        assertEquals("b", other.cookieValueToAttributes(cookie).get("a"));
+        assertEquals(reads + 1, redis.count("GETEX"));
+    }
+
+    @Test
+    void changeOnOtherInstanceInvalidatesNearCache() throws Exception {
+        RedisSessionManager first = createManager(0);
+        RedisSessionManager second = createManager(0);
+        String cookie = write(first, new Session(new HashMap<>()), "b");
+
+        assertEquals("b", second.cookieValueToAttributes(cookie).get("a"));
+
+        write(first, new Session(first.cookieValueToAttributes(cookie)), "c");
+
+        awaitTrue(() -> "c".equals(second.cookieValueToAttributes(cookie).get("a")));
+    }
+
+    @Test
+    void unchangedSessionOnlyRefreshesExpiry() throws Exception {
+        RedisSessionManager manager = createManager(0);
+        String cookie = write(manager, new Session(new HashMap<>()), "b");
+
+        manager.getCookieValues(new Session(manager.cookieValueToAttributes(cookie)));
+
+        assertEquals(1, redis.count("SETEX"));
+        assertEquals(1, redis.count("EXPIRE"));
+    }
+
+    @Test
+    void writeBehindCoalescesWrites() throws Exception {
+        RedisSessionManager manager = createManager(60_000);
+        String cookie = write(manager, new Session(new HashMap<>()), "b");
+        write(manager, new Session(manager.cookieValueToAttributes(cookie)), "c");
+        write(manager, new Session(manager.cookieValueToAttributes(cookie)), "d");
+
+        assertEquals(0, redis.count("SETEX"));
+        assertEquals("d", manager.cookieValueToAttributes(cookie).get("a"));
+
+        manager.flush();
+
+        assertEquals(1, redis.count("SETEX"));
+        assertEquals("d", createManager(0).cookieValueToAttributes(cookie).get("a"));
+    }
+
+    @Test
+    void destroyWritesPendingSessionsAndEndsListener() throws Exception {
+        RedisSessionManager manager = createManager(60_000);
+        String cookie = write(manager, new Session(new HashMap<>()), "b");
+
+        manager.destroy();
+
+        assertEquals(1, redis.count("SETEX"));
+        assertEquals("b", createManager(0).cookieValueToAttributes(cookie).get("a"));
+        awaitTrue(() -> !manager.isListeningForInvalidations());
+    }
+
+    @Test
+    void initAgainDoesNotLeakListeners() throws Exception {
+        RedisSessionManager manager = createManager(0);
+        manager.init(null);
+        manager.init(null);
+        awaitTrue(manager::isListeningForInvalidations);
+
+        awaitTrue(() -> listenerThreads() == managers.size());
+    }
+
+    @Test
+    void unknownSessionIsNotValid() throws Exception {
+        assertFalse(createManager(0).isValidCookieForThisSessionManager("test-unknown=true"));
+    }
+
+    private String write(RedisSessionManager manager, Session session, String value) {
+        session.put("a", value);
+        return manager.getCookieValues(session).get(session) + "=true";
+    }
+
+    private RedisSessionManager createManager(int writeBehindInterval) throws Exception {
+        RedisConnector connector = new RedisConnector();
+        connector.setPort(redis.getPort());
+        connector.afterPropertiesSet();
+
+        RedisSessionManager manager = new RedisSessionManager();
+        manager.cookieNamePrefix = "test";
+        manager.setConnector(connector);
+        manager.setWriteBehindInterval(writeBehindInterval);
+        manager.init(null);
+        managers.add(manager);
+
+        awaitTrue(manager::isListeningForInvalidations);
+        return manager;
+    }
+
+    private static long listenerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("Redis Session Invalidation"))
+                .count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 50 && !condition.getAsBoolean(); i++)
+            Thread.sleep(100);
+        assertTrue(condition.getAsBoolean());
+    }
+}
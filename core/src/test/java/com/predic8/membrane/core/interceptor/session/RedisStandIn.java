@@ -0,0 +1,203 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.session;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Minimal Redis server for tests. Supports strings (without expiry) and pub/sub over RESP and counts the commands
+ * it received.
+ */
+class RedisStandIn implements AutoCloseable {
+
+    private final ServerSocket serverSocket = new ServerSocket(0);
+    final Map<String, String> data = new ConcurrentHashMap<>();
+    private final Map<String, Set<Client>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> commandCounts = new ConcurrentHashMap<>();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+
+    RedisStandIn() throws IOException {
+        Thread t = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Client client = new Client(serverSocket.accept());
+                    clients.add(client);
+                    client.start();
+                } catch (IOException ignored) {
+                }
+            }
+        }, "Redis Stand-In");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int count(String command) {
+        AtomicInteger count = commandCounts.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Client client : clients)
+            client.socket.close();
+    }
+
+    private class Client extends Thread {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<String> command = readCommand();
+                    if (command == null)
+                        return;
+                    handle(command);
+                }
+            } catch (IOException ignored) {
+            } finally {
+                subscribers.values().forEach(s -> s.remove(this));
+            }
+        }
+
+        private void handle(List<String> command) throws IOException {
+            String name = command.get(0).toUpperCase();
+            commandCounts.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+            switch (name) {
+                case "PING" -> simple("PONG");
+                case "GET", "GETEX" -> bulk(data.get(command.get(1)));
+                case "SET" -> {
+                    data.put(command.get(1), command.get(2));
+                    simple("OK");
+                }
+                case "SETEX" -> {
+                    data.put(command.get(1), command.get(3));
+                    simple("OK");
+                }
+                case "EXPIRE" -> integer(data.containsKey(command.get(1)) ? 1 : 0);
+                case "DEL" -> integer(data.remove(command.get(1)) != null ? 1 : 0);
+                case "PUBLISH" -> {
+                    Set<Client> receivers = subscribers.getOrDefault(command.get(1), Set.of());
+                    for (Client receiver : receivers)
+                        receiver.push("message", command.get(1), command.get(2));
+                    integer(receivers.size());
+                }
+                case "SUBSCRIBE" -> {
+                    for (String channel : command.subList(1, command.size())) {
+                        subscribers.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(this);
+                        subscription("subscribe", channel);
+                    }
+                }
+                case "UNSUBSCRIBE" -> {
+                    for (Map.Entry<String, Set<Client>> e : subscribers.entrySet())
+                        if (e.getValue().remove(this))
+                            subscription("unsubscribe", e.getKey());
+                }
+                default -> simple("OK");
+            }
+        }
+
+        private List<String> readCommand() throws IOException {
+            String line = readLine();
+            if (line == null)
+                return null;
+            if (line.charAt(0) != '*')
+                throw new IOException("Unexpected " + line);
+            int n = Integer.parseInt(line.substring(1));
+            List<String> command = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int len = Integer.parseInt(readLine().substring(1));
+                byte[] buf = in.readNBytes(len + 2);
+                command.add(new String(buf, 0, len, UTF_8));
+            }
+            return command;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c == -1)
+                    return null;
+                sb.append((char) c);
+            }
+            in.read();
+            return sb.toString();
+        }
+
+        private synchronized void simple(String s) throws IOException {
+            out.write(("+" + s + "\r\n").getBytes(UTF_8));
+            out.flush();
+        }
+
+        private synchronized void integer(long i) throws IOException {
+            out.write((":" + i + "\r\n").getBytes(UTF_8));
+            out.flush();
+        }
+
+        private synchronized void bulk(String s) throws IOException {
+            writeBulk(s);
+            out.flush();
+        }
+
+        private synchronized void subscription(String kind, String channel) throws IOException {
+            long count = subscribers.values().stream().filter(s -> s.contains(this)).count();
+            out.write("*3\r\n".getBytes(UTF_8));
+            writeBulk(kind);
+            writeBulk(channel);
+            out.write((":" + count + "\r\n").getBytes(UTF_8));
+            out.flush();
+        }
+
+        private synchronized void push(String... values) throws IOException {
+            out.write(("*" + values.length + "\r\n").getBytes(UTF_8));
+            for (String value : values)
+                writeBulk(value);
+            out.flush();
+        }
+
+        private void writeBulk(String s) throws IOException {
+            if (s == null) {
+                out.write("$-1\r\n".getBytes(UTF_8));
+                return;
+            }
+            byte[] b = s.getBytes(UTF_8);
+            out.write(("$" + b.length + "\r\n").getBytes(UTF_8));
+            out.write(b);
+            out.write("\r\n".getBytes(UTF_8));
+        }
+    }
+}
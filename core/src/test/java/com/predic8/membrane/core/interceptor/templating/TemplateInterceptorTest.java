@@ -16,6 +16,7 @@ package com.predic8.membrane.core.interceptor.templating;
 
 import com.fasterxml.jackson.databind.*;
 import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.beautifier.*;
 import com.predic8.membrane.core.exchange.*;
 import com.predic8.membrane.core.http.*;
 import com.predic8.membrane.core.resolver.*;
@@ -228,6 +229,46 @@ B: <%= params.b %>
         assertEquals("text/plain",exc.getRequest().getHeader().getContentType());
     }
 
+    @Test
+    void streamingIsSentChunked() throws Exception {
+        Exchange exchange = Request.post("/cities").contentType(APPLICATION_JSON).body("""
+                { "city": "Da Nang" }
+                """).buildExchange();
+
+        TemplateInterceptor interceptor = new TemplateInterceptor();
+        interceptor.setTextTemplate("{\"city\":\"<%= json.city %>\",\"ids\":[<% for (i in 1..3) { %><%= i > 1 ? ',' : '' %><%= i %><% } %>]}");
+        interceptor.setContentType(APPLICATION_JSON);
+        interceptor.setPretty("true");
+        interceptor.setStreaming(true);
+        interceptor.init(router);
+        interceptor.handleRequest(exchange);
+
+        assertInstanceOf(GeneratedBody.class, exchange.getRequest().getBody());
+        assertTrue(exchange.getRequest().getHeader().isChunked());
+
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        exchange.getRequest().write(sent, false);
+
+        Request received = new Request();
+        received.read(new ByteArrayInputStream(sent.toByteArray()), true);
+        assertEquals(new JSONBeautifier().beautify("{\"city\":\"Da Nang\",\"ids\":[1,2,3]}"), received.getBodyAsStringDecoded());
+    }
+
+    @Test
+    void streamingBodyCanBeRead() throws Exception {
+        Exchange exchange = Request.put("/foo").buildExchange();
+        TemplateInterceptor interceptor = new TemplateInterceptor();
+        interceptor.setTextTemplate("<% for (i in 1..5000) { %><%= i %>,<% } %>");
+        interceptor.setStreaming(true);
+        interceptor.init(router);
+        interceptor.handleRequest(exchange);
+
+        String body = exchange.getRequest().getBodyAsStringDecoded();
+        assertTrue(body.startsWith("1,2,3,"));
+        assertTrue(body.endsWith(",4999,5000,"));
+        assertEquals(TEXT_PLAIN, exchange.getRequest().getHeader().getContentType());
+    }
+
     private void setAndHandleRequest(String location) throws Exception {
         ti.setLocation(location);
         ti.init(router);
@@ -18,10 +18,14 @@ import com.predic8.membrane.core.transport.ws.WebSocketFrame;
 import com.predic8.membrane.core.transport.ws.WebSocketFrameAssembler;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
-import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class WebSocketFrameTest {
@@ -68,4 +72,56 @@ public class WebSocketFrameTest {
         assertEquals(numberOfFrames, counter[0]);
 
     }
+
+    @Test
+    public void testMasking() throws Exception {
+        Random random = new Random(7);
+        byte[] maskKey = new byte[4];
+        random.nextBytes(maskKey);
+        for (int length = 0; length < 40; length++) {
+            byte[] payload = new byte[length];
+            random.nextBytes(payload);
+            byte[] bytes = new WebSocketFrame(true, false, false, false, 2, true, maskKey, payload).toBytes();
+
+            int headerLength = bytes.length - length;
+            for (int i = 0; i < length; i++)
+                assertEquals((byte) (payload[i] ^ maskKey[i % 4]), bytes[headerLength + i]);
+
+            WebSocketFrame frame = new WebSocketFrame();
+            assertEquals(bytes.length, frame.tryRead(bytes, 0, bytes.length));
+            assertEquals(length, frame.getPayloadLength());
+            for (int i = 0; i < length; i++)
+                assertEquals(payload[i], frame.getPayload()[i]);
+        }
+    }
+
+    @Test
+    public void testLargeFrameIsStreamedAsFragments() throws Exception {
+        byte[] payload = new byte[300000];
+        new Random(42).nextBytes(payload);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(new WebSocketFrame(true, false, false, false, 2, true, new byte[]{1, 2, 3, 4}, payload).toBytes());
+        baos.write(new WebSocketFrame(true, false, false, false, 1, true, new byte[]{1, 2, 3, 4}, "after".getBytes()).toBytes());
+
+        List<WebSocketFrame> fragments = new ArrayList<>();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        new WebSocketFrameAssembler(new ByteArrayInputStream(baos.toByteArray()), null, 65536).readFrames(frame -> {
+            WebSocketFrame copy = new WebSocketFrame(frame.isFinalFragment(), false, false, false, frame.getOpcode(), false, new byte[4], new byte[0]);
+            copy.setPayloadLength(frame.getPayloadLength());
+            fragments.add(copy);
+            if (frame.getOpcode() != 1)
+                received.write(frame.getPayload(), 0, (int) frame.getPayloadLength());
+        });
+
+        assertTrue(fragments.size() > 3);
+        assertEquals(2, fragments.get(0).getOpcode());
+        for (int i = 0; i < fragments.size() - 1; i++) {
+            assertTrue(fragments.get(i).getPayloadLength() <= 65536);
+            if (i > 0)
+                assertEquals(0, fragments.get(i).getOpcode());
+            assertEquals(i >= fragments.size() - 2, fragments.get(i).isFinalFragment());
+        }
+        assertEquals(1, fragments.get(fragments.size() - 1).getOpcode());
+        assertArrayEquals(payload, received.toByteArray());
+    }
 }
@@ -14,6 +14,7 @@
 package com.predic8.membrane.core.interceptor.xml;
 
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.http.Request;
 import com.predic8.membrane.core.http.Response;
@@ -52,6 +53,25 @@ public class Json2XmlInterceptorTest {
                 parse(processThroughInterceptor(new ByteArrayInputStream("invalid json".getBytes(StandardCharsets.UTF_8))))));
     }
 
+    @Test
+    public void streaming() throws Exception {
+        Exchange exc = fillAndgetExchange(loadResource("/json/convert.json"));
+        Json2XmlInterceptor interceptor = new Json2XmlInterceptor();
+        interceptor.setStreaming(true);
+        interceptor.handleRequest(exc);
+        assertEquals(Header.CHUNKED, exc.getRequest().getHeader().getFirstValue(Header.TRANSFER_ENCODING));
+        assertEquals("sonoo\u00fc\u00f6\u00fc\u00f6", getNameFromDocument(DocumentBuilderFactory.newInstance().newDocumentBuilder().
+                parse(exc.getRequest().getBodyAsStream())));
+    }
+
+    @Test
+    public void streamingInvalidJson() throws Exception {
+        Json2XmlInterceptor interceptor = new Json2XmlInterceptor();
+        interceptor.setStreaming(true);
+        assertThrows(JSONException.class, () -> interceptor.handleRequest(fillAndgetExchange(
+                new ByteArrayInputStream("invalid json".getBytes(StandardCharsets.UTF_8)))));
+    }
+
     private Request createRequestFromBytes(byte[] bytes) throws IOException {
         return new Request.Builder().contentType(MimeType.APPLICATION_JSON_UTF8).body(bytes).build();
     }
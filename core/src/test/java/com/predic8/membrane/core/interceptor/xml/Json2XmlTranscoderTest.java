@@ -0,0 +1,113 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.xml;
+
+import com.fasterxml.jackson.databind.*;
+import com.predic8.membrane.core.http.*;
+import org.json.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.stream.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Json2XmlTranscoderTest {
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    /**
+     * The output has to be the same as the one of org.json, apart from the order of the elements with different
+     * names. The XML is compared by reading it back into JSON.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "{\"a\":{}}",
+            "{\"a\":\"text\"}",
+            "{\"a\":\"x & y <z>\"}",
+            "{\"a\":{\"b\":1,\"c\":-2.50,\"d\":true,\"e\":null,\"f\":\"\",\"g\":12345678901234567890,\"h\":1e5,\"i\":-0}}",
+            "{\"a\":{\"b\":[1,2,3]}}",
+            "{\"a\":{\"b\":[{\"c\":1},{\"c\":2}]}}",
+            "{\"a\":{\"b\":[[1,2],[3]]}}",
+            "{\"a\":{\"b\":[[[1,2]],\"x\"]}}",
+            "{\"a\":{\"b\":[]}}",
+            "{\"a\":{\"b\":[\"\",null]}}",
+            "{\"a\":{\"content\":\"text\",\"b\":1}}",
+            "{\"a\":{\"content\":[\"x\",1,true]}}",
+            "{\"a\":{\"content\":\"\"}}",
+            "{\"a\":[1,2]}",
+            "{\"a\":1,\"b\":2}",
+            "{\"s:Envelope\":{\"s:Body\":{\"order\":{\"id\":7}}}}",
+    })
+    void sameAsOrgJson(String json) throws Exception {
+        assertEquals(om.readTree(XML.toJSONObject(XML.toString(new JSONObject(json))).toString()),
+                om.readTree(XML.toJSONObject(transcode(json)).toString()));
+    }
+
+    static Stream<Path> testResources() throws IOException {
+        return Files.walk(Path.of("src/test/resources")).filter(p -> p.toString().endsWith(".json"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("testResources")
+    void sameAsOrgJsonForTestResources(Path file) throws Exception {
+        String json = Files.readString(file);
+        JSONObject expected;
+        try {
+            expected = XML.toJSONObject(XML.toString(new JSONObject(json)));
+        } catch (JSONException e) {
+            return; // not an object or names that are not valid in XML
+        }
+        assertEquals(om.readTree(expected.toString()), om.readTree(XML.toJSONObject(transcode(json)).toString()));
+    }
+
+    @Test
+    void xmlDeclarationAndDocumentOrder() throws Exception {
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a><z>1</z><y>2</y><y>3</y><x/></a>",
+                transcode("{\"a\":{\"z\":1,\"y\":[2,3],\"x\":\"\"}}"));
+    }
+
+    @Test
+    void objectAsContent() throws Exception {
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a>{&quot;b&quot;:1}</a>", transcode("{\"a\":{\"content\":{\"b\":1}}}"));
+    }
+
+    @Test
+    void invalidJson() {
+        assertThrows(JSONException.class, () -> Json2XmlTranscoder.prepare(new Body("{\"a\":".getBytes(UTF_8))));
+    }
+
+    @Test
+    void notAnObject() {
+        assertThrows(JSONException.class, () -> Json2XmlTranscoder.prepare(new Body("[1]".getBytes(UTF_8))));
+    }
+
+    @Test
+    void duplicateKey() {
+        assertThrows(JSONException.class, () -> Json2XmlTranscoder.prepare(new Body("{\"a\":1,\"a\":2}".getBytes(UTF_8))));
+    }
+
+    private static String transcode(String json) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Json2XmlTranscoder.prepare(new Body(json.getBytes(UTF_8))).writeTo(out);
+        return out.toString(UTF_8);
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.SAXParseException;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 
@@ -70,6 +71,26 @@ public class Xml2JsonInterceptorTest {
                 getJsonRootFromStream(processThroughInterceptorResponse(loadResource("/xml/convert.xml"))).get("bar").get("futf").asText());
     }
 
+    @Test
+    public void streaming() throws Exception {
+        Exchange exc = fillAndGetExchangewithEncodingHeader(loadResource("/xml/convert_without_encoding.xml"), Constants.ISO_8859_1);
+        Xml2JsonInterceptor interceptor = new Xml2JsonInterceptor();
+        interceptor.setStreaming(true);
+        interceptor.handleRequest(exc);
+        assertEquals(Header.CHUNKED, exc.getRequest().getHeader().getFirstValue(Header.TRANSFER_ENCODING));
+        assertNull(exc.getRequest().getHeader().getContentEncoding());
+        assertEquals("\u00fc\u00f6\u00fc\u00f6\u00fc\u00f6",
+                getJsonRootFromStream(exc.getRequest().getBodyAsStream()).get("bar").get("futf").asText());
+    }
+
+    @Test
+    public void streamingInvalidXml() throws Exception {
+        Xml2JsonInterceptor interceptor = new Xml2JsonInterceptor();
+        interceptor.setStreaming(true);
+        assertThrows(XMLStreamException.class, () -> interceptor.handleRequest(fillAndGetExchange(
+                new ByteArrayInputStream("<a>".getBytes(StandardCharsets.UTF_8)))));
+    }
+
     private JsonNode getJsonRootFromStream(InputStream stream) throws IOException {
         return new ObjectMapper().readTree(stream);
     }
@@ -0,0 +1,152 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.interceptor.xml;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+import com.predic8.membrane.core.http.*;
+import org.json.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import javax.xml.stream.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+public class Xml2JsonTranscoderTest {
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    /**
+     * The output has to be the same as the one of org.json, apart from the order of the keys.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "<a/>",
+            "<a></a>",
+            "<a>text</a>",
+            "<a>  spaced  text  </a>",
+            "<a>x &amp; y &lt;z&gt;</a>",
+            "<a><b>1</b><c>-2.50</c><d>true</d><e>FALSE</e><f>null</f><g>007</g><h>12345678901234567890</h><i>1e5</i><j>-0</j></a>",
+            "<a b=\"1\" c=\"x\" d=\"\"/>",
+            "<a b=\"1\">text</a>",
+            "<a><b>1</b><b>2</b><b>3</b></a>",
+            "<a><b>1</b><c/><b>2</b></a>",
+            "<a><b><c>1</c><d/><c>2</c></b><e/><b>3</b><e>4</e></a>",
+            "<a>x<b/>y</a>",
+            "<a>x<!-- comment -->y</a>",
+            "<r><a>x<!---->y</a></r>",
+            "<r><a>x<!---->y</a><a>z</a></r>",
+            "<r><a>z</a><a>x<!---->y</a></r>",
+            "<a><![CDATA[ 42 ]]></a>",
+            "<a>1<![CDATA[2]]>3</a>",
+            "<a><![CDATA[]]></a>",
+            "<a b=\"1\"><b>2</b></a>",
+            "<a content=\"1\"/>",
+            "<a content=\"1\">2</a>",
+            "<a><content>1</content><content>2</content></a>",
+            "<a><content>1</content></a>",
+            "<r><a><content>x<!---->y</content></a></r>",
+            "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns=\"urn:x\"><s:Body><order s:id=\"7\"/></s:Body></s:Envelope>",
+            "<?xml version=\"1.0\"?>\n<!-- before -->\n<a>\n  <b>1</b>\n  <?pi data?>\n  <b>2</b>\n</a>\n<!-- after -->",
+    })
+    void sameAsOrgJson(String xml) throws Exception {
+        assertEquals(om.readTree(XML.toJSONObject(xml).toString()), om.readTree(transcode(xml, null)));
+    }
+
+    static Stream<Path> testResources() throws IOException {
+        return Files.walk(Path.of("src/test/resources"))
+                .filter(p -> p.toString().endsWith(".xml"))
+                // exceeds the name length limit of the JDK parser
+                .filter(p -> !p.endsWith("long-element-name.xml"));
+    }
+
+    /**
+     * Whitespace is normalized before comparing, as org.json does not normalize attribute values like an XML parser.
+     */
+    @ParameterizedTest
+    @MethodSource("testResources")
+    void sameAsOrgJsonForTestResources(Path file) throws Exception {
+        String xml;
+        JSONObject expected;
+        try {
+            xml = Files.readString(file);
+            expected = XML.toJSONObject(xml);
+        } catch (IOException | JSONException e) {
+            return; // not UTF-8 or not well-formed
+        }
+        assumeFalse(xml.contains("<!DOCTYPE"));
+        assertEquals(normalizeWhitespace(om.readTree(expected.toString())), normalizeWhitespace(om.readTree(transcode(xml, null))));
+    }
+
+    private static JsonNode normalizeWhitespace(JsonNode node) {
+        if (node.isTextual())
+            return new TextNode(node.asText().replaceAll("[\\t\\r\\n]", " "));
+        if (node.isContainerNode())
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                e.setValue(normalizeWhitespace(e.getValue()));
+            }
+        if (node instanceof ArrayNode array)
+            for (int i = 0; i < array.size(); i++)
+                array.set(i, normalizeWhitespace(array.get(i)));
+        return node;
+    }
+
+    @Test
+    void encodingOverridesDeclaration() throws Exception {
+        byte[] xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><a>üö</a>".getBytes(ISO_8859_1);
+        assertEquals("üö", om.readTree(transcode(xml, "ISO-8859-1")).get("a").asText());
+    }
+
+    @Test
+    void encodingFromDeclaration() throws Exception {
+        byte[] xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a>üö</a>".getBytes(ISO_8859_1);
+        assertEquals("üö", om.readTree(transcode(xml, null)).get("a").asText());
+    }
+
+    @Test
+    void invalidXml() {
+        assertThrows(XMLStreamException.class, () -> Xml2JsonTranscoder.prepare(new Body("<a><b></a>".getBytes(UTF_8)), null));
+    }
+
+    @Test
+    void doctypeIsRejected() {
+        assertThrows(XMLStreamException.class, () -> Xml2JsonTranscoder.prepare(new Body("<!DOCTYPE a [<!ENTITY e \"x\">]><a>&e;</a>".getBytes(UTF_8)), null));
+    }
+
+    @Test
+    void keysInDocumentOrder() throws Exception {
+        assertEquals("{\"a\":{\"z\":1,\"y\":[2,3],\"x\":\"\"}}", transcode("<a z=\"1\"><y>2</y><y>3</y><x/></a>", null));
+    }
+
+    private static String transcode(String xml, String encoding) throws Exception {
+        return transcode(xml.getBytes(UTF_8), encoding);
+    }
+
+    private static String transcode(byte[] xml, String encoding) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Xml2JsonTranscoder.prepare(new Body(xml), encoding).writeTo(out);
+        return out.toString(UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.lang;
+
+import com.fasterxml.jackson.databind.node.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.util.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import static com.predic8.membrane.core.interceptor.Interceptor.Flow.REQUEST;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyBindingsTest {
+
+    @Test
+    void valueIsComputedOnFirstRead() {
+        AtomicInteger calls = new AtomicInteger();
+        LazyBindings bindings = new LazyBindings();
+        bindings.putLazy("a", calls::incrementAndGet);
+
+        assertTrue(bindings.containsKey("a"));
+        assertEquals(1, bindings.size());
+        assertEquals(0, calls.get());
+
+        assertEquals(1, bindings.get("a"));
+        assertEquals(1, bindings.get("a"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void replacedValueIsNotComputed() {
+        LazyBindings bindings = new LazyBindings();
+        bindings.putLazy("a", () -> fail("computed"));
+        bindings.put("a", 2);
+        bindings.putLazy("b", () -> fail("computed"));
+        bindings.remove("b");
+
+        assertEquals(Map.of("a", 2), new HashMap<>(bindings));
+    }
+
+    @Test
+    void jsonIsTakenFromTheParsedBody() throws Exception {
+        Exchange exc = new Request.Builder().post("/foo").contentType("application/json").body("{\"a\":1}").buildExchange();
+        Request req = exc.getRequest();
+        // Only visible to the bindings if they use the cached tree instead of parsing the body again
+        ((ObjectNode) req.getParsedBody(BodyRepresentation.JSON)).put("b", 2);
+
+        Map<String, Object> first = ScriptingUtils.createParameterBindings(new URIFactory(), exc, req, REQUEST, true);
+        Map<String, Object> second = ScriptingUtils.createParameterBindings(new URIFactory(), exc, req, REQUEST, true);
+
+        assertEquals(Map.of("a", 1, "b", 2), first.get("json"));
+        assertNotSame(first.get("json"), second.get("json"));
+    }
+}
@@ -0,0 +1,128 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.lang.javascript;
+
+import com.predic8.membrane.core.lang.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraalVMJavascriptSupportTest {
+
+    static ExecutorService executor;
+
+    @BeforeAll
+    static void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void teardown() {
+        executor.shutdownNow();
+    }
+
+    private Function<Map<String, Object>, Object> compile(String script) {
+        return new GraalVMJavascriptSupport().compileScript(executor, null, script);
+    }
+
+    @Test
+    void scriptsRunConcurrently() throws Exception {
+        // Both invocations have to be inside the script at the same time to count the latch down to zero.
+        Function<Map<String, Object>, Object> script = compile("latch.countDown(); latch.await(10, unit);");
+        CountDownLatch latch = new CountDownLatch(2);
+        Map<String, Object> params = Map.of("latch", latch, "unit", SECONDS);
+
+        Future<Object> first = executor.submit(() -> script.apply(params));
+        Future<Object> second = executor.submit(() -> script.apply(params));
+
+        assertEquals(true, first.get(20, SECONDS));
+        assertEquals(true, second.get(20, SECONDS));
+    }
+
+    @Test
+    void bindingsAreScopedToTheInvocation() {
+        Function<Map<String, Object>, Object> script = compile("typeof foo");
+
+        assertEquals("string", script.apply(Map.of("foo", "bar")));
+        assertEquals("undefined", script.apply(Map.of()));
+    }
+
+    @Test
+    void resultIsCopied() {
+        Object result = compile("({id: 7, price: 1.5, tags: ['a', 'b'], nested: {ok: true}})").apply(Map.of());
+
+        assertEquals(Map.of("id", 7, "price", 1.5, "tags", List.of("a", "b"), "nested", Map.of("ok", true)), result);
+    }
+
+    @Test
+    void sharedObjectIsCopiedTwice() {
+        Object result = compile("var o = {id: 7}; ({a: o, b: [o, o]})").apply(Map.of());
+
+        assertEquals(Map.of("a", Map.of("id", 7), "b", List.of(Map.of("id", 7), Map.of("id", 7))), result);
+    }
+
+    @Test
+    void selfReferenceFails() {
+        Function<Map<String, Object>, Object> script = compile("var a = {}; a.self = a; a");
+
+        assertThrows(IllegalArgumentException.class, () -> script.apply(Map.of()));
+    }
+
+    @Test
+    void functionIsNull() {
+        Map<String, Object> result = (Map<String, Object>) compile("({f: function() {}})").apply(Map.of());
+
+        assertTrue(result.containsKey("f"));
+        assertNull(result.get("f"));
+    }
+
+    @Test
+    void undefinedIsNull() {
+        assertNull(compile("var x = 1;").apply(Map.of()));
+    }
+
+    @Test
+    void hostObjectsAreUnwrapped() {
+        StringBuilder sb = new StringBuilder();
+        assertSame(sb, compile("sb.append('x')").apply(Map.of("sb", sb)));
+        assertEquals("x", sb.toString());
+    }
+
+    @Test
+    void expression() {
+        Function<Map<String, Object>, Boolean> expression = new GraalVMJavascriptSupport().compileExpression(executor, null, "a > 1");
+
+        assertTrue(expression.apply(Map.of("a", 2)));
+        assertFalse(expression.apply(Map.of("a", 0)));
+    }
+
+    @Test
+    void metrics() {
+        GraalVMJavascriptSupport support = new GraalVMJavascriptSupport();
+        Function<Map<String, Object>, Object> script = support.compileScript(executor, null, "1 + 1");
+        script.apply(Map.of());
+        script.apply(Map.of());
+
+        ScriptExecutorPool<?, ?> pool = (ScriptExecutorPool<?, ?>) script;
+        assertEquals(2, pool.getPoolWait().getCount());
+        assertEquals(2, pool.getExecution().getCount());
+    }
+}
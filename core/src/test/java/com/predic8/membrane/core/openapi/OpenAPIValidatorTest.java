@@ -19,12 +19,14 @@ package com.predic8.membrane.core.openapi;
 import com.predic8.membrane.core.openapi.model.*;
 import com.predic8.membrane.core.openapi.validators.*;
 import com.predic8.membrane.core.util.*;
+import io.swagger.v3.oas.models.media.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static com.predic8.membrane.core.openapi.util.TestUtils.getResourceAsStream;
 import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.METHOD;
 import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.PATH;
+import static com.predic8.membrane.core.openapi.validators.ValidationContext.ValidatedEntityType.PATH_PARAMETER;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class OpenAPIValidatorTest {
@@ -64,4 +66,28 @@ public class OpenAPIValidatorTest {
         assertEquals(405, errors.get(0).getContext().getStatusCode());
         assertEquals(METHOD, errors.get(0).getContext().getValidatedEntityType());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void firstMatchingPathWins() {
+        OpenAPIValidator firstMatch = new OpenAPIValidator(new URIFactory(),getResourceAsStream(this, "/openapi/specs/paths/first-match.yml"));
+        assertEquals(0, firstMatch.validate(Request.get().path("/items/7")).size());
+        ValidationErrors errors = firstMatch.validate(Request.get().path("/items/special"));
+        assertEquals(1,errors.size());
+        assertEquals(400, errors.get(0).getContext().getStatusCode());
+        assertEquals(PATH_PARAMETER, errors.get(0).getContext().getValidatedEntityType());
+    }
+
+    @Test
+    public void literalPathWithRegexCharacters() {
+        OpenAPIValidator firstMatch = new OpenAPIValidator(new URIFactory(),getResourceAsStream(this, "/openapi/specs/paths/first-match.yml"));
+        assertEquals(0, firstMatch.validate(Request.get().path("/v1.0/items")).size());
+        assertEquals(404, firstMatch.validate(Request.get().path("/v2/items")).get(0).getContext().getStatusCode());
+    }
+
+    @Test
+    public void validatorsAreCachedPerSchema() {
+        Schema<?> schema = new StringSchema();
+        assertSame(SchemaValidator.of(null, schema), SchemaValidator.of(null, schema));
+        assertNotSame(SchemaValidator.of(null, schema), SchemaValidator.of(null, new StringSchema()));
+    }
+}
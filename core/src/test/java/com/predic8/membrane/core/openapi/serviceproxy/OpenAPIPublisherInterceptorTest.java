@@ -62,20 +62,21 @@ public class OpenAPIPublisherInterceptorTest {
 
     @Test
     public void constuctor() {
-        assertEquals(27, interceptor.apis.size());
+        assertEquals(28, interceptor.apis.size());
         assertNotNull(interceptor.apis.get("references-test-v1-0"));
         assertNotNull(interceptor.apis.get("strings-test-api-v1-0"));
         assertNotNull(interceptor.apis.get("extension-sample-v1-4"));
         assertNotNull(interceptor.apis.get("query-params-test-api-v1-0"));
         assertNotNull(interceptor.apis.get("nested-objects-and-arrays-test-api-v1-0"));
         assertNotNull(interceptor.apis.get("references-response-test-v1-0"));
+        assertNotNull(interceptor.apis.get("streaming-validation-test-api-v1-0"));
     }
 
     @Test
     public void getApiDirectory() throws Exception {
         get.getRequest().setUri(OpenAPIPublisherInterceptor.PATH);
         assertEquals( RETURN, interceptor.handleRequest(get));
-        assertEquals(27, TestUtils.getMapFromResponse(get).size());
+        assertEquals(28, TestUtils.getMapFromResponse(get).size());
     }
 
     @Test
@@ -0,0 +1,101 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.openapi.validators;
+
+import com.predic8.membrane.core.openapi.model.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingSchemaValidatorTest extends AbstractValidatorTest {
+
+    @Override
+    String getOpenAPIFileName() {
+        return "/openapi/specs/streaming.yml";
+    }
+
+    @Test
+    public void valid() {
+        assertEquals(0, validate("{\"name\":\"abc\",\"b\":[{\"c\":[\"a\"]},{}],\"d\":{\"e\":1}}").size());
+    }
+
+    @Test
+    public void nestedInvalid() {
+        ValidationErrors errors = validator.validate(Request.post().path("/nested").json().body(getResourceAsStream("/openapi/messages/nested-objects-arrays-invalid.json")));
+        assertEquals(1, errors.size());
+        ValidationError e = errors.get(0);
+        assertEquals("/b/2/c/1", e.getContext().getJSONpointer());
+        assertEquals("string", e.getContext().getSchemaType());
+        assertEquals(400, e.getContext().getStatusCode());
+    }
+
+    @Test
+    public void stopsAtFirstError() {
+        ValidationErrors errors = validate("{\"name\":\"toolong\",\"b\":[1]}");
+        assertEquals(1, errors.size());
+        assertEquals("/name", errors.get(0).getContext().getJSONpointer());
+    }
+
+    @Test
+    public void requiredProperty() {
+        ValidationErrors errors = validate("{\"name\":\"abc\"}");
+        assertEquals(1, errors.size());
+        assertEquals("/b", errors.get(0).getContext().getJSONpointer());
+        assertEquals("Required property b is missing.", errors.get(0).getMessage());
+    }
+
+    @Test
+    public void additionalProperty() {
+        ValidationErrors errors = validate("{\"b\":[],\"foo\":{\"bar\":[1,2,3]}}");
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage().contains("foo"));
+    }
+
+    @Test
+    public void readOnlyProperty() {
+        ValidationErrors errors = validate("{\"id\":7,\"b\":[]}");
+        assertEquals(1, errors.size());
+        assertEquals("/id", errors.get(0).getContext().getJSONpointer());
+    }
+
+    @Test
+    public void maxItems() {
+        ValidationErrors errors = validate("{\"b\":[{},{},{},{}]}");
+        assertEquals(1, errors.size());
+        assertEquals("Array has 4 items. This is more then maxItems of 3.", errors.get(0).getMessage());
+    }
+
+    @Test
+    public void compositionIsValidatedOnSubtree() {
+        ValidationErrors errors = validate("{\"b\":[],\"d\":{\"f\":1}}");
+        assertTrue(errors.size() > 0);
+        assertTrue(errors.get(0).getContext().getJSONpointer().startsWith("/d"));
+    }
+
+    @Test
+    public void invalidJson() {
+        ValidationErrors errors = validate("{\"b\":[{\"c\":");
+        assertEquals(1, errors.size());
+        assertEquals("Request body cannot be parsed as JSON", errors.get(0).getMessage());
+    }
+
+    private ValidationErrors validate(String json) {
+        return validator.validate(Request.post().path("/nested").json().body(new ByteArrayInputStream(json.getBytes(UTF_8))));
+    }
+}
@@ -0,0 +1,136 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.rules;
+
+import com.predic8.membrane.core.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleIndexTest {
+
+	private MockRouter router;
+	private RuleManager manager;
+
+	@BeforeEach
+	public void setUp() {
+		router = new MockRouter();
+		manager = router.getRuleManager();
+	}
+
+	private ServiceProxy add(String host, String method, String path, int port) throws Exception {
+		ServiceProxyKey key = new ServiceProxyKey(host, method, path, port);
+		key.setUsePathPattern(true);
+		ServiceProxy sp = new ServiceProxy(key, "localhost", 80);
+		sp.init(router);
+		manager.addProxy(sp, RuleManager.RuleDefinitionSource.MANUAL);
+		return sp;
+	}
+
+	private Rule match(String host, String method, String uri, int port) {
+		return manager.getMatchingRule(host, method, uri, "1.1", port, null);
+	}
+
+	@Test
+	public void firstMatchWinsAcrossPartitions() throws Exception {
+		ServiceProxy wildcard = add("*.example.com", "*", ".*", 3000);
+		ServiceProxy exact = add("api.example.com", "*", ".*", 3000);
+		ServiceProxy any = add("*", "*", ".*", 3000);
+
+		assertSame(wildcard, match("api.example.com:3000", "GET", "/", 3000));
+		assertSame(any, match("other.org", "GET", "/", 3000));
+		assertSame(any, match(null, "GET", "/", 3000));
+
+		manager.ruleDown(wildcard);
+		assertSame(exact, match("API.Example.com", "GET", "/", 3000));
+	}
+
+	@Test
+	public void pathPrefixes() throws Exception {
+		ServiceProxy orders = add("*", "*", "/orders/.*", 3000);
+		ServiceProxy ordersV = add("*", "*", "/orders/v[12]/.*", 3000);
+		ServiceProxy alternatives = add("*", "*", "/a|/b", 3000);
+		ServiceProxy fallback = add("*", "*", ".*", 3000);
+
+		assertSame(orders, match("h", "GET", "/orders/v1/x", 3000));
+		assertSame(alternatives, match("h", "GET", "/b", 3000));
+		assertSame(fallback, match("h", "GET", "/order", 3000));
+
+		manager.removeRule(orders);
+		assertSame(ordersV, match("h", "GET", "/orders/v1/x", 3000));
+		assertSame(fallback, match("h", "GET", "/orders/v3/x", 3000));
+	}
+
+	@Test
+	public void portsAndMethods() throws Exception {
+		ServiceProxy post = add("*", "POST", ".*", 3000);
+		ServiceProxy other = add("*", "*", ".*", 3001);
+
+		assertSame(post, match("h", "POST", "/", 3000));
+		assertNull(match("h", "GET", "/", 3000));
+		assertSame(other, match("h", "GET", "/", 3001));
+		assertSame(post, match("h", "POST", "/", -1));
+	}
+
+	@Test
+	public void keyChangesAreNoticed() throws Exception {
+		ServiceProxy sp = add("a.example.com", "*", ".*", 3000);
+		assertSame(sp, match("a.example.com", "GET", "/", 3000));
+
+		((ServiceProxyKey) sp.getKey()).setHost("b.example.com");
+		assertNull(match("a.example.com", "GET", "/", 3000));
+		assertSame(sp, match("b.example.com", "GET", "/", 3000));
+	}
+
+	@Test
+	public void literalPrefix() {
+		assertEquals("/api/", RuleIndex.getLiteralPrefix("/api/.*"));
+		assertEquals("/ap", RuleIndex.getLiteralPrefix("/api?/.*"));
+		assertEquals("/api", RuleIndex.getLiteralPrefix("/api\\d"));
+		assertEquals("", RuleIndex.getLiteralPrefix("(?i)/api"));
+		assertEquals("", RuleIndex.getLiteralPrefix("/a|/b"));
+	}
+
+	@Test
+	public void sameResultAsLinearScan() throws Exception {
+		Random r = new Random(42);
+		String[] hosts = {"*", "a.com", "b.com", "*.a.com", "a.com b.com", "A.COM"};
+		String[] paths = {".*", "/x/.*", "/x/y.*", "/y", "/x|/y"};
+		String[] methods = {"*", "GET", "POST"};
+		for (int i = 0; i < 60; i++) {
+			ServiceProxy sp = add(hosts[r.nextInt(hosts.length)], methods[r.nextInt(methods.length)],
+					paths[r.nextInt(paths.length)], 3000 + r.nextInt(3));
+			sp.getKey().setUsePathPattern(r.nextBoolean());
+			sp.getKey().setPathRegExp(r.nextBoolean());
+		}
+		String[] reqHosts = {"a.com", "b.com", "x.a.com", "c.com", "A.com:80", null};
+		String[] uris = {"/", "/x/", "/x/y/z", "/y", "/z"};
+		for (String host : reqHosts)
+			for (String uri : uris)
+				for (String method : new String[]{"GET", "POST", "PUT"})
+					for (int port = 2999; port < 3003; port++)
+						assertSame(linearScan(host, method, uri, port), match(host, method, uri, port),
+								host + " " + method + " " + uri + ":" + port);
+	}
+
+	private Rule linearScan(String host, String method, String uri, int port) {
+		for (Rule rule : manager.getRules())
+			if (rule.isActive() && RuleIndex.matches(rule.getKey(), host, method, uri, "1.1", port, null))
+				return rule;
+		return null;
+	}
+}
@@ -0,0 +1,96 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.stats;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsAreContiguous() {
+		assertEquals(0, LatencyHistogram.getLowestValue(0));
+		for (int i = 1; i < LatencyHistogram.BUCKETS; i++)
+			assertEquals(LatencyHistogram.getHighestValue(i - 1) + 1, LatencyHistogram.getLowestValue(i));
+		assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.getHighestValue(LatencyHistogram.BUCKETS - 1));
+
+		for (long v : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123_456, LatencyHistogram.MAX_VALUE}) {
+			int index = LatencyHistogram.getIndex(v);
+			assertTrue(LatencyHistogram.getLowestValue(index) <= v && v <= LatencyHistogram.getHighestValue(index), "" + v);
+		}
+	}
+
+	@Test
+	public void quantilesAreWithinRelativeError() {
+		LatencyHistogram h = new LatencyHistogram();
+		Random r = new Random(1);
+		long[] values = new long[10000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(r.nextDouble() * 15);
+			h.record(values[i]);
+		}
+		Arrays.sort(values);
+
+		LatencyHistogram.Snapshot s = h.getSnapshot();
+		assertEquals(values.length, s.getTotal());
+		assertEquals(Arrays.stream(values).sum(), h.getSumMicros());
+		for (double q : new double[]{0.5, 0.9, 0.99, 0.999, 1}) {
+			long exact = values[(int) Math.ceil(q * values.length) - 1];
+			long approx = s.getValueAtQuantile(q);
+			assertTrue(approx >= exact && approx <= exact * (1 + 2.0 / LatencyHistogram.SUB_BUCKETS) + 1, q + ": " + exact + " " + approx);
+		}
+	}
+
+	@Test
+	public void countAtOrBelow() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int i = 0; i < 100; i++)
+			h.record(10);
+		for (int i = 0; i < 64; i++)
+			h.record(960 + i); // 960 to 1023 cover exactly four buckets
+		h.record(LatencyHistogram.MAX_VALUE + 1);
+
+		LatencyHistogram.Snapshot s = h.getSnapshot();
+		assertEquals(0, s.getCountAtOrBelow(9));
+		assertEquals(100, s.getCountAtOrBelow(10));
+		assertEquals(100 + 41, s.getCountAtOrBelow(1000));
+		assertEquals(164, s.getCountAtOrBelow(1_000_000));
+		assertEquals(165, s.getTotal());
+		assertEquals(LatencyHistogram.MAX_VALUE, s.getValueAtQuantile(1));
+	}
+
+	@Test
+	public void concurrentRecording() throws Exception {
+		LatencyHistogram h = new LatencyHistogram();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++)
+			executor.submit(() -> {
+				for (int i = 0; i < 10000; i++)
+					h.record(i % 100);
+			});
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(80000, h.getCount());
+		assertEquals(80000, h.getSnapshot().getTotal());
+		assertEquals(8 * 100 * 4950, h.getSumMicros());
+		assertEquals(49, h.getSnapshot().getValueAtQuantile(0.5));
+	}
+}
@@ -0,0 +1,149 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import com.predic8.membrane.core.transport.http.client.*;
+import com.predic8.membrane.core.util.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTest {
+
+	private ServerSocket serverSocket;
+	private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+	private TimerManager timerManager;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		serverSocket = new ServerSocket(0);
+		Thread acceptor = new Thread(() -> {
+			try {
+				while (true)
+					accepted.add(serverSocket.accept());
+			} catch (IOException e) {
+				// closed
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+		timerManager = new TimerManager();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		serverSocket.close();
+		for (Socket s : accepted)
+			s.close();
+		timerManager.shutdown();
+	}
+
+	private ConnectionManager createConnectionManager(int maxIdle, int maxTotal, long requestTimeout) {
+		ConnectionConfiguration cc = new ConnectionConfiguration();
+		cc.setKeepAliveTimeout(30000);
+		cc.setMaxIdlePerDestination(maxIdle);
+		cc.setMaxTotalPerDestination(maxTotal);
+		cc.setConnectionRequestTimeout(requestTimeout);
+		return new ConnectionManager(cc, timerManager);
+	}
+
+	private Connection get(ConnectionManager cm) throws IOException {
+		return cm.getConnection("localhost", serverSocket.getLocalPort(), null, null, 1000);
+	}
+
+	@Test
+	public void reusesMostRecentlyReleasedConnection() throws Exception {
+		ConnectionManager cm = createConnectionManager(-1, -1, 0);
+		Connection c1 = get(cm);
+		Connection c2 = get(cm);
+		c1.release();
+		c2.release();
+
+		assertSame(c2, get(cm));
+		assertSame(c1, get(cm));
+		assertEquals(2, cm.getNumberInPool());
+
+		ConnectionManager.PoolStatistics stats = cm.getPoolStatistics().get(0);
+		assertEquals(0, stats.idle());
+		assertEquals(2, stats.leased());
+		assertEquals(2, stats.created());
+	}
+
+	@Test
+	public void closesConnectionsBeyondMaxIdle() throws Exception {
+		ConnectionManager cm = createConnectionManager(1, -1, 0);
+		Connection c1 = get(cm);
+		Connection c2 = get(cm);
+		c1.release();
+		c2.release();
+
+		assertFalse(c1.isClosed());
+		assertTrue(c2.isClosed());
+		assertEquals(1, cm.getNumberInPool());
+
+		ConnectionManager.PoolStatistics stats = cm.getPoolStatistics().get(0);
+		assertEquals(1, stats.idle());
+		assertEquals(0, stats.leased());
+		assertEquals(1, stats.closed());
+	}
+
+	@Test
+	public void waitsForReleasedConnectionWhenMaxTotalIsReached() throws Exception {
+		ConnectionManager cm = createConnectionManager(-1, 1, 5000);
+		Connection c1 = get(cm);
+
+		Future<Connection> f = Executors.newSingleThreadExecutor().submit(() -> get(cm));
+		Thread.sleep(200);
+		assertFalse(f.isDone());
+		assertEquals(1, cm.getPoolStatistics().get(0).pending());
+
+		c1.release();
+		assertSame(c1, f.get(5, TimeUnit.SECONDS));
+		assertEquals(1, cm.getPoolStatistics().get(0).created());
+	}
+
+	@Test
+	public void failsAfterConnectionRequestTimeout() throws Exception {
+		ConnectionManager cm = createConnectionManager(-1, 1, 100);
+		Connection c1 = get(cm);
+
+		assertThrows(ConnectionPoolExhaustedException.class, () -> get(cm));
+
+		c1.close();
+		Connection c2 = get(cm);
+		assertNotSame(c1, c2);
+		assertEquals(1, cm.getPoolStatistics().get(0).leased());
+		assertEquals(1, cm.getPoolStatistics().get(0).closed());
+	}
+
+	@Test
+	public void closeAndReleaseAreCountedOnce() throws Exception {
+		ConnectionManager cm = createConnectionManager(-1, 1, 100);
+		Connection c1 = get(cm);
+		c1.close();
+		c1.release();
+		cm.releaseConnection(c1);
+
+		assertEquals(0, cm.getNumberInPool());
+		assertEquals(0, cm.getPoolStatistics().get(0).leased());
+		get(cm);
+		assertThrows(ConnectionPoolExhaustedException.class, () -> get(cm));
+	}
+}
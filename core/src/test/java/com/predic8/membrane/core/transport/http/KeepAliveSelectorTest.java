@@ -0,0 +1,125 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import com.predic8.membrane.core.rules.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import static com.predic8.membrane.core.interceptor.Outcome.*;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeepAliveSelectorTest {
+
+	private static final int PORT = 3067;
+
+	private HttpRouter router;
+	private final Set<Integer> connections = Collections.synchronizedSet(new HashSet<>());
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		router = new HttpRouter();
+		router.getTransport().setMode(HttpTransport.Mode.NIO);
+		router.getTransport().setSocketTimeout(1000);
+		ServiceProxy sp = new ServiceProxy(new ServiceProxyKey("*", "*", ".*", PORT), "", -1);
+		sp.getInterceptors().add(new AbstractInterceptor() {
+			@Override
+			public Outcome handleRequest(Exchange exc) throws Exception {
+				connections.add(((HttpServerHandler) exc.getHandler()).getSrcOut().hashCode());
+				exc.setResponse(Response.ok("OK.").build());
+				return RETURN;
+			}
+		});
+		router.getRuleManager().addProxyAndOpenPortIfNew(sp);
+		router.init();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		router.shutdown();
+	}
+
+	@Test
+	public void keepAliveConnectionIsParkedBetweenRequests() throws Exception {
+		try (Socket s = new Socket("localhost", PORT)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+			for (int i = 0; i < 3; i++) {
+				sendRequest(s);
+				assertTrue(in.readLine().startsWith("HTTP/1.1 200"));
+				skipResponse(in);
+				waitForParkedConnections(1);
+			}
+		}
+		assertEquals(1, connections.size());
+	}
+
+	@Test
+	public void parkedConnectionIsClosedByClient() throws Exception {
+		try (Socket s = new Socket("localhost", PORT)) {
+			sendRequest(s);
+			skipResponse(new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8)));
+			waitForParkedConnections(1);
+		}
+		waitForParkedConnections(0);
+		waitForOpenConnections(0);
+	}
+
+	@Test
+	public void parkedConnectionTimesOut() throws Exception {
+		try (Socket s = new Socket("localhost", PORT)) {
+			sendRequest(s);
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+			skipResponse(in);
+			waitForParkedConnections(1);
+			waitForOpenConnections(0);
+			assertNull(in.readLine());
+		}
+	}
+
+	private void sendRequest(Socket s) throws IOException {
+		s.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(UTF_8));
+		s.getOutputStream().flush();
+	}
+
+	private void skipResponse(BufferedReader in) throws IOException {
+		int contentLength = 0;
+		String line;
+		while (!(line = in.readLine()).isEmpty())
+			if (line.startsWith("Content-Length:"))
+				contentLength = Integer.parseInt(line.substring(15).trim());
+		for (int i = 0; i < contentLength; i++)
+			in.read();
+	}
+
+	private void waitForParkedConnections(int expected) throws InterruptedException {
+		for (int i = 0; i < 50 && router.getTransport().getKeepAliveSelector().getNumberOfParkedConnections() != expected; i++)
+			Thread.sleep(100);
+		assertEquals(expected, router.getTransport().getKeepAliveSelector().getNumberOfParkedConnections());
+	}
+
+	private void waitForOpenConnections(int expected) throws InterruptedException {
+		for (int i = 0; i < 50 && !router.getTransport().getOpenBackendConnections(PORT).equals("" + expected); i++)
+			Thread.sleep(100);
+		assertEquals("" + expected, router.getTransport().getOpenBackendConnections(PORT));
+	}
+}
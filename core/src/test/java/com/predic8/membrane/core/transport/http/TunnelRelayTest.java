@@ -0,0 +1,158 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.http;
+
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import com.predic8.membrane.core.rules.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.predic8.membrane.core.interceptor.Outcome.*;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TunnelRelayTest {
+
+	private static final int PROXY_PORT = 3068;
+	private static final int TARGET_PORT = 3069;
+
+	@Test
+	public void relaysBothDirections() throws Exception {
+		TunnelRelay relay = new TunnelRelay(2);
+		StreamPump.StreamPumpStats stats = new StreamPump.StreamPumpStats();
+		try (ServerSocketChannel server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress("localhost", 0));
+			Socket leftClient = new Socket("localhost", server.socket().getLocalPort());
+			Socket left = server.accept().socket();
+			Socket rightClient = new Socket("localhost", server.socket().getLocalPort());
+			Socket right = server.accept().socket();
+
+			CountDownLatch closed = new CountDownLatch(1);
+			relay.relay(left, right, stats, "test ->", "test <-", null, closed::countDown);
+
+			// more than the socket buffers can take, while the other side does not read yet
+			byte[] data = new byte[4 * 1024 * 1024];
+			new Random(42).nextBytes(data);
+			Thread writer = new Thread(() -> {
+				try {
+					leftClient.getOutputStream().write(data);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			writer.start();
+			Thread.sleep(200);
+			assertArrayEquals(data, rightClient.getInputStream().readNBytes(data.length));
+			writer.join();
+
+			rightClient.getOutputStream().write("pong".getBytes(US_ASCII));
+			assertEquals("pong", new String(leftClient.getInputStream().readNBytes(4), US_ASCII));
+
+			assertEquals(1, relay.getNumberOfTunnels());
+			assertEquals(Set.of((long) data.length, 4L), getTransferredBytes(stats, "test"));
+
+			// the end of one direction is passed on, the other direction keeps going
+			leftClient.shutdownOutput();
+			assertEquals(-1, rightClient.getInputStream().read());
+			rightClient.getOutputStream().write("late".getBytes(US_ASCII));
+			assertEquals("late", new String(leftClient.getInputStream().readNBytes(4), US_ASCII));
+			assertEquals(1, relay.getNumberOfTunnels());
+
+			rightClient.close();
+			assertTrue(closed.await(10, TimeUnit.SECONDS));
+			assertEquals(-1, leftClient.getInputStream().read());
+			assertEquals(0, relay.getNumberOfTunnels());
+			assertTrue(getTransferredBytes(stats, "test").isEmpty());
+			leftClient.close();
+		} finally {
+			relay.close();
+		}
+	}
+
+	@Test
+	public void connectTunnelIsRelayed() throws Exception {
+		HttpRouter router = new HttpRouter();
+		router.getTransport().setMode(HttpTransport.Mode.NIO);
+		router.getRuleManager().addProxyAndOpenPortIfNew(new ProxyRule(new ProxyRuleKey(PROXY_PORT)));
+		ServiceProxy sp = new ServiceProxy(new ServiceProxyKey("*", "*", ".*", TARGET_PORT), "", -1);
+		sp.getInterceptors().add(new AbstractInterceptor() {
+			@Override
+			public Outcome handleRequest(Exchange exc) throws Exception {
+				exc.setResponse(Response.ok("secret").build());
+				return RETURN;
+			}
+		});
+		router.getRuleManager().addProxyAndOpenPortIfNew(sp);
+		router.init();
+		try (Socket s = new Socket("localhost", PROXY_PORT)) {
+			OutputStream out = s.getOutputStream();
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), US_ASCII));
+			out.write(("CONNECT localhost:" + TARGET_PORT + " HTTP/1.1\r\nHost: localhost:" + TARGET_PORT + "\r\n\r\n").getBytes(US_ASCII));
+			assertTrue(in.readLine().startsWith("HTTP/1.1 200"));
+			skipHeader(in);
+
+			TunnelRelay relay = router.getTransport().getTunnelRelay();
+			for (int i = 0; i < 2; i++) {
+				out.write(("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(US_ASCII));
+				assertTrue(in.readLine().startsWith("HTTP/1.1 200"));
+				int length = 0;
+				String line;
+				while (!(line = in.readLine()).isEmpty())
+					if (line.toLowerCase().startsWith("content-length:"))
+						length = Integer.parseInt(line.substring(15).trim());
+				char[] body = new char[length];
+				assertEquals(length, in.read(body));
+				assertEquals("secret", new String(body));
+				awaitTunnels(relay, 1);
+			}
+		} finally {
+			router.shutdown();
+		}
+	}
+
+	/**
+	 * The tunnel is handed over to the relay after the bytes already buffered have been forwarded, so the client
+	 * might see the response before.
+	 */
+	private static void awaitTunnels(TunnelRelay relay, int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (relay.getNumberOfTunnels() != expected && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(expected, relay.getNumberOfTunnels());
+	}
+
+	private static void skipHeader(BufferedReader in) throws IOException {
+		String line;
+		while (!(line = in.readLine()).isEmpty())
+			;
+	}
+
+	private static Set<Long> getTransferredBytes(StreamPump.StreamPumpStats stats, String prefix) {
+		Set<Long> result = new HashSet<>();
+		for (Pump pump : stats.getStreamPumps())
+			if (pump.getName().startsWith(prefix))
+				result.add(pump.getTransferredBytes());
+		return result;
+	}
+}
@@ -0,0 +1,144 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.http2;
+
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import com.predic8.membrane.core.rules.*;
+import com.predic8.membrane.core.transport.http.*;
+import com.predic8.membrane.core.transport.http.client.*;
+import com.predic8.membrane.core.transport.http2.frame.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+
+import static com.predic8.membrane.core.transport.http.HttpClient.HTTP2;
+import static com.predic8.membrane.core.transport.http2.Http2ServerHandler.PREFACE;
+import static com.predic8.membrane.core.transport.http2.frame.Frame.*;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class H2cTest {
+    private static final int PORT = 3063;
+
+    private HttpRouter router;
+    private volatile Object serverHttp2;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        router = new HttpRouter();
+        router.setHotDeploy(false);
+        router.getTransport().setUseExperimentalH2c(true);
+        ServiceProxy sp = new ServiceProxy(new ServiceProxyKey(PORT), "localhost", 80);
+        sp.getInterceptors().add(new AbstractInterceptor() {
+            @Override
+            public Outcome handleRequest(Exchange exc) throws Exception {
+                serverHttp2 = exc.getProperty(Http2ServerHandler.HTTP2);
+                exc.setResponse(Response.ok("here").build());
+                return Outcome.RETURN;
+            }
+        });
+        router.getRules().add(sp);
+        router.start();
+    }
+
+    @AfterEach
+    public void done() {
+        router.stop();
+    }
+
+    @Test
+    public void priorKnowledge() throws Exception {
+        HttpClientConfiguration configuration = new HttpClientConfiguration();
+        configuration.setUseExperimentalH2c(true);
+        try (HttpClient hc = new HttpClient(configuration)) {
+            for (int i = 0; i < 2; i++) {
+                Exchange exc = new Request.Builder().get("http://localhost:" + PORT + "/").buildExchange();
+                hc.call(exc);
+
+                assertNotNull(exc.getProperty(HTTP2));
+                assertEquals(true, serverHttp2);
+                assertEquals(200, exc.getResponse().getStatusCode());
+                assertEquals("here", exc.getResponse().getBodyAsStringDecoded());
+            }
+        }
+    }
+
+    @Test
+    public void http11StillServed() throws Exception {
+        try (HttpClient hc = new HttpClient()) {
+            Exchange exc = new Request.Builder().get("http://localhost:" + PORT + "/").buildExchange();
+            hc.call(exc);
+
+            assertNull(exc.getProperty(HTTP2));
+            assertNull(serverHttp2);
+            assertEquals("here", exc.getResponse().getBodyAsStringDecoded());
+        }
+    }
+
+    @Test
+    public void upgrade() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out.write(("GET / HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Connection: Upgrade, HTTP2-Settings\r\n" +
+                    "Upgrade: h2c\r\n" +
+                    "HTTP2-Settings: AAMAAABkAAQAAP__\r\n" +
+                    "\r\n").getBytes(US_ASCII));
+            out.flush();
+
+            Response response = new Response();
+            response.read(in, false);
+            assertEquals(101, response.getStatusCode());
+            assertEquals("h2c", response.getHeader().getFirstValue(Header.UPGRADE));
+
+            out.write(PREFACE);
+            Frame settings = new Frame();
+            settings.fill(TYPE_SETTINGS, 0, 0, null, 0, 0);
+            settings.write(out);
+            out.flush();
+
+            Frame first = readFrame(in);
+            assertEquals(TYPE_SETTINGS, first.getType());
+
+            Frame frame;
+            do {
+                frame = readFrame(in);
+            } while (frame.getStreamId() != 1);
+            assertEquals(TYPE_HEADERS, frame.getType());
+
+            StringBuilder body = new StringBuilder();
+            do {
+                frame = readFrame(in);
+                if (frame.getType() == TYPE_DATA)
+                    body.append(new String(frame.getContent(), 0, frame.getLength(), US_ASCII));
+            } while (frame.getType() != TYPE_DATA || (frame.getFlags() & DataFrame.FLAG_END_STREAM) == 0);
+            assertEquals("here", body.toString());
+            assertEquals(true, serverHttp2);
+        }
+    }
+
+    private static Frame readFrame(InputStream in) throws IOException {
+        Frame frame = new Frame(new Settings());
+        frame.read(in);
+        return frame;
+    }
+}
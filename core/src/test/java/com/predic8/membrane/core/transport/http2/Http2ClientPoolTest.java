@@ -0,0 +1,115 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.http2;
+
+import com.predic8.membrane.core.*;
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import com.predic8.membrane.core.interceptor.*;
+import com.predic8.membrane.core.rules.*;
+import com.predic8.membrane.core.transport.http.*;
+import com.predic8.membrane.core.transport.http.client.*;
+import com.predic8.membrane.core.transport.http2.frame.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import static com.predic8.membrane.core.transport.http2.Http2ServerHandler.PREFACE;
+import static com.predic8.membrane.core.transport.http2.frame.Frame.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Http2ClientPoolTest {
+    private static final int PORT = 3064;
+
+    @Test
+    public void sequentialCallsShareOneConnection() throws Exception {
+        HttpRouter router = new HttpRouter();
+        router.setHotDeploy(false);
+        router.getTransport().setUseExperimentalH2c(true);
+        ServiceProxy sp = new ServiceProxy(new ServiceProxyKey(PORT), "localhost", 80);
+        sp.getInterceptors().add(new AbstractInterceptor() {
+            @Override
+            public Outcome handleRequest(Exchange exc) throws Exception {
+                exc.setResponse(Response.ok("here").build());
+                return Outcome.RETURN;
+            }
+        });
+        router.getRules().add(sp);
+        router.start();
+
+        HttpClientConfiguration configuration = new HttpClientConfiguration();
+        configuration.setUseExperimentalH2c(true);
+        try (HttpClient hc = new HttpClient(configuration)) {
+            // more than the 50 concurrent streams the server allows
+            for (int i = 0; i < 60; i++) {
+                Exchange exc = new Request.Builder().get("http://localhost:" + PORT + "/").buildExchange();
+                hc.call(exc);
+                assertEquals("here", exc.getResponse().getBodyAsStringDecoded());
+            }
+
+            // the last stream is released by the reader thread once it is closed
+            assertTrue(hc.getHttp2ClientPool().awaitIdle(5000));
+            Map<ConnectionKey, List<Integer>> streamsInUse = hc.getHttp2ClientPool().getStreamsInUse();
+            assertEquals(1, streamsInUse.size());
+            assertEquals(List.of(0), streamsInUse.values().iterator().next());
+        } finally {
+            router.stop();
+        }
+    }
+
+    @Test
+    public void goawayDrainsClient() throws Exception {
+        try (ServerSocket ss = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (Socket s = ss.accept()) {
+                    InputStream in = new BufferedInputStream(s.getInputStream());
+                    OutputStream out = s.getOutputStream();
+                    in.readNBytes(PREFACE.length);
+                    SettingsFrame.empty().write(out);
+                    Frame frame;
+                    do {
+                        frame = new Frame(new Settings());
+                        frame.read(in);
+                    } while (frame.getType() != TYPE_HEADERS);
+                    GoawayFrame.construct(0, 0, 0).write(out);
+                    out.flush();
+                    in.read();
+                } catch (IOException e) {
+                    // connection closed by the client
+                }
+            });
+            server.start();
+
+            Connection con = Connection.open("localhost", ss.getLocalPort(), null, null, 10000);
+            Http2Client client = new Http2Client(con, false);
+            try {
+                assertTrue(client.reserveStream());
+                Exchange exc = new Request.Builder().get("http://localhost/").header(Header.HOST, "localhost").buildExchange();
+                assertThrows(IOException.class, () -> client.doCall(exc, con));
+
+                assertTrue(client.isDraining());
+                assertFalse(client.reserveStream());
+                assertTrue(client.isIdle());
+                assertTrue(client.retireIfIdle());
+            } finally {
+                client.close();
+            }
+            server.join(10000);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.http2;
+
+import com.predic8.membrane.core.transport.http2.frame.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.predic8.membrane.core.transport.http2.frame.Frame.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityTreeTest {
+
+    private final PriorityTree tree = new PriorityTree();
+
+    @Test
+    public void siblingsShareByWeight() throws IOException {
+        StreamInfo a = stream(1, 100);
+        StreamInfo b = stream(3, 100);
+        tree.reprioritize(a, 64, null, false);
+        tree.reprioritize(b, 192, null, false);
+
+        Map<Integer, Integer> sent = poll(40);
+
+        assertEquals(10, sent.get(1), 1);
+        assertEquals(30, sent.get(3), 1);
+    }
+
+    @Test
+    public void parentIsServedBeforeChildren() throws IOException {
+        StreamInfo parent = stream(1, 3);
+        StreamInfo child = stream(3, 3);
+        tree.reprioritize(parent, 16, null, false);
+        tree.reprioritize(child, 16, parent, false);
+
+        List<Integer> order = new ArrayList<>();
+        Frame frame;
+        while ((frame = tree.pollDataFrame()) != null)
+            order.add(frame.getStreamId());
+
+        assertEquals(List.of(1, 1, 1, 3, 3, 3), order);
+    }
+
+    @Test
+    public void idleStreamDoesNotCatchUp() throws IOException {
+        StreamInfo a = stream(1, 20);
+        StreamInfo b = stream(3, 0);
+        tree.reprioritize(a, 16, null, false);
+        tree.reprioritize(b, 16, null, false);
+        poll(10);
+
+        for (int i = 0; i < 10; i++)
+            b.getDataFramesToBeSent().add(data(3));
+
+        Map<Integer, Integer> sent = poll(10);
+        assertEquals(5, sent.get(1), 1);
+        assertEquals(5, sent.get(3), 1);
+    }
+
+    @Test
+    public void closedLeafIsPrunedAndReattached() throws IOException {
+        StreamInfo closed = stream(1, 0);
+        tree.reprioritize(closed, 16, null, false);
+        closed.receivedHeaders();
+        closed.receivedRstStream();
+
+        assertNull(tree.pollDataFrame());
+        assertNull(closed.getPriorityParent());
+
+        StreamInfo child = stream(3, 1);
+        tree.reprioritize(child, 16, closed, false);
+        assertNotNull(closed.getPriorityParent());
+        assertEquals(3, tree.pollDataFrame().getStreamId());
+    }
+
+    @Test
+    public void framesAreCoalesced() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        FrameSender sender = new FrameSender(out, null, new Settings(), new ConcurrentHashMap<>(), tree, "test");
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            Frame frame = new Frame();
+            frame.fill(TYPE_PING, 0, 0, new byte[] { 1, 2, 3, 4, 5, 6, 7, (byte) i }, 0, 8);
+            frame.write(expected);
+            sender.send(frame);
+        }
+        sender.stop();
+        sender.run();
+
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+        assertEquals(1, out.writes);
+        assertEquals(1, sender.getWriteCount());
+        assertEquals(10, sender.getFramesWritten());
+        assertEquals(170, sender.getBytesWritten());
+    }
+
+    private Map<Integer, Integer> poll(int n) {
+        Map<Integer, Integer> sent = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            sent.merge(tree.pollDataFrame().getStreamId(), 1, Integer::sum);
+        return sent;
+    }
+
+    private static StreamInfo stream(int streamId, int frames) {
+        StreamInfo streamInfo = new StreamInfo(streamId, null, new Settings(), new Settings());
+        for (int i = 0; i < frames; i++)
+            streamInfo.getDataFramesToBeSent().add(data(streamId));
+        return streamInfo;
+    }
+
+    private static Frame data(int streamId) {
+        Frame frame = new Frame();
+        frame.fill(TYPE_DATA, 0, streamId, new byte[100], 0, 100);
+        return frame;
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        int writes;
+
+        @Override
+        public synchronized void write(int b) {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+}
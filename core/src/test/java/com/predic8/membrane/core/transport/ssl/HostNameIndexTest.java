@@ -0,0 +1,64 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.ssl;
+
+import com.predic8.membrane.core.rules.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.regex.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HostNameIndexTest {
+
+    private static final List<String> NAMES = List.of(
+            "www.example.com example.com",
+            "*.example.com",
+            "api.example.com",
+            "*.api.example.com *.example.org",
+            "foo*.example.net",
+            "*");
+
+    private final HostNameIndex index = new HostNameIndex(NAMES);
+
+    @Test
+    public void exactAndWildcardNames() {
+        assertEquals(0, index.find("www.example.com"));
+        assertEquals(0, index.find("EXAMPLE.com"));
+        assertEquals(1, index.find("api.example.com"));
+        assertEquals(1, index.find("a.api.example.com"));
+        assertEquals(3, index.find("a.example.org"));
+        assertEquals(4, index.find("foobar.example.net"));
+        assertEquals(5, index.find("example.org"));
+        assertEquals(-1, new HostNameIndex(List.of("example.com", "*.example.com")).find(".example.com"));
+    }
+
+    @Test
+    public void sameResultAsPatterns() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String name : NAMES)
+            patterns.add(Pattern.compile(ServiceProxyKey.createHostPattern(name), Pattern.CASE_INSENSITIVE));
+        for (String host : List.of("www.example.com", "x.www.example.com", "example.com", "api.example.com",
+                "b.a.api.example.com", "example.org", "x.example.org", "foo.example.net", "foo", "", "a..example.com")) {
+            int expected = -1;
+            for (int i = 0; i < patterns.size() && expected == -1; i++)
+                if (patterns.get(i).matcher(host).matches())
+                    expected = i;
+            assertEquals(expected, index.find(host), host);
+        }
+    }
+}
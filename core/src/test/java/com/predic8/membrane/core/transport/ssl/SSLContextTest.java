@@ -144,6 +144,18 @@ public class SSLContextTest {
 	}
 
 
+	@Test
+	public void sessionIsResumed() throws Exception {
+		SSLContext server = cb().withKeyStore("classpath:/ssl-rsa.keystore").build();
+		SSLContext client = cb().withTrustStore("classpath:/ssl-rsa-pub.keystore").build();
+		testCombination(server, client);
+		testCombination(server, client);
+
+		assertEquals(1, server.getHandshakeStatistics().getFullHandshakes());
+		assertEquals(1, server.getHandshakeStatistics().getResumedHandshakes());
+		assertEquals(2, server.getHandshakeStatistics().getLatency().getCount());
+	}
+
 	private void testCombination(SSLContext server, final SSLContext client) throws Exception {
 		ServerSocket ss = server.createServerSocket(3020, 50, null);
 
@@ -162,7 +174,7 @@ public class SSLContextTest {
 		t.start();
 
 		try {
-			Socket s = ss.accept();
+			Socket s = server.wrapAcceptedSocket(ss.accept());
 			s.getOutputStream().write("Hi\n".getBytes());
 			s.getOutputStream().flush();
 		} finally {
@@ -0,0 +1,104 @@
+/* Copyright 2024 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+
+package com.predic8.membrane.core.transport.ws;
+
+import com.predic8.membrane.core.exchange.*;
+import com.predic8.membrane.core.http.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerMessageDeflateTest {
+
+    @Test
+    public void negotiation() {
+        assertNull(PerMessageDeflate.negotiated(handshake(null)));
+        assertNull(PerMessageDeflate.negotiated(handshake("x-webkit-deflate-frame")));
+        assertNotNull(PerMessageDeflate.negotiated(handshake("foo, permessage-deflate; client_max_window_bits=10")));
+    }
+
+    @Test
+    public void decodesExampleFromRfc() throws Exception {
+        // RFC 7692, section 7.2.3.1
+        WebSocketFrame frame = new WebSocketFrame(true, true, false, false, 1, false, new byte[4],
+                new byte[]{(byte) 0xf2, 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, 0x07, 0x00});
+        PerMessageDeflate.negotiated(handshake("permessage-deflate")).getCodec(true).decode(frame);
+        assertEquals("Hello", payload(frame));
+        assertFalse(frame.isRsv1());
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        PerMessageDeflate sender = PerMessageDeflate.negotiated(handshake("permessage-deflate; server_no_context_takeover"));
+        PerMessageDeflate receiver = PerMessageDeflate.negotiated(handshake("permessage-deflate; server_no_context_takeover"));
+        for (boolean toServer : new boolean[]{true, false}) {
+            // the second message refers to the first one, unless there is no context takeover
+            for (int i = 0; i < 2; i++) {
+                String text = "{\"symbol\":\"ABC\",\"bid\":100.25,\"ask\":100.5}".repeat(20);
+                WebSocketFrame frame = new WebSocketFrame(true, false, false, false, 1, false, new byte[4], text.getBytes(UTF_8));
+                sender.getCodec(toServer).encode(frame);
+                assertTrue(frame.isRsv1());
+                assertTrue(frame.getPayloadLength() < text.length() / 4);
+
+                receiver.getCodec(toServer).decode(frame);
+                assertEquals(text, payload(frame));
+            }
+        }
+    }
+
+    @Test
+    public void fragmentedMessage() throws Exception {
+        PerMessageDeflate sender = PerMessageDeflate.negotiated(handshake("permessage-deflate"));
+        PerMessageDeflate receiver = PerMessageDeflate.negotiated(handshake("permessage-deflate"));
+        StringBuilder received = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            WebSocketFrame frame = new WebSocketFrame(i == 2, false, false, false, i == 0 ? 1 : 0, false, new byte[4], ("part" + i).getBytes(UTF_8));
+            sender.getCodec(true).encode(frame);
+            assertEquals(i == 0, frame.isRsv1());
+            receiver.getCodec(true).decode(frame);
+            received.append(payload(frame));
+        }
+        assertEquals("part0part1part2", received.toString());
+    }
+
+    @Test
+    public void smallWindowIsSentUncompressed() {
+        PerMessageDeflate deflate = PerMessageDeflate.negotiated(handshake("permessage-deflate; client_max_window_bits=10"));
+        WebSocketFrame frame = new WebSocketFrame(true, false, false, false, 1, false, new byte[4], "aaaaaaaaaaaaaaaa".getBytes(UTF_8));
+        deflate.getCodec(true).encode(frame);
+        assertFalse(frame.isRsv1());
+        assertEquals("aaaaaaaaaaaaaaaa", payload(frame));
+
+        deflate.getCodec(false).encode(frame);
+        assertTrue(frame.isRsv1());
+    }
+
+    private static String payload(WebSocketFrame frame) {
+        return new String(frame.getPayload(), 0, (int) frame.getPayloadLength(), UTF_8);
+    }
+
+    private static Exchange handshake(String extensions) {
+        Exchange exc = new Exchange(null);
+        Response.ResponseBuilder response = Response.statusCode(101);
+        if (extensions != null)
+            response.header(PerMessageDeflate.SEC_WEBSOCKET_EXTENSIONS, extensions);
+        exc.setResponse(response.build());
+        return exc;
+    }
+}
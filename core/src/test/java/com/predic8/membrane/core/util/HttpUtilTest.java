@@ -14,9 +14,12 @@
 
 package com.predic8.membrane.core.util;
 
+import com.predic8.membrane.core.transport.http.*;
 import org.junit.jupiter.api.*;
 
 import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
 
 import static com.predic8.membrane.core.Constants.*;
 import static com.predic8.membrane.core.util.HttpUtil.*;
@@ -49,4 +52,31 @@ public class HttpUtilTest {
     void unescapedHtmlMessageTest() {
 		assertEquals("<html><head><title>caption</title></head><body><h1>caption</h1><p>body</p></body></html>", unescapedHtmlMessage("caption","body"));
     }
+
+	@Test
+	public void lineBufferedInputStreamBehavesTheSame() throws Exception {
+		char[] longLine = new char[9000];
+		Arrays.fill(longLine, 'x');
+		String[] inputs = {s1, "a\nb\n\rc\r\n", "GET / HTTP/1.1\r\nHost: a\r\n\r\nrest", "\u00e4\u00ff\r\n", "no end",
+				new String(longLine), new String(longLine, 0, 8091) + "\r\n"};
+		for (String input : inputs)
+			for (int bufferSize : new int[]{1, 3, 2048})
+				assertEquals(readLines(new BufferedInputStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1)))),
+						readLines(new LineBufferedInputStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1)), bufferSize)),
+						input + " " + bufferSize);
+	}
+
+	private static List<String> readLines(InputStream in) throws Exception {
+		List<String> result = new ArrayList<>();
+		try {
+			for (int i = 0; i < 10; i++)
+				result.add(readLine(in));
+		} catch (EOFWhileReadingLineException e) {
+			result.add("EOF " + e.getLineSoFar());
+		} catch (LineTooLongException e) {
+			result.add("too long " + e.getMessage());
+		}
+		result.add("rest " + new String(in.readAllBytes(), StandardCharsets.ISO_8859_1));
+		return result;
+	}
 }